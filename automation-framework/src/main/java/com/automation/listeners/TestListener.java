@@ -15,7 +15,9 @@ public class TestListener implements ITestListener {
 
     @Override
     public void onStart(ITestContext context) {
-        log.info("========== Suite started: {} ==========", context.getName());
+        // Planned test count — the bot parses this line to show "x/N done" progress
+        log.info("========== Suite started: {} ({} tests) ==========",
+                context.getName(), context.getAllTestMethods().length);
     }
 
     @Override
@@ -0,0 +1,143 @@
+package com.automation.worker;
+
+import io.qameta.allure.Allure;
+import io.qameta.allure.AllureLifecycle;
+import io.qameta.allure.FileSystemResultsWriter;
+import org.aeonbits.owner.ConfigCache;
+import org.testng.TestNG;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Long-lived JVM that runs TestNG suites on request (warm pool worker for telegram-bot-server).
+ *
+ * Protocol (one line per message):
+ *   stdin : RUN|runId|suiteXml|testClass|reportsDir|allureDir|env|browser|headless
+ *           (suiteXml or testClass may be "-")
+ *   stdout: "@@WORKER READY" once classes are loaded,
+ *           "@@WORKER DONE runId status" after each run (status = TestNG exit status).
+ * Any other stdout line is test output and goes to the run log.
+ */
+public final class WarmTestWorker {
+
+    private static final String PREFIX = "@@WORKER ";
+    private static final String NONE = "-";
+
+    private final PrintStream out;
+    private final Path testClassesDir;
+
+    private WarmTestWorker(PrintStream out, Path testClassesDir) {
+        this.out = out;
+        this.testClassesDir = testClassesDir;
+    }
+
+    public static void main(String[] args) throws IOException {
+        PrintStream out = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+        Path testClassesDir = Paths.get(System.getProperty("worker.testClassesDir", "target/test-classes"));
+        WarmTestWorker worker = new WarmTestWorker(out, testClassesDir);
+
+        // Preload TestNG + Selenium so the first run does not pay class loading
+        new TestNG();
+        tryLoad("org.openqa.selenium.chrome.ChromeDriver");
+        tryLoad("io.restassured.RestAssured");
+
+        out.println(PREFIX + "READY");
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.startsWith("RUN|")) {
+                worker.handleRun(line.split("\\|", -1));
+            } else if (line.equals("EXIT")) {
+                break;
+            }
+        }
+    }
+
+    private void handleRun(String[] parts) {
+        String runId = parts[1];
+        int status;
+        try {
+            status = run(parts[2], parts[3], Paths.get(parts[4]), Paths.get(parts[5]),
+                    parts[6], parts[7], parts[8]);
+        } catch (Throwable t) {
+            t.printStackTrace(out);
+            status = -1;
+        }
+        out.println(PREFIX + "DONE " + runId + " " + status);
+    }
+
+    private int run(String suiteXml, String testClass, Path reportsDir, Path allureDir,
+                    String env, String browser, String headless) throws Exception {
+        System.setProperty("env", env);
+        System.setProperty("browser", browser);
+        System.setProperty("headless", headless);
+        System.setProperty("allure.results.directory", allureDir.toString());
+
+        // Config interfaces are cached per JVM — drop them so this run's env/browser is used
+        ConfigCache.clear();
+        Allure.setLifecycle(new AllureLifecycle(new FileSystemResultsWriter(allureDir)));
+
+        TestNG testng = new TestNG();
+        testng.setOutputDirectory(reportsDir.toString());
+        if (!NONE.equals(suiteXml)) {
+            testng.setTestSuites(List.of(suiteXml));
+        } else {
+            testng.setTestClasses(new Class<?>[]{resolveTestClass(testClass)});
+        }
+        testng.run();
+
+        // Surefire layout: TEST-*.xml directly in reports dir
+        copyJUnitReports(reportsDir);
+        return testng.getStatus();
+    }
+
+    /** "LoginTest" → com.automation.ui.LoginTest (same lookup surefire does for -Dtest) */
+    private Class<?> resolveTestClass(String testClass) throws Exception {
+        if (testClass.contains(".")) {
+            return Class.forName(testClass);
+        }
+        String fileName = testClass + ".class";
+        try (Stream<Path> files = Files.walk(testClassesDir)) {
+            Path classFile = files.filter(p -> p.getFileName().toString().equals(fileName))
+                    .findFirst()
+                    .orElseThrow(() -> new ClassNotFoundException(testClass));
+            String className = testClassesDir.relativize(classFile).toString()
+                    .replace(".class", "")
+                    .replace('/', '.')
+                    .replace('\\', '.');
+            return Class.forName(className);
+        }
+    }
+
+    private void copyJUnitReports(Path reportsDir) throws IOException {
+        Path junitDir = reportsDir.resolve("junitreports");
+        if (!Files.isDirectory(junitDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(junitDir, "TEST-*.xml")) {
+            for (Path report : stream) {
+                Files.copy(report, reportsDir.resolve(report.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static void tryLoad(String className) {
+        try {
+            Class.forName(className);
+        } catch (ClassNotFoundException ignored) {
+            // optional dependency
+        }
+    }
+}
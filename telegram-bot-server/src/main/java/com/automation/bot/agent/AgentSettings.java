@@ -0,0 +1,59 @@
+package com.automation.bot.agent;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.remote.RemoteWorkerRegistry.Capacity;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Cấu hình của worker agent: -Dagent.xxx, không có thì env AGENT_XXX, không có nữa thì default.
+ *
+ * Ví dụ 2 agent trên cùng 1 máy (mỗi agent 1 workspace riêng):
+ *   -Dagent.name=a1 -Dagent.workspace-dir=agent-runs/a1 -Dagent.browsers=2
+ *   -Dagent.name=a2 -Dagent.workspace-dir=agent-runs/a2 -Dagent.browsers=2
+ */
+public record AgentSettings(String coordinatorUrl,
+                            String token,
+                            String name,
+                            Capacity capacity,
+                            TestRunnerProperties runner) {
+
+    public static AgentSettings fromSystemProperties() {
+        TestRunnerProperties runner = new TestRunnerProperties();
+        runner.setFrameworkPath(required("framework-path"));
+        runner.setMavenHome(required("maven-home"));
+        runner.setWorkspaceDir(value("workspace-dir", "agent-runs"));
+        runner.setTimeoutMinutes(Integer.parseInt(value("timeout-minutes", "30")));
+
+        Capacity capacity = new Capacity(
+                Integer.parseInt(value("browsers", "1")),
+                Integer.parseInt(value("memory-mb", "2048")),
+                Double.parseDouble(value("cpus", Integer.toString(Runtime.getRuntime().availableProcessors()))));
+
+        String coordinator = value("coordinator-url", "http://localhost:8080");
+        return new AgentSettings(
+                coordinator.endsWith("/") ? coordinator.substring(0, coordinator.length() - 1) : coordinator,
+                value("token", System.getenv("BOT_API_TOKEN")),
+                // Mặc định: pid@host — nhiều agent cùng máy vẫn phân biệt được
+                value("name", ManagementFactory.getRuntimeMXBean().getName()),
+                capacity,
+                runner);
+    }
+
+    private static String value(String key, String defaultValue) {
+        String value = System.getProperty("agent." + key);
+        if (value == null) {
+            value = System.getenv("AGENT_" + key.toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+        return value != null && !value.isBlank() ? value : defaultValue;
+    }
+
+    private static String required(String key) {
+        String value = value(key, null);
+        if (value == null) {
+            throw new IllegalStateException("Missing -Dagent." + key);
+        }
+        return value;
+    }
+}
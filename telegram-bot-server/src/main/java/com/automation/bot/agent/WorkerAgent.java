@@ -0,0 +1,354 @@
+package com.automation.bot.agent;
+
+import com.automation.bot.runner.MavenCommand;
+import com.automation.bot.runner.RunWorkspace;
+import com.automation.bot.runner.RunWorkspaceManager;
+import com.automation.bot.runner.process.ProcessTree;
+import com.automation.bot.runner.remote.RemoteWorkerRegistry.Assignment;
+import com.automation.bot.runner.remote.RunArtifacts;
+import com.automation.bot.runner.watchdog.RunPhase;
+import com.automation.bot.runner.watchdog.RunWatchdog;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Worker agent: process nhẹ chạy trên máy khác (hoặc cùng máy), nhận run từ bot qua HTTP và chạy mvn test.
+ *
+ * Tại sao không khởi động cả Spring context như bot?
+ * → Agent chỉ cần HTTP client + chạy process. Không Telegram, không queue, không Tomcat
+ *   → khởi động trong vài trăm ms, vài chục MB heap, chạy được nhiều agent trên 1 máy.
+ *
+ * Dùng lại đúng các phần của bot: {@link MavenCommand} (cùng command mvn), {@link RunWatchdog}
+ * (inactivity / phase / timeout-minutes), {@link ProcessTree} (kill cả cây khi bị cancel).
+ *
+ * Chạy (từ jar của bot):
+ *   java -cp telegram-bot-server.jar -Dloader.main=com.automation.bot.agent.WorkerAgent \
+ *        -Dagent.coordinator-url=http://bot-host:8080 -Dagent.framework-path=... -Dagent.maven-home=... \
+ *        org.springframework.boot.loader.launch.PropertiesLauncher
+ */
+@Slf4j
+public class WorkerAgent {
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+    /** Gửi output theo lô ~1s một lần — mỗi dòng 1 request thì bot nhận hàng nghìn request/phút */
+    private static final long OUTPUT_FLUSH_MILLIS = 1000;
+    private static final int MAX_BATCH_CHARS = 256 * 1024;
+
+    private final AgentSettings settings;
+    private final RunWorkspaceManager workspaceManager;
+    private final RunWatchdog watchdog;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Process> running = new ConcurrentHashMap<>();
+    private final ExecutorService runs;
+    private final ScheduledExecutorService scheduler;
+    private volatile String agentId;
+    private volatile int leaseWaitSeconds;
+
+    public WorkerAgent(AgentSettings settings) {
+        this.settings = settings;
+        this.workspaceManager = new RunWorkspaceManager(settings.runner());
+        this.watchdog = new RunWatchdog(settings.runner());
+        AtomicInteger threadIds = new AtomicInteger();
+        this.runs = Executors.newCachedThreadPool(r -> new Thread(r, "agent-run-" + threadIds.incrementAndGet()));
+        this.scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "agent-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        new WorkerAgent(AgentSettings.fromSystemProperties()).run();
+    }
+
+    /** Đăng ký rồi long-poll lấy run mãi mãi */
+    public void run() throws InterruptedException {
+        int heartbeatSeconds = register();
+        scheduler.scheduleWithFixedDelay(this::heartbeatSafely, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+
+        while (!Thread.currentThread().isInterrupted()) {
+            String id = agentId;
+            try {
+                HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/api/agents/" + id + "/lease"))
+                        .timeout(Duration.ofSeconds(leaseWaitSeconds + 15L))
+                        .POST(HttpRequest.BodyPublishers.noBody()));
+                switch (response.statusCode()) {
+                    case 200 -> {
+                        Assignment assignment = mapper.readValue(response.body(), Assignment.class);
+                        runs.submit(() -> execute(assignment));
+                    }
+                    case 204 -> { }
+                    case 404 -> reRegister(id);
+                    default -> {
+                        log.warn("Lease failed with HTTP {}: {}", response.statusCode(), response.body());
+                        Thread.sleep(RETRY_DELAY.toMillis());
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Coordinator unreachable: {}", e.getMessage());
+                Thread.sleep(RETRY_DELAY.toMillis());
+            }
+        }
+    }
+
+    /** @return chu kỳ heartbeat (giây) bot yêu cầu */
+    private int register() throws InterruptedException {
+        String body;
+        try {
+            body = mapper.writeValueAsString(Map.of("name", settings.name(), "capacity", settings.capacity()));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        while (true) {
+            try {
+                HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/api/agents"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body)));
+                if (response.statusCode() == 200) {
+                    JsonNode registration = mapper.readTree(response.body());
+                    agentId = registration.get("agentId").asText();
+                    leaseWaitSeconds = registration.get("leaseWaitSeconds").asInt();
+                    log.info("Registered as {} at {} (capacity {})", agentId, settings.coordinatorUrl(), settings.capacity());
+                    return registration.get("heartbeatSeconds").asInt();
+                }
+                log.warn("Registration failed with HTTP {}: {}", response.statusCode(), response.body());
+            } catch (IOException e) {
+                log.warn("Coordinator unreachable: {}", e.getMessage());
+            }
+            Thread.sleep(RETRY_DELAY.toMillis());
+        }
+    }
+
+    /**
+     * Bot không còn biết agent này (restart / coi là mất) → run đang chạy không ai chờ nữa, kill rồi đăng ký lại.
+     * @param staleId agentId bị từ chối — lease và heartbeat cùng gặp 404 thì chỉ đăng ký lại 1 lần
+     */
+    private synchronized void reRegister(String staleId) throws InterruptedException {
+        if (!staleId.equals(agentId)) {
+            return;
+        }
+        running.forEach((runId, process) -> kill(runId, process, "coordinator forgot this agent"));
+        register();
+    }
+
+    private void heartbeatSafely() {
+        String id = agentId;
+        try {
+            HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/api/agents/" + id + "/heartbeat"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(running.keySet()))));
+            if (response.statusCode() == 404) {
+                reRegister(id);
+                return;
+            }
+            if (response.statusCode() == 200) {
+                for (JsonNode runId : mapper.readTree(response.body()).path("cancel")) {
+                    Process process = running.get(runId.asText());
+                    if (process != null) {
+                        kill(runId.asText(), process, "cancelled by coordinator");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    /** Chạy 1 run giống TestRunner.runSingle, output và report gửi về bot thay vì ghi local */
+    private void execute(Assignment assignment) {
+        String runId = assignment.runId();
+        Instant start = Instant.now();
+        int exitCode = -1;
+        String error = null;
+        RunWorkspace workspace = null;
+        try {
+            workspace = workspaceManager.create(runId);
+            List<String> command = MavenCommand.build(settings.runner(), assignment.request(), workspace);
+            log.info("[{}] Executing: {}", runId, String.join(" ", command));
+
+            ProcessBuilder processBuilder = new ProcessBuilder(command)
+                    .directory(new File(settings.runner().getFrameworkPath()))
+                    .redirectErrorStream(true);
+            processBuilder.environment().put("MAVEN_HOME", settings.runner().getMavenHome());
+            Process process = processBuilder.start();
+            running.put(runId, process);
+
+            try (OutputShipper shipper = new OutputShipper(runId, process);
+                 RunWatchdog.Watch watch = watchdog.watch(runId, RunPhase.RESOLVE)) {
+                watch.attach(process);
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        watch.accept(line);
+                        shipper.add(line);
+                    }
+                }
+                boolean finished = process.waitFor(1, TimeUnit.MINUTES);
+                if (!finished) {
+                    ProcessTree.destroy(process);
+                    error = "Process did not exit after closing output";
+                } else {
+                    exitCode = process.exitValue();
+                }
+                if (watch.isAborted()) {
+                    error = watch.getAbortReason();
+                }
+            }
+        } catch (Exception e) {
+            log.error("[{}] Failed to execute run: {}", runId, e.getMessage(), e);
+            error = e.getMessage();
+        } finally {
+            running.remove(runId);
+        }
+
+        long durationMs = Duration.between(start, Instant.now()).toMillis();
+        log.info("[{}] Finished with exit code {} in {} ms{}", runId, exitCode, durationMs, error != null ? ": " + error : "");
+        sendResult(runId, workspace, exitCode, durationMs, error);
+    }
+
+    private void sendResult(String runId, RunWorkspace workspace, int exitCode, long durationMs, String error) {
+        Path zip = null;
+        try {
+            zip = Files.createTempFile("agent-" + runId, ".zip");
+            if (workspace != null) {
+                try (OutputStream out = Files.newOutputStream(zip)) {
+                    RunArtifacts.zip(workspace, out);
+                }
+            }
+            String query = "?exitCode=" + exitCode + "&durationMs=" + durationMs
+                    + (error != null ? "&error=" + URLEncoder.encode(error, StandardCharsets.UTF_8) : "");
+            HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/api/agents/" + agentId + "/runs/" + runId + "/result" + query))
+                    .header("Content-Type", "application/zip")
+                    .POST(workspace != null ? HttpRequest.BodyPublishers.ofFile(zip) : HttpRequest.BodyPublishers.noBody()));
+            if (response.statusCode() == 410) {
+                log.info("[{}] Coordinator no longer waits for this run", runId);
+            } else if (response.statusCode() != 200) {
+                log.warn("[{}] Result upload failed with HTTP {}: {}", runId, response.statusCode(), response.body());
+            }
+        } catch (Exception e) {
+            log.error("[{}] Failed to send result: {}", runId, e.getMessage(), e);
+        } finally {
+            if (zip != null) {
+                try {
+                    Files.deleteIfExists(zip);
+                } catch (IOException ignored) {
+                    // File tạm — OS tự dọn
+                }
+            }
+        }
+    }
+
+    private void kill(String runId, Process process, String reason) {
+        ProcessTree.Reclaimed reclaimed = ProcessTree.destroy(process);
+        log.info("[{}] Killed ({}): {} processes, ~{} MB reclaimed", runId, reason,
+                reclaimed.processes(), reclaimed.rssMb());
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        if (settings.token() != null) {
+            request.header("Authorization", "Bearer " + settings.token());
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create(settings.coordinatorUrl() + path);
+    }
+
+    /**
+     * Gom output của 1 run, gửi về bot theo lô (mỗi ~1s, hoặc ngay khi lô quá lớn).
+     * Bot trả 410 → không còn ai chờ run này → kill process.
+     */
+    private final class OutputShipper implements AutoCloseable {
+
+        private final String runId;
+        private final Process process;
+        private final Object sendLock = new Object();
+        /** Guarded by this */
+        private final StringBuilder buffer = new StringBuilder();
+        private final ScheduledFuture<?> flusher;
+
+        OutputShipper(String runId, Process process) {
+            this.runId = runId;
+            this.process = process;
+            this.flusher = scheduler.scheduleWithFixedDelay(this::flushSafely,
+                    OUTPUT_FLUSH_MILLIS, OUTPUT_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        void add(String line) {
+            boolean full;
+            synchronized (this) {
+                buffer.append(line).append('\n');
+                full = buffer.length() >= MAX_BATCH_CHARS;
+            }
+            if (full) {
+                flushSafely();
+            }
+        }
+
+        private void flushSafely() {
+            try {
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("[{}] Failed to ship output: {}", runId, e.getMessage());
+            }
+        }
+
+        /** sendLock: lô lấy ra và gửi theo đúng thứ tự, kể cả khi flusher và thread đọc cùng flush */
+        private void flush() throws IOException, InterruptedException {
+            synchronized (sendLock) {
+                String batch;
+                synchronized (this) {
+                    if (buffer.isEmpty()) {
+                        return;
+                    }
+                    batch = buffer.toString();
+                    buffer.setLength(0);
+                }
+                HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/api/agents/" + agentId + "/runs/" + runId + "/output"))
+                        .header("Content-Type", "text/plain; charset=utf-8")
+                        .POST(HttpRequest.BodyPublishers.ofString(batch, StandardCharsets.UTF_8)));
+                if (response.statusCode() == 410 && process.isAlive()) {
+                    kill(runId, process, "coordinator no longer waits for this run");
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            flusher.cancel(false);
+            flushSafely();
+        }
+    }
+}
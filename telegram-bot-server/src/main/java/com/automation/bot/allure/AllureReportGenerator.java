@@ -1,13 +1,18 @@
 package com.automation.bot.allure;
 
 import com.automation.bot.config.AllureProperties;
+import com.automation.bot.metrics.BotMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Chạy allure generate để tạo HTML report từ allure-results.
@@ -24,15 +29,38 @@ public class AllureReportGenerator {
 
     private final AllureProperties allureProperties;
     private final GitHubPagesPublisher gitHubPagesPublisher;
+    private final BotMetrics metrics;
 
     /**
      * Chạy: allure generate allure-results -o allure-report --clean
      * @return URL đến report, hoặc null nếu generate fail
      */
     public String generateReport() {
+        return generateReport(Path.of(allureProperties.getResultsDir()));
+    }
+
+    /**
+     * Generate report từ allure-results của một run cụ thể (RunWorkspace.allureResultsDir()).
+     *
+     * Tại sao synchronized?
+     * → allure-report và worktree gh-pages là output DÙNG CHUNG (serve tại /allure/**).
+     *   2 run xong cùng lúc mà generate --clean song song → report lẫn lộn hoặc bị xóa giữa chừng.
+     * → Generate chỉ mất vài giây, serialize không ảnh hưởng throughput của queue.
+     */
+    public String generateReport(Path resultsPath) {
+        return generateReport(resultsPath, line -> log.debug("[allure] {}", line), process -> { });
+    }
+
+    /**
+     * @param output          nhận từng dòng output của allure CLI
+     * @param processListener nhận process ngay khi start — để watchdog kill được khi treo
+     */
+    public synchronized String generateReport(Path resultsPath, Consumer<String> output,
+                                              Consumer<Process> processListener) {
         String allureExecutable = allureProperties.getAllureHome() + "/bin/allure.bat";
-        String resultsDir = allureProperties.getResultsDir();
+        String resultsDir = resultsPath.toString();
         String reportDir = allureProperties.getReportDir();
+        Instant start = Instant.now();
 
         try {
             ProcessBuilder pb = new ProcessBuilder(
@@ -45,12 +73,13 @@ public class AllureReportGenerator {
             pb.redirectErrorStream(true);
 
             Process process = pb.start();
+            processListener.accept(process);
 
             // Đọc output
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
                 String line;
                 while ((line = reader.readLine()) != null) {
-                    log.debug("[allure] {}", line);
+                    output.accept(line);
                 }
             }
 
@@ -58,16 +87,23 @@ public class AllureReportGenerator {
             if (!finished) {
                 process.destroyForcibly();
                 log.error("Allure generate timed out");
+                metrics.allureGenerated(Duration.between(start, Instant.now()), false);
                 return null;
             }
 
             if (process.exitValue() != 0) {
                 log.error("Allure generate failed with exit code: {}", process.exitValue());
+                metrics.allureGenerated(Duration.between(start, Instant.now()), false);
                 return null;
             }
+            metrics.allureGenerated(Duration.between(start, Instant.now()), true);
 
             // Publish lên GitHub Pages (nếu enabled)
+            Instant publishStart = Instant.now();
             boolean published = gitHubPagesPublisher.publish();
+            if (allureProperties.getGithubPages().isEnabled()) {
+                metrics.allurePublished(Duration.between(publishStart, Instant.now()), published);
+            }
 
             String reportUrl;
             if (published && allureProperties.getGithubPages().isEnabled()) {
@@ -81,6 +117,7 @@ public class AllureReportGenerator {
 
         } catch (Exception e) {
             log.error("Failed to generate Allure report: {}", e.getMessage(), e);
+            metrics.allureGenerated(Duration.between(start, Instant.now()), false);
             return null;
         }
     }
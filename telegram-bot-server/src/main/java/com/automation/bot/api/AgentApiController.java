@@ -0,0 +1,102 @@
+package com.automation.bot.api;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.remote.RemoteWorkerRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Endpoint cho worker agent ({@code com.automation.bot.agent.WorkerAgent}) — cùng token với /api/runs.
+ *
+ * POST /api/agents                          đăng ký, body {"name", "capacity": {browsers, memoryMb, cpus}}
+ * POST /api/agents/{id}/heartbeat           body ["runId"...] đang chạy → các run phải kill
+ * POST /api/agents/{id}/lease               long-poll lấy run mới (204 = chưa có)
+ * POST /api/agents/{id}/runs/{run}/output   text/plain, mỗi dòng 1 dòng output
+ * POST /api/agents/{id}/runs/{run}/result   ?exitCode=&durationMs=&error= kèm body zip report
+ *
+ * 404 = agent chưa đăng ký (bot restart) → đăng ký lại; 410 = bot không còn chờ run → kill process.
+ */
+@RestController
+@RequestMapping("/api/agents")
+@RequiredArgsConstructor
+public class AgentApiController {
+
+    private final RemoteWorkerRegistry registry;
+    private final TestRunnerProperties runnerProperties;
+
+    public record RegisterRequest(String name, RemoteWorkerRegistry.Capacity capacity) {}
+
+    public record RegisterResponse(String agentId, int heartbeatSeconds, int leaseWaitSeconds) {}
+
+    @PostMapping
+    public RegisterResponse register(@RequestBody RegisterRequest request) {
+        String agentId = registry.register(request.name(), request.capacity());
+        TestRunnerProperties.Remote remote = runnerProperties.getRemote();
+        return new RegisterResponse(agentId, Math.max(1, remote.getAgentTimeoutSeconds() / 3), remote.getLeaseWaitSeconds());
+    }
+
+    @GetMapping
+    public List<RemoteWorkerRegistry.AgentStatus> agents() {
+        return registry.getAgents();
+    }
+
+    @PostMapping("/{agentId}/heartbeat")
+    public ResponseEntity<Map<String, List<String>>> heartbeat(@PathVariable String agentId,
+                                                               @RequestBody List<String> running) {
+        List<String> cancel = registry.heartbeat(agentId, running);
+        return cancel != null ? ResponseEntity.ok(Map.of("cancel", cancel)) : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/{agentId}/lease")
+    public ResponseEntity<RemoteWorkerRegistry.Assignment> lease(@PathVariable String agentId) throws InterruptedException {
+        RemoteWorkerRegistry.Assignment assignment = registry.lease(agentId,
+                Duration.ofSeconds(runnerProperties.getRemote().getLeaseWaitSeconds()));
+        return assignment != null ? ResponseEntity.ok(assignment) : ResponseEntity.noContent().build();
+    }
+
+    @PostMapping(value = "/{agentId}/runs/{runId}/output", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<Void> output(@PathVariable String agentId, @PathVariable String runId,
+                                       @RequestBody String lines) {
+        return registry.output(agentId, runId, lines.lines().toList())
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.status(HttpStatus.GONE).build();
+    }
+
+    @PostMapping("/{agentId}/runs/{runId}/result")
+    public ResponseEntity<Void> result(@PathVariable String agentId, @PathVariable String runId,
+                                       @RequestParam int exitCode, @RequestParam long durationMs,
+                                       @RequestParam(required = false) String error,
+                                       HttpServletRequest request) throws IOException {
+        RemoteWorkerRegistry.AgentResult result = new RemoteWorkerRegistry.AgentResult(exitCode, durationMs, error);
+        return registry.complete(agentId, runId, result, request.getInputStream())
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.status(HttpStatus.GONE).build();
+    }
+
+    @ExceptionHandler(NoSuchElementException.class)
+    public ResponseEntity<Map<String, String>> unknownAgent(NoSuchElementException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler({IllegalArgumentException.class, IllegalStateException.class})
+    public ResponseEntity<Map<String, String>> badRequest(RuntimeException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
@@ -0,0 +1,58 @@
+package com.automation.bot.api;
+
+import com.automation.bot.config.ApiProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Xác thực /api/** bằng header "Authorization: Bearer &lt;bot.api.token&gt;".
+ *
+ * Tại sao cần token riêng thay vì whitelist như {@link com.automation.bot.security.ChatIdFilter}?
+ * → API nhận request HTTP, không có chat id — ai gọi được port 8080 là trigger được mvn trên máy.
+ * → Chưa cấu hình token → API tắt hẳn, không bao giờ mở mặc định.
+ *
+ * So sánh token bằng {@link MessageDigest#isEqual} (constant-time) → không đoán dần được từng ký tự.
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class ApiTokenInterceptor implements HandlerInterceptor, WebMvcConfigurer {
+
+    private static final String BEARER = "Bearer ";
+
+    private final ApiProperties apiProperties;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this).addPathPatterns("/api/**");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        String expected = apiProperties.getToken();
+        if (expected == null || expected.isBlank()) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "HTTP API is disabled (bot.api.token is not set)");
+            return false;
+        }
+
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        String actual = header != null && header.startsWith(BEARER) ? header.substring(BEARER.length()).trim() : "";
+        if (!MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Unauthorized API request {} {} from {}", request.getMethod(), request.getRequestURI(),
+                    request.getRemoteAddr());
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return false;
+        }
+        return true;
+    }
+}
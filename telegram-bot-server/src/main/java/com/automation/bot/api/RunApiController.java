@@ -0,0 +1,160 @@
+package com.automation.bot.api;
+
+import com.automation.bot.config.ApiProperties;
+import com.automation.bot.config.BotProperties;
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.TestRunQueue;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunService;
+import com.automation.bot.runner.cache.RunResultCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * HTTP API cho CI job / script: submit run và chờ kết quả mà không cần Telegram.
+ *
+ * Tại sao cần thêm API khi đã có bot?
+ * → Pipeline không gửi được lệnh Telegram, và phải poll /status hoặc đọc chat để biết run xong chưa.
+ * → POST /api/runs trả runId ngay; GET /api/runs/{id}/events (SSE) đẩy status + từng test,
+ *   kết thúc bằng event "result" → pipeline chỉ cần 1 kết nối, block tới khi có kết quả.
+ *
+ * Run từ API đi qua đúng flow của command Telegram ({@link TestRunService}): cùng queue, budget, coalesce,
+ * cache kết quả (hit → 200 + kết quả cũ thay vì 202, "force": true để chạy lại).
+ *
+ * Ví dụ:
+ *   curl -H "Authorization: Bearer $TOKEN" -H "Content-Type: application/json" \
+ *        -d '{"profile":"smoke","env":"staging"}' http://localhost:8080/api/runs
+ *   curl -N -H "Authorization: Bearer $TOKEN" http://localhost:8080/api/runs/1a2b3c4d/events
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/runs")
+@RequiredArgsConstructor
+public class RunApiController {
+
+    /** profile / testClass / env / browser đi vào tham số của mvn → chỉ nhận tên đơn giản */
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.-]{1,100}");
+
+    private final TestRunService testRunService;
+    private final TestRunQueue testRunQueue;
+    private final RunEventStreams streams;
+    private final TestRunnerProperties runnerProperties;
+    private final BotProperties botProperties;
+    private final ApiProperties apiProperties;
+
+    /** @param coalesced true nếu request được gộp vào run giống hệt đang chờ/đang chạy (runId của run đó) */
+    public record SubmitResponse(String runId, boolean coalesced, String events, RunView run) {
+    }
+
+    /** Kết quả pass còn hạn của cùng code framework — không tạo run mới, không có SSE stream */
+    public record CachedResponse(String runId, boolean cached, Instant finishedAt, String framework,
+                                 RunView.Result result) {
+    }
+
+    @PostMapping
+    public ResponseEntity<?> submit(@RequestBody RunSubmission submission) {
+        TestRunRequest request = toRequest(submission);
+        if (!Boolean.TRUE.equals(submission.force())) {
+            Optional<RunResultCache.CachedRun> cached = testRunService.findCached(request);
+            if (cached.isPresent()) {
+                RunResultCache.CachedRun hit = cached.get();
+                return ResponseEntity.ok(new CachedResponse(hit.result().getRunId(), true, hit.finishedAt(),
+                        hit.revision().shortLabel(), RunView.Result.of(hit.result())));
+            }
+        }
+        TestRunQueue.TestRunInfo info = testRunService.submit(request);
+        if (info == null) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(Map.of("error", "Queue is full or the API user reached its queued-run limit"));
+        }
+        streams.track(info);
+
+        String runId = info.getRequest().getRunId();
+        log.info("[{}] Run submitted via HTTP API ({})", runId, request.getProfile() != null
+                ? request.getProfile() : request.getTestClass());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/runs/" + runId))
+                .body(new SubmitResponse(runId, !runId.equals(request.getRunId()),
+                        "/api/runs/" + runId + "/events", streams.view(runId)));
+    }
+
+    @GetMapping("/{runId}")
+    public ResponseEntity<RunView> get(@PathVariable String runId) {
+        RunView view = streams.view(runId);
+        return view != null ? ResponseEntity.ok(view) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping(value = "/{runId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events(@PathVariable String runId) {
+        SseEmitter emitter = streams.open(runId);
+        return emitter != null ? ResponseEntity.ok(emitter) : ResponseEntity.notFound().build();
+    }
+
+    /** Giống /cancel: run được gộp với người khác → API chỉ bỏ đăng ký, run vẫn chạy cho họ */
+    @DeleteMapping("/{runId}")
+    public ResponseEntity<Void> cancel(@PathVariable String runId) {
+        return testRunQueue.cancel(runId, apiProperties.getUserId())
+                ? ResponseEntity.accepted().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    TestRunRequest toRequest(RunSubmission submission) {
+        if ((submission.profile() == null) == (submission.testClass() == null)) {
+            throw new IllegalArgumentException("Exactly one of profile or testClass is required");
+        }
+        Long notifyChatId = submission.notifyChatId();
+        if (notifyChatId != null && !botProperties.getAllowedChatIds().contains(notifyChatId)) {
+            throw new IllegalArgumentException("notifyChatId is not in bot.telegram.allowed-chat-ids");
+        }
+
+        String profile = name("profile", submission.profile());
+        TestRunnerProperties.Sharding sharding = runnerProperties.getSharding();
+        int shards = submission.shards() != null
+                ? submission.shards()
+                : profile != null ? sharding.getDefaultShards().getOrDefault(profile, 1) : 1;
+
+        return TestRunRequest.builder()
+                .runId(UUID.randomUUID().toString().substring(0, 8))
+                .chatId(notifyChatId != null ? notifyChatId : TestRunRequest.NO_CHAT)
+                .userId(apiProperties.getUserId())
+                .env(submission.env() != null ? name("env", submission.env()).toLowerCase(Locale.ROOT) : runnerProperties.getDefaultEnv())
+                .profile(profile)
+                .testClass(name("testClass", submission.testClass()))
+                .browser(submission.browser() != null ? name("browser", submission.browser()) : runnerProperties.getDefaultBrowser())
+                .headless(submission.headless() != null ? submission.headless() : runnerProperties.isHeadless())
+                .shards(Math.max(1, Math.min(shards, sharding.getMaxShards())))
+                .build();
+    }
+
+    private static String name(String field, String value) {
+        if (value != null && !NAME.matcher(value).matches()) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,294 @@
+package com.automation.bot.api;
+
+import com.automation.bot.config.ApiProperties;
+import com.automation.bot.runner.RunStatus;
+import com.automation.bot.runner.TestRunQueue;
+import com.automation.bot.runner.TestRunResult;
+import com.automation.bot.runner.progress.RunProgress;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SSE stream theo từng run: event "status" khi đổi trạng thái, "test" cho từng test, "result" khi xong.
+ *
+ * Tại sao không gửi thẳng emitter.send() trong listener?
+ * → Listener chạy trên thread đọc output của mvn / worker của run. Client đọc chậm (mạng CI chậm)
+ *   làm send() block → output của mvn bị dồn, watchdog tưởng run bị treo.
+ * → Mỗi stream có hàng đợi riêng, thread "sse-sender" gửi dần. Hàng đợi đầy → bỏ event "test"
+ *   (tiến độ vẫn có trong event sau), không bao giờ bỏ "status"/"result".
+ *
+ * Kết quả của run submit qua API được giữ lại (bounded) → client mở stream sau khi run đã xong
+ * vẫn nhận được "result" thay vì 404.
+ */
+@Slf4j
+@Component
+public class RunEventStreams {
+
+    private static final long KEEPALIVE_SECONDS = 20;
+    /** Đánh dấu cuối stream trong hàng đợi gửi */
+    private static final Object COMPLETE = new Object();
+
+    private final TestRunQueue testRunQueue;
+    private final Duration streamTimeout;
+    private final int maxPendingEvents;
+    private final ExecutorService sender;
+    private final ScheduledExecutorService keepAlive;
+    private final Set<Stream> streams = ConcurrentHashMap.newKeySet();
+    private final Set<String> tracked = ConcurrentHashMap.newKeySet();
+
+    /** Run đã xong (submit qua API) → snapshot cuối, LRU. Guarded by itself */
+    private final Map<String, RunView> finished;
+
+    public RunEventStreams(TestRunQueue testRunQueue, ApiProperties properties) {
+        this.testRunQueue = testRunQueue;
+        this.streamTimeout = Duration.ofMinutes(properties.getStreamTimeoutMinutes());
+        this.maxPendingEvents = properties.getMaxPendingEvents();
+        int retained = properties.getFinishedRunsRetained();
+        this.finished = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RunView> eldest) {
+                return size() > retained;
+            }
+        };
+
+        AtomicInteger threadIds = new AtomicInteger();
+        this.sender = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "sse-sender-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // Proxy / load balancer thường cắt kết nối im lặng quá 30-60s
+        this.keepAlive = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sse-keepalive");
+            t.setDaemon(true);
+            return t;
+        });
+        this.keepAlive.scheduleWithFixedDelay(() -> streams.forEach(Stream::keepAlive),
+                KEEPALIVE_SECONDS, KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** Giữ lại kết quả của run (submit qua API) sau khi nó rời khỏi queue */
+    public void track(TestRunQueue.TestRunInfo info) {
+        if (!tracked.add(info.getRequest().getRunId())) {
+            return;
+        }
+        info.addListener(new TestRunQueue.RunListener() {
+            @Override
+            public void onStatus(TestRunQueue.TestRunInfo run, RunStatus status) {
+                if (status == RunStatus.CANCELLED) {
+                    retain(run);
+                }
+            }
+
+            @Override
+            public void onResult(TestRunQueue.TestRunInfo run, TestRunResult result) {
+                retain(run);
+            }
+        });
+        if (info.getResult() != null) {
+            retain(info);
+        }
+    }
+
+    private void retain(TestRunQueue.TestRunInfo info) {
+        String runId = info.getRequest().getRunId();
+        synchronized (finished) {
+            finished.put(runId, RunView.of(info, null));
+        }
+        tracked.remove(runId);
+    }
+
+    /** Snapshot hiện tại của run, null nếu không biết runId (hoặc đã xong và không submit qua API) */
+    public RunView view(String runId) {
+        TestRunQueue.TestRunInfo info = testRunQueue.getRun(runId);
+        if (info != null) {
+            return RunView.of(info, testRunQueue.getQueuePosition(runId));
+        }
+        synchronized (finished) {
+            return finished.get(runId);
+        }
+    }
+
+    /** Mở stream cho run. @return null nếu không biết runId */
+    public SseEmitter open(String runId) {
+        TestRunQueue.TestRunInfo info = testRunQueue.getRun(runId);
+        if (info == null) {
+            RunView done;
+            synchronized (finished) {
+                done = finished.get(runId);
+            }
+            if (done == null) {
+                return null;
+            }
+            // Run đã xong → gửi trạng thái cuối rồi đóng luôn
+            Stream stream = new Stream(null, new SseEmitter(streamTimeout.toMillis()));
+            stream.enqueue(SseEmitter.event().name("status").data(done), true);
+            if (done.result() != null) {
+                stream.enqueue(SseEmitter.event().name("result").data(done.result()), true);
+            }
+            stream.enqueue(COMPLETE, true);
+            return stream.emitter;
+        }
+
+        Stream stream = new Stream(info, new SseEmitter(streamTimeout.toMillis()));
+        streams.add(stream);
+        info.addListener(stream);
+        info.getProgress().addListener(stream);
+        stream.enqueue(SseEmitter.event().name("status")
+                .data(RunView.of(info, testRunQueue.getQueuePosition(runId))), true);
+
+        // Run có thể vừa xong / bị cancel giữa getRun() và addListener() → không bao giờ nhận event nữa
+        if (info.getResult() != null) {
+            stream.onResult(info, info.getResult());
+        } else if (info.getStatus() == RunStatus.CANCELLED) {
+            stream.onStatus(info, RunStatus.CANCELLED);
+        }
+        return stream.emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        keepAlive.shutdownNow();
+        streams.forEach(stream -> stream.emitter.complete());
+        sender.shutdownNow();
+    }
+
+    /** 1 client đang nghe 1 run */
+    private final class Stream implements TestRunQueue.RunListener, RunProgress.TestEventListener {
+
+        private final TestRunQueue.TestRunInfo info;
+        private final SseEmitter emitter;
+        private final Queue<Object> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean ended = new AtomicBoolean();
+        private final AtomicInteger dropped = new AtomicInteger();
+        private volatile boolean closed;
+
+        Stream(TestRunQueue.TestRunInfo info, SseEmitter emitter) {
+            this.info = info;
+            this.emitter = emitter;
+            emitter.onCompletion(this::close);
+            emitter.onTimeout(this::close);
+            emitter.onError(e -> close());
+        }
+
+        @Override
+        public void onStatus(TestRunQueue.TestRunInfo run, RunStatus status) {
+            if (ended.get()) {
+                return;
+            }
+            enqueue(SseEmitter.event().name("status").data(RunView.of(run, null)), true);
+            if (status == RunStatus.CANCELLED) {
+                end();
+            }
+        }
+
+        @Override
+        public void onResult(TestRunQueue.TestRunInfo run, TestRunResult result) {
+            if (ended.get()) {
+                return;
+            }
+            enqueue(SseEmitter.event().name("result").data(RunView.Result.of(result)), true);
+            end();
+        }
+
+        @Override
+        public void onTestEvent(String outcome, String testName, RunProgress progress) {
+            enqueue(SseEmitter.event().name("test")
+                    .data(new RunView.TestEvent(outcome, testName, RunView.Progress.of(progress))), false);
+        }
+
+        void keepAlive() {
+            if (pendingCount.get() == 0) {
+                enqueue(SseEmitter.event().comment("keepalive"), false);
+            }
+        }
+
+        /** Chỉ gửi 1 lần "result"/"status CANCELLED" cuối rồi đóng stream */
+        private void end() {
+            if (ended.compareAndSet(false, true)) {
+                detach();
+                enqueue(COMPLETE, true);
+            }
+        }
+
+        /** @param required false → được bỏ khi client đọc không kịp */
+        void enqueue(Object event, boolean required) {
+            if (closed) {
+                return;
+            }
+            if (!required && pendingCount.get() >= maxPendingEvents) {
+                dropped.incrementAndGet();
+                return;
+            }
+            pendingCount.incrementAndGet();
+            pending.add(event);
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Object event;
+                while (!closed && (event = pending.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    if (event == COMPLETE) {
+                        emitter.complete();
+                        return;
+                    }
+                    emitter.send((SseEmitter.SseEventBuilder) event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client đã ngắt kết nối
+                log.debug("SSE client gone: {}", e.getMessage());
+                close();
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // Event đến giữa lúc poll() trả null và draining.set(false)
+            if (!closed && !pending.isEmpty() && draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void detach() {
+            if (info != null) {
+                info.removeListener(this);
+                info.getProgress().removeListener(this);
+            }
+            streams.remove(this);
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            detach();
+            pending.clear();
+            if (dropped.get() > 0) {
+                log.debug("SSE stream closed, {} test events dropped for a slow client", dropped.get());
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.automation.bot.api;
+
+/**
+ * Body của POST /api/runs — tương đương 1 lệnh Telegram (/smoke prod, /regression --shards=3, /login).
+ * Chỉ profile hoặc testClass là bắt buộc (đúng 1 trong 2), còn lại null = default của bot.runner.
+ *
+ * @param notifyChatId chat nhận thêm kết quả qua Telegram (phải nằm trong allowed-chat-ids), null = chỉ trả qua API
+ * @param force        true = chạy lại dù có kết quả pass còn hạn trong cache (giống "--force")
+ */
+public record RunSubmission(String profile, String testClass, String env, String browser, Boolean headless,
+                            Integer shards, Long notifyChatId, Boolean force) {
+}
@@ -0,0 +1,59 @@
+package com.automation.bot.api;
+
+import com.automation.bot.runner.TestRunQueue;
+import com.automation.bot.runner.TestRunResult;
+import com.automation.bot.runner.progress.RunProgress;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Snapshot của 1 run trả qua HTTP API — body của GET /api/runs/{id} và event "status" của SSE stream.
+ * Chụp lại giá trị tại thời điểm tạo (immutable) → serialize trên thread khác vẫn nhất quán.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RunView(String runId, String status, String label, String env, Progress progress,
+                      Integer queuePosition, Long estimatedWaitSeconds, Result result) {
+
+    public record Progress(int planned, int done, int passed, int failed, int skipped, String currentTest) {
+
+        static Progress of(RunProgress progress) {
+            return new Progress(progress.getPlanned(), progress.getDone(), progress.getPassed(),
+                    progress.getFailed(), progress.getSkipped(), progress.getCurrentTest());
+        }
+    }
+
+    /**
+     * @param flakyPassed  test pass chỉ sau khi retry (đã tính trong passed)
+     * @param retries      tổng số lần chạy bị bỏ để chạy lại
+     * @param retrySeconds thời gian các lần chạy đó đã tốn
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Result(String status, int total, int passed, int failed, int skipped, int errors,
+                         Long durationSeconds, String allureUrl, String error, boolean partial,
+                         int flakyPassed, int retries, long retrySeconds) {
+
+        static Result of(TestRunResult result) {
+            return new Result(result.getStatus().name(), result.getTotalTests(), result.getPassed(),
+                    result.getFailed(), result.getSkipped(), result.getErrors(),
+                    result.getDuration() != null ? result.getDuration().toSeconds() : null,
+                    result.getAllureReportUrl(), result.getErrorMessage(), result.isPartial(),
+                    result.getFlakyPassed(), result.getRetries(), result.getRetryTime().toSeconds());
+        }
+    }
+
+    /** Event "test" của SSE stream: 1 test bắt đầu / xong, kèm tiến độ sau event đó */
+    public record TestEvent(String outcome, String test, Progress progress) {
+    }
+
+    /** @param position null nếu run không còn trong hàng chờ */
+    static RunView of(TestRunQueue.TestRunInfo info, TestRunQueue.QueuePosition position) {
+        String label = info.getRequest().getProfile() != null
+                ? info.getRequest().getProfile()
+                : info.getRequest().getTestClass();
+        TestRunResult result = info.getResult();
+        return new RunView(info.getRequest().getRunId(), info.getStatus().name(), label, info.getRequest().getEnv(),
+                Progress.of(info.getProgress()),
+                position != null ? position.position() : null,
+                position != null ? position.estimatedWait().toSeconds() : null,
+                result != null ? Result.of(result) : null);
+    }
+}
@@ -1,12 +1,39 @@
 package com.automation.bot.bot;
 
+import com.automation.bot.config.BotProperties;
+import com.automation.bot.metrics.BotMetrics;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Wrapper quanh TelegramClient để gửi message.
  *
@@ -14,40 +41,572 @@ import org.telegram.telegrambots.meta.generics.TelegramClient;
  * → Single Responsibility: Bot class lo nhận message, class này lo gửi.
  * → Dễ mock trong test (mock BotMessageSender thay vì mock TelegramClient).
  * → Centralize error handling: mọi chỗ gửi message đều đi qua đây.
+ *
+ * Tại sao gửi bất đồng bộ qua hàng đợi?
+ * → send() được gọi từ worker thread của TestRunQueue và thread long-poll. Gọi Telegram API đồng bộ
+ *   → mạng chậm / Telegram trả 429 làm run kế tiếp và việc nhận lệnh mới phải chờ theo.
+ * → Nhiều run xong cùng lúc → vượt giới hạn của Bot API (~30 msg/s toàn bot, ~1 msg/s mỗi chat,
+ *   20 msg/phút mỗi group) → Telegram trả 429 và message trước đây bị bỏ, chỉ còn 1 dòng log.
+ *
+ * Cách chạy:
+ * - send()/sendHtml() chỉ đưa message vào hàng của chat rồi return ngay (không bao giờ block).
+ * - 1 thread "telegram-dispatcher" chọn chat được gửi tiếp theo: token bucket toàn bot + token bucket
+ *   của từng chat, chat nào vừa gửi xuống cuối vòng (round-robin, chat ồn ào không chặn chat khác).
+ * - Mỗi chat tối đa 1 request đang gửi → message tới đúng thứ tự. Request chạy trên pool "telegram-sender".
+ * - Message dài hơn 4096 ký tự được cắt thành nhiều message, không cắt giữa entity ({@link MessageSplitter}).
+ * - Message cùng parse mode đang chờ trong 1 chat được gộp thành 1 message (≤ 4096 ký tự).
+ * - 429 → chờ đúng retry_after rồi gửi lại; lỗi mạng / 5xx → backoff 1s, 2s, 4s... tối đa maxAttempts lần;
+ *   4xx khác (message sai Markdown, chat không tồn tại) → bỏ, gửi lại cũng không được.
+ * - Ngoại lệ của 4xx: message đã gộp bị từ chối → gửi lại từng message gốc riêng (1 message sai Markdown
+ *   không kéo theo các message khác bị bỏ); 1 message Telegram không parse được Markdown/HTML → gửi lại dạng text.
+ *
+ * {@link LiveMessage}: 1 message được sửa tại chỗ (editMessageText) thay vì gửi message mới — tiến độ run.
+ * Edit đi chung hàng/bucket của chat nhưng không giữ thứ tự với message thường, cách nhau ít nhất
+ * editIntervalMillis; update dồn trong khoảng đó chỉ gửi nội dung mới nhất, trùng nội dung đang hiện → bỏ qua.
  */
 @Slf4j
 @Component
 public class BotMessageSender {
 
+    /** Giới hạn độ dài 1 message của Telegram */
+    static final int MAX_MESSAGE_LENGTH = 4096;
+    private static final String SEPARATOR = "\n\n";
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+    /** Chat không gửi gì trong khoảng này và bucket đã đầy → bỏ khỏi map */
+    private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
     private final TelegramClient telegramClient;
+    private final BotMetrics metrics;
+    private final BotProperties.Outbound config;
+    private final long editIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    /** Thứ tự duyệt = thứ tự round-robin: chat vừa gửi được đưa xuống cuối */
+    private final Map<Long, ChatQueue> chats = new LinkedHashMap<>();
+    private final TokenBucket global;
+    /** Message mới + edit đang chờ gửi */
+    private final AtomicInteger queued = new AtomicInteger();
+    private int inFlight;
+    private boolean stopping;
+
+    private final ExecutorService senders;
+    private final Thread dispatcher;
+
+    /**
+     * Message được cập nhật tại chỗ: update() đầu tiên gửi message mới, các lần sau sửa message đó.
+     * Không block — chỉ ghi lại nội dung mong muốn, thread gửi lấy nội dung mới nhất lúc tới lượt.
+     */
+    public final class LiveMessage {
+        private final long chatId;
+        private final String parseMode;
+        // Các field dưới guarded by lock
+        private Integer messageId;
+        /** Nội dung Telegram đang hiển thị */
+        private String sentText;
+        private String wantedText;
+        /** Đang nằm trong hàng hoặc đang gửi → update() chỉ cần đổi wantedText */
+        private boolean scheduled;
+        private long editedAt;
+
+        private LiveMessage(long chatId, String parseMode) {
+            this.chatId = chatId;
+            this.parseMode = parseMode;
+        }
+
+        /** Nội dung dài hơn 4096 ký tự: phần đầu hiện ở message này, phần còn lại gửi thành message mới sau nó */
+        public void update(String text) {
+            List<String> chunks = MessageSplitter.split(text, parseMode, MAX_MESSAGE_LENGTH);
+            lock.lock();
+            try {
+                wantedText = chunks.get(0);
+                scheduleLive(this, System.nanoTime());
+                for (String chunk : chunks.subList(1, chunks.size())) {
+                    enqueue(chatId, chunk, parseMode);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
 
-    public BotMessageSender(com.automation.bot.config.BotProperties botProperties) {
-        this.telegramClient = new OkHttpTelegramClient(botProperties.getToken());
+    /**
+     * 1 lần gửi chờ trong hàng — message thường (sau khi gộp có thể là nhiều message), gửi/sửa LiveMessage,
+     * hoặc file (text = caption).
+     */
+    private static final class Outgoing {
+        final long chatId;
+        final String parseMode;
+        final String text;
+        final int messages;
+        final LiveMessage live;
+        final boolean edit;
+        final Path document;
+        final String fileName;
+        /** Các message gốc đã gộp thành message này, null = không gộp */
+        final List<Outgoing> parts;
+        int attempts;
+        /** Gửi riêng, không gộp với message khác — message gốc tách ra sau khi bản gộp bị từ chối */
+        boolean alone;
+
+        Outgoing(long chatId, String parseMode, String text, int messages) {
+            this(chatId, parseMode, text, messages, null, false, null, null, null);
+        }
+
+        Outgoing(long chatId, String parseMode, String text, int messages, LiveMessage live, boolean edit,
+                 Path document, String fileName, List<Outgoing> parts) {
+            this.chatId = chatId;
+            this.parseMode = parseMode;
+            this.text = text;
+            this.messages = messages;
+            this.live = live;
+            this.edit = edit;
+            this.document = document;
+            this.fileName = fileName;
+            this.parts = parts;
+        }
+
+        static Outgoing live(LiveMessage live, boolean edit) {
+            return new Outgoing(live.chatId, live.parseMode, null, 1, live, edit, null, null, null);
+        }
+
+        /** Message thường — gộp được với message thường khác */
+        boolean isPlain() {
+            return live == null && document == null;
+        }
+    }
+
+    private static final class ChatQueue {
+        final ArrayDeque<Outgoing> pending = new ArrayDeque<>();
+        /** Edit của LiveMessage — không cần giữ thứ tự với pending, mỗi LiveMessage tối đa 1 phần tử */
+        final List<Outgoing> edits = new ArrayList<>();
+        final TokenBucket bucket;
+        /** Không gửi trước thời điểm này (retry_after / backoff), System.nanoTime */
+        long notBefore;
+        long lastActivity;
+        boolean sending;
+
+        ChatQueue(TokenBucket bucket, long now) {
+            this.bucket = bucket;
+            this.lastActivity = now;
+        }
+    }
+
+    @Autowired
+    public BotMessageSender(BotProperties botProperties, BotMetrics metrics) {
+        this(new OkHttpTelegramClient(botProperties.getToken()), botProperties.getOutbound(), metrics);
+    }
+
+    BotMessageSender(TelegramClient telegramClient, BotProperties.Outbound config, BotMetrics metrics) {
+        this.telegramClient = telegramClient;
+        this.metrics = metrics;
+        this.config = config;
+        this.editIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getEditIntervalMillis());
+        this.global = new TokenBucket(config.getGlobalPerSecond(), config.getGlobalPerSecond(), System.nanoTime());
+        this.senders = Executors.newFixedThreadPool(Math.max(1, config.getSenderThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "telegram-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metrics.gauge("bot_telegram_queue_depth", "Outgoing Telegram messages and edits waiting to be sent",
+                () -> Map.of(List.of(), (double) queued.get()));
+        this.dispatcher = new Thread(this::dispatchLoop, "telegram-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
     }
 
     public void send(long chatId, String text) {
-        SendMessage message = SendMessage.builder()
-                .chatId(chatId)
-                .text(text)
-                .parseMode("Markdown")
-                .build();
+        enqueue(chatId, text, "Markdown");
+    }
+
+    public void sendHtml(long chatId, String html) {
+        enqueue(chatId, html, "HTML");
+    }
+
+    /**
+     * Gửi file (báo cáo failure...) theo thứ tự với message của chat. File là file tạm: bị xóa sau khi gửi xong
+     * hoặc bị bỏ, caller không dùng lại.
+     */
+    public void sendDocument(long chatId, Path file, String fileName, String caption) {
+        if (queued.get() >= config.getMaxQueued()) {
+            metrics.telegramDropped("queue_full");
+            log.error("Outgoing Telegram queue is full ({}), dropping document to chatId={}", config.getMaxQueued(), chatId);
+            deleteQuietly(file);
+            return;
+        }
+        lock.lock();
         try {
-            telegramClient.execute(message);
-        } catch (TelegramApiException e) {
-            log.error("Failed to send message to chatId={}: {}", chatId, e.getMessage(), e);
+            chatQueue(chatId, System.nanoTime()).pending.addLast(
+                    new Outgoing(chatId, null, caption, 1, null, false, file, fileName, null));
+            queued.incrementAndGet();
+            changed.signal();
+        } finally {
+            lock.unlock();
         }
     }
 
-    public void sendHtml(long chatId, String html) {
-        SendMessage message = SendMessage.builder()
-                .chatId(chatId)
-                .text(html)
-                .parseMode("HTML")
-                .build();
+    /** Message Markdown sửa tại chỗ — chưa gửi gì cho tới update() đầu tiên */
+    public LiveMessage live(long chatId) {
+        return new LiveMessage(chatId, "Markdown");
+    }
+
+    private void enqueue(long chatId, String text, String parseMode) {
+        if (queued.get() >= config.getMaxQueued()) {
+            metrics.telegramDropped("queue_full");
+            log.error("Outgoing Telegram queue is full ({}), dropping message to chatId={}", config.getMaxQueued(), chatId);
+            return;
+        }
+        List<String> chunks = MessageSplitter.split(text, parseMode, MAX_MESSAGE_LENGTH);
+        lock.lock();
+        try {
+            ChatQueue chat = chatQueue(chatId, System.nanoTime());
+            for (String chunk : chunks) {
+                chat.pending.addLast(new Outgoing(chatId, parseMode, chunk, 1));
+            }
+            queued.addAndGet(chunks.size());
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Xếp lần gửi/sửa tiếp theo của LiveMessage nếu nội dung khác cái đang hiện (lock đang giữ) */
+    private void scheduleLive(LiveMessage live, long now) {
+        if (live.scheduled || live.wantedText == null || live.wantedText.equals(live.sentText)) {
+            return;
+        }
+        live.scheduled = true;
+        ChatQueue chat = chatQueue(live.chatId, now);
+        if (live.messageId == null) {
+            // Chưa có message để sửa → gửi message mới, đúng thứ tự với message thường
+            chat.pending.addLast(Outgoing.live(live, false));
+        } else {
+            chat.edits.add(Outgoing.live(live, true));
+        }
+        queued.incrementAndGet();
+        changed.signal();
+    }
+
+    private ChatQueue chatQueue(long chatId, long now) {
+        return chats.computeIfAbsent(chatId, id -> new ChatQueue(chatBucket(id, now), now));
+    }
+
+    /** chatId âm = group/channel → giới hạn theo phút */
+    private TokenBucket chatBucket(long chatId, long now) {
+        double perSecond = chatId < 0 ? config.getGroupPerMinute() / 60.0 : config.getChatPerSecond();
+        return new TokenBucket(perSecond, config.getChatBurst(), now);
+    }
+
+    private void dispatchLoop() {
+        lock.lock();
         try {
-            telegramClient.execute(message);
+            while (!stopping || queued.get() > 0 || inFlight > 0) {
+                long now = System.nanoTime();
+                long wait = TimeUnit.SECONDS.toNanos(1);
+                List<Long> dispatched = new ArrayList<>();
+
+                for (Iterator<Map.Entry<Long, ChatQueue>> it = chats.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<Long, ChatQueue> entry = it.next();
+                    ChatQueue chat = entry.getValue();
+                    if (chat.sending) {
+                        continue;
+                    }
+                    if (chat.pending.isEmpty() && chat.edits.isEmpty()) {
+                        if (now - chat.lastActivity > IDLE_NANOS && now >= chat.notBefore && chat.bucket.isFull(now)) {
+                            it.remove();
+                        }
+                        continue;
+                    }
+                    // Message mới trước; không có thì edit đã qua khoảng cách tối thiểu
+                    long due = chat.pending.isEmpty() ? nextEditDue(chat) - now : 0;
+                    long delay = Math.max(Math.max(chat.notBefore - now, due),
+                            Math.max(chat.bucket.delayNanos(now), global.delayNanos(now)));
+                    if (delay > 0) {
+                        wait = Math.min(wait, delay);
+                        continue;
+                    }
+                    chat.bucket.take(now);
+                    global.take(now);
+                    Outgoing message = chat.pending.isEmpty() ? takeEdit(chat) : takeNext(chat);
+                    String text = message.live != null ? message.live.wantedText : message.text;
+                    chat.sending = true;
+                    chat.lastActivity = now;
+                    inFlight++;
+                    dispatched.add(entry.getKey());
+                    senders.execute(() -> deliver(chat, message, text));
+                }
+
+                // Round-robin: chat vừa gửi xuống cuối vòng duyệt
+                for (Long chatId : dispatched) {
+                    chats.put(chatId, chats.remove(chatId));
+                }
+                changed.awaitNanos(wait);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long nextEditDue(ChatQueue chat) {
+        long due = Long.MAX_VALUE;
+        for (Outgoing edit : chat.edits) {
+            due = Math.min(due, edit.live.editedAt + editIntervalNanos);
+        }
+        return due;
+    }
+
+    private Outgoing takeEdit(ChatQueue chat) {
+        Outgoing next = chat.edits.get(0);
+        for (Outgoing edit : chat.edits) {
+            if (edit.live.editedAt < next.live.editedAt) {
+                next = edit;
+            }
+        }
+        chat.edits.remove(next);
+        queued.decrementAndGet();
+        return next;
+    }
+
+    /** Lấy message đầu hàng, gộp thêm các message tiếp theo cùng parse mode nếu còn chỗ (lock đang giữ) */
+    private Outgoing takeNext(ChatQueue chat) {
+        Outgoing first = chat.pending.pollFirst();
+        if (!config.isCoalesce() || first.attempts > 0 || first.alone || !first.isPlain()) {
+            queued.addAndGet(-first.messages);
+            return first;
+        }
+        StringBuilder text = new StringBuilder(first.text);
+        List<Outgoing> parts = new ArrayList<>(List.of(first));
+        int messages = first.messages;
+        Outgoing next;
+        while ((next = chat.pending.peekFirst()) != null
+                && next.attempts == 0
+                && !next.alone
+                && next.isPlain()
+                && next.parseMode.equals(first.parseMode)
+                && text.length() + SEPARATOR.length() + next.text.length() <= MAX_MESSAGE_LENGTH) {
+            chat.pending.pollFirst();
+            text.append(SEPARATOR).append(next.text);
+            parts.add(next);
+            messages += next.messages;
+        }
+        queued.addAndGet(-messages);
+        if (messages == first.messages) {
+            return first;
+        }
+        metrics.telegramCoalesced(messages - first.messages);
+        return new Outgoing(first.chatId, first.parseMode, text.toString(), messages, null, false, null, null, parts);
+    }
+
+    /** Chạy trên thread "telegram-sender" */
+    private void deliver(ChatQueue chat, Outgoing message, String text) {
+        long retryAt = 0;
+        boolean delivered = false;
+        Integer messageId = null;
+        boolean rejected = false;
+        /** Bị từ chối nhưng gửi lại được ở dạng khác: tách message gộp / bỏ parse mode */
+        List<Outgoing> resend = null;
+        Instant start = Instant.now();
+        try {
+            if (message.document != null) {
+                telegramClient.execute(SendDocument.builder()
+                        .chatId(message.chatId)
+                        .document(new InputFile(message.document.toFile(), message.fileName))
+                        .caption(message.text)
+                        .build());
+            } else if (message.edit) {
+                telegramClient.execute(EditMessageText.builder()
+                        .chatId(message.chatId)
+                        .messageId(message.live.messageId)
+                        .text(text)
+                        .parseMode(message.parseMode)
+                        .build());
+            } else {
+                Message sent = telegramClient.execute(SendMessage.builder()
+                        .chatId(message.chatId)
+                        .text(text)
+                        .parseMode(message.parseMode)
+                        .build());
+                messageId = sent != null ? sent.getMessageId() : null;
+            }
+            delivered = true;
+            metrics.telegramSent(Duration.between(start, Instant.now()), true);
         } catch (TelegramApiException e) {
-            log.error("Failed to send HTML message to chatId={}: {}", chatId, e.getMessage(), e);
+            metrics.telegramSent(Duration.between(start, Instant.now()), false);
+            if (message.edit && isNotModified(e)) {
+                delivered = true;
+            } else if (message.parts != null && isClientError(e)) {
+                metrics.telegramRetried("split");
+                log.warn("Telegram rejected {} coalesced messages to chatId={}, resending them one by one: {}",
+                        message.messages, message.chatId, e.getMessage());
+                resend = message.parts;
+            } else if (message.isPlain() && message.parseMode != null && isParseError(e)) {
+                metrics.telegramRetried("plain_text");
+                log.warn("Telegram cannot parse {} message to chatId={}, resending as plain text: {}",
+                        message.parseMode, message.chatId, e.getMessage());
+                resend = List.of(new Outgoing(message.chatId, null, text, message.messages));
+            } else {
+                retryAt = retryAt(message, e);
+                rejected = isClientError(e);
+            }
+        } catch (RuntimeException e) {
+            metrics.telegramSent(Duration.between(start, Instant.now()), false);
+            metrics.telegramDropped("error");
+            log.error("Failed to send message to chatId={}: {}", message.chatId, e.getMessage(), e);
+        }
+
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (retryAt == 0 && message.document != null) {
+                deleteQuietly(message.document);
+            }
+            if (resend != null) {
+                for (int i = resend.size() - 1; i >= 0; i--) {
+                    Outgoing part = resend.get(i);
+                    part.alone = true;
+                    chat.pending.addFirst(part);
+                }
+                queued.addAndGet(message.messages);
+            } else if (retryAt != 0) {
+                if (message.edit) {
+                    chat.edits.add(message);
+                } else {
+                    chat.pending.addFirst(message);
+                }
+                queued.addAndGet(message.messages);
+                chat.notBefore = retryAt;
+            } else if (message.live != null) {
+                LiveMessage live = message.live;
+                live.scheduled = false;
+                if (delivered) {
+                    live.sentText = text;
+                    live.editedAt = now;
+                    if (!message.edit) {
+                        live.messageId = messageId;
+                    }
+                } else if (message.edit && rejected) {
+                    // Message đã bị xóa / quá cũ để sửa → gửi message mới với nội dung mới nhất
+                    log.warn("Cannot edit message {} in chatId={}, sending a new one", live.messageId, live.chatId);
+                    live.messageId = null;
+                    live.sentText = null;
+                }
+                if (delivered || live.messageId == null && message.edit) {
+                    scheduleLive(live, now);
+                }
+            }
+            chat.sending = false;
+            inFlight--;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    /** 4xx khác 429: gửi lại y nguyên cũng không được */
+    private static boolean isClientError(TelegramApiException e) {
+        return e instanceof TelegramApiRequestException request
+                && request.getErrorCode() != null
+                && request.getErrorCode() >= 400 && request.getErrorCode() < 500 && request.getErrorCode() != 429;
+    }
+
+    /** Markdown/HTML sai cú pháp (ký tự * _ ` chưa đóng trong tên test, message lỗi...) */
+    private static boolean isParseError(TelegramApiException e) {
+        return isClientError(e)
+                && ((TelegramApiRequestException) e).getApiResponse() != null
+                && ((TelegramApiRequestException) e).getApiResponse().contains("can't parse entities");
+    }
+
+    /** Telegram trả 400 khi edit với nội dung giống hệt — coi như đã gửi */
+    private static boolean isNotModified(TelegramApiException e) {
+        return e instanceof TelegramApiRequestException request
+                && request.getApiResponse() != null
+                && request.getApiResponse().contains("message is not modified");
+    }
+
+    /** @return thời điểm gửi lại (System.nanoTime), 0 = bỏ message */
+    private long retryAt(Outgoing message, TelegramApiException e) {
+        Integer code = e instanceof TelegramApiRequestException request ? request.getErrorCode() : null;
+        if (code != null && code == 429) {
+            Integer retryAfter = ((TelegramApiRequestException) e).getParameters() != null
+                    ? ((TelegramApiRequestException) e).getParameters().getRetryAfter()
+                    : null;
+            long seconds = retryAfter != null ? Math.max(1, retryAfter) : 1;
+            metrics.telegramRetried("rate_limited");
+            log.warn("Telegram rate limit for chatId={}, retrying in {}s", message.chatId, seconds);
+            return System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        }
+        if (code != null && code >= 400 && code < 500) {
+            metrics.telegramDropped("rejected");
+            log.error("Telegram rejected message to chatId={}: {}", message.chatId, e.getMessage());
+            return 0;
+        }
+        message.attempts++;
+        if (message.attempts >= config.getMaxAttempts()) {
+            metrics.telegramDropped("gave_up");
+            log.error("Failed to send message to chatId={} after {} attempts: {}",
+                    message.chatId, message.attempts, e.getMessage(), e);
+            return 0;
+        }
+        long backoff = Math.min(MAX_BACKOFF_NANOS, TimeUnit.SECONDS.toNanos(1) << (message.attempts - 1));
+        metrics.telegramRetried("error");
+        log.warn("Failed to send message to chatId={} (attempt {}), retrying in {}ms: {}",
+                message.chatId, message.attempts, TimeUnit.NANOSECONDS.toMillis(backoff), e.getMessage());
+        return System.nanoTime() + backoff;
+    }
+
+    /** Gửi nốt message còn trong hàng (tối đa drainSeconds) rồi dừng, document chưa gửi được thì xóa file tạm */
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            stopping = true;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(config.getDrainSeconds()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (dispatcher.isAlive()) {
+            log.warn("Dropping {} unsent Telegram messages on shutdown", queued.get());
+            dispatcher.interrupt();
+            senders.shutdownNow();
+            try {
+                // Document đang upload bị ngắt có thể quay lại hàng để retry → chờ sender xong rồi mới dọn
+                senders.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            deleteQueuedDocuments();
+        }
+        senders.shutdownNow();
+    }
+
+    /** File tạm của document còn trong hàng lúc dừng — không ai gửi nữa, không xóa thì nằm lại trong /tmp */
+    private void deleteQueuedDocuments() {
+        lock.lock();
+        try {
+            for (ChatQueue chat : chats.values()) {
+                for (Outgoing message : chat.pending) {
+                    if (message.document != null) {
+                        deleteQuietly(message.document);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
         }
     }
 }
@@ -0,0 +1,203 @@
+package com.automation.bot.bot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Cắt message dài thành nhiều message ≤ giới hạn của Telegram (4096 ký tự).
+ *
+ * Tại sao không cắt thẳng ở ký tự thứ 4096?
+ * → Cắt giữa *bold* / `code` / &lt;b&gt;...&lt;/b&gt; → entity không đóng → Telegram trả 400 "can't parse entities"
+ *   và cả message bị bỏ. Cắt giữa link [text](url) hoặc giữa &amp;amp; → hỏng link / ký tự.
+ *
+ * Cách cắt:
+ * - Ưu tiên xuống dòng, rồi tới khoảng trắng, cuối cùng mới cắt cứng.
+ * - Entity đang mở ở chỗ cắt (Markdown: * _ ` ```; HTML: tag) → đóng ở cuối chunk, mở lại ở đầu chunk sau.
+ * - Link Markdown, tag HTML, HTML entity không cắt được → lùi chỗ cắt về trước nó.
+ *
+ * Chỉ hiểu Markdown legacy (parse mode "Markdown" — entity không lồng nhau) và HTML.
+ */
+final class MessageSplitter {
+
+    /** Chừa chỗ cho marker đóng ở cuối chunk + marker mở lại ở đầu chunk sau */
+    private static final int RESERVE = 100;
+
+    private MessageSplitter() {
+    }
+
+    /** Entity đang mở tại chỗ cắt. atomicStart ≥ 0 → chỗ cắt nằm giữa link/tag/entity bắt đầu tại đó */
+    private record Open(String closing, String opening, int atomicStart) {
+    }
+
+    static List<String> split(String text, String parseMode, int limit) {
+        if (text.length() <= limit) {
+            return List.of(text);
+        }
+        boolean html = "HTML".equals(parseMode);
+        List<String> chunks = new ArrayList<>();
+        String prefix = "";
+        int start = 0;
+        while (start < text.length()) {
+            if (prefix.length() + text.length() - start <= limit) {
+                chunks.add(prefix + text.substring(start));
+                break;
+            }
+            int max = start + Math.max(1, limit - prefix.length() - RESERVE);
+            int cut = cutPoint(text, start, max);
+            Open open = scan(prefix, text.substring(start, cut), html);
+            if (open.atomicStart() > 0) {
+                cut = start + open.atomicStart();
+                open = scan(prefix, text.substring(start, cut), html);
+            }
+            chunks.add(prefix + text.substring(start, cut) + open.closing());
+            prefix = open.opening();
+            // Dòng trống / khoảng trắng ở chỗ cắt không cần giữ
+            start = cut < text.length() && (text.charAt(cut) == '\n' || text.charAt(cut) == ' ') ? cut + 1 : cut;
+        }
+        return chunks;
+    }
+
+    /** Xuống dòng cuối cùng trong nửa sau của đoạn, không có thì khoảng trắng, không có nữa thì cắt cứng ở max */
+    private static int cutPoint(String text, int start, int max) {
+        int floor = start + (max - start) / 2;
+        int newline = text.lastIndexOf('\n', max - 1);
+        if (newline > floor) {
+            return newline;
+        }
+        int space = text.lastIndexOf(' ', max - 1);
+        if (space > floor) {
+            return space;
+        }
+        // Không tách đôi surrogate pair (emoji)
+        return Character.isHighSurrogate(text.charAt(max - 1)) && max - 1 > start ? max - 1 : max;
+    }
+
+    /**
+     * Entity còn mở sau prefix + segment — prefix (marker mở lại của chunk trước) được scan cùng để biết
+     * chunk này bắt đầu bên trong entity nào. atomicStart tính theo segment.
+     */
+    private static Open scan(String prefix, String segment, boolean html) {
+        String chunk = prefix + segment;
+        Open open = html ? scanHtml(chunk) : scanMarkdown(chunk);
+        int atomicStart = open.atomicStart() >= prefix.length() ? open.atomicStart() - prefix.length() : -1;
+        return new Open(open.closing(), open.opening(), atomicStart);
+    }
+
+    private enum Markdown { NONE, BOLD, ITALIC, CODE, PRE, LINK_TEXT, LINK_URL }
+
+    private static Open scanMarkdown(String text) {
+        Markdown state = Markdown.NONE;
+        int entityStart = -1;
+        int to = text.length();
+        int i = 0;
+        while (i < to) {
+            char c = text.charAt(i);
+            switch (state) {
+                case NONE -> {
+                    if (c == '\\') {
+                        if (i + 1 >= to) {
+                            return new Open("", "", i);
+                        }
+                        i += 2;
+                        continue;
+                    }
+                    if (text.startsWith("```", i)) {
+                        state = Markdown.PRE;
+                        entityStart = i;
+                        i += 3;
+                        continue;
+                    }
+                    if (c == '`' || c == '*' || c == '_' || c == '[') {
+                        state = c == '`' ? Markdown.CODE : c == '*' ? Markdown.BOLD
+                                : c == '_' ? Markdown.ITALIC : Markdown.LINK_TEXT;
+                        entityStart = i;
+                    }
+                }
+                case PRE -> {
+                    if (text.startsWith("```", i)) {
+                        state = Markdown.NONE;
+                        i += 3;
+                        continue;
+                    }
+                }
+                case CODE -> state = c == '`' ? Markdown.NONE : state;
+                case BOLD -> state = c == '*' ? Markdown.NONE : state;
+                case ITALIC -> state = c == '_' ? Markdown.NONE : state;
+                case LINK_TEXT -> {
+                    // "]" ở cuối đoạn: chưa biết có "(url)" theo sau không → vẫn coi là trong link
+                    if (c == ']' && i + 1 < to) {
+                        state = text.charAt(i + 1) == '(' ? Markdown.LINK_URL : Markdown.NONE;
+                    }
+                }
+                case LINK_URL -> state = c == ')' ? Markdown.NONE : state;
+            }
+            i++;
+        }
+        return switch (state) {
+            case NONE -> new Open("", "", -1);
+            case BOLD -> new Open("*", "*", -1);
+            case ITALIC -> new Open("_", "_", -1);
+            case CODE -> new Open("`", "`", -1);
+            case PRE -> new Open("```", "```", -1);
+            case LINK_TEXT, LINK_URL -> new Open("", "", entityStart);
+        };
+    }
+
+    private static Open scanHtml(String text) {
+        // Tag đang mở: tên + nguyên văn tag mở (giữ attribute, vd <a href="...">)
+        Deque<String[]> open = new ArrayDeque<>();
+        int to = text.length();
+        int i = 0;
+        while (i < to) {
+            char c = text.charAt(i);
+            if (c == '<') {
+                int end = text.indexOf('>', i);
+                if (end < 0) {
+                    return new Open("", "", i);
+                }
+                String tag = text.substring(i + 1, end);
+                if (tag.startsWith("/")) {
+                    String name = tagName(tag.substring(1));
+                    for (Iterator<String[]> it = open.iterator(); it.hasNext(); ) {
+                        if (it.next()[0].equals(name)) {
+                            it.remove();
+                            break;
+                        }
+                    }
+                } else if (!tag.endsWith("/")) {
+                    open.push(new String[]{tagName(tag), text.substring(i, end + 1)});
+                }
+                i = end + 1;
+                continue;
+            }
+            if (c == '&') {
+                // &amp; / &lt; / &#123; bị cắt ở cuối đoạn
+                if (text.indexOf(';', i) < 0 && to - i <= 10) {
+                    return new Open("", "", i);
+                }
+            }
+            i++;
+        }
+        StringBuilder closing = new StringBuilder();
+        for (String[] tag : open) {
+            closing.append("</").append(tag[0]).append('>');
+        }
+        StringBuilder opening = new StringBuilder();
+        for (Iterator<String[]> it = open.descendingIterator(); it.hasNext(); ) {
+            opening.append(it.next()[1]);
+        }
+        return new Open(closing.toString(), opening.toString(), -1);
+    }
+
+    private static String tagName(String tag) {
+        int end = 0;
+        while (end < tag.length() && !Character.isWhitespace(tag.charAt(end)) && tag.charAt(end) != '/') {
+            end++;
+        }
+        return tag.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+}
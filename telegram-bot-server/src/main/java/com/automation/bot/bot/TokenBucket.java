@@ -0,0 +1,44 @@
+package com.automation.bot.bot;
+
+/**
+ * Token bucket cho giới hạn tốc độ gửi: nạp {@code perSecond} token mỗi giây, giữ tối đa {@code burst} token.
+ * Thời gian truyền vào (System.nanoTime) → test điều khiển được. Không thread-safe — caller giữ lock.
+ */
+final class TokenBucket {
+
+    private final double perNano;
+    private final double capacity;
+    private double tokens;
+    private long updatedAt;
+
+    TokenBucket(double perSecond, double burst, long now) {
+        this.perNano = perSecond / 1_000_000_000.0;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.updatedAt = now;
+    }
+
+    /** Số ns phải chờ tới khi có 1 token (0 = lấy được ngay) */
+    long delayNanos(long now) {
+        refill(now);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / perNano);
+    }
+
+    void take(long now) {
+        refill(now);
+        tokens -= 1;
+    }
+
+    /** Bucket đầy = không còn "nợ" lần gửi nào → bỏ được mà không làm lệch giới hạn */
+    boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        if (now > updatedAt) {
+            tokens = Math.min(capacity, tokens + (now - updatedAt) * perNano);
+            updatedAt = now;
+        }
+    }
+}
@@ -1,18 +1,17 @@
 package com.automation.bot.command;
 
-import com.automation.bot.allure.AllureReportGenerator;
 import com.automation.bot.bot.BotMessageSender;
 import com.automation.bot.config.TestRunnerProperties;
 import com.automation.bot.notification.TelegramNotifier;
-import com.automation.bot.parser.SurefireReportParser;
-import com.automation.bot.parser.model.TestCase;
-import com.automation.bot.parser.model.TestSuite;
-import com.automation.bot.runner.*;
+import com.automation.bot.runner.TestRunQueue;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunService;
+import com.automation.bot.runner.cache.RunResultCache;
 import com.automation.bot.session.UserSessionManager;
 import lombok.extern.slf4j.Slf4j;
 import org.telegram.telegrambots.meta.api.objects.message.Message;
 
-import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -23,6 +22,7 @@ import java.util.UUID;
  *   Tất cả test commands đều làm giống nhau, chỉ khác profile/testClass.
  * → Template Method pattern: subclass chỉ override profile() và testClass(),
  *   flow chính (resolve env → build request → submit → notify) giữ nguyên.
+ * → Phần chạy test + báo kết quả nằm ở {@link TestRunService} (dùng chung với queue recovery).
  * → Giảm code duplication: nếu dùng interface, mỗi command phải copy-paste 30 dòng logic.
  */
 @Slf4j
@@ -31,28 +31,22 @@ public abstract class AbstractTestCommand implements BotCommand {
     protected final BotMessageSender messageSender;
     protected final UserSessionManager sessionManager;
     protected final TestRunnerProperties runnerProperties;
-    protected final TestRunner testRunner;
     protected final TestRunQueue testRunQueue;
     protected final TelegramNotifier notifier;
-    protected final SurefireReportParser reportParser;
-    protected final AllureReportGenerator allureGenerator;
+    protected final TestRunService testRunService;
 
     protected AbstractTestCommand(BotMessageSender messageSender,
                                   UserSessionManager sessionManager,
                                   TestRunnerProperties runnerProperties,
-                                  TestRunner testRunner,
                                   TestRunQueue testRunQueue,
                                   TelegramNotifier notifier,
-                                  SurefireReportParser reportParser,
-                                  AllureReportGenerator allureGenerator) {
+                                  TestRunService testRunService) {
         this.messageSender = messageSender;
         this.sessionManager = sessionManager;
         this.runnerProperties = runnerProperties;
-        this.testRunner = testRunner;
         this.testRunQueue = testRunQueue;
         this.notifier = notifier;
-        this.reportParser = reportParser;
-        this.allureGenerator = allureGenerator;
+        this.testRunService = testRunService;
     }
 
     /** Maven profile cho command này (ví dụ: "smoke", "regression"). Null nếu chạy theo testClass */
@@ -80,69 +74,83 @@ public abstract class AbstractTestCommand implements BotCommand {
                 .testClass(testClass())
                 .browser(runnerProperties.getDefaultBrowser())
                 .headless(runnerProperties.isHeadless())
+                .shards(resolveShards(args))
                 .build();
 
-        // Submit vào queue
-        TestRunQueue.TestRunInfo runInfo = testRunQueue.submit(request, info -> {
-            executeTestRun(info);
-        });
+        // Cùng code framework + cùng env vừa pass → trả kết quả cũ, "--force" để chạy lại thật
+        if (!hasOption(args, "--force")) {
+            Optional<RunResultCache.CachedRun> cached = testRunService.findCached(request);
+            if (cached.isPresent()) {
+                notifier.notifyCachedResult(request, cached.get());
+                return;
+            }
+        }
+
+        // Submit vào queue — chạy + gửi kết quả do TestRunService lo
+        TestRunQueue.TestRunInfo runInfo = testRunService.submit(request);
 
         if (runInfo == null) {
             notifier.notifyQueueFull(chatId);
             return;
         }
 
-        notifier.notifyQueued(chatId, runId, label, env);
+        // Đã có run giống hệt đang chờ/đang chạy → request được gộp vào run đó
+        String actualRunId = runInfo.getRequest().getRunId();
+        if (!actualRunId.equals(runId)) {
+            notifier.notifyCoalesced(chatId, runInfo, label, env, testRunQueue.getQueuePosition(actualRunId));
+            return;
+        }
+
+        notifier.notifyQueued(chatId, runInfo, label, env, testRunQueue.getQueuePosition(runId));
     }
 
     /**
-     * Thực thi test run — method này chạy trên worker thread của TestRunQueue.
-     * Flow: set RUNNING → chạy mvn → parse Surefire XML → notify kết quả → cleanup
+     * Resolve env: nếu user gõ "/smoke prod" → dùng prod (override lần này).
+     * Nếu gõ "/smoke" → dùng env đã save. Nếu chưa save → default "dev".
+     * Các option dạng --xxx (ví dụ --shards=3, --force) không tính là env.
      */
-    private void executeTestRun(TestRunQueue.TestRunInfo info) {
-        TestRunRequest request = info.getRequest();
-        String runId = request.getRunId();
-        String label = request.getProfile() != null ? request.getProfile() : request.getTestClass();
-
-        try {
-            info.setStatus(RunStatus.RUNNING);
-            notifier.notifyRunning(request.getChatId(), label, request.getEnv());
-
-            // Chạy Maven test
-            TestRunResult rawResult = testRunner.run(request);
-            info.setStatus(rawResult.getStatus());
-
-            // Generate Allure report
-            String allureUrl = allureGenerator.generateReport();
-
-            // Parse Surefire XML để lấy chi tiết pass/fail
-            List<TestSuite> suites = reportParser.parseReports(runnerProperties.getFrameworkPath());
-            List<TestCase> failedTests = reportParser.getFailedTests(suites);
-
-            TestRunResult enrichedResult = reportParser.buildResult(
-                    runId, suites, rawResult.getDuration(), allureUrl);
-
-            // Gửi kết quả đẹp về Telegram
-            notifier.notifyResult(request, enrichedResult, failedTests);
-
-        } catch (Exception e) {
-            log.error("[{}] Error executing test run: {}", runId, e.getMessage(), e);
-            info.setStatus(RunStatus.FAILED);
-            notifier.notifyError(request.getChatId(), label, e.getMessage());
+    private String resolveEnv(long userId, String args) {
+        if (args != null && !args.isBlank()) {
+            for (String token : args.trim().split("\\s+")) {
+                if (!token.startsWith("--")) {
+                    return token.toLowerCase();
+                }
+            }
+        }
+        return sessionManager.getEnv(userId);
+    }
 
-        } finally {
-            testRunQueue.removeRun(runId);
+    private static boolean hasOption(String args, String option) {
+        if (args == null || args.isBlank()) {
+            return false;
         }
+        for (String token : args.trim().split("\\s+")) {
+            if (token.equalsIgnoreCase(option)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Resolve env: nếu user gõ "/smoke prod" → dùng prod (override lần này).
-     * Nếu gõ "/smoke" → dùng env đã save. Nếu chưa save → default "dev".
+     * Số shard: "/regression --shards=3" > sharding.default-shards của profile > 1.
+     * Luôn bị chặn bởi sharding.max-shards.
      */
-    private String resolveEnv(long userId, String args) {
+    private int resolveShards(String args) {
+        TestRunnerProperties.Sharding sharding = runnerProperties.getSharding();
+        int shards = profile() != null ? sharding.getDefaultShards().getOrDefault(profile(), 1) : 1;
+
         if (args != null && !args.isBlank()) {
-            return args.trim().toLowerCase();
+            for (String token : args.trim().split("\\s+")) {
+                if (token.startsWith("--shards=")) {
+                    try {
+                        shards = Integer.parseInt(token.substring("--shards=".length()));
+                    } catch (NumberFormatException e) {
+                        log.warn("Ignoring invalid shard option: {}", token);
+                    }
+                }
+            }
         }
-        return sessionManager.getEnv(userId);
+        return Math.max(1, Math.min(shards, sharding.getMaxShards()));
     }
 }
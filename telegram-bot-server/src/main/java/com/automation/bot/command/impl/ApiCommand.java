@@ -1,13 +1,11 @@
 package com.automation.bot.command.impl;
 
-import com.automation.bot.allure.AllureReportGenerator;
 import com.automation.bot.bot.BotMessageSender;
 import com.automation.bot.command.AbstractTestCommand;
 import com.automation.bot.config.TestRunnerProperties;
 import com.automation.bot.notification.TelegramNotifier;
-import com.automation.bot.parser.SurefireReportParser;
 import com.automation.bot.runner.TestRunQueue;
-import com.automation.bot.runner.TestRunner;
+import com.automation.bot.runner.TestRunService;
 import com.automation.bot.session.UserSessionManager;
 import org.springframework.stereotype.Component;
 
@@ -17,13 +15,10 @@ public class ApiCommand extends AbstractTestCommand {
     public ApiCommand(BotMessageSender messageSender,
                       UserSessionManager sessionManager,
                       TestRunnerProperties runnerProperties,
-                      TestRunner testRunner,
                       TestRunQueue testRunQueue,
                       TelegramNotifier notifier,
-                      SurefireReportParser reportParser,
-                      AllureReportGenerator allureGenerator) {
-        super(messageSender, sessionManager, runnerProperties, testRunner, testRunQueue,
-                notifier, reportParser, allureGenerator);
+                      TestRunService testRunService) {
+        super(messageSender, sessionManager, runnerProperties, testRunQueue, notifier, testRunService);
     }
 
     @Override
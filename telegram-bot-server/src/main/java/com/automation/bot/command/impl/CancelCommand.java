@@ -15,7 +15,8 @@ import java.util.List;
  * Rules:
  * - User chỉ cancel được test của chính mình (theo userId).
  * - Nếu user có nhiều test, cancel tất cả. Hoặc cancel theo runId: /cancel abc12345
- * - Process bị kill bằng destroyForcibly() → Chrome + Maven chết ngay.
+ * - Kill cả cây process (mvn → surefire fork → chromedriver → Chrome) → không để lại browser mồ côi.
+ * - Run được gộp từ nhiều user → cancel chỉ bỏ đăng ký của user này, run chạy tiếp cho người khác.
  */
 @Component
 @RequiredArgsConstructor
@@ -41,7 +42,7 @@ public class CancelCommand implements BotCommand {
 
         // Cancel theo runId cụ thể
         if (!args.isEmpty()) {
-            boolean cancelled = testRunQueue.cancel(args.trim());
+            boolean cancelled = testRunQueue.cancel(args.trim(), userId);
             if (cancelled) {
                 messageSender.send(chatId, "Test `" + args.trim() + "` cancelled.");
             } else {
@@ -59,7 +60,7 @@ public class CancelCommand implements BotCommand {
 
         int cancelled = 0;
         for (TestRunQueue.TestRunInfo info : userRuns) {
-            if (testRunQueue.cancel(info.getRequest().getRunId())) {
+            if (testRunQueue.cancel(info.getRequest().getRunId(), userId)) {
                 cancelled++;
             }
         }
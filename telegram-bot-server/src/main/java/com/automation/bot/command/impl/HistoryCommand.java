@@ -0,0 +1,161 @@
+package com.automation.bot.command.impl;
+
+import com.automation.bot.bot.BotMessageSender;
+import com.automation.bot.command.BotCommand;
+import com.automation.bot.runner.history.TestHistoryStore;
+import com.automation.bot.runner.history.TestHistoryStore.Entry;
+import com.automation.bot.runner.history.TestHistoryStore.Stats;
+import com.automation.bot.runner.history.TestHistoryStore.TestKey;
+import com.automation.bot.runner.history.TestHistoryStore.TrendPoint;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * /history &lt;test&gt; [n] — Lịch sử của 1 testcase qua các run.
+ *
+ * Test tìm theo "LoginTest.testValidLogin", tên method, tên class hoặc chuỗi con của tên.
+ * Khớp nhiều test → liệt kê để user gõ lại tên cụ thể hơn.
+ *
+ * Hiển thị:
+ * 1. Pass rate + thời gian trung bình 7 ngày / 30 ngày
+ * 2. Thời gian chạy trung bình theo ngày (7 ngày gần nhất có chạy)
+ * 3. n lần chạy gần nhất: outcome, thời điểm (UTC), env, thời gian, runId, failure
+ */
+@Component
+@RequiredArgsConstructor
+public class HistoryCommand implements BotCommand {
+
+    private static final int DEFAULT_ENTRIES = 10;
+    private static final int MAX_ENTRIES = 30;
+    private static final int MAX_MATCHES = 15;
+    private static final int TREND_DAYS = 7;
+    private static final int FAILURE_CHARS = 120;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("MM-dd HH:mm").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("MM-dd");
+
+    private final BotMessageSender messageSender;
+    private final TestHistoryStore history;
+
+    @Override
+    public String name() {
+        return "history";
+    }
+
+    @Override
+    public String description() {
+        return "Show pass rate, duration trend and recent results of a test: /history <test> [n]";
+    }
+
+    @Override
+    public void execute(Message message, String args) {
+        long chatId = message.getChatId();
+        String[] parts = args == null ? new String[0] : args.trim().split("\\s+");
+
+        if (parts.length == 0 || parts[0].isEmpty()) {
+            messageSender.send(chatId, "Usage: /history <test> [n]");
+            return;
+        }
+        if (!history.isEnabled()) {
+            messageSender.send(chatId, "Test history is disabled.");
+            return;
+        }
+        int entries = DEFAULT_ENTRIES;
+        if (parts.length > 1) {
+            try {
+                entries = Math.max(1, Math.min(MAX_ENTRIES, Integer.parseInt(parts[1])));
+            } catch (NumberFormatException e) {
+                messageSender.send(chatId, "Usage: /history <test> [n]");
+                return;
+            }
+        }
+
+        List<TestKey> matches = history.find(parts[0]);
+        if (matches.isEmpty()) {
+            messageSender.sendHtml(chatId, "No history for <code>" + escapeHtml(parts[0]) + "</code>.");
+            return;
+        }
+        if (matches.size() > 1) {
+            StringBuilder sb = new StringBuilder("<b>").append(matches.size()).append(" tests match</b> <code>")
+                    .append(escapeHtml(parts[0])).append("</code>:\n");
+            for (TestKey key : matches.subList(0, Math.min(MAX_MATCHES, matches.size()))) {
+                sb.append("• <code>").append(escapeHtml(key.label())).append("</code>\n");
+            }
+            if (matches.size() > MAX_MATCHES) {
+                sb.append("... and ").append(matches.size() - MAX_MATCHES).append(" more\n");
+            }
+            sb.append("\nUse /history Class.method");
+            messageSender.sendHtml(chatId, sb.toString());
+            return;
+        }
+
+        messageSender.sendHtml(chatId, format(matches.get(0), entries));
+    }
+
+    private String format(TestKey key, int entries) {
+        Instant now = Instant.now();
+        StringBuilder sb = new StringBuilder();
+        sb.append("<b>").append(escapeHtml(key.label())).append("</b>\n");
+
+        appendStats(sb, "7d", history.stats(key, now.minus(Duration.ofDays(7))));
+        appendStats(sb, "30d", history.stats(key, now.minus(Duration.ofDays(30))));
+
+        List<TrendPoint> trend = history.dailyTrend(key, now.minus(Duration.ofDays(30)));
+        if (!trend.isEmpty()) {
+            sb.append("\n<b>Avg duration by day</b>\n<pre>");
+            for (TrendPoint point : trend.subList(Math.max(0, trend.size() - TREND_DAYS), trend.size())) {
+                sb.append(DAY.format(point.day())).append(String.format("  %6.1fs  %d/%d passed\n",
+                        point.avgSeconds(), point.passed(), point.runs()));
+            }
+            sb.append("</pre>");
+        }
+
+        sb.append("\n<b>Recent runs</b>\n");
+        for (Entry entry : history.recent(key, entries)) {
+            sb.append(icon(entry.outcome())).append(" ").append(TIME.format(entry.finishedAt()))
+                    .append(" ").append(escapeHtml(String.valueOf(entry.env())))
+                    .append(String.format(" %.1fs ", entry.seconds()))
+                    .append("<code>").append(escapeHtml(String.valueOf(entry.runId()))).append("</code>\n");
+            if (entry.failure() != null) {
+                String failure = entry.failure().length() > FAILURE_CHARS
+                        ? entry.failure().substring(0, FAILURE_CHARS) + "..."
+                        : entry.failure();
+                sb.append("    <i>").append(escapeHtml(failure)).append("</i>\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendStats(StringBuilder sb, String window, Stats stats) {
+        sb.append(window).append(": ");
+        if (stats.runs() == 0) {
+            sb.append("no runs\n");
+            return;
+        }
+        sb.append(stats.runs()).append(" runs · ")
+                .append(String.format("%.1f%% pass · avg %.1fs", stats.passRate() * 100, stats.avgSeconds()));
+        if (stats.skipped() > 0) {
+            sb.append(" · ").append(stats.skipped()).append(" skipped");
+        }
+        sb.append("\n");
+    }
+
+    private static String icon(TestHistoryStore.Outcome outcome) {
+        return switch (outcome) {
+            case PASSED -> "\u2705";
+            case FAILED -> "\u274c";
+            case ERROR -> "\u26a0\ufe0f";
+            case SKIPPED -> "\u23ed";
+        };
+    }
+
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
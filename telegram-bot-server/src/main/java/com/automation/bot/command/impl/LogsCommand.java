@@ -0,0 +1,99 @@
+package com.automation.bot.command.impl;
+
+import com.automation.bot.bot.BotMessageSender;
+import com.automation.bot.command.BotCommand;
+import com.automation.bot.runner.RunWorkspaceManager;
+import com.automation.bot.runner.TestRunQueue;
+import com.automation.bot.runner.log.LogTail;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * /logs &lt;runId&gt; [n] — Xem n dòng output cuối của một run.
+ *
+ * - Run đang chạy → lấy từ ring buffer trong memory (không đụng file đang ghi).
+ * - Run đã xong → đọc đuôi run.log trong workspace bằng seek từ cuối file, không đọc cả file.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LogsCommand implements BotCommand {
+
+    private static final int DEFAULT_LINES = 20;
+    private static final int MAX_LINES = 100;
+    /** Telegram giới hạn 4096 ký tự / message — chừa chỗ cho header, thẻ HTML và escape */
+    private static final int MAX_CHARS = 3000;
+    /** runId đi vào path của workspace → chỉ nhận ký tự an toàn */
+    private static final Pattern RUN_ID = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private final BotMessageSender messageSender;
+    private final TestRunQueue testRunQueue;
+    private final RunWorkspaceManager workspaceManager;
+
+    @Override
+    public String name() {
+        return "logs";
+    }
+
+    @Override
+    public String description() {
+        return "Show the last lines of a run's output: /logs <runId> [n]";
+    }
+
+    @Override
+    public void execute(Message message, String args) {
+        long chatId = message.getChatId();
+        String[] parts = args == null ? new String[0] : args.trim().split("\\s+");
+
+        if (parts.length == 0 || parts[0].isEmpty() || !RUN_ID.matcher(parts[0]).matches()) {
+            messageSender.send(chatId, "Usage: /logs <runId> [lines]");
+            return;
+        }
+        String runId = parts[0];
+        int lines = DEFAULT_LINES;
+        if (parts.length > 1) {
+            try {
+                lines = Math.max(1, Math.min(MAX_LINES, Integer.parseInt(parts[1])));
+            } catch (NumberFormatException e) {
+                messageSender.send(chatId, "Usage: /logs <runId> [lines]");
+                return;
+            }
+        }
+
+        List<String> tail;
+        TestRunQueue.TestRunInfo active = testRunQueue.getRun(runId);
+        if (active != null && !active.getProgress().getRecentLines().isEmpty()) {
+            tail = active.getProgress().getRecentLines().last(lines);
+        } else {
+            try {
+                tail = LogTail.tail(workspaceManager.get(runId).logFile(), lines);
+            } catch (IOException e) {
+                log.warn("[{}] Failed to read run log: {}", runId, e.getMessage());
+                tail = List.of();
+            }
+        }
+
+        if (tail.isEmpty()) {
+            messageSender.send(chatId, "No output for run `" + runId + "` yet.");
+            return;
+        }
+
+        // Cắt từ đầu để giữ các dòng mới nhất khi vượt giới hạn message (cắt trước khi escape)
+        String body = String.join("\n", tail);
+        if (body.length() > MAX_CHARS) {
+            body = "..." + body.substring(body.length() - MAX_CHARS);
+        }
+        messageSender.sendHtml(chatId,
+                "<b>Run " + runId + "</b> — last " + tail.size() + " lines\n<pre>" + escapeHtml(body) + "</pre>");
+    }
+
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -3,6 +3,8 @@ package com.automation.bot.command.impl;
 import com.automation.bot.bot.BotMessageSender;
 import com.automation.bot.command.BotCommand;
 import com.automation.bot.runner.TestRunQueue;
+import com.automation.bot.runner.remote.RemoteWorkerRegistry;
+import com.automation.bot.runner.report.RunReports;
 import com.automation.bot.session.UserSessionManager;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
@@ -17,7 +19,10 @@ import java.util.List;
  * 1. Environment hiện tại của user
  * 2. Danh sách test đang RUNNING
  * 3. Danh sách test đang QUEUED
- * 4. Số slot trống
+ * 4. Resource budget đang dùng (browsers, memory, CPU)
+ * 5. Worker agent đang kết nối (nếu bật remote) và browser đang dùng trên từng agent
+ *
+ * Run đang chờ hiện vị trí + thời gian chờ ước lượng dạng "~3-7m" (p50-p90 từ lịch sử thời gian chạy).
  */
 @Component
 @RequiredArgsConstructor
@@ -26,6 +31,7 @@ public class StatusCommand implements BotCommand {
     private final BotMessageSender messageSender;
     private final TestRunQueue testRunQueue;
     private final UserSessionManager sessionManager;
+    private final RemoteWorkerRegistry remoteWorkers;
 
     @Override
     public String name() {
@@ -63,13 +69,63 @@ public class StatusCommand implements BotCommand {
 
             sb.append("Running: ").append(running).append(" | Queued: ").append(queued).append("\n\n");
 
+            allRuns.sort(java.util.Comparator.comparing(TestRunQueue.TestRunInfo::getSubmittedAt));
             for (TestRunQueue.TestRunInfo info : allRuns) {
                 var req = info.getRequest();
                 String label = req.getProfile() != null ? req.getProfile() : req.getTestClass();
                 String icon = info.getStatus() == com.automation.bot.runner.RunStatus.RUNNING ? "\u25b6\ufe0f" : "\u23f3";
                 sb.append(icon).append(" `").append(req.getRunId()).append("` ")
                         .append(label).append(" (env=").append(req.getEnv()).append(")")
-                        .append(" [").append(info.getStatus()).append("]\n");
+                        .append(" [").append(info.getStatus()).append("]");
+
+                // Tiến độ live của run đang chạy: "37/120 done, 2 failed"
+                if (info.getStatus() == com.automation.bot.runner.RunStatus.RUNNING && !info.getProgress().isEmpty()) {
+                    sb.append(" — ").append(info.getProgress().summary());
+                }
+                // Số class đã có report (Surefire ghi xong) — phần kết quả còn giữ được nếu run bị dừng
+                RunReports reports = info.getReports();
+                if (info.getStatus() == com.automation.bot.runner.RunStatus.RUNNING && reports != null
+                        && !reports.isEmpty()) {
+                    sb.append(" · ").append(reports.summary());
+                }
+                if (info.getAgentId() != null) {
+                    sb.append(" @").append(info.getAgentId());
+                }
+
+                // Run được gộp từ nhiều request giống hệt
+                int joined = info.getSubscribers().size() - 1;
+                if (joined > 0) {
+                    sb.append(" +").append(joined).append(" joined");
+                }
+
+                // Run đang chờ: vị trí theo queue discipline + thời gian chờ ước lượng p50–p90
+                TestRunQueue.QueuePosition position = testRunQueue.getQueuePosition(req.getRunId());
+                if (position != null) {
+                    long p50 = Math.max(1, position.estimatedWait().toMinutes());
+                    long p90 = Math.max(p50, position.estimatedWaitP90().toMinutes());
+                    sb.append(" #").append(position.position()).append(" ~").append(p50);
+                    if (p90 > p50) {
+                        sb.append("-").append(p90);
+                    }
+                    sb.append("m");
+                }
+                sb.append("\n");
+            }
+        }
+
+        // Resource budget — run chỉ được admit khi còn đủ browsers/memory/CPU
+        var usage = testRunQueue.getResourceUsage();
+        sb.append("\nResources: browsers ").append(usage.usedBrowsers()).append("/").append(usage.maxBrowsers())
+                .append(" | CPU ").append(String.format("%.1f/%.1f", usage.usedCpus(), usage.maxCpus()))
+                .append(" | free mem ").append(Math.max(0, usage.availableMemoryMb())).append("MB\n");
+
+        if (remoteWorkers.isEnabled()) {
+            List<RemoteWorkerRegistry.AgentStatus> agents = remoteWorkers.getAgents();
+            sb.append("Agents: ").append(agents.isEmpty() ? "none connected" : agents.size()).append("\n");
+            for (RemoteWorkerRegistry.AgentStatus agent : agents) {
+                sb.append("  `").append(agent.agentId()).append("` browsers ")
+                        .append(agent.usage().usedBrowsers()).append("/").append(agent.usage().maxBrowsers())
+                        .append(", ").append(agent.runs().size()).append(" run(s)\n");
             }
         }
 
@@ -0,0 +1,34 @@
+package com.automation.bot.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * HTTP API (submit run + SSE stream) cho CI job / script — cấu hình từ bot.api trong application.yml.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "bot.api")
+public class ApiProperties {
+
+    /** Bearer token bắt buộc cho /api/**. Để trống = tắt API (mọi request bị từ chối) */
+    private String token;
+
+    /**
+     * userId gán cho run submit qua API — dùng cho giới hạn per-user của queue và /cancel.
+     * Mọi client của API dùng chung 1 "user".
+     */
+    private long userId = 0;
+
+    /** SSE stream tự đóng sau N phút (client reconnect nếu run còn chạy) */
+    private int streamTimeoutMinutes = 120;
+
+    /** Số run đã xong (submit qua API) giữ lại kết quả cho GET /api/runs/{id} và stream mở muộn */
+    private int finishedRunsRetained = 200;
+
+    /** Mỗi stream giữ tối đa N event chưa gửi — client đọc chậm thì bỏ bớt event từng test */
+    private int maxPendingEvents = 1000;
+}
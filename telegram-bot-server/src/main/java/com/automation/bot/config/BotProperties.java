@@ -25,4 +25,34 @@ public class BotProperties {
     private String token;
     private String username;
     private List<Long> allowedChatIds = new ArrayList<>();
+    private Outbound outbound = new Outbound();
+    /** Run có từ N failure trở lên → gửi kèm file HTML liệt kê đủ mọi failure (0 = tắt) */
+    private int failureReportThreshold = 10;
+
+    /**
+     * Hàng đợi gửi message ra Telegram: gửi bất đồng bộ, giới hạn tốc độ theo giới hạn của Bot API
+     * (~30 message/s toàn bot, ~1 message/s mỗi chat, 20 message/phút mỗi group).
+     */
+    @Getter
+    @Setter
+    public static class Outbound {
+        private double globalPerSecond = 25;
+        private double chatPerSecond = 1;
+        /** Group/channel (chatId âm) bị giới hạn chặt hơn chat riêng */
+        private double groupPerMinute = 20;
+        /** Số message 1 chat được gửi dồn liền nhau trước khi bị giới hạn theo tốc độ */
+        private int chatBurst = 3;
+        /** Message liên tiếp đang chờ cùng 1 chat (cùng parse mode) được gộp thành 1 message ≤ 4096 ký tự */
+        private boolean coalesce = true;
+        /** Khoảng cách tối thiểu giữa 2 lần sửa cùng 1 message (tiến độ run) — update dồn lại chỉ gửi bản mới nhất */
+        private long editIntervalMillis = 3000;
+        /** Số thread gọi Telegram API song song (mỗi chat tối đa 1 request cùng lúc → giữ thứ tự) */
+        private int senderThreads = 4;
+        /** Tổng message chờ tối đa — vượt thì bỏ message mới (log + metric) thay vì giữ memory vô hạn */
+        private int maxQueued = 1000;
+        /** Số lần gửi tối đa khi lỗi mạng / 5xx (429 luôn chờ retry_after rồi gửi lại) */
+        private int maxAttempts = 5;
+        /** Khi tắt bot: chờ gửi nốt message còn trong hàng tối đa N giây */
+        private int drainSeconds = 5;
+    }
 }
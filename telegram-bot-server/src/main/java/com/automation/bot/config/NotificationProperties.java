@@ -0,0 +1,70 @@
+package com.automation.bot.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kênh thông báo kết quả run ngoài Telegram — cấu hình từ bot.notifications trong application.yml.
+ * Mỗi kênh tắt mặc định; bật kênh nào thì sink tương ứng mới được tạo.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "bot.notifications")
+public class NotificationProperties {
+
+    /** Số thông báo chờ tối đa của mỗi kênh — kênh chậm/chết đầy hàng thì bỏ thông báo mới của riêng kênh đó */
+    private int queueCapacity = 100;
+
+    /** Số lần gửi tối đa mỗi thông báo (backoff 2s, 4s, ...) — chỉ làm chậm hàng của kênh lỗi */
+    private int maxAttempts = 3;
+
+    /** Khi tắt bot: chờ các kênh gửi nốt tối đa N giây */
+    private int drainSeconds = 10;
+
+    private Webhook webhook = new Webhook();
+    private Email email = new Email();
+    private File file = new File();
+
+    /** POST JSON tương thích Slack incoming webhook ({"text": ...}), kèm object "run" cho hệ thống khác đọc */
+    @Getter
+    @Setter
+    public static class Webhook {
+        private boolean enabled = false;
+        private String url;
+        private int timeoutSeconds = 10;
+    }
+
+    @Getter
+    @Setter
+    public static class Email {
+        private boolean enabled = false;
+        private String host;
+        private int port = 25;
+        /** true = TLS ngay từ đầu (thường port 465) */
+        private boolean ssl = false;
+        /** true = nâng cấp lên TLS bằng STARTTLS (thường port 587) */
+        private boolean starttls = false;
+        /** Để trống = không AUTH */
+        private String username;
+        private String password;
+        private String from;
+        private List<String> to = new ArrayList<>();
+        private int timeoutSeconds = 30;
+        /** Chỉ gửi mail khi run không COMPLETED sạch — mail cho mọi run là spam */
+        private boolean failuresOnly = true;
+    }
+
+    /** Mỗi run 1 dòng JSON — cho script / log shipper đọc */
+    @Getter
+    @Setter
+    public static class File {
+        private boolean enabled = false;
+        private String path = "notifications.jsonl";
+    }
+}
@@ -5,6 +5,11 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Getter
 @Setter
 @Component
@@ -19,4 +24,247 @@ public class TestRunnerProperties {
     private int timeoutMinutes = 30;
     private int maxConcurrentRuns = 3;
     private int maxQueueSize = 5;
+
+    /** Thư mục chứa output riêng của từng run: {workspaceDir}/{runId}/... */
+    private String workspaceDir = "runs";
+    private int workspaceRetentionHours = 48;
+
+    /** Maven profile → TestNG suite XML, relative tới framework-path (giống suite.xml của từng profile trong pom) */
+    private Map<String, String> suites = new LinkedHashMap<>(Map.of(
+            "smoke", "src/test/resources/suites/smoke.xml",
+            "regression", "src/test/resources/suites/regression.xml",
+            "api", "src/test/resources/suites/api-tests.xml",
+            "checkout", "src/test/resources/suites/checkout.xml"));
+
+    private WarmPool warmPool = new WarmPool();
+    private Sharding sharding = new Sharding();
+    private Logs logs = new Logs();
+    private Journal journal = new Journal();
+    private Reaper reaper = new Reaper();
+    private Watchdog watchdog = new Watchdog();
+    private Resources resources = new Resources();
+    private Queue queue = new Queue();
+    private Remote remote = new Remote();
+    private Cache cache = new Cache();
+    private Reports reports = new Reports();
+    private History history = new History();
+
+    /**
+     * Lịch sử kết quả từng testcase qua các run ({workspaceDir}/test-history) — dùng cho /history.
+     */
+    @Getter
+    @Setter
+    public static class History {
+        private boolean enabled = true;
+        /** Lần chạy cũ hơn N ngày bị bỏ (xóa theo nguyên segment tháng) */
+        private int retentionDays = 180;
+        /** Message của failure/error lưu tối đa N ký tự (không lưu stacktrace) */
+        private int maxFailureChars = 300;
+    }
+
+    /**
+     * Ingest từng TEST-*.xml ngay khi Surefire ghi xong (không chờ mvn thoát)
+     * → run bị cancel / timeout vẫn có kết quả của các class đã chạy xong.
+     */
+    @Getter
+    @Setter
+    public static class Reports {
+        private boolean live = true;
+        /** Chờ file report không đổi trong N ms rồi mới parse (Surefire ghi file thành nhiều lần) */
+        private int settleMillis = 500;
+    }
+
+    /**
+     * Cache kết quả run pass theo commit + dirty hash của framework, suite, env, browser.
+     * Gõ lại cùng lệnh khi code chưa đổi → trả kết quả cũ ngay, "--force" để chạy lại thật.
+     */
+    @Getter
+    @Setter
+    public static class Cache {
+        private boolean enabled = true;
+        /** Kết quả cũ hơn N phút không dùng lại (env có thể đã được deploy bản mới) */
+        private int ttlMinutes = 30;
+        private int maxEntries = 100;
+        /**
+         * Dùng lại revision đã đọc trong N giây — mỗi lần đọc là 3 process git, submit liên tục
+         * (nhiều chat, CI gọi API) không phải chạy git mỗi lần. 0 = luôn đọc mới
+         */
+        private int revisionCacheSeconds = 5;
+    }
+
+    /**
+     * Worker agent ở máy khác đăng ký qua HTTP (/api/agents), nhận run từ queue của bot và gửi lại kết quả.
+     * Thêm capacity = chạy thêm agent, không cần máy bot lớn hơn.
+     */
+    @Getter
+    @Setter
+    public static class Remote {
+        private boolean enabled = false;
+        /** false = host của bot chỉ điều phối, mọi run chạy trên agent */
+        private boolean localRuns = true;
+        /** Agent không heartbeat / lease trong N giây → coi là mất, run đang chạy trên nó FAILED */
+        private int agentTimeoutSeconds = 30;
+        /** Long-poll: agent chờ run mới tối đa N giây mỗi request */
+        private int leaseWaitSeconds = 25;
+        /** Giới hạn dung lượng surefire-reports + allure-results (zip) agent gửi về cho 1 run */
+        private int maxArtifactMb = 200;
+    }
+
+    /**
+     * Journal trạng thái hàng chờ trên đĩa — bot restart/crash không làm mất run đang chờ.
+     */
+    @Getter
+    @Setter
+    public static class Journal {
+        private boolean enabled = true;
+        /** Compact journal sau N event (chỉ giữ run chưa xong) → thời gian recovery không tăng theo lịch sử */
+        private int compactEvery = 500;
+        /** Khi khởi động: run có mvn process vẫn sống → chờ nó chạy xong rồi báo kết quả (false = kill và chạy lại) */
+        private boolean reattach = true;
+    }
+
+    /**
+     * Watchdog theo phase (resolve, compile, test, report): kill run im lặng hoặc kẹt 1 phase quá lâu.
+     * timeout-minutes vẫn là giới hạn tổng cho cả process.
+     */
+    @Getter
+    @Setter
+    public static class Watchdog {
+        private boolean enabled = true;
+        private int checkIntervalSeconds = 15;
+        /** Thời gian tối đa (phút) của từng phase, 0 = chỉ áp timeout-minutes */
+        private Map<String, Integer> phaseMinutes = new LinkedHashMap<>(Map.of(
+                "resolve", 10, "compile", 5, "test", 0, "report", 5));
+        /** Không có dòng output nào trong N phút → coi là treo, 0 = không kiểm tra */
+        private Map<String, Integer> inactivityMinutes = new LinkedHashMap<>(Map.of(
+                "resolve", 5, "compile", 3, "test", 10, "report", 3));
+    }
+
+    /**
+     * Dọn chromedriver/browser mồ côi (không thuộc run nào đang chạy) định kỳ.
+     */
+    @Getter
+    @Setter
+    public static class Reaper {
+        private boolean enabled = true;
+        private int intervalSeconds = 300;
+        /** Process mới start chưa chắc đã gắn được vào cây của run → chỉ xét process sống lâu hơn ngưỡng này */
+        private int minAgeSeconds = 300;
+        /** Tên file thực thi của driver (không có .exe) — mồ côi là kill */
+        private List<String> driverNames = new ArrayList<>(List.of("chromedriver", "geckodriver", "msedgedriver"));
+        /** Tên browser — chỉ kill khi mồ côi VÀ có cờ automation trên command line */
+        private List<String> browserNames = new ArrayList<>(List.of("chrome", "chromium", "chromium-browser", "firefox", "msedge"));
+    }
+
+    /**
+     * Log output của từng run: run.log xoay vòng + nén gzip, ring buffer vài dòng cuối cho /logs.
+     */
+    @Getter
+    @Setter
+    public static class Logs {
+        /** run.log vượt ngưỡng này → nén thành run.log.1.gz và ghi file mới */
+        private int maxFileSizeMb = 10;
+        /** Số file .gz giữ lại mỗi run (cũ hơn bị xóa) */
+        private int maxArchives = 3;
+        /** Số dòng cuối giữ trong memory cho run đang chạy */
+        private int recentLines = 200;
+    }
+
+    /**
+     * Pool JVM "nóng" chạy TestNG trực tiếp thay vì mvn test cho mỗi run.
+     * Tắt mặc định — bật khi muốn bỏ chi phí Maven bootstrap + Surefire fork (20-40s/run).
+     */
+    @Getter
+    @Setter
+    public static class WarmPool {
+        private boolean enabled = false;
+        private int size = 2;
+        /** Recycle worker sau N runs (tránh leak static state / driver giữa các run) */
+        private int maxRunsPerWorker = 20;
+        /** Chờ worker rảnh tối đa bao lâu trước khi fallback sang mvn test */
+        private int acquireTimeoutSeconds = 5;
+        private String javaHome = System.getProperty("java.home");
+        private String jvmArgs = "-Xmx1g";
+    }
+
+    /**
+     * Chia suite thành N shard chạy song song (mỗi shard 1 process riêng), gộp kết quả về 1 run.
+     */
+    @Getter
+    @Setter
+    public static class Sharding {
+        /** Số shard mặc định theo profile (ví dụ regression: 3). Không có → 1 (không shard) */
+        private Map<String, Integer> defaultShards = new LinkedHashMap<>();
+        private int maxShards = 4;
+        /** Thời gian ước lượng cho test class chưa có lịch sử */
+        private double defaultClassSeconds = 30;
+    }
+
+    /**
+     * Resource budget của host: mỗi run "chiếm" browsers/memory/cpu theo cost khai báo,
+     * TestRunQueue chỉ admit run khi budget còn đủ (thay vì đếm slot cố định).
+     */
+    @Getter
+    @Setter
+    public static class Resources {
+        private int maxBrowsers = 3;
+        /** 0 = auto: đọc MemAvailable của máy (trừ headroom) */
+        private int maxMemoryMb = 0;
+        /** 0 = auto: số CPU của máy */
+        private double maxCpus = 0;
+        /** Memory luôn chừa lại cho OS + bot khi ở chế độ auto */
+        private int memoryHeadroomMb = 1024;
+        /** Run mới start chưa kịp chiếm RAM thật → vẫn tính reservation trong khoảng này (chế độ auto) */
+        private int startupGraceSeconds = 60;
+        /** Run đầu hàng bị run nhỏ hơn vượt qua tối đa N lần, sau đó giữ chỗ cho nó (chống starvation) */
+        private int maxHeadBypass = 5;
+        private Cost defaultCost = new Cost(1, 1024, 1);
+        /** Cost theo profile hoặc testClass (key = label của run) */
+        private Map<String, Cost> costs = new LinkedHashMap<>();
+    }
+
+    /**
+     * Thứ tự hàng chờ: fifo (mặc định), fair-share (priority class + chia đều giữa users)
+     * hoặc sjf (run có thời gian chạy lịch sử ngắn nhất chạy trước).
+     */
+    @Getter
+    @Setter
+    public static class Queue {
+        private String discipline = "fifo";
+        /** Priority class theo label (profile/testClass) — số nhỏ chạy trước */
+        private Map<String, Integer> priorities = new LinkedHashMap<>(Map.of(
+                "smoke", 0, "api", 1, "regression", 2));
+        private int defaultPriority = 1;
+        /** Trọng số fair-share theo userId (mặc định 1.0) */
+        private Map<Long, Double> userWeights = new LinkedHashMap<>();
+        /** Số run đang chạy tối đa mỗi user (0 = không giới hạn) */
+        private int maxInFlightPerUser = 2;
+        /** Số run chờ tối đa mỗi user (0 = không giới hạn) — user spam không chiếm hết hàng chờ */
+        private int maxQueuedPerUser = 3;
+        /** Gộp request giống hệt (cùng suite, env, browser, headless) vào run đang chờ/đang chạy */
+        private boolean coalesce = true;
+        /** Chỉ gộp vào run đang chạy nếu nó mới bắt đầu trong N giây (run cũ hơn có thể chạy trên code trước deploy) */
+        private int coalesceRunningMaxAgeSeconds = 120;
+        /** Số lần chạy gần nhất giữ lại mỗi label+env để tính p50/p90 (ETA, sjf) */
+        private int durationSamples = 50;
+        /** sjf: run chờ quá N phút được đưa lên đầu hàng, không bị job ngắn vượt mãi */
+        private int sjfMaxWaitMinutes = 30;
+    }
+
+    @Getter
+    @Setter
+    public static class Cost {
+        private int browsers;
+        private int memoryMb;
+        private double cpus;
+
+        public Cost() {
+        }
+
+        public Cost(int browsers, int memoryMb, double cpus) {
+            this.browsers = browsers;
+            this.memoryMb = memoryMb;
+            this.cpus = cpus;
+        }
+    }
 }
@@ -0,0 +1,131 @@
+package com.automation.bot.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Các metric của bot — expose tại GET /metrics (Prometheus text format).
+ *
+ * Mục đích chính: chọn max-concurrent-runs / resource budget từ số liệu thật
+ * (queue wait tăng → thiếu slot, run duration tăng theo số run song song → host quá tải).
+ *
+ * Label "profile" = profile hoặc testClass của run (giống label trong /status).
+ * Gauge (queue depth, run theo status) do component sở hữu state tự đăng ký qua {@link #gauge}.
+ */
+@Component
+public class BotMetrics {
+
+    /** Giây — từ vài giây (api) tới 1 giờ (regression full) */
+    private static final double[] RUN_BUCKETS = {10, 30, 60, 120, 300, 600, 900, 1200, 1800, 2700, 3600};
+    private static final double[] ALLURE_BUCKETS = {0.5, 1, 2, 5, 10, 30, 60, 120, 300};
+    private static final double[] TELEGRAM_BUCKETS = {0.05, 0.1, 0.25, 0.5, 1, 2, 5, 10};
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    private final MetricsRegistry.Counter runsSubmitted = registry.counter("bot_runs_submitted_total",
+            "Test runs accepted into the queue (coalesced requests excluded)", "profile");
+    private final MetricsRegistry.Counter runsRejected = registry.counter("bot_runs_rejected_total",
+            "Test runs rejected because the queue or the per-user limit was full");
+    private final MetricsRegistry.Counter resultCacheLookups = registry.counter("bot_result_cache_total",
+            "Result cache lookups for new requests (\"--force\" excluded)", "outcome");
+    private final MetricsRegistry.Counter runsCoalesced = registry.counter("bot_runs_coalesced_total",
+            "Requests attached to an identical queued or running run", "profile");
+    private final MetricsRegistry.Histogram queueWait = registry.histogram("bot_queue_wait_seconds",
+            "Time from submit until the run is admitted", RUN_BUCKETS, "profile");
+    private final MetricsRegistry.Histogram runDuration = registry.histogram("bot_run_duration_seconds",
+            "Time a run occupies its slot, from admission to result delivered", RUN_BUCKETS, "profile", "status");
+    private final MetricsRegistry.Counter mavenExits = registry.counter("bot_maven_exit_total",
+            "Maven process exits by exit code (\"aborted\" = killed by the watchdog)", "code");
+    private final MetricsRegistry.Histogram allureGenerate = registry.histogram("bot_allure_generate_seconds",
+            "allure generate latency", ALLURE_BUCKETS, "result");
+    private final MetricsRegistry.Histogram allurePublish = registry.histogram("bot_allure_publish_seconds",
+            "GitHub Pages publish latency", ALLURE_BUCKETS, "result");
+    private final MetricsRegistry.Histogram telegramSend = registry.histogram("bot_telegram_send_seconds",
+            "Telegram sendMessage latency", TELEGRAM_BUCKETS, "result");
+    private final MetricsRegistry.Counter telegramRetries = registry.counter("bot_telegram_retries_total",
+            "Telegram sends retried (\"rate_limited\" = HTTP 429 with retry_after)", "reason");
+    private final MetricsRegistry.Counter telegramDropped = registry.counter("bot_telegram_dropped_total",
+            "Outgoing Telegram messages given up on", "reason");
+    private final MetricsRegistry.Counter telegramCoalesced = registry.counter("bot_telegram_coalesced_total",
+            "Queued messages merged into the previous message to the same chat");
+    private final MetricsRegistry.Counter notifications = registry.counter("bot_notifications_total",
+            "Run notifications per channel (webhook, email, file) by outcome (\"dropped\" = channel queue full)",
+            "sink", "result");
+
+    public void runSubmitted(String profile) {
+        runsSubmitted.inc(profile);
+    }
+
+    public void runRejected() {
+        runsRejected.inc();
+    }
+
+    public void runCoalesced(String profile) {
+        runsCoalesced.inc(profile);
+    }
+
+    public void resultCache(boolean hit) {
+        resultCacheLookups.inc(hit ? "hit" : "miss");
+    }
+
+    public void queueWait(String profile, Duration wait) {
+        queueWait.observe(seconds(wait), profile);
+    }
+
+    public void runFinished(String profile, String status, Duration duration) {
+        runDuration.observe(seconds(duration), profile, status);
+    }
+
+    public void mavenExit(String code) {
+        mavenExits.inc(code);
+    }
+
+    public void allureGenerated(Duration latency, boolean success) {
+        allureGenerate.observe(seconds(latency), result(success));
+    }
+
+    public void allurePublished(Duration latency, boolean success) {
+        allurePublish.observe(seconds(latency), result(success));
+    }
+
+    public void telegramSent(Duration latency, boolean success) {
+        telegramSend.observe(seconds(latency), result(success));
+    }
+
+    public void telegramRetried(String reason) {
+        telegramRetries.inc(reason);
+    }
+
+    public void telegramDropped(String reason) {
+        telegramDropped.inc(reason);
+    }
+
+    public void telegramCoalesced(int messages) {
+        telegramCoalesced.inc(messages);
+    }
+
+    /** @param result success / failure (hết số lần thử) / dropped (hàng của kênh đầy) */
+    public void notificationSent(String sink, String result) {
+        notifications.inc(sink, result);
+    }
+
+    public void gauge(String name, String help, Supplier<Map<List<String>, Double>> samples, String... labelNames) {
+        registry.gauge(name, help, samples, labelNames);
+    }
+
+    public String scrape() {
+        return registry.scrape();
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toNanos() / 1_000_000_000.0;
+    }
+
+    private static String result(boolean success) {
+        return success ? "success" : "failure";
+    }
+}
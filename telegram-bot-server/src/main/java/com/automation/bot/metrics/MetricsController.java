@@ -0,0 +1,27 @@
+package com.automation.bot.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * GET /metrics — endpoint cho Prometheus scrape.
+ *
+ * Ví dụ prometheus.yml:
+ *   - job_name: telegram-bot
+ *     static_configs: [{ targets: ["localhost:8080"] }]
+ */
+@RestController
+@RequiredArgsConstructor
+public class MetricsController {
+
+    /** Content-Type của Prometheus text exposition format */
+    private static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final BotMetrics metrics;
+
+    @GetMapping(value = "/metrics", produces = PROMETHEUS_TEXT)
+    public String metrics() {
+        return metrics.scrape();
+    }
+}
@@ -0,0 +1,223 @@
+package com.automation.bot.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Registry metric tối giản, xuất theo Prometheus text exposition format (version 0.0.4).
+ *
+ * Tại sao không dùng Micrometer + Actuator?
+ * → Bot chỉ cần vài chục series, 1 endpoint /metrics cho Prometheus local scrape.
+ *   Counter/histogram/gauge tự viết ~150 dòng, không kéo thêm dependency + auto-config của Actuator.
+ *
+ * Ghi metric (inc/observe) là lock-free (LongAdder/DoubleAdder) — gọi từ hot path không tốn gì đáng kể.
+ */
+public class MetricsRegistry {
+
+    private final List<Family> families = new CopyOnWriteArrayList<>();
+
+    public Counter counter(String name, String help, String... labelNames) {
+        Counter counter = new Counter(name, help, labelNames);
+        families.add(counter);
+        return counter;
+    }
+
+    public Histogram histogram(String name, String help, double[] buckets, String... labelNames) {
+        Histogram histogram = new Histogram(name, help, buckets, labelNames);
+        families.add(histogram);
+        return histogram;
+    }
+
+    /**
+     * Gauge đọc giá trị lúc scrape.
+     * @param samples label values (theo thứ tự labelNames) → giá trị
+     */
+    public void gauge(String name, String help, Supplier<Map<List<String>, Double>> samples, String... labelNames) {
+        families.add(new Gauge(name, help, samples, labelNames));
+    }
+
+    /** Toàn bộ metric theo text format của Prometheus */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        for (Family family : families) {
+            sb.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.type()).append('\n');
+            family.write(sb);
+        }
+        return sb.toString();
+    }
+
+    private abstract static class Family {
+        final String name;
+        final String help;
+        final String[] labelNames;
+
+        Family(String name, String help, String[] labelNames) {
+            this.name = name;
+            this.help = help;
+            this.labelNames = labelNames;
+        }
+
+        abstract String type();
+
+        abstract void write(StringBuilder sb);
+
+        List<String> key(String[] labelValues) {
+            if (labelValues.length != labelNames.length) {
+                throw new IllegalArgumentException(name + " expects labels " + Arrays.toString(labelNames));
+            }
+            return Arrays.stream(labelValues).map(value -> value == null ? "" : value).toList();
+        }
+
+        /** {a="x",b="y"} kèm label thêm (le của histogram) nếu có */
+        String labels(List<String> values, String extraName, String extraValue) {
+            if (labelNames.length == 0 && extraName == null) {
+                return "";
+            }
+            List<String> pairs = new ArrayList<>();
+            for (int i = 0; i < labelNames.length; i++) {
+                pairs.add(labelNames[i] + "=\"" + escape(values.get(i)) + "\"");
+            }
+            if (extraName != null) {
+                pairs.add(extraName + "=\"" + extraValue + "\"");
+            }
+            return "{" + String.join(",", pairs) + "}";
+        }
+
+        private static String escape(String value) {
+            return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+    }
+
+    public static final class Counter extends Family {
+        /** Sorted theo label values → output ổn định giữa các lần scrape */
+        private final Map<List<String>, DoubleAdder> values = new ConcurrentSkipListMap<>(MetricsRegistry::compare);
+
+        private Counter(String name, String help, String[] labelNames) {
+            super(name, help, labelNames);
+        }
+
+        public void inc(String... labelValues) {
+            inc(1, labelValues);
+        }
+
+        public void inc(double amount, String... labelValues) {
+            values.computeIfAbsent(key(labelValues), k -> new DoubleAdder()).add(amount);
+        }
+
+        @Override
+        String type() {
+            return "counter";
+        }
+
+        @Override
+        void write(StringBuilder sb) {
+            values.forEach((labels, value) -> sb.append(name).append(labels(labels, null, null))
+                    .append(' ').append(format(value.sum())).append('\n'));
+        }
+    }
+
+    public static final class Histogram extends Family {
+        private final double[] buckets;
+        private final Map<List<String>, Series> series = new ConcurrentSkipListMap<>(MetricsRegistry::compare);
+
+        private static final class Series {
+            final LongAdder[] bucketCounts;
+            final LongAdder count = new LongAdder();
+            final DoubleAdder sum = new DoubleAdder();
+
+            Series(int buckets) {
+                bucketCounts = new LongAdder[buckets];
+                Arrays.setAll(bucketCounts, i -> new LongAdder());
+            }
+        }
+
+        private Histogram(String name, String help, double[] buckets, String[] labelNames) {
+            super(name, help, labelNames);
+            this.buckets = buckets.clone();
+            Arrays.sort(this.buckets);
+        }
+
+        public void observe(double value, String... labelValues) {
+            Series s = series.computeIfAbsent(key(labelValues), k -> new Series(buckets.length));
+            // Chỉ tăng bucket nhỏ nhất chứa value — cộng dồn (cumulative) lúc scrape
+            for (int i = 0; i < buckets.length; i++) {
+                if (value <= buckets[i]) {
+                    s.bucketCounts[i].increment();
+                    break;
+                }
+            }
+            s.count.increment();
+            s.sum.add(value);
+        }
+
+        @Override
+        String type() {
+            return "histogram";
+        }
+
+        @Override
+        void write(StringBuilder sb) {
+            series.forEach((labels, s) -> {
+                long cumulative = 0;
+                for (int i = 0; i < buckets.length; i++) {
+                    cumulative += s.bucketCounts[i].sum();
+                    sb.append(name).append("_bucket").append(labels(labels, "le", format(buckets[i])))
+                            .append(' ').append(cumulative).append('\n');
+                }
+                sb.append(name).append("_bucket").append(labels(labels, "le", "+Inf"))
+                        .append(' ').append(s.count.sum()).append('\n');
+                sb.append(name).append("_sum").append(labels(labels, null, null))
+                        .append(' ').append(format(s.sum.sum())).append('\n');
+                sb.append(name).append("_count").append(labels(labels, null, null))
+                        .append(' ').append(s.count.sum()).append('\n');
+            });
+        }
+    }
+
+    private static final class Gauge extends Family {
+        private final Supplier<Map<List<String>, Double>> samples;
+
+        private Gauge(String name, String help, Supplier<Map<List<String>, Double>> samples, String[] labelNames) {
+            super(name, help, labelNames);
+            this.samples = samples;
+        }
+
+        @Override
+        String type() {
+            return "gauge";
+        }
+
+        @Override
+        void write(StringBuilder sb) {
+            Map<List<String>, Double> sorted = new ConcurrentSkipListMap<>(MetricsRegistry::compare);
+            sorted.putAll(samples.get());
+            sorted.forEach((labels, value) -> sb.append(name).append(labels(labels, null, null))
+                    .append(' ').append(format(value)).append('\n'));
+        }
+    }
+
+    private static int compare(List<String> a, List<String> b) {
+        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+            int c = String.valueOf(a.get(i)).compareTo(String.valueOf(b.get(i)));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    }
+
+    /** 3.0 → "3", 0.25 → "0.25" */
+    private static String format(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value)
+                ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+}
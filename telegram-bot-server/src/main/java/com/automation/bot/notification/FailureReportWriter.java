@@ -0,0 +1,117 @@
+package com.automation.bot.notification;
+
+import com.automation.bot.parser.FailureClusterer;
+import com.automation.bot.parser.model.TestCase;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunResult;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Báo cáo failure đầy đủ của 1 run dạng HTML gọn — gửi kèm kết quả khi failure nhiều hơn mức message hiển thị được.
+ *
+ * Tại sao ghi ra file tạm thay vì build String rồi gửi?
+ * → Regression hỏng env → vài nghìn failure, mỗi cái message + stack frame → String vài MB giữ trong heap
+ *   suốt lúc chờ upload (hàng đợi gửi có thể giữ vài phút khi bị 429).
+ * → Ghi từng dòng qua BufferedWriter → memory cố định; file upload thẳng từ đĩa, gửi lại khi 429 không phải build lại.
+ *
+ * Nội dung: header của run, rồi từng nhóm failure (cùng nguyên nhân gốc, nhóm đông nhất trước),
+ * mỗi test 1 dòng: tên, thời gian, message (cắt ở MAX_MESSAGE_CHARS), frame đầu của stacktrace.
+ */
+@Component
+public class FailureReportWriter {
+
+    private static final int MAX_MESSAGE_CHARS = 1000;
+
+    private static final String STYLE = "body{font:13px sans-serif;margin:16px}"
+            + "table{border-collapse:collapse;width:100%;margin-bottom:24px}"
+            + "td,th{border:1px solid #ddd;padding:4px 6px;text-align:left;vertical-align:top}"
+            + "th{background:#f4f4f4}td.t{white-space:nowrap}pre{margin:0;white-space:pre-wrap;font-size:12px}"
+            + "h2{font-size:15px;margin:20px 0 6px}.f{color:#888;font-size:12px}";
+
+    /** Ghi báo cáo ra file tạm — caller chịu trách nhiệm xóa (BotMessageSender.sendDocument xóa sau khi gửi) */
+    public Path writeTemp(TestRunRequest request, TestRunResult result, List<FailureClusterer.Cluster> failures)
+            throws IOException {
+        Path file = Files.createTempFile("failures-" + result.getRunId() + "-", ".html");
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(out, request, result, failures);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    void write(Writer out, TestRunRequest request, TestRunResult result, List<FailureClusterer.Cluster> failures)
+            throws IOException {
+        String label = request.getProfile() != null ? request.getProfile() : request.getTestClass();
+        int failed = failures.stream().mapToInt(FailureClusterer.Cluster::count).sum();
+
+        out.write("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>");
+        out.write(escape(label + " — " + result.getRunId()));
+        out.write("</title><style>" + STYLE + "</style></head><body>\n<h1>");
+        out.write(escape(label));
+        out.write(" — " + failed + " failed</h1>\n<p>Run <code>");
+        out.write(escape(String.valueOf(result.getRunId())));
+        out.write("</code> · env <code>");
+        out.write(escape(String.valueOf(request.getEnv())));
+        out.write("</code> · " + result.getTotalTests() + " tests, " + result.getPassed() + " passed, "
+                + result.getFailed() + " failed, " + result.getErrors() + " errors, "
+                + result.getSkipped() + " skipped");
+        if (result.getDuration() != null) {
+            out.write(" · " + result.getDuration().toSeconds() + "s");
+        }
+        out.write("</p>\n");
+
+        for (FailureClusterer.Cluster cluster : failures) {
+            out.write("<h2>" + cluster.count() + "\u00d7 ");
+            out.write(escape(cluster.summary()));
+            out.write("</h2>\n");
+            if (!cluster.frame().isEmpty()) {
+                out.write("<div class=\"f\">at ");
+                out.write(escape(cluster.frame()));
+                out.write("</div>\n");
+            }
+            out.write("<table><tr><th>Test</th><th>Time</th><th>Message</th></tr>\n");
+            for (TestCase tc : cluster.tests()) {
+                writeRow(out, tc);
+            }
+            out.write("</table>\n");
+        }
+        out.write("</body></html>\n");
+    }
+
+    private static void writeRow(Writer out, TestCase tc) throws IOException {
+        TestCase.Failure failure = tc.getError() != null ? tc.getError() : tc.getFailure();
+        String message = failure != null && failure.getMessage() != null ? failure.getMessage().strip() : "";
+        if (message.length() > MAX_MESSAGE_CHARS) {
+            message = message.substring(0, MAX_MESSAGE_CHARS) + "...";
+        }
+        out.write("<tr><td>");
+        out.write(escape(String.valueOf(tc.getClassname())));
+        out.write(".<b>");
+        out.write(escape(String.valueOf(tc.getName())));
+        out.write("</b></td><td class=\"t\">");
+        out.write(String.format(Locale.ROOT, "%.1fs", tc.getTime()));
+        out.write("</td><td><pre>");
+        out.write(escape(message));
+        out.write("</pre>");
+        if (failure != null && !failure.getStackFrames().isEmpty()) {
+            out.write("<div class=\"f\">at ");
+            out.write(escape(failure.getStackFrames().get(0)));
+            out.write("</div>");
+        }
+        out.write("</td></tr>\n");
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -1,37 +1,147 @@
 package com.automation.bot.notification;
 
 import com.automation.bot.bot.BotMessageSender;
+import com.automation.bot.config.BotProperties;
+import com.automation.bot.parser.FailureClusterer;
+import com.automation.bot.parser.model.RetriedTest;
 import com.automation.bot.parser.model.TestCase;
 import com.automation.bot.runner.RunStatus;
+import com.automation.bot.runner.TestRunQueue;
 import com.automation.bot.runner.TestRunRequest;
 import com.automation.bot.runner.TestRunResult;
+import com.automation.bot.runner.cache.RunResultCache;
+import com.automation.bot.runner.progress.RunProgress;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Format và gửi kết quả test đẹp mắt về Telegram.
  *
  * Tại sao tách riêng thay vì format trong AbstractTestCommand?
  * → Single Responsibility: command lo logic chạy test, notifier lo format message.
- * → Sau này muốn gửi thêm Slack/Email chỉ cần thêm notifier mới, không sửa command.
+ * → Slack/Email/file đi qua {@link com.automation.bot.notification.sink.NotificationFanout} — không sửa command.
  * → Dễ thay đổi format mà không ảnh hưởng flow chạy test.
+ *
+ * Mỗi run có 1 message trạng thái trong mỗi chat, sửa tại chỗ: Queued → Running + tiến độ → kết quả.
+ * Trước đây mỗi bước là 1 message mới → chat đầy "Queued"/"Running", tiến độ live thì càng không gửi được.
+ * Tiến độ đẩy vào {@link BotMessageSender.LiveMessage} ở mỗi event test, sender tự giới hạn tần suất sửa
+ * → số lần gọi API mỗi run chỉ còn vài lần bất kể run có bao nhiêu test.
  */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class TelegramNotifier {
 
+    /** Số nhóm failure hiện trong message, mỗi nhóm kèm tối đa vài tên test */
+    private static final int MAX_CLUSTERS = 5;
+    private static final int MAX_TESTS_PER_CLUSTER = 2;
+    private static final int MAX_CLUSTER_MESSAGE = 150;
+    private static final int MAX_RETRIED_TESTS = 3;
+    /** Run không bao giờ báo xong (bot mất dấu run) → bỏ message trạng thái của nó sau khoảng này */
+    private static final Duration STALE_AFTER = Duration.ofHours(24);
+
     private final BotMessageSender messageSender;
+    private final FailureReportWriter failureReportWriter;
+    private final BotProperties botProperties;
+    /** Message trạng thái của run đang chờ/đang chạy, theo runId */
+    private final Map<String, RunMessages> runs = new ConcurrentHashMap<>();
+
+    /** Message trạng thái của 1 run trong các chat đã đăng ký */
+    private static final class RunMessages {
+        final Instant createdAt = Instant.now();
+        final Map<Long, ChatMessage> chats = new ConcurrentHashMap<>();
+        final AtomicBoolean tracked = new AtomicBoolean();
+        /** notifyRunning đã gọi → kết thúc run do TestRunService báo (result / error / cancelled) */
+        volatile boolean running;
+        volatile RunProgress progress;
+        volatile RunProgress.TestEventListener progressListener;
+    }
+
+    /** Message trạng thái trong 1 chat — sau finish() thì event tiến độ đến muộn không ghi đè kết quả */
+    private static final class ChatMessage {
+        final BotMessageSender.LiveMessage message;
+        /** "▶️ Running: ..." — null khi run chưa chạy (event tiến độ không cập nhật) */
+        volatile String runningHeader;
+        private boolean finished;
+
+        ChatMessage(BotMessageSender.LiveMessage message) {
+            this.message = message;
+        }
+
+        synchronized void show(String text) {
+            if (!finished) {
+                message.update(text);
+            }
+        }
 
-    public void notifyResult(TestRunRequest request, TestRunResult result, List<TestCase> failedTests) {
+        synchronized void finish(String text) {
+            finished = true;
+            message.update(text);
+        }
+    }
+
+    /**
+     * Kết quả thay cho message trạng thái của run trong chat này (chưa có → message mới).
+     * Nhiều failure hơn ngưỡng → gửi kèm file HTML liệt kê đủ (message chỉ hiện vài nhóm đầu).
+     */
+    public void notifyResult(TestRunRequest request, TestRunResult result, List<FailureClusterer.Cluster> failures) {
+        finish(result.getRunId(), request.getChatId(), formatResult(request, result, failures).toString());
+
+        int failed = failures == null ? 0 : failures.stream().mapToInt(FailureClusterer.Cluster::count).sum();
+        if (hasFailureReport(failed)) {
+            try {
+                Path report = failureReportWriter.writeTemp(request, result, failures);
+                messageSender.sendDocument(request.getChatId(), report, "failures-" + result.getRunId() + ".html",
+                        "All " + failed + " failures of run " + result.getRunId());
+            } catch (IOException e) {
+                log.warn("[{}] Failed to write failure report: {}", result.getRunId(), e.getMessage());
+            }
+        }
+    }
+
+    /** Cùng code framework vừa pass → trả kết quả cũ thay vì chạy lại */
+    public void notifyCachedResult(TestRunRequest request, RunResultCache.CachedRun cached) {
+        Duration age = Duration.between(cached.finishedAt(), Instant.now());
+        StringBuilder sb = new StringBuilder();
+        sb.append("\u267b\ufe0f *Cached result* — run `").append(cached.result().getRunId()).append("`, ")
+                .append(formatDuration(age)).append(" ago on framework `")
+                .append(cached.revision().shortLabel()).append("`\n")
+                .append("Nothing changed since then. Add `--force` to run again.\n")
+                // Report dùng chung thư mục output, run sau đã ghi đè → không gửi link của run cũ
+                .append("The Allure report of that run has been replaced by later runs.\n\n");
+        sb.append(formatResult(request, cached.result(), List.of()));
+        messageSender.send(request.getChatId(), sb.toString());
+    }
+
+    private StringBuilder formatResult(TestRunRequest request, TestRunResult result,
+                                       List<FailureClusterer.Cluster> failures) {
         StringBuilder sb = new StringBuilder();
 
         // Header với status icon
-        String icon = result.getStatus() == RunStatus.COMPLETED ? "\u2705" : "\u274c";
+        String icon = switch (result.getStatus()) {
+            case COMPLETED -> "\u2705";
+            case CANCELLED -> "\u23f9";
+            default -> "\u274c";
+        };
         String label = request.getProfile() != null ? request.getProfile() : request.getTestClass();
         sb.append(icon).append(" *").append(label.toUpperCase()).append(" TEST RESULT*\n\n");
 
+        // Run dừng giữa chừng: số liệu chỉ gồm các class đã chạy xong
+        if (result.isPartial()) {
+            sb.append("\u26a0\ufe0f Partial result — run stopped: ")
+                    .append(escapeMarkdown(String.valueOf(result.getErrorMessage()))).append("\n\n");
+        }
+
         // Summary
         sb.append("Environment: `").append(request.getEnv()).append("`\n");
         sb.append("Duration: ").append(formatDuration(result.getDuration())).append("\n\n");
@@ -48,25 +158,61 @@ public class TelegramNotifier {
             sb.append("\u23ed Skipped: ").append(result.getSkipped()).append("\n");
         }
 
-        // Failed test details (tối đa 5)
-        if (failedTests != null && !failedTests.isEmpty()) {
-            sb.append("\n*Failed Tests:*\n");
-            int limit = Math.min(failedTests.size(), 5);
+        // Pass nhờ retry không phải pass sạch — hiện riêng, kèm thời gian các lần chạy lại đã tốn
+        if (!result.getRetriedTests().isEmpty()) {
+            sb.append("\ud83d\udd01 Retries: ").append(result.getRetries())
+                    .append(" (").append(formatDuration(result.getRetryTime())).append(")");
+            if (result.getFlakyPassed() > 0) {
+                sb.append(", ").append(result.getFlakyPassed()).append(" passed only after retry");
+            }
+            sb.append("\n");
+            int limit = Math.min(result.getRetriedTests().size(), MAX_RETRIED_TESTS);
+            for (RetriedTest test : result.getRetriedTests().subList(0, limit)) {
+                sb.append("  \u2022 `").append(test.label()).append("` ")
+                        .append(test.passed() ? "passed" : "failed").append(" after ").append(test.retries())
+                        .append(test.retries() == 1 ? " retry" : " retries")
+                        .append(" (").append(formatDuration(Duration.ofMillis(Math.round(test.retrySeconds() * 1000))))
+                        .append(")\n");
+            }
+            if (result.getRetriedTests().size() > limit) {
+                sb.append("  ... and ").append(result.getRetriedTests().size() - limit).append(" more\n");
+            }
+        }
+
+        // Failure gom theo nguyên nhân gốc — env down ra "48× TimeoutException ..." thay vì 48 dòng gần giống nhau
+        if (failures != null && !failures.isEmpty()) {
+            int failedCount = failures.stream().mapToInt(FailureClusterer.Cluster::count).sum();
+            sb.append("\n*Failures:* ").append(failedCount);
+            if (failures.size() > 1) {
+                sb.append(" in ").append(failures.size()).append(" groups");
+            }
+            sb.append("\n");
+            int limit = Math.min(failures.size(), MAX_CLUSTERS);
             for (int i = 0; i < limit; i++) {
-                TestCase tc = failedTests.get(i);
-                sb.append("  \u2022 ").append(tc.getName());
-                if (tc.getFailure() != null && tc.getFailure().getMessage() != null) {
-                    String msg = tc.getFailure().getMessage();
-                    // Truncate message dài
-                    if (msg.length() > 80) {
-                        msg = msg.substring(0, 80) + "...";
-                    }
-                    sb.append("\n    _").append(msg).append("_");
+                FailureClusterer.Cluster cluster = failures.get(i);
+                String summary = cluster.summary();
+                if (summary.length() > MAX_CLUSTER_MESSAGE) {
+                    summary = summary.substring(0, MAX_CLUSTER_MESSAGE) + "...";
+                }
+                sb.append("  \u2022 *").append(cluster.count()).append("\u00d7* ").append(escapeMarkdown(summary)).append("\n    ");
+                int names = Math.min(cluster.count(), MAX_TESTS_PER_CLUSTER);
+                for (int j = 0; j < names; j++) {
+                    TestCase tc = cluster.tests().get(j);
+                    sb.append(j > 0 ? ", " : "").append("`").append(testLabel(tc)).append("`");
+                }
+                if (cluster.count() > names) {
+                    sb.append(" +").append(cluster.count() - names).append(" more");
                 }
                 sb.append("\n");
             }
-            if (failedTests.size() > 5) {
-                sb.append("  ... and ").append(failedTests.size() - 5).append(" more\n");
+            if (failures.size() > limit) {
+                int rest = failures.subList(limit, failures.size()).stream()
+                        .mapToInt(FailureClusterer.Cluster::count).sum();
+                sb.append("  ... and ").append(failures.size() - limit).append(" more groups (")
+                        .append(rest).append(" tests)\n");
+            }
+            if (hasFailureReport(failedCount)) {
+                sb.append("  \ud83d\udcce Full list in the attached report\n");
             }
         }
 
@@ -74,36 +220,216 @@ public class TelegramNotifier {
         if (result.getAllureReportUrl() != null) {
             sb.append("\n\ud83d\udcca [View Allure Report](").append(result.getAllureReportUrl()).append(")");
         }
+        return sb;
+    }
 
-        messageSender.send(request.getChatId(), sb.toString());
+    /**
+     * @param position vị trí trong hàng chờ, null nếu run đã được admit ngay
+     */
+    public void notifyQueued(long chatId, TestRunQueue.TestRunInfo info, String label, String env,
+                             TestRunQueue.QueuePosition position) {
+        String runId = info.getRequest().getRunId();
+        StringBuilder sb = new StringBuilder();
+        sb.append("\u23f3 *Test Queued*\n")
+                .append("Suite: ").append(label).append("\n")
+                .append("Environment: `").append(env).append("`\n")
+                .append("Run ID: `").append(runId).append("`\n");
+        if (position != null) {
+            appendPosition(sb, position);
+        }
+        sb.append("\nUse /status to check progress.");
+        track(info, label);
+        chatMessage(runId, chatId).show(sb.toString());
     }
 
-    public void notifyQueued(long chatId, String runId, String label, String env) {
-        messageSender.send(chatId,
-                "\u23f3 *Test Queued*\n" +
-                "Suite: " + label + "\n" +
-                "Environment: `" + env + "`\n" +
-                "Run ID: `" + runId + "`\n\n" +
-                "Use /status to check progress.");
+    /** Request được gộp vào run giống hệt đang chờ/đang chạy — nhận chung kết quả */
+    public void notifyCoalesced(long chatId, TestRunQueue.TestRunInfo info, String label, String env,
+                                TestRunQueue.QueuePosition position) {
+        String runId = info.getRequest().getRunId();
+        RunStatus status = info.getStatus();
+        StringBuilder sb = new StringBuilder();
+        sb.append("\ud83d\udd17 *Joined Existing Run*\n")
+                .append("Suite: ").append(label).append("\n")
+                .append("Environment: `").append(env).append("`\n")
+                .append("Run ID: `").append(runId).append("` (").append(status).append(")\n");
+        if (position != null) {
+            appendPosition(sb, position);
+        }
+        sb.append("\nSame suite/env is already queued — you'll get its result here.");
+
+        RunMessages messages = runMessages(runId);
+        if (messages.chats.containsKey(chatId)) {
+            // Chat này đã có message trạng thái của run (người khác trong group chạy trước) → giữ nguyên nó
+            messageSender.send(chatId, sb.toString());
+            return;
+        }
+        track(info, label);
+        ChatMessage message = chatMessage(runId, chatId);
+        message.show(sb.toString());
+        if (status == RunStatus.RUNNING) {
+            message.runningHeader = runningHeader(label, env);
+        }
     }
 
-    public void notifyRunning(long chatId, String label, String env) {
-        messageSender.send(chatId,
-                "\u25b6\ufe0f Running: *" + label + "* (env=" + env + ") ...");
+    /**
+     * Bot vừa khởi động lại và nhận lại run từ queue journal.
+     * @param reattached true → mvn vẫn đang chạy, chờ kết quả; false → run được xếp hàng lại
+     */
+    public void notifyRecovered(long chatId, String runId, String label, String env, boolean reattached) {
+        chatMessage(runId, chatId).show(
+                "\u267b\ufe0f Bot restarted — *" + label + "* (env=" + env + ", run `" + runId + "`) "
+                        + (reattached ? "is still running, result will follow." : "was re-queued."));
     }
 
-    public void notifyError(long chatId, String label, String errorMessage) {
-        messageSender.send(chatId,
+    /** Message trạng thái chuyển sang Running, từ đây cập nhật theo tiến độ của run */
+    public void notifyRunning(long chatId, TestRunQueue.TestRunInfo info, String label, String env) {
+        String runId = info.getRequest().getRunId();
+        RunMessages messages = runMessages(runId);
+        messages.running = true;
+        ChatMessage message = chatMessage(runId, chatId);
+        message.runningHeader = runningHeader(label, env);
+        message.show(message.runningHeader + " ...");
+        followProgress(messages, info.getProgress());
+    }
+
+    public void notifyError(long chatId, String runId, String label, String errorMessage) {
+        finish(runId, chatId,
                 "\u274c *" + label + "* failed to start\n" +
                 "Error: " + errorMessage);
     }
 
+    /** Cancel giữa lúc chạy, chưa class nào có report → không có kết quả để thay vào message trạng thái */
+    public void notifyCancelled(long chatId, String runId, String label) {
+        finish(runId, chatId, "\u23f9 *" + label + "* cancelled");
+    }
+
     public void notifyQueueFull(long chatId) {
         messageSender.send(chatId,
-                "\u26d4 Queue is full! Please wait for current tests to finish.\n" +
+                "\u26d4 Queue is full (or you already have too many queued runs)! Please wait for current tests to finish.\n" +
                 "Use /status to check running tests.");
     }
 
+    private boolean hasFailureReport(int failed) {
+        int threshold = botProperties.getFailureReportThreshold();
+        return threshold > 0 && failed >= threshold;
+    }
+
+    private static String runningHeader(String label, String env) {
+        return "\u25b6\ufe0f Running: *" + label + "* (env=" + env + ")";
+    }
+
+    private RunMessages runMessages(String runId) {
+        RunMessages messages = runs.get(runId);
+        if (messages != null) {
+            return messages;
+        }
+        pruneStale();
+        return runs.computeIfAbsent(runId, id -> new RunMessages());
+    }
+
+    private ChatMessage chatMessage(String runId, long chatId) {
+        return runMessages(runId).chats.computeIfAbsent(chatId, id -> new ChatMessage(messageSender.live(id)));
+    }
+
+    /** Cancel khi run còn trong hàng chờ → TestRunService không chạy run, tự đóng message trạng thái ở đây */
+    private void track(TestRunQueue.TestRunInfo info, String label) {
+        String runId = info.getRequest().getRunId();
+        RunMessages messages = runMessages(runId);
+        if (!messages.tracked.compareAndSet(false, true)) {
+            return;
+        }
+        info.addListener(new TestRunQueue.RunListener() {
+            @Override
+            public void onStatus(TestRunQueue.TestRunInfo run, RunStatus status) {
+                if (status == RunStatus.CANCELLED && !messages.running) {
+                    for (Long chatId : messages.chats.keySet()) {
+                        finish(runId, chatId, "\u23f9 *" + label + "* cancelled before it started");
+                    }
+                }
+            }
+
+            @Override
+            public void onResult(TestRunQueue.TestRunInfo run, TestRunResult result) {
+            }
+        });
+    }
+
+    /** 1 listener cho cả run — mỗi event test chỉ đổi nội dung mong muốn, sender quyết định khi nào sửa thật */
+    private void followProgress(RunMessages messages, RunProgress progress) {
+        synchronized (messages) {
+            if (messages.progressListener != null) {
+                return;
+            }
+            messages.progress = progress;
+            messages.progressListener = (outcome, testName, run) -> {
+                String line = "\n`" + run.summary() + "`";
+                for (ChatMessage message : messages.chats.values()) {
+                    String header = message.runningHeader;
+                    if (header != null) {
+                        message.show(header + line);
+                    }
+                }
+            };
+            progress.addListener(messages.progressListener);
+        }
+    }
+
+    /** Nội dung cuối của message trạng thái; chat cuối cùng xong → bỏ state của run */
+    private void finish(String runId, long chatId, String text) {
+        RunMessages messages = runId != null ? runs.get(runId) : null;
+        ChatMessage message = messages != null ? messages.chats.remove(chatId) : null;
+        if (message != null) {
+            message.finish(text);
+        } else {
+            messageSender.send(chatId, text);
+        }
+        if (messages != null && messages.chats.isEmpty()) {
+            runs.remove(runId, messages);
+            stopFollowing(messages);
+        }
+    }
+
+    private void stopFollowing(RunMessages messages) {
+        synchronized (messages) {
+            if (messages.progressListener != null) {
+                messages.progress.removeListener(messages.progressListener);
+            }
+        }
+    }
+
+    private void pruneStale() {
+        Instant cutoff = Instant.now().minus(STALE_AFTER);
+        runs.entrySet().removeIf(entry -> {
+            if (entry.getValue().createdAt.isBefore(cutoff)) {
+                stopFollowing(entry.getValue());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /** "Position: #2 of 4 (est. wait ~3m 0s, p90 ~7m 10s)" — p50 là thường gặp, p90 là trường hợp chậm */
+    private void appendPosition(StringBuilder sb, TestRunQueue.QueuePosition position) {
+        sb.append("Position: #").append(position.position()).append(" of ").append(position.queued())
+                .append(" (est. wait ~").append(formatDuration(position.estimatedWait()));
+        if (position.estimatedWaitP90().compareTo(position.estimatedWait()) > 0) {
+            sb.append(", p90 ~").append(formatDuration(position.estimatedWaitP90()));
+        }
+        sb.append(")\n");
+    }
+
+    /** "LoginTest.testValidLogin" */
+    private static String testLabel(TestCase tc) {
+        String className = tc.getClassname() != null ? tc.getClassname() : "";
+        return className.substring(className.lastIndexOf('.') + 1) + "." + tc.getName();
+    }
+
+    /** Message của exception hay có _ * ` [ (selector, tên biến) → làm vỡ Markdown của cả message */
+    private static String escapeMarkdown(String text) {
+        return text.replace("_", "\\_").replace("*", "\\*")
+                .replace("`", "\\`").replace("[", "\\[");
+    }
+
     private String formatDuration(java.time.Duration duration) {
         if (duration == null) return "N/A";
         long minutes = duration.toMinutes();
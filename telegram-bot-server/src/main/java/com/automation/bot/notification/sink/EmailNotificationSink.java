@@ -0,0 +1,75 @@
+package com.automation.bot.notification.sink;
+
+import com.automation.bot.config.NotificationProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Gửi mail text/plain qua SMTP: subject = headline, body = các nhóm failure + link Allure.
+ *
+ * Mặc định chỉ gửi khi run không pass sạch (failuresOnly) — mail cho mọi run là spam.
+ */
+@Component
+@ConditionalOnProperty(prefix = "bot.notifications.email", name = "enabled", havingValue = "true")
+public class EmailNotificationSink implements NotificationSink {
+
+    private final NotificationProperties.Email email;
+    private final SmtpClient smtp;
+
+    public EmailNotificationSink(NotificationProperties properties) {
+        this.email = properties.getEmail();
+        if (email.getHost() == null || email.getFrom() == null || email.getTo().isEmpty()) {
+            throw new IllegalStateException(
+                    "bot.notifications.email.host, from and to are required when email is enabled");
+        }
+        this.smtp = new SmtpClient(email.getHost(), email.getPort(), email.isSsl(), email.isStarttls(),
+                email.getUsername(), email.getPassword(), email.getTimeoutSeconds() * 1000);
+    }
+
+    @Override
+    public String name() {
+        return "email";
+    }
+
+    @Override
+    public void send(RunNotification notification) throws IOException {
+        if (email.isFailuresOnly() && notification.isSuccess()) {
+            return;
+        }
+        smtp.send(email.getFrom(), email.getTo(), "[Test bot] " + notification.headline(), body(notification));
+    }
+
+    static String body(RunNotification notification) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(notification.headline()).append("\n\n");
+        sb.append("Run: ").append(notification.runId()).append('\n');
+        sb.append("Tests: ").append(notification.totalTests())
+                .append(" | passed ").append(notification.passed())
+                .append(" | failed ").append(notification.failed())
+                .append(" | errors ").append(notification.errors())
+                .append(" | skipped ").append(notification.skipped());
+        if (notification.flakyPassed() > 0) {
+            sb.append(" | flaky ").append(notification.flakyPassed());
+        }
+        sb.append('\n');
+        if (notification.errorMessage() != null && !notification.isSuccess()) {
+            sb.append("Error: ").append(notification.errorMessage()).append('\n');
+        }
+        if (notification.allureReportUrl() != null) {
+            sb.append("Allure report: ").append(notification.allureReportUrl()).append('\n');
+        }
+
+        for (RunNotification.FailureGroup group : notification.failures()) {
+            sb.append("\n").append(group.count()).append(" x ").append(group.summary()).append('\n');
+            for (String test : group.tests()) {
+                sb.append("  - ").append(test).append('\n');
+            }
+            if (group.count() > group.tests().size()) {
+                sb.append("  ... and ").append(group.count() - group.tests().size()).append(" more\n");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package com.automation.bot.notification.sink;
+
+import com.automation.bot.config.NotificationProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Ghi mỗi run 1 dòng JSON (JSONL) vào file — script / log shipper tail file là có lịch sử run.
+ *
+ * Mở-ghi-đóng mỗi lần: vài dòng mỗi giờ, không cần giữ handle; logrotate đổi tên file cũng không sao.
+ */
+@Component
+@ConditionalOnProperty(prefix = "bot.notifications.file", name = "enabled", havingValue = "true")
+public class FileNotificationSink implements NotificationSink {
+
+    private final Path path;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    public FileNotificationSink(NotificationProperties properties) {
+        this.path = Path.of(properties.getFile().getPath());
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public void send(RunNotification notification) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(objectMapper.writeValueAsString(notification));
+            writer.write('\n');
+        }
+    }
+}
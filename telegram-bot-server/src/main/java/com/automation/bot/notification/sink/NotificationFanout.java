@@ -0,0 +1,145 @@
+package com.automation.bot.notification.sink;
+
+import com.automation.bot.config.NotificationProperties;
+import com.automation.bot.metrics.BotMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gửi kết quả run tới mọi {@link NotificationSink} đang bật, song song và bất đồng bộ.
+ *
+ * Tại sao mỗi kênh 1 hàng đợi + 1 thread riêng?
+ * → publish() chạy trên worker thread của TestRunQueue — SMTP timeout 30s hay webhook treo mà gửi inline
+ *   thì slot của run bị giữ, run kế tiếp trong hàng phải chờ.
+ * → Dùng chung 1 pool: kênh chết chiếm hết thread / đầy hàng chung → kênh khỏe cũng bị trễ theo.
+ *   Hàng riêng bounded: kênh chết chỉ làm đầy hàng của chính nó, thông báo mới cho kênh đó bị bỏ (log + metric).
+ *
+ * Telegram không đi qua đây: message theo từng chat đăng ký, sửa tại chỗ theo tiến độ — đã có hàng đợi
+ * riêng trong BotMessageSender.
+ */
+@Slf4j
+@Component
+public class NotificationFanout {
+
+    private final BotMetrics metrics;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final int drainSeconds;
+    private final List<Channel> channels;
+
+    /** Hàng đợi + thread của 1 kênh */
+    private final class Channel implements Runnable {
+        final NotificationSink sink;
+        final BlockingQueue<RunNotification> queue;
+        final Thread thread;
+        volatile boolean stopping;
+
+        Channel(NotificationSink sink, int capacity) {
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+            this.thread = new Thread(this, "notify-" + sink.name());
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopping || !queue.isEmpty()) {
+                    RunNotification notification = queue.poll(1, TimeUnit.SECONDS);
+                    if (notification != null) {
+                        deliver(notification);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void deliver(RunNotification notification) throws InterruptedException {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    sink.send(notification);
+                    metrics.notificationSent(sink.name(), "success");
+                    return;
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    if (attempt >= maxAttempts) {
+                        metrics.notificationSent(sink.name(), "failure");
+                        log.error("[{}] Failed to notify {} after {} attempts: {}",
+                                notification.runId(), sink.name(), attempt, e.getMessage(), e);
+                        return;
+                    }
+                    log.warn("[{}] Failed to notify {} (attempt {}): {}",
+                            notification.runId(), sink.name(), attempt, e.getMessage());
+                    Thread.sleep(backoffMillis << (attempt - 1));
+                }
+            }
+        }
+    }
+
+    @Autowired
+    public NotificationFanout(ObjectProvider<NotificationSink> sinks, NotificationProperties properties,
+                              BotMetrics metrics) {
+        this(sinks.orderedStream().toList(), properties, metrics, 2000);
+    }
+
+    NotificationFanout(List<NotificationSink> sinks, NotificationProperties properties, BotMetrics metrics,
+                       long backoffMillis) {
+        this.metrics = metrics;
+        this.maxAttempts = Math.max(1, properties.getMaxAttempts());
+        this.backoffMillis = backoffMillis;
+        this.drainSeconds = properties.getDrainSeconds();
+        this.channels = sinks.stream().map(sink -> new Channel(sink, properties.getQueueCapacity())).toList();
+        channels.forEach(channel -> channel.thread.start());
+
+        metrics.gauge("bot_notification_queue_depth", "Run notifications waiting per channel", () -> {
+            Map<List<String>, Double> samples = new LinkedHashMap<>();
+            for (Channel channel : channels) {
+                samples.put(List.of(channel.sink.name()), (double) channel.queue.size());
+            }
+            return samples;
+        }, "sink");
+        if (!channels.isEmpty()) {
+            log.info("Run notification channels: {}", channels.stream().map(channel -> channel.sink.name()).toList());
+        }
+    }
+
+    /** Không block: mỗi kênh nhận 1 bản vào hàng của nó, hàng đầy → bỏ cho riêng kênh đó */
+    public void publish(RunNotification notification) {
+        for (Channel channel : channels) {
+            if (channel.stopping || !channel.queue.offer(notification)) {
+                metrics.notificationSent(channel.sink.name(), "dropped");
+                log.warn("[{}] Notification queue of {} is full, dropping", notification.runId(), channel.sink.name());
+            }
+        }
+    }
+
+    /** Gửi nốt thông báo còn trong hàng (tối đa drainSeconds cho tất cả kênh) rồi dừng */
+    @PreDestroy
+    public void shutdown() {
+        channels.forEach(channel -> channel.stopping = true);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainSeconds);
+        for (Channel channel : channels) {
+            try {
+                channel.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (channel.thread.isAlive()) {
+                log.warn("Dropping {} unsent notifications for {}", channel.queue.size(), channel.sink.name());
+                channel.thread.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.automation.bot.notification.sink;
+
+/**
+ * 1 kênh nhận kết quả run (webhook, email, file...) — thêm kênh = thêm 1 bean implement interface này.
+ *
+ * Tại sao tách thành interface?
+ * → TestRunService chỉ publish 1 lần cho mỗi run, không biết có bao nhiêu kênh.
+ * → {@link NotificationFanout} lo cơ chế (hàng đợi riêng, thread riêng, retry, metric), sink chỉ lo gửi.
+ *
+ * send() chạy trên thread riêng của kênh → được phép block (HTTP, SMTP), ném exception khi gửi lỗi
+ * để fanout retry. Mỗi kênh chỉ 1 thread gọi → implementation không cần thread-safe.
+ */
+public interface NotificationSink {
+
+    /** Tên kênh — label của metric, tên thread */
+    String name();
+
+    void send(RunNotification notification) throws Exception;
+}
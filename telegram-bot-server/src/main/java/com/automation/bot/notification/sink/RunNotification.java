@@ -0,0 +1,73 @@
+package com.automation.bot.notification.sink;
+
+import com.automation.bot.parser.FailureClusterer;
+import com.automation.bot.parser.model.TestCase;
+import com.automation.bot.runner.RunStatus;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunResult;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Kết quả 1 run gửi cho mọi {@link NotificationSink} — snapshot bất biến, tự đủ (không giữ TestCase / suite)
+ * → nằm trong hàng đợi của kênh chậm bao lâu cũng không giữ report của run trong heap.
+ *
+ * @param failures nhóm failure theo nguyên nhân gốc, đông nhất trước (tối đa MAX_GROUPS nhóm)
+ */
+public record RunNotification(String runId, String label, String env, RunStatus status, boolean partial,
+                              int totalTests, int passed, int failed, int errors, int skipped, int flakyPassed,
+                              long durationSeconds, String errorMessage, String allureReportUrl,
+                              Instant finishedAt, List<FailureGroup> failures) {
+
+    private static final int MAX_GROUPS = 20;
+    private static final int MAX_TESTS_PER_GROUP = 10;
+
+    /** @param tests tên test "LoginTest.testValidLogin", tối đa MAX_TESTS_PER_GROUP */
+    public record FailureGroup(int count, String summary, List<String> tests) {
+    }
+
+    public static RunNotification of(TestRunRequest request, TestRunResult result,
+                                     List<FailureClusterer.Cluster> clusters) {
+        String label = request.getProfile() != null ? request.getProfile() : request.getTestClass();
+        List<FailureGroup> groups = clusters == null ? List.of() : clusters.stream()
+                .limit(MAX_GROUPS)
+                .map(cluster -> new FailureGroup(cluster.count(), cluster.summary(), cluster.tests().stream()
+                        .limit(MAX_TESTS_PER_GROUP)
+                        .map(RunNotification::testLabel)
+                        .toList()))
+                .toList();
+        return new RunNotification(result.getRunId(), label, request.getEnv(), result.getStatus(), result.isPartial(),
+                result.getTotalTests(), result.getPassed(), result.getFailed(), result.getErrors(),
+                result.getSkipped(), result.getFlakyPassed(),
+                result.getDuration() != null ? result.getDuration().toSeconds() : 0,
+                result.getErrorMessage(), result.getAllureReportUrl(), Instant.now(), groups);
+    }
+
+    /** Run pass sạch: COMPLETED, đủ test, không failure/error */
+    public boolean isSuccess() {
+        return status == RunStatus.COMPLETED && !partial && failed == 0 && errors == 0;
+    }
+
+    /** "SMOKE COMPLETED — 40/42 passed, 2 failed (env=dev, 3m 2s)" */
+    public String headline() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(label == null ? "run" : label.toUpperCase()).append(' ').append(status);
+        if (partial) {
+            sb.append(" (partial)");
+        }
+        sb.append(" — ").append(passed).append('/').append(totalTests).append(" passed");
+        if (failed + errors > 0) {
+            sb.append(", ").append(failed + errors).append(" failed");
+        }
+        sb.append(" (env=").append(env).append(", ");
+        long minutes = durationSeconds / 60;
+        sb.append(minutes > 0 ? minutes + "m " + durationSeconds % 60 + "s" : durationSeconds + "s").append(')');
+        return sb.toString();
+    }
+
+    private static String testLabel(TestCase tc) {
+        String className = tc.getClassname() != null ? tc.getClassname() : "";
+        return className.substring(className.lastIndexOf('.') + 1) + "." + tc.getName();
+    }
+}
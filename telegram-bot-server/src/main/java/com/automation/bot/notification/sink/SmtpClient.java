@@ -0,0 +1,197 @@
+package com.automation.bot.notification.sink;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * SMTP client tối giản cho 1 mail text: EHLO → (STARTTLS) → (AUTH PLAIN) → MAIL/RCPT/DATA → QUIT.
+ *
+ * Tại sao không dùng Jakarta Mail?
+ * → Chỉ cần gửi 1 mail text/plain mỗi run — vài chục dòng protocol, không đáng thêm dependency
+ *   (và cấu hình session/transport của nó) vào bot.
+ *
+ * Body mã hóa base64 → không phải lo dot-stuffing, dòng dài, ký tự UTF-8 (tên test, message tiếng Việt).
+ * Mỗi lần gửi 1 kết nối mới — vài mail mỗi giờ, không cần giữ kết nối.
+ *
+ * TLS (ssl hoặc STARTTLS) luôn kiểm tra hostname theo certificate — thiếu bước này thì bất kỳ host nào
+ * có certificate hợp lệ cũng đọc được mail và mật khẩu AUTH.
+ */
+@Slf4j
+class SmtpClient {
+
+    private final String host;
+    private final int port;
+    private final boolean ssl;
+    private final boolean starttls;
+    private final String username;
+    private final String password;
+    private final int timeoutMillis;
+    private final SSLSocketFactory tlsFactory;
+
+    private Socket socket;
+    private BufferedReader in;
+    private OutputStream out;
+
+    SmtpClient(String host, int port, boolean ssl, boolean starttls, String username, String password,
+               int timeoutMillis) {
+        this(host, port, ssl, starttls, username, password, timeoutMillis,
+                (SSLSocketFactory) SSLSocketFactory.getDefault());
+    }
+
+    SmtpClient(String host, int port, boolean ssl, boolean starttls, String username, String password,
+               int timeoutMillis, SSLSocketFactory tlsFactory) {
+        this.host = host;
+        this.port = port;
+        this.ssl = ssl;
+        this.starttls = starttls;
+        this.username = username;
+        this.password = password;
+        this.timeoutMillis = timeoutMillis;
+        this.tlsFactory = tlsFactory;
+    }
+
+    void send(String from, List<String> to, String subject, String body) throws IOException {
+        Socket connection = new Socket();
+        socket = connection;
+        boolean accepted = false;
+        try {
+            connection.connect(new InetSocketAddress(host, port), timeoutMillis);
+            connection.setSoTimeout(timeoutMillis);
+            attach(ssl ? tls(connection) : connection);
+
+            expect(reply(), 220);
+            List<String> extensions = ehlo();
+            if (starttls && !ssl) {
+                if (extensions.stream().noneMatch(line -> line.toUpperCase(Locale.ROOT).startsWith("STARTTLS"))) {
+                    throw new IOException("SMTP server " + host + " does not support STARTTLS");
+                }
+                command("STARTTLS", 220);
+                attach(tls(connection));
+                ehlo();
+            }
+            if (username != null && !username.isEmpty()) {
+                String credentials = "\0" + username + "\0" + (password == null ? "" : password);
+                command("AUTH PLAIN " + base64(credentials), 235);
+            }
+
+            command("MAIL FROM:<" + from + ">", 250);
+            for (String recipient : to) {
+                command("RCPT TO:<" + recipient + ">", 250, 251);
+            }
+            command("DATA", 354);
+            write(message(from, to, subject, body) + "\r\n.");
+            expect(reply(), 250);
+            accepted = true;
+            command("QUIT", 221);
+        } catch (IOException e) {
+            // Server đã nhận mail (250 sau DATA) → lỗi QUIT không được làm fanout gửi lại mail lần nữa
+            if (!accepted) {
+                throw e;
+            }
+            log.warn("SMTP server {} accepted the message but QUIT failed: {}", host, e.getMessage());
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Failed to close SMTP connection to {}: {}", host, e.getMessage());
+            }
+        }
+    }
+
+    /** Bọc kết nối bằng TLS, bật kiểm tra hostname trước handshake */
+    private SSLSocket tls(Socket connection) throws IOException {
+        SSLSocket tls = (SSLSocket) tlsFactory.createSocket(connection, host, port, true);
+        SSLParameters parameters = tls.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        tls.setSSLParameters(parameters);
+        tls.startHandshake();
+        return tls;
+    }
+
+    static String message(String from, List<String> to, String subject, String body) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("From: ").append(from).append("\r\n");
+        sb.append("To: ").append(String.join(", ", to)).append("\r\n");
+        sb.append("Subject: =?UTF-8?B?").append(base64(subject)).append("?=\r\n");
+        sb.append("Date: ").append(DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now())).append("\r\n");
+        sb.append("MIME-Version: 1.0\r\n");
+        sb.append("Content-Type: text/plain; charset=UTF-8\r\n");
+        sb.append("Content-Transfer-Encoding: base64\r\n\r\n");
+        sb.append(Base64.getMimeEncoder().encodeToString(body.getBytes(StandardCharsets.UTF_8)));
+        return sb.toString();
+    }
+
+    private void attach(Socket connection) throws IOException {
+        socket = connection;
+        in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+        out = connection.getOutputStream();
+    }
+
+    private List<String> ehlo() throws IOException {
+        String name;
+        try {
+            name = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            name = "localhost";
+        }
+        write("EHLO " + name);
+        List<String> lines = reply();
+        expect(lines, 250);
+        return lines.stream().map(line -> line.substring(Math.min(4, line.length()))).toList();
+    }
+
+    private void command(String command, int... expected) throws IOException {
+        write(command);
+        expect(reply(), expected);
+    }
+
+    private void write(String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /** Reply nhiều dòng: "250-..." tới dòng "250 ..." */
+    private List<String> reply() throws IOException {
+        List<String> lines = new ArrayList<>();
+        String line;
+        do {
+            line = in.readLine();
+            if (line == null) {
+                throw new IOException("SMTP server " + host + " closed the connection");
+            }
+            lines.add(line);
+        } while (line.length() > 3 && line.charAt(3) == '-');
+        return lines;
+    }
+
+    private static void expect(List<String> reply, int... expected) throws IOException {
+        String last = reply.get(reply.size() - 1);
+        for (int code : expected) {
+            if (last.startsWith(String.valueOf(code))) {
+                return;
+            }
+        }
+        throw new IOException("Unexpected SMTP reply: " + String.join(" | ", reply));
+    }
+
+    private static String base64(String text) {
+        return Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,102 @@
+package com.automation.bot.notification.sink;
+
+import com.automation.bot.config.NotificationProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * POST kết quả run dạng JSON tương thích Slack incoming webhook: {"text": "..."} (mrkdwn).
+ * Kèm object "run" (toàn bộ {@link RunNotification}) — Slack bỏ qua, hệ thống khác (Teams proxy, n8n...) đọc được.
+ *
+ * HTTP status ngoài 2xx → exception → NotificationFanout retry.
+ */
+@Component
+@ConditionalOnProperty(prefix = "bot.notifications.webhook", name = "enabled", havingValue = "true")
+public class WebhookNotificationSink implements NotificationSink {
+
+    private static final int MAX_GROUPS = 5;
+
+    private final URI url;
+    private final Duration timeout;
+    private final HttpClient http;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    public WebhookNotificationSink(NotificationProperties properties) {
+        NotificationProperties.Webhook webhook = properties.getWebhook();
+        if (webhook.getUrl() == null || webhook.getUrl().isBlank()) {
+            throw new IllegalStateException("bot.notifications.webhook.url is required when the webhook is enabled");
+        }
+        this.url = URI.create(webhook.getUrl());
+        this.timeout = Duration.ofSeconds(webhook.getTimeoutSeconds());
+        this.http = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public String name() {
+        return "webhook";
+    }
+
+    @Override
+    public void send(RunNotification notification) throws IOException, InterruptedException {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("text", text(notification));
+        payload.put("run", notification);
+
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(url)
+                        .timeout(timeout)
+                        .header("Content-Type", "application/json; charset=utf-8")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Webhook returned HTTP " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    /** Slack mrkdwn: *bold*, `code`, <url|text> — & < > trong nội dung phải escape */
+    static String text(RunNotification notification) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(notification.isSuccess() ? "\u2705 " : "\u274c ")
+                .append('*').append(escape(notification.headline())).append('*');
+        if (notification.errorMessage() != null && !notification.isSuccess()) {
+            sb.append("\n").append(escape(notification.errorMessage()));
+        }
+        int shown = Math.min(notification.failures().size(), MAX_GROUPS);
+        for (RunNotification.FailureGroup group : notification.failures().subList(0, shown)) {
+            sb.append("\n\u2022 *").append(group.count()).append("\u00d7* ").append(escape(group.summary()));
+            if (!group.tests().isEmpty()) {
+                sb.append(" (`").append(escape(group.tests().get(0))).append('`');
+                if (group.count() > 1) {
+                    sb.append(" +").append(group.count() - 1);
+                }
+                sb.append(')');
+            }
+        }
+        if (notification.failures().size() > shown) {
+            sb.append("\n\u2022 ... and ").append(notification.failures().size() - shown).append(" more groups");
+        }
+        if (notification.allureReportUrl() != null) {
+            sb.append("\n<").append(notification.allureReportUrl()).append("|Allure report>");
+        }
+        sb.append("\nRun `").append(notification.runId()).append('`');
+        return sb.toString();
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
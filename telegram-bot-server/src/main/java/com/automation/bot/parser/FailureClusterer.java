@@ -0,0 +1,107 @@
+package com.automation.bot.parser;
+
+import com.automation.bot.parser.model.TestCase;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Gom failure của 1 run thành vài nhóm theo nguyên nhân gốc — chạy ngay sau
+ * {@link SurefireReportParser#getFailedTests}.
+ *
+ * Tại sao cần?
+ * → Env down → regression ra 48 failure gần như giống hệt nhau, chỉ khác session id, số giây chờ, timestamp.
+ *   Liệt kê 5 message đầu không cho biết gì; "48× TimeoutException waiting for .p-progress-spinner" thì có.
+ *
+ * Chữ ký của 1 failure = exception type + dòng đầu của message đã chuẩn hóa + frame đầu của stacktrace:
+ * - UUID, chuỗi hex dài (session id, object hash), timestamp → &lt;id&gt; / &lt;ts&gt;
+ * - số còn lại → #
+ * - frame bỏ số dòng ("LoginPage.open(LoginPage.java:42)" → "LoginPage.open")
+ *
+ * Mỗi failure chỉ qua 1 lần chuẩn hóa (message cắt ở MAX_MESSAGE_CHARS) + 1 lần tra HashMap
+ * → tuyến tính theo số failure, vài nghìn failure vẫn vài ms.
+ */
+@Component
+public class FailureClusterer {
+
+    /** 1 nhóm failure cùng chữ ký — tests theo thứ tự trong report, message/type lấy từ failure đầu tiên */
+    public record Cluster(String type, String message, String frame, List<TestCase> tests) {
+        public int count() {
+            return tests.size();
+        }
+
+        /** "TimeoutException: Expected condition failed: waiting for ..." */
+        public String summary() {
+            if (message == null || message.isEmpty()) {
+                return type;
+            }
+            return type + ": " + message;
+        }
+    }
+
+    private static final int MAX_MESSAGE_CHARS = 300;
+
+    private static final Pattern TIMESTAMP = Pattern.compile(
+            "\\d{4}-\\d{2}-\\d{2}[T ]\\d{2}:\\d{2}(:\\d{2}([.,]\\d+)?)?(Z|[+-]\\d{2}:?\\d{2})?");
+    private static final Pattern UUID = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    /** Hex dài có ít nhất 1 chữ số: session id, object@1a2b3c4d, request id */
+    private static final Pattern HEX_ID = Pattern.compile("\\b(?=[0-9a-fA-F]*\\d)[0-9a-fA-F]{8,}\\b|(?<=@)[0-9a-fA-F]{4,}\\b");
+    private static final Pattern NUMBER = Pattern.compile("\\d+([.,]\\d+)*");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    /** "(LoginPage.java:42)" / "(Native Method)" cuối frame */
+    private static final Pattern FRAME_LOCATION = Pattern.compile("\\(.*\\)$");
+
+    /** Gom theo chữ ký, nhóm đông nhất trước (bằng nhau → nhóm xuất hiện trước) */
+    public List<Cluster> cluster(List<TestCase> failedTests) {
+        Map<String, Cluster> clusters = new LinkedHashMap<>();
+        for (TestCase tc : failedTests) {
+            TestCase.Failure failure = tc.getError() != null ? tc.getError() : tc.getFailure();
+            String type = failure != null && failure.getType() != null ? simpleType(failure.getType()) : "Failure";
+            String message = failure != null ? firstLine(failure.getMessage()) : "";
+            String frame = failure != null && !failure.getStackFrames().isEmpty()
+                    ? FRAME_LOCATION.matcher(failure.getStackFrames().get(0)).replaceFirst("")
+                    : "";
+
+            String signature = type + '|' + normalize(message) + '|' + frame;
+            clusters.computeIfAbsent(signature, key -> new Cluster(type, message, frame, new ArrayList<>()))
+                    .tests().add(tc);
+        }
+
+        List<Cluster> sorted = new ArrayList<>(clusters.values());
+        sorted.sort(Comparator.comparingInt(Cluster::count).reversed());
+        return sorted;
+    }
+
+    /** Bỏ phần thay đổi giữa các lần fail của cùng 1 nguyên nhân: id, timestamp, số */
+    static String normalize(String message) {
+        String text = TIMESTAMP.matcher(message).replaceAll("<ts>");
+        text = UUID.matcher(text).replaceAll("<id>");
+        text = HEX_ID.matcher(text).replaceAll("<id>");
+        text = NUMBER.matcher(text).replaceAll("#");
+        return SPACES.matcher(text).replaceAll(" ").trim();
+    }
+
+    /** Dòng đầu, cắt ở MAX_MESSAGE_CHARS — phần sau của message Selenium là build info / capabilities */
+    private static String firstLine(String message) {
+        if (message == null) {
+            return "";
+        }
+        String text = message.strip();
+        int newline = text.indexOf('\n');
+        if (newline >= 0) {
+            text = text.substring(0, newline).strip();
+        }
+        return text.length() > MAX_MESSAGE_CHARS ? text.substring(0, MAX_MESSAGE_CHARS) : text;
+    }
+
+    private static String simpleType(String type) {
+        int dot = type.lastIndexOf('.');
+        return dot >= 0 ? type.substring(dot + 1) : type;
+    }
+}
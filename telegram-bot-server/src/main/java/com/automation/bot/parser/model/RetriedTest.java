@@ -0,0 +1,22 @@
+package com.automation.bot.parser.model;
+
+/**
+ * Test được chạy lại (TestNG RetryAnalyzer hoặc Surefire rerunFailingTestsCount).
+ *
+ * Ví dụ trong testng-results.xml — 2 lần fail bị đánh dấu retried, lần 3 pass:
+ * <test-method name="testLogin" status="SKIP" retried="true" duration-ms="12000"/>
+ * <test-method name="testLogin" status="SKIP" retried="true" duration-ms="11800"/>
+ * <test-method name="testLogin" status="PASS" duration-ms="4100"/>
+ *
+ * @param retries      số lần chạy bị bỏ để chạy lại (không tính lần cuối)
+ * @param retrySeconds tổng thời gian của các lần chạy bị bỏ
+ * @param passed       lần chạy cuối pass → flaky, không phải pass "sạch"
+ */
+public record RetriedTest(String className, String name, int retries, double retrySeconds, boolean passed) {
+
+    /** "LoginTest.testLogin" */
+    public String label() {
+        String simple = className == null ? "" : className.substring(className.lastIndexOf('.') + 1);
+        return simple + "." + name;
+    }
+}
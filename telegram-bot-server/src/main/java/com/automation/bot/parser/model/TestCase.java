@@ -1,10 +1,13 @@
 package com.automation.bot.parser.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+
 /**
  * Map từ <testcase> element trong Surefire XML.
  *
@@ -36,6 +39,16 @@ public class TestCase {
     /** Non-null nếu test bị skip */
     private String skipped;
 
+    /**
+     * Số lần Surefire chạy lại test (flakyFailure/flakyError: lần sau pass, rerunFailure/rerunError: vẫn fail)
+     * và tổng thời gian của các lần đó — 0 nếu không rerun
+     */
+    @JsonIgnore
+    private int reruns;
+
+    @JsonIgnore
+    private double rerunTime;
+
     public boolean isPassed() {
         return failure == null && error == null && skipped == null;
     }
@@ -61,5 +74,9 @@ public class TestCase {
 
         @JacksonXmlProperty(isAttribute = true)
         private String type;
+
+        /** Vài frame đầu của stacktrace, không có "at " (rỗng nếu report không có stacktrace) */
+        @JsonIgnore
+        private List<String> stackFrames = List.of();
     }
 }
@@ -0,0 +1,58 @@
+package com.automation.bot.runner;
+
+import com.automation.bot.config.TestRunnerProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command mvn test của 1 run — dùng chung cho {@link TestRunner} (chạy trên host của bot)
+ * và worker agent (chạy trên máy khác, maven-home / framework-path của máy đó).
+ */
+public final class MavenCommand {
+
+    private MavenCommand() {
+    }
+
+    /**
+     * Build Maven command: mvn.cmd test -Psmoke -Denv=dev -Dbrowser=chrome -Dheadless=true
+     *     -Dsurefire.reports.dir=... -Dallure.results.dir=...
+     */
+    public static List<String> build(TestRunnerProperties properties, TestRunRequest request, RunWorkspace workspace) {
+        List<String> command = new ArrayList<>();
+
+        // mvn.cmd trên Windows
+        String mvnExecutable = properties.getMavenHome() + "/bin/mvn.cmd";
+        command.add(mvnExecutable);
+        command.add("test");
+
+        // Maven profile (smoke, regression, api)
+        if (request.getProfile() != null && !request.getProfile().isEmpty()) {
+            command.add("-P" + request.getProfile());
+        }
+
+        // Suite XML của shard — ghi đè suite mà profile chọn
+        if (request.getSuiteXml() != null && !request.getSuiteXml().isEmpty()) {
+            command.add("-Dsuite.xml=" + request.getSuiteXml());
+        }
+
+        // Specific test class
+        if (request.getTestClass() != null && !request.getTestClass().isEmpty()) {
+            command.add("-Dtest=" + request.getTestClass());
+        }
+
+        // Environment, browser, headless
+        command.add("-Denv=" + request.getEnv());
+        command.add("-Dbrowser=" + request.getBrowser());
+        command.add("-Dheadless=" + request.isHeadless());
+
+        // Output riêng của run này (framework pom đọc 2 property này)
+        command.add("-Dsurefire.reports.dir=" + workspace.surefireReportsDir());
+        command.add("-Dallure.results.dir=" + workspace.allureResultsDir());
+
+        // Không cần build lại, chỉ chạy test
+        command.add("-Dsurefire.useFile=false");
+
+        return command;
+    }
+}
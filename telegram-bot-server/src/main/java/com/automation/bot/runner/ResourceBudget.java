@@ -0,0 +1,167 @@
+package com.automation.bot.runner;
+
+import com.automation.bot.config.TestRunnerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Resource budget của host — quyết định run nào được admit.
+ *
+ * Tại sao không đếm slot cố định (maxConcurrentRuns = 3)?
+ * → /api không mở browser nhưng vẫn chiếm nguyên 1 slot → máy rảnh mà run vẫn phải chờ.
+ * → /regression parallel 3 threads thực chất dùng 3 browser nhưng chỉ tính 1 slot → máy bị quá tải.
+ * → Budget theo browsers/memory/CPU: API run chạy song song với UI run, máy không bao giờ oversubscribe.
+ *
+ * Memory có 2 chế độ:
+ * → max-memory-mb > 0: budget cố định, trừ dần theo cost của các run đang chạy.
+ * → max-memory-mb = 0 (auto): đọc memory còn dùng được của máy. Run vừa start chưa kịp chiếm RAM
+ *   nên reservation của nó vẫn được trừ thêm trong startup-grace-seconds.
+ *
+ * Tại sao đọc MemAvailable trong /proc/meminfo, không dùng OperatingSystemMXBean.getFreeMemorySize()?
+ * → Trên Linux getFreeMemorySize() = MemFree, không tính page cache kernel trả lại được ngay khi cần.
+ *   Máy chạy lâu có cache đầy → MemFree chỉ vài trăm MB dù còn nhiều GB dùng được → run chờ mãi.
+ * → MemAvailable là ước lượng của kernel cho memory cấp được mà không phải swap. Không có /proc/meminfo
+ *   (macOS, Windows) → quay về MXBean.
+ */
+@Slf4j
+@Component
+public class ResourceBudget {
+
+    private static final Path MEMINFO = Path.of("/proc/meminfo");
+
+    private final TestRunnerProperties.Resources config;
+    private final LongSupplier freeMemoryMb;
+    private final Clock clock;
+
+    private final int maxBrowsers;
+    private final double maxCpus;
+
+    // Guarded by this
+    private int usedBrowsers;
+    private int usedMemoryMb;
+    private double usedCpus;
+    private final Deque<Reservation> recentStarts = new ArrayDeque<>();
+
+    private record Reservation(Instant startedAt, int memoryMb) {}
+
+    /** Snapshot để hiển thị trên /status */
+    public record Usage(int usedBrowsers, int maxBrowsers, int usedMemoryMb, long availableMemoryMb,
+                        double usedCpus, double maxCpus) {}
+
+    @Autowired
+    public ResourceBudget(TestRunnerProperties properties) {
+        this(properties, ResourceBudget::physicalAvailableMemoryMb, Clock.systemUTC());
+    }
+
+    ResourceBudget(TestRunnerProperties properties, LongSupplier freeMemoryMb, Clock clock) {
+        this.config = properties.getResources();
+        this.freeMemoryMb = freeMemoryMb;
+        this.clock = clock;
+        this.maxBrowsers = config.getMaxBrowsers();
+        this.maxCpus = config.getMaxCpus() > 0
+                ? config.getMaxCpus()
+                : Runtime.getRuntime().availableProcessors();
+
+        log.info("ResourceBudget initialized: maxBrowsers={}, maxMemory={}, maxCpus={}",
+                maxBrowsers, config.getMaxMemoryMb() > 0 ? config.getMaxMemoryMb() + "MB" : "auto", maxCpus);
+    }
+
+    /** Cost của run: cấu hình theo profile/testClass, không có thì dùng default-cost */
+    public ResourceCost costOf(TestRunRequest request) {
+        String label = request.getProfile() != null ? request.getProfile() : request.getTestClass();
+        TestRunnerProperties.Cost cost = label != null ? config.getCosts().get(label) : null;
+        ResourceCost single = ResourceCost.of(cost != null ? cost : config.getDefaultCost());
+
+        // Run shard N fork song song → giữ N lần tài nguyên ngay từ lúc admit
+        int forks = Math.max(1, request.getShards());
+        if (forks == 1) {
+            return single;
+        }
+        return new ResourceCost(single.browsers() * forks, single.memoryMb() * forks, single.cpus() * forks);
+    }
+
+    /**
+     * Giữ tài nguyên cho run nếu budget còn đủ.
+     * Run lớn hơn cả budget tối đa vẫn được admit khi máy đang rảnh hoàn toàn — nếu không sẽ chờ mãi.
+     */
+    public synchronized boolean tryAcquire(ResourceCost cost) {
+        boolean idle = usedBrowsers == 0 && usedMemoryMb == 0 && usedCpus == 0;
+        boolean fits = usedBrowsers + cost.browsers() <= maxBrowsers
+                && usedCpus + cost.cpus() <= maxCpus + 1e-9
+                && cost.memoryMb() <= availableMemoryMb();
+
+        if (!fits && !idle) {
+            return false;
+        }
+
+        usedBrowsers += cost.browsers();
+        usedMemoryMb += cost.memoryMb();
+        usedCpus += cost.cpus();
+        recentStarts.addLast(new Reservation(clock.instant(), cost.memoryMb()));
+        return true;
+    }
+
+    public synchronized void release(ResourceCost cost) {
+        usedBrowsers = Math.max(0, usedBrowsers - cost.browsers());
+        usedMemoryMb = Math.max(0, usedMemoryMb - cost.memoryMb());
+        usedCpus = Math.max(0, usedCpus - cost.cpus());
+    }
+
+    public synchronized Usage usage() {
+        return new Usage(usedBrowsers, maxBrowsers, usedMemoryMb, availableMemoryMb(), usedCpus, maxCpus);
+    }
+
+    /** Memory còn có thể cấp cho run mới (MB) */
+    private long availableMemoryMb() {
+        if (config.getMaxMemoryMb() > 0) {
+            return config.getMaxMemoryMb() - usedMemoryMb;
+        }
+
+        // Auto: memory còn dùng được - headroom - reservation của run vừa start (chưa kịp chiếm RAM)
+        Instant graceCutoff = clock.instant().minusSeconds(config.getStartupGraceSeconds());
+        while (!recentStarts.isEmpty() && recentStarts.peekFirst().startedAt().isBefore(graceCutoff)) {
+            recentStarts.pollFirst();
+        }
+        long warmingUp = recentStarts.stream().mapToLong(Reservation::memoryMb).sum();
+        return freeMemoryMb.getAsLong() - config.getMemoryHeadroomMb() - warmingUp;
+    }
+
+    /** MemAvailable (Linux), không đọc được thì free memory của MXBean */
+    private static long physicalAvailableMemoryMb() {
+        try {
+            long available = memAvailableMb(Files.readAllLines(MEMINFO));
+            if (available >= 0) {
+                return available;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Không phải Linux / không có quyền đọc → dùng MXBean
+        }
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getFreeMemorySize() / (1024 * 1024);
+        }
+        return Long.MAX_VALUE / 2;
+    }
+
+    /** "MemAvailable:   8123456 kB" → MB, -1 nếu không có dòng đó (kernel < 3.14) */
+    static long memAvailableMb(List<String> meminfo) {
+        for (String line : meminfo) {
+            if (line.startsWith("MemAvailable:")) {
+                String[] parts = line.substring("MemAvailable:".length()).trim().split("\\s+");
+                return Long.parseLong(parts[0]) / 1024;
+            }
+        }
+        return -1;
+    }
+}
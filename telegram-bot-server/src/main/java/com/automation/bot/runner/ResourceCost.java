@@ -0,0 +1,21 @@
+package com.automation.bot.runner;
+
+import com.automation.bot.config.TestRunnerProperties;
+
+/**
+ * Tài nguyên một test run chiếm khi chạy: số browser, RAM (MB), CPU.
+ *
+ * Ví dụ: /api không mở browser → (0, 512, 0.5).
+ * /regression với parallel="methods" thread-count="3" → 3 browser cùng lúc → (3, 3072, 3).
+ */
+public record ResourceCost(int browsers, int memoryMb, double cpus) {
+
+    static ResourceCost of(TestRunnerProperties.Cost cost) {
+        return new ResourceCost(cost.getBrowsers(), cost.getMemoryMb(), cost.getCpus());
+    }
+
+    @Override
+    public String toString() {
+        return browsers + " browser(s), " + memoryMb + "MB, " + cpus + " CPU";
+    }
+}
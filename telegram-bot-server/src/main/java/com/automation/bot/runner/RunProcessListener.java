@@ -0,0 +1,17 @@
+package com.automation.bot.runner;
+
+/**
+ * Nhận process đang chạy test của 1 run — để /cancel kill được cả cây process và ghi pid vào journal.
+ *
+ * mvn process: chỉ có started(), process thoát cùng run.
+ * Worker của warm pool: sống lâu hơn run → released() khi worker được trả về pool,
+ * từ đó /cancel của run này không được kill nó nữa (worker có thể đang chạy run khác).
+ */
+@FunctionalInterface
+public interface RunProcessListener {
+
+    void started(Process process);
+
+    default void released(Process process) {
+    }
+}
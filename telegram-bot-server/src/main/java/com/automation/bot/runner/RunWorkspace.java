@@ -0,0 +1,61 @@
+package com.automation.bot.runner;
+
+import java.nio.file.Path;
+
+/**
+ * Thư mục output riêng của một test run: surefire-reports, allure-results, log.
+ *
+ * Tại sao mỗi run cần workspace riêng?
+ * → Nhiều mvn test chạy song song trong cùng framework-path sẽ ghi chung
+ *   target/surefire-reports và target/allure-results → parser đọc lẫn file của run khác.
+ * → Workspace theo runId: parser và allure generate chỉ đọc đúng output của run đó,
+ *   không bao giờ gặp file cũ từ run trước.
+ *
+ * Layout: {workspace-dir}/{runId}/surefire-reports, allure-results, run.log
+ * Run chia shard: thêm {runId}/shards/shard-{N}/... cho từng shard, gộp về thư mục của run khi xong.
+ */
+public record RunWorkspace(String runId,
+                           Path runDir,
+                           Path surefireReportsDir,
+                           Path allureResultsDir,
+                           Path logFile) {
+
+    public static final String REPORTS_DIR = "surefire-reports";
+    public static final String SHARDS_DIR = "shards";
+    static final String SHARD_PREFIX = "shard-";
+
+    /** Workspace con của shard N: {runDir}/shards/shard-N */
+    public RunWorkspace shard(int index) {
+        return of(runDir.resolve(SHARDS_DIR), SHARD_PREFIX + index);
+    }
+
+    /**
+     * Tên report của shard sau khi gộp về run cha: TEST-x.xml → TEST-s{N}-x.xml
+     * → 2 shard cùng class (nhiều &lt;test&gt;) không ghi đè nhau.
+     */
+    public static String shardReportName(int index, String reportFileName) {
+        return "TEST-s" + index + "-" + reportFileName.substring("TEST-".length());
+    }
+
+    /** Index của thư mục shard ("shard-3" → 3), -1 nếu không phải thư mục shard */
+    public static int shardIndex(String dirName) {
+        if (!dirName.startsWith(SHARD_PREFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(dirName.substring(SHARD_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static RunWorkspace of(Path root, String runId) {
+        Path runDir = root.resolve(runId).toAbsolutePath().normalize();
+        return new RunWorkspace(
+                runId,
+                runDir,
+                runDir.resolve(REPORTS_DIR),
+                runDir.resolve("allure-results"),
+                runDir.resolve("run.log"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.automation.bot.runner;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.history.TestHistoryStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Tạo và dọn dẹp workspace cho từng test run.
+ *
+ * Tại sao cần dọn dẹp?
+ * → Mỗi run để lại allure-results (screenshots, attachments) — vài MB đến vài chục MB.
+ * → Giữ workspace trong {@code workspace-retention-hours} để còn xem lại log/report,
+ *   quá hạn thì xóa khi tạo workspace mới (không cần scheduler riêng).
+ *
+ * Tại sao phải chừa thư mục {@code test-history}?
+ * → Lịch sử testcase nằm chung root với workspace của run. Append vào file bên trong không đổi mtime
+ *   của thư mục → sau retention nó trông như workspace quá hạn và bị xóa mất cả lịch sử.
+ */
+@Slf4j
+@Component
+public class RunWorkspaceManager {
+
+    /** Thư mục state dài hạn nằm trong root — không phải workspace của run nào, không bao giờ prune */
+    private static final Set<String> STATE_DIRS = Set.of(TestHistoryStore.DIR_NAME);
+
+    private final Path root;
+    private final Duration retention;
+
+    public RunWorkspaceManager(TestRunnerProperties properties) {
+        this.root = Paths.get(properties.getWorkspaceDir()).toAbsolutePath().normalize();
+        this.retention = Duration.ofHours(properties.getWorkspaceRetentionHours());
+    }
+
+    /**
+     * Tạo thư mục cho run mới. Nếu đã tồn tại (runId trùng) → xóa output cũ trước.
+     */
+    public RunWorkspace create(String runId) throws IOException {
+        pruneExpired();
+
+        RunWorkspace workspace = RunWorkspace.of(root, runId);
+        deleteDirectoryQuietly(workspace.runDir());
+        Files.createDirectories(workspace.surefireReportsDir());
+        Files.createDirectories(workspace.allureResultsDir());
+
+        log.debug("[{}] Workspace created at {}", runId, workspace.runDir());
+        return workspace;
+    }
+
+    /** Workspace của một run đã tạo trước đó (không tạo thư mục) */
+    public RunWorkspace get(String runId) {
+        return RunWorkspace.of(root, runId);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /** Xóa workspace quá hạn retention (trừ {@link #STATE_DIRS}) */
+    void pruneExpired() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(retention);
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root,
+                dir -> Files.isDirectory(dir) && !STATE_DIRS.contains(dir.getFileName().toString()))) {
+            for (Path runDir : stream) {
+                if (Files.getLastModifiedTime(runDir).toInstant().isBefore(cutoff)) {
+                    deleteDirectoryQuietly(runDir);
+                    log.debug("Pruned expired workspace {}", runDir.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to prune workspaces in {}: {}", root, e.getMessage());
+        }
+    }
+
+    private void deleteDirectoryQuietly(Path dir) {
+        try {
+            if (!Files.exists(dir)) return;
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.deleteIfExists(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to delete directory {}: {}", dir, e.getMessage());
+        }
+    }
+}
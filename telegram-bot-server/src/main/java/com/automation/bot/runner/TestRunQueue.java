@@ -1,50 +1,191 @@
 package com.automation.bot.runner;
 
 import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.metrics.BotMetrics;
+import com.automation.bot.runner.journal.RunJournal;
+import com.automation.bot.runner.process.ProcessTree;
+import com.automation.bot.runner.progress.RunProgress;
+import com.automation.bot.runner.queue.QueueDiscipline;
+import com.automation.bot.runner.queue.RunDurationHistory;
+import com.automation.bot.runner.remote.RemoteWorkerRegistry;
+import com.automation.bot.runner.report.RunReports;
 import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
- * Quản lý thread pool chạy test — tối đa N test song song, vượt quá thì xếp hàng.
+ * Quản lý test runs — admit run theo resource budget của host, vượt quá thì xếp hàng.
  *
- * Tại sao dùng ThreadPoolExecutor thay vì @Async?
+ * Tại sao tự dispatch thay vì ThreadPoolExecutor core size cố định?
+ * → Mỗi run có cost khác nhau (API run 0 browser, regression parallel 3 browser).
+ *   Pool cố định N thread chỉ đếm số run, không biết run đó nặng hay nhẹ.
+ * → Dispatcher giữ danh sách pending, admit run khi {@link ResourceBudget} còn đủ chỗ,
+ *   chạy trên thread pool không giới hạn core (số run thực tế do budget quyết định).
+ *
+ * Tại sao dùng thread pool riêng thay vì @Async?
  * → Kiểm soát chặt: biết chính xác bao nhiêu test đang chạy, bao nhiêu đang queue.
- * → @Async dùng global thread pool (SimpleAsyncTaskExecutor) — không control được max threads,
- *   và khó track active/queued tasks.
  * → Cần attach metadata (runId, userId, Process reference) vào mỗi task để cancel được.
  *
- * Tại sao max 3?
- * → Mỗi Chrome browser ~500MB-1GB RAM. 3 browsers = ~2-3GB. An toàn cho máy 16GB.
- * → Vượt quá 3 → queue chờ. User nhận message "Queued, position #N".
+ * max-concurrent-runs vẫn là giới hạn cứng số run chạy cùng lúc (an toàn khi cost cấu hình sai).
+ * Run đầu hàng không vừa budget → run nhỏ hơn phía sau được chạy trước (backfill),
+ * nhưng tối đa max-head-bypass lần, sau đó giữ chỗ cho run đầu hàng để nó không bị đói.
+ *
+ * Thứ tự hàng chờ do {@link QueueDiscipline} quyết định (fifo, fair-share hoặc sjf theo config).
+ * Thời gian chờ ước lượng (p50/p90) tính từ {@link RunDurationHistory} của các run đang chạy và đứng trước.
+ *
+ * Tại sao gộp request giống hệt (coalesce)?
+ * → Deploy xong, 3 người cùng gõ /smoke dev trong vài giây → 3 Maven process chạy cùng 1 suite.
+ *   Request sau attach vào run đang chờ/vừa chạy, nhận cùng kết quả trong chat của mình.
+ *
+ * Mọi thay đổi trạng thái (submit, attach, start, process, finish, cancel) được ghi vào {@link RunJournal}
+ * → bot restart không làm mất hàng chờ. Ghi trong lock chỉ là xếp event vào hàng của thread ghi riêng
+ * → fsync/compact chậm không chặn submit, dispatch, /status.
+ *
+ * Có worker agent ({@link RemoteWorkerRegistry}): run không vừa budget của host được admit vào agent còn chỗ.
+ * max-concurrent-runs khi đó chỉ giới hạn số run chạy trên host của bot.
  */
 @Slf4j
 @Component
 public class TestRunQueue {
 
     private final ExecutorService executor;
+    private final ScheduledExecutorService dispatchTicker;
+    private final ResourceBudget budget;
+    private final QueueDiscipline discipline;
+    private final RunJournal journal;
+    private final RunDurationHistory durationHistory;
+    private final BotMetrics metrics;
+    private final RemoteWorkerRegistry remoteWorkers;
     private final int maxQueueSize;
+    private final int maxConcurrent;
+    private final int maxHeadBypass;
+    private final boolean coalesce;
+    private final Duration coalesceRunningMaxAge;
+    private final int recentLogLines;
+    /** Đang tắt app: run bị interrupt không được ghi FINISHED — lần khởi động sau còn recover */
+    private volatile boolean shuttingDown;
 
     /** Track active runs để cancel và xem status */
     private final ConcurrentMap<String, TestRunInfo> activeRuns = new ConcurrentHashMap<>();
 
+    // Guarded by lock
+    private final Object lock = new Object();
+    private final List<TestRunInfo> pending = new ArrayList<>();
+    private final List<TestRunInfo> running = new ArrayList<>();
+    private final Map<Long, Integer> runningPerUser = new HashMap<>();
+    private int headBypassCount;
+    private TestRunInfo blockedHead;
+
+    /**
+     * Vị trí trong hàng chờ (1-based) và thời gian chờ ước lượng đến khi run được start.
+     * estimatedWait = p50 (thường gặp), estimatedWaitP90 = trường hợp chậm.
+     */
+    public record QueuePosition(int position, int queued, Duration estimatedWait, Duration estimatedWaitP90) {}
+
+    /**
+     * Theo dõi 1 run từ bên ngoài Telegram (SSE stream của HTTP API).
+     * Gọi trên thread đổi trạng thái (worker của run, /cancel) → không được block.
+     */
+    public interface RunListener {
+        void onStatus(TestRunInfo info, RunStatus status);
+
+        /** Kết quả cuối (đã parse report, có link Allure) — hoặc kết quả lỗi nếu flow bị exception */
+        void onResult(TestRunInfo info, TestRunResult result);
+    }
+
     @Getter
     public static class TestRunInfo {
         private final TestRunRequest request;
+        private final ResourceCost cost;
+        @Getter(AccessLevel.NONE)
+        private final Consumer<TestRunInfo> callback;
         private volatile Future<?> future;
         private volatile RunStatus status;
-        private volatile Process process;
+        /**
+         * mvn process của run (nhiều process khi chạy shard, hoặc process được nhận lại sau restart)
+         * — để cancel kill được cả cây, và để reaper biết browser nào vẫn có chủ
+         */
+        private final List<ProcessHandle> processes = new CopyOnWriteArrayList<>();
+        private final Instant submittedAt = Instant.now();
+        private volatile Instant startedAt;
+        /** Tiến độ live (x/N done, failed) — cập nhật từ output của run */
+        private final RunProgress progress;
+        @Getter(AccessLevel.NONE)
+        private volatile boolean started;
+        @Getter(AccessLevel.NONE)
+        private final AtomicBoolean released = new AtomicBoolean();
+        /** Worker agent chạy run này, null = chạy trên host của bot */
+        private volatile String agentId;
+        /** Report Surefire đã ingest trong lúc chạy, null trước khi run bắt đầu */
+        private volatile RunReports reports;
+        /** Kết quả cuối, null khi run chưa xong (hoặc bị cancel) */
+        private volatile TestRunResult result;
+        @Getter(AccessLevel.NONE)
+        private final List<RunListener> listeners = new CopyOnWriteArrayList<>();
+
+        /** Các request nhận kết quả của run này (request gốc + request được gộp vào). Guarded by this */
+        @Getter(AccessLevel.NONE)
+        private final List<TestRunRequest> subscribers = new ArrayList<>();
+        @Getter(AccessLevel.NONE)
+        private boolean subscriptionsClosed;
 
-        public TestRunInfo(TestRunRequest request, Future<?> future) {
+        public TestRunInfo(TestRunRequest request, ResourceCost cost, Consumer<TestRunInfo> callback) {
+            this(request, cost, callback, new RunProgress());
+        }
+
+        public TestRunInfo(TestRunRequest request, ResourceCost cost, Consumer<TestRunInfo> callback,
+                           RunProgress progress) {
             this.request = request;
-            this.future = future;
+            this.cost = cost;
+            this.callback = callback;
+            this.progress = progress;
             this.status = RunStatus.QUEUED;
+            this.subscribers.add(request);
+        }
+
+        public synchronized List<TestRunRequest> getSubscribers() {
+            return List.copyOf(subscribers);
+        }
+
+        /**
+         * Chốt danh sách người nhận trước khi gửi kết quả — request đến sau đó
+         * không attach được nữa (sẽ tạo run mới), tránh attach vào run đã báo kết quả xong.
+         */
+        public synchronized List<TestRunRequest> closeSubscriptions() {
+            subscriptionsClosed = true;
+            return List.copyOf(subscribers);
+        }
+
+        synchronized boolean attach(TestRunRequest subscriber) {
+            if (subscriptionsClosed) {
+                return false;
+            }
+            subscribers.add(subscriber);
+            return true;
+        }
+
+        /** Bỏ đăng ký của user. @return true nếu run vẫn còn người nhận khác */
+        synchronized boolean detach(long userId) {
+            subscribers.removeIf(subscriber -> subscriber.getUserId() == userId);
+            return !subscribers.isEmpty();
+        }
+
+        synchronized boolean isSubscribed(long userId) {
+            return subscribers.stream().anyMatch(subscriber -> subscriber.getUserId() == userId);
+        }
+
+        public void setReports(RunReports reports) {
+            this.reports = reports;
         }
 
         public void setFuture(Future<?> future) {
@@ -52,62 +193,336 @@ public class TestRunQueue {
         }
 
         public void setStatus(RunStatus status) {
+            RunStatus previous = this.status;
             this.status = status;
+            if (previous != status) {
+                for (RunListener listener : listeners) {
+                    listener.onStatus(this, status);
+                }
+            }
+        }
+
+        /** Flow của run xong (kể cả báo lỗi) — gọi 1 lần bởi TestRunService */
+        public void complete(TestRunResult result) {
+            this.result = result;
+            for (RunListener listener : listeners) {
+                listener.onResult(this, result);
+            }
+        }
+
+        public void addListener(RunListener listener) {
+            listeners.add(listener);
         }
 
-        public void setProcess(Process process) {
-            this.process = process;
+        public void removeListener(RunListener listener) {
+            listeners.remove(listener);
+        }
+
+        public void addProcess(ProcessHandle process) {
+            processes.add(process);
+        }
+
+        public void removeProcess(ProcessHandle process) {
+            processes.remove(process);
         }
     }
 
-    public TestRunQueue(TestRunnerProperties properties) {
+    public TestRunQueue(TestRunnerProperties properties, ResourceBudget budget, QueueDiscipline discipline,
+                        RunJournal journal, RunDurationHistory durationHistory, BotMetrics metrics,
+                        RemoteWorkerRegistry remoteWorkers) {
+        this.budget = budget;
+        this.discipline = discipline;
+        this.journal = journal;
+        this.durationHistory = durationHistory;
+        this.metrics = metrics;
+        this.remoteWorkers = remoteWorkers;
         this.maxQueueSize = properties.getMaxQueueSize();
-        int maxConcurrent = properties.getMaxConcurrentRuns();
+        this.maxConcurrent = properties.getMaxConcurrentRuns();
+        this.maxHeadBypass = properties.getResources().getMaxHeadBypass();
+        this.coalesce = properties.getQueue().isCoalesce();
+        this.coalesceRunningMaxAge = Duration.ofSeconds(properties.getQueue().getCoalesceRunningMaxAgeSeconds());
+        this.recentLogLines = properties.getLogs().getRecentLines();
+
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> new Thread(r, "test-run-" + threadIds.incrementAndGet()));
 
-        this.executor = new ThreadPoolExecutor(
-                maxConcurrent,
-                maxConcurrent,
-                60L, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(maxQueueSize),
-                new ThreadPoolExecutor.AbortPolicy()
-        );
+        // Free memory thay đổi theo thời gian (chế độ auto) → thử admit lại định kỳ
+        this.dispatchTicker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "test-run-dispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+        this.dispatchTicker.scheduleWithFixedDelay(this::dispatch, 5, 5, TimeUnit.SECONDS);
 
-        log.info("TestRunQueue initialized: maxConcurrent={}, maxQueue={}", maxConcurrent, maxQueueSize);
+        metrics.gauge("bot_queue_depth", "Runs waiting for admission", () -> {
+            synchronized (lock) {
+                return Map.of(List.of(), (double) pending.size());
+            }
+        });
+        metrics.gauge("bot_runs_active", "Tracked runs by status", () -> {
+            Map<List<String>, Double> byStatus = new HashMap<>();
+            for (TestRunInfo info : activeRuns.values()) {
+                byStatus.merge(List.of(info.getStatus().name()), 1.0, Double::sum);
+            }
+            return byStatus;
+        }, "status");
+        metrics.gauge("bot_resources_used", "Resource budget in use by admitted runs", () -> {
+            ResourceBudget.Usage usage = budget.usage();
+            return Map.of(List.of("browsers"), (double) usage.usedBrowsers(),
+                    List.of("cpus"), usage.usedCpus(),
+                    List.of("memory_mb"), (double) usage.usedMemoryMb());
+        }, "resource");
+
+        log.info("TestRunQueue initialized: maxConcurrent={}, maxQueue={}, discipline={}",
+                maxConcurrent, maxQueueSize, discipline.getClass().getSimpleName());
     }
 
     /**
      * Submit test run vào queue.
      *
      * @param request  thông tin test run
-     * @param callback callback khi test hoàn tất (gửi kết quả về Telegram)
-     * @return TestRunInfo để track, hoặc null nếu queue đầy
+     * @param callback callback khi test được admit (chạy test + gửi kết quả về Telegram)
+     * @return TestRunInfo để track, hoặc null nếu queue đầy (hoặc user đã đủ số run chờ).
+     *         Nếu request được gộp vào run có sẵn → trả về run đó (runId khác request.getRunId())
      */
     public TestRunInfo submit(TestRunRequest request, Consumer<TestRunInfo> callback) {
-        try {
-            TestRunInfo info = new TestRunInfo(request, null);
+        return submit(request, callback, true);
+    }
+
+    /**
+     * @param enforceLimits false khi recovery đưa lại run đã được nhận trước lúc restart
+     *                      (không từ chối vì queue đầy / giới hạn per-user)
+     */
+    TestRunInfo submit(TestRunRequest request, Consumer<TestRunInfo> callback, boolean enforceLimits) {
+        TestRunInfo info = new TestRunInfo(request, budget.costOf(request), callback, new RunProgress(recentLogLines));
+
+        synchronized (lock) {
+            TestRunInfo existing = coalesce ? findEquivalent(request) : null;
+            if (existing != null) {
+                log.info("[{}] Coalesced into run {} (user {})", request.getRunId(),
+                        existing.getRequest().getRunId(), request.getUserId());
+                journal.attached(existing.getRequest().getRunId(), request);
+                metrics.runCoalesced(label(existing));
+                return existing;
+            }
+            if (enforceLimits && pending.size() >= maxQueueSize) {
+                log.warn("[{}] Queue is full, rejecting request", request.getRunId());
+                metrics.runRejected();
+                return null;
+            }
+            if (enforceLimits && !discipline.accepts(info, pending)) {
+                log.warn("[{}] User {} reached queued-run limit, rejecting request", request.getRunId(), request.getUserId());
+                metrics.runRejected();
+                return null;
+            }
+            pending.add(info);
+            discipline.onEnqueued(info);
             activeRuns.put(request.getRunId(), info);
+            journal.submitted(request);
+            metrics.runSubmitted(label(info));
+        }
+
+        log.info("[{}] Test run submitted to queue (cost: {})", request.getRunId(), info.getCost());
+        dispatch();
+        return info;
+    }
+
+    /** Gắn thêm người nhận kết quả vào run có sẵn (recovery: khôi phục danh sách subscriber) */
+    void attach(TestRunInfo info, TestRunRequest subscriber) {
+        synchronized (lock) {
+            if (info.attach(subscriber)) {
+                journal.attached(info.getRequest().getRunId(), subscriber);
+            }
+        }
+    }
 
-            Future<?> future = executor.submit(() -> {
-                try {
-                    callback.accept(info);
-                } catch (Exception e) {
-                    log.error("[{}] Error in test run callback: {}", request.getRunId(), e.getMessage(), e);
+    /** mvn process / warm worker của run vừa start — ghi pid vào journal để lần khởi động sau tìm lại được */
+    public void processStarted(TestRunInfo info, Process process) {
+        info.addProcess(process.toHandle());
+        journal.process(info.getRequest().getRunId(), process.pid(),
+                process.info().startInstant().orElse(Instant.now()));
+    }
+
+    /** Gắn process của run vào info để cancel kill được; warm worker được gỡ ra khi trả về pool */
+    public RunProcessListener processListener(TestRunInfo info) {
+        return new RunProcessListener() {
+            @Override
+            public void started(Process process) {
+                processStarted(info, process);
+            }
+
+            @Override
+            public void released(Process process) {
+                info.removeProcess(process.toHandle());
+            }
+        };
+    }
+
+    /** Process của run trước restart được nhận lại — ghi lại vào journal (phòng bot crash lần nữa) */
+    void processAdopted(TestRunInfo info, ProcessHandle process, Instant processStart) {
+        info.addProcess(process);
+        journal.process(info.getRequest().getRunId(), process.pid(), processStart);
+    }
+
+    /**
+     * Tìm run tương đương để attach: ưu tiên run đang chờ, sau đó run vừa chạy trong coalesce window.
+     * Gọi trong lock.
+     */
+    private TestRunInfo findEquivalent(TestRunRequest request) {
+        for (TestRunInfo candidate : pending) {
+            if (candidate.getStatus() != RunStatus.CANCELLED
+                    && candidate.getRequest().isEquivalentTo(request)
+                    && candidate.attach(request)) {
+                return candidate;
+            }
+        }
+        Instant oldestStart = Instant.now().minus(coalesceRunningMaxAge);
+        for (TestRunInfo candidate : running) {
+            // Run đã xong phần test (COMPLETED/FAILED, đang generate report) → không attach
+            boolean inProgress = candidate.getStatus() == RunStatus.QUEUED || candidate.getStatus() == RunStatus.RUNNING;
+            if (inProgress
+                    && candidate.getStartedAt().isAfter(oldestStart)
+                    && candidate.getRequest().isEquivalentTo(request)
+                    && candidate.attach(request)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Admit các run pending còn vừa budget. Gọi khi submit, khi run xong và định kỳ.
+     */
+    void dispatch() {
+        synchronized (lock) {
+            boolean headBlocked = false;
+
+            for (TestRunInfo info : List.copyOf(discipline.order(pending))) {
+                if (!remoteWorkers.isEnabled() && running.size() >= maxConcurrent) {
+                    break;
+                }
+                // Run đầu hàng đã bị vượt quá nhiều lần → giữ chỗ, không backfill nữa
+                if (headBlocked && headBypassCount >= maxHeadBypass) {
+                    break;
+                }
+                // Giới hạn của discipline (per-user in-flight) — bỏ qua, không tính là head bị chặn
+                if (!discipline.canStart(info, runningPerUser)) {
+                    continue;
                 }
-            });
 
-            info.setFuture(future);
-            log.info("[{}] Test run submitted to queue", request.getRunId());
-            return info;
+                if (acquire(info)) {
+                    pending.remove(info);
+                    running.add(info);
+                    runningPerUser.merge(info.getRequest().getUserId(), 1, Integer::sum);
+                    discipline.onStarted(info);
+                    start(info);
+                    if (headBlocked) {
+                        headBypassCount++;
+                    }
+                    continue;
+                }
 
-        } catch (RejectedExecutionException e) {
-            activeRuns.remove(request.getRunId());
-            log.warn("[{}] Queue is full, rejecting request", request.getRunId());
-            return null;
+                if (!headBlocked) {
+                    headBlocked = true;
+                    if (blockedHead != info) {
+                        blockedHead = info;
+                        headBypassCount = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Giữ tài nguyên cho run: host của bot trước (không tốn công chuyển report), hết chỗ thì agent còn trống.
+     * Run shard chỉ chạy trên host — các fork cần chung workspace. Gọi trong lock.
+     */
+    private boolean acquire(TestRunInfo info) {
+        long localRunning = running.stream().filter(run -> run.agentId == null).count();
+        if (remoteWorkers.isLocalRunsEnabled() && localRunning < maxConcurrent && budget.tryAcquire(info.getCost())) {
+            return true;
+        }
+        if (info.getRequest().getShards() > 1) {
+            return false;
         }
+        String agentId = remoteWorkers.tryReserve(info.getCost());
+        if (agentId == null) {
+            return false;
+        }
+        info.agentId = agentId;
+        return true;
+    }
+
+    private void start(TestRunInfo info) {
+        String runId = info.getRequest().getRunId();
+        if (info.agentId != null) {
+            log.info("[{}] Admitted on agent {} (cost: {})", runId, info.agentId, info.getCost());
+        } else {
+            log.info("[{}] Admitted (cost: {}, usage: {})", runId, info.getCost(), budget.usage());
+        }
+
+        info.startedAt = Instant.now();
+        journal.started(runId);
+        metrics.queueWait(label(info), Duration.between(info.getSubmittedAt(), info.startedAt));
+        Future<?> future = executor.submit(() -> {
+            info.started = true;
+            try {
+                info.callback.accept(info);
+            } catch (Exception e) {
+                log.error("[{}] Error in test run callback: {}", runId, e.getMessage(), e);
+            } finally {
+                finished(info);
+            }
+        });
+        info.setFuture(future);
+    }
+
+    /** Trả budget đúng 1 lần (task kết thúc hoặc bị cancel trước khi kịp chạy) */
+    private void finished(TestRunInfo info) {
+        if (!info.released.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (lock) {
+            running.remove(info);
+            runningPerUser.computeIfPresent(info.getRequest().getUserId(), (user, count) -> count > 1 ? count - 1 : null);
+            if (info.agentId != null) {
+                remoteWorkers.release(info.agentId, info.getCost());
+            } else {
+                budget.release(info.getCost());
+            }
+            discipline.onFinished(info);
+            if (!shuttingDown && info.getStatus() != RunStatus.CANCELLED) {
+                journal.finished(info.getRequest().getRunId());
+            }
+        }
+        // Ngoài lock: ghi file lịch sử không được chặn submit/dispatch
+        recordDuration(info);
+        if (info.getStartedAt() != null) {
+            metrics.runFinished(label(info), info.getStatus().name(), Duration.between(info.getStartedAt(), Instant.now()));
+        }
+        dispatch();
     }
 
     /**
-     * Cancel test run theo runId.
+     * Cancel theo yêu cầu của 1 user: nếu run còn người khác đang chờ kết quả (run được gộp)
+     * → chỉ bỏ đăng ký của user này, run vẫn chạy tiếp cho người khác.
+     * @return true nếu user đã không còn nhận run này
+     */
+    public boolean cancel(String runId, long userId) {
+        TestRunInfo info = activeRuns.get(runId);
+        if (info == null || !info.isSubscribed(userId)) {
+            return false;
+        }
+        if (info.detach(userId)) {
+            journal.detached(runId, userId);
+            log.info("[{}] User {} detached from coalesced run", runId, userId);
+            return true;
+        }
+        return cancel(runId);
+    }
+
+    /**
+     * Cancel test run theo runId (kill cho tất cả người nhận).
      * @return true nếu cancel thành công
      */
     public boolean cancel(String runId) {
@@ -118,33 +533,122 @@ public class TestRunQueue {
 
         info.setStatus(RunStatus.CANCELLED);
 
-        // Kill process nếu đang chạy
-        Process process = info.getProcess();
-        if (process != null && process.isAlive()) {
-            process.destroyForcibly();
-            log.info("[{}] Process killed", runId);
+        // Chưa được admit → chỉ cần bỏ khỏi pending
+        synchronized (lock) {
+            if (pending.remove(info)) {
+                discipline.onFinished(info);
+            }
+            journal.cancelled(runId);
+        }
+
+        // Kill cả cây process (mvn → surefire fork → chromedriver → Chrome) nếu đang chạy
+        for (ProcessHandle process : info.getProcesses()) {
+            if (process.isAlive()) {
+                ProcessTree.Reclaimed reclaimed = ProcessTree.destroy(process);
+                log.info("[{}] Process tree {} killed: {} processes, ~{} MB reclaimed",
+                        runId, process.pid(), reclaimed.processes(), reclaimed.rssMb());
+            }
         }
 
-        // Cancel future
-        info.getFuture().cancel(true);
+        // Cancel future — budget được trả lại trong finally của task,
+        // hoặc ngay tại đây nếu task bị cancel trước khi kịp chạy (finally không bao giờ chạy)
+        Future<?> future = info.getFuture();
+        if (future != null && future.cancel(true) && !info.started) {
+            finished(info);
+        }
         activeRuns.remove(runId);
 
         log.info("[{}] Test run cancelled", runId);
         return true;
     }
 
+    /** Root process của mọi run đang chạy — process con cháu của chúng là "có chủ" với reaper */
+    public List<ProcessHandle> getProcessRoots() {
+        return activeRuns.values().stream()
+                .flatMap(info -> info.getProcesses().stream())
+                .filter(ProcessHandle::isAlive)
+                .toList();
+    }
+
     /** Lấy tất cả active runs (đang chạy hoặc đang queue) */
     public List<TestRunInfo> getActiveRuns() {
         return new ArrayList<>(activeRuns.values());
     }
 
-    /** Lấy active runs của một user cụ thể */
+    /** Run đang chạy/đang chờ theo runId, null nếu đã xong hoặc không tồn tại */
+    public TestRunInfo getRun(String runId) {
+        return activeRuns.get(runId);
+    }
+
+    /** Lấy active runs của một user cụ thể (kể cả run user được gộp vào) */
     public List<TestRunInfo> getRunsByUser(long userId) {
         return activeRuns.values().stream()
-                .filter(info -> info.getRequest().getUserId() == userId)
+                .filter(info -> info.isSubscribed(userId))
                 .toList();
     }
 
+    /**
+     * Vị trí của run trong hàng chờ (theo thứ tự discipline) và thời gian chờ ước lượng.
+     * @return null nếu run đã chạy hoặc không tồn tại
+     */
+    public QueuePosition getQueuePosition(String runId) {
+        synchronized (lock) {
+            List<TestRunInfo> ordered = discipline.order(pending);
+            Instant now = Instant.now();
+
+            // Thời gian còn lại của các run đang chạy
+            Duration aheadP50 = Duration.ZERO;
+            Duration aheadP90 = Duration.ZERO;
+            for (TestRunInfo info : running) {
+                Duration elapsed = Duration.between(info.getStartedAt(), now);
+                RunDurationHistory.Estimate estimate = durationHistory.estimate(info.getRequest());
+                aheadP50 = aheadP50.plus(remaining(estimate.p50(), elapsed));
+                aheadP90 = aheadP90.plus(remaining(estimate.p90(), elapsed));
+            }
+
+            for (int i = 0; i < ordered.size(); i++) {
+                TestRunInfo info = ordered.get(i);
+                if (info.getRequest().getRunId().equals(runId)) {
+                    // Các run chạy song song → chia cho số run đang chạy (tối thiểu 1)
+                    int lanes = Math.max(1, running.size());
+                    return new QueuePosition(i + 1, ordered.size(),
+                            aheadP50.dividedBy(lanes), aheadP90.dividedBy(lanes));
+                }
+                RunDurationHistory.Estimate estimate = durationHistory.estimate(info.getRequest());
+                aheadP50 = aheadP50.plus(estimate.p50());
+                aheadP90 = aheadP90.plus(estimate.p90());
+            }
+            return null;
+        }
+    }
+
+    /** Run chạy lâu hơn ước lượng → coi như sắp xong (không âm) */
+    private static Duration remaining(Duration expected, Duration elapsed) {
+        Duration remaining = expected.minus(elapsed);
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    /**
+     * Ghi thời gian chiếm slot thực tế (start → gửi xong kết quả) vào lịch sử — đúng đại lượng mà run phía sau phải chờ.
+     * Run bị cancel / bị ngắt khi tắt app không tính — không phản ánh thời gian chạy thật.
+     */
+    private void recordDuration(TestRunInfo info) {
+        if (info.getStartedAt() == null || shuttingDown || info.getStatus() == RunStatus.CANCELLED) {
+            return;
+        }
+        durationHistory.record(info.getRequest(), Duration.between(info.getStartedAt(), Instant.now()));
+    }
+
+    private static String label(TestRunInfo info) {
+        TestRunRequest request = info.getRequest();
+        return request.getProfile() != null ? request.getProfile() : request.getTestClass();
+    }
+
+    /** Tài nguyên đang dùng / còn lại (hiển thị trên /status) */
+    public ResourceBudget.Usage getResourceUsage() {
+        return budget.usage();
+    }
+
     /** Xóa run khỏi tracking (gọi sau khi hoàn tất) */
     public void removeRun(String runId) {
         activeRuns.remove(runId);
@@ -154,6 +658,8 @@ public class TestRunQueue {
     @PreDestroy
     public void shutdown() {
         log.info("Shutting down TestRunQueue...");
+        shuttingDown = true;
+        dispatchTicker.shutdownNow();
         executor.shutdown();
         try {
             if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
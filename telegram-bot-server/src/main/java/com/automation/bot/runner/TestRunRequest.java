@@ -2,6 +2,9 @@ package com.automation.bot.runner;
 
 import lombok.Builder;
 import lombok.Getter;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.Objects;
 
 /**
  * DTO chứa thông tin cần thiết để chạy một test run.
@@ -10,11 +13,16 @@ import lombok.Getter;
  * → Immutable: sau khi tạo thì không thể sửa — tránh race condition khi nhiều thread đọc.
  * → Builder: nhiều field optional (profile có thể null, testClass có thể null),
  *   builder rõ ràng hơn constructor 8 tham số.
+ * → @Jacksonized: request được ghi vào queue journal và đọc lại khi bot khởi động.
  */
 @Getter
-@Builder
+@Jacksonized
+@Builder(toBuilder = true)
 public class TestRunRequest {
 
+    /** chatId của request từ HTTP API không yêu cầu báo kết quả về Telegram (Telegram không có chat id 0) */
+    public static final long NO_CHAT = 0;
+
     private final String runId;
     private final long chatId;
     private final long userId;
@@ -23,4 +31,18 @@ public class TestRunRequest {
     private final String testClass;     // Specific test class: LoginTest, DashboardTest
     private final String browser;
     private final boolean headless;
+    private final int shards;           // > 1 → chia suite thành N shard chạy song song
+    private final String suiteXml;      // Suite XML riêng (shard), override suite của profile
+
+    /**
+     * Hai request cho ra cùng kết quả (cùng suite/class, env, browser, headless) → gộp được vào 1 run.
+     * Không so runId/chatId/userId (người gửi khác nhau) và shards (chỉ đổi cách chạy, không đổi kết quả).
+     */
+    public boolean isEquivalentTo(TestRunRequest other) {
+        return Objects.equals(profile, other.profile)
+                && Objects.equals(testClass, other.testClass)
+                && Objects.equals(env, other.env)
+                && Objects.equals(browser, other.browser)
+                && headless == other.headless;
+    }
 }
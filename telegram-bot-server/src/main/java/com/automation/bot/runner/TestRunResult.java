@@ -1,15 +1,17 @@
 package com.automation.bot.runner;
 
+import com.automation.bot.parser.model.RetriedTest;
 import lombok.Builder;
 import lombok.Getter;
 
 import java.time.Duration;
+import java.util.List;
 
 /**
  * DTO chứa kết quả sau khi test run hoàn tất.
  */
 @Getter
-@Builder
+@Builder(toBuilder = true)
 public class TestRunResult {
 
     private final String runId;
@@ -22,4 +24,27 @@ public class TestRunResult {
     private final Duration duration;
     private final String errorMessage;      // Nếu process bị crash hoặc timeout
     private final String allureReportUrl;   // Link đến report
+    /**
+     * Run không chạy hết (cancel, timeout, watchdog kill, crash) — số liệu chỉ gồm các test class
+     * đã có report trước khi run dừng, errorMessage là lý do dừng
+     */
+    private final boolean partial;
+    /** Test có lần chạy bị retry (TestNG RetryAnalyzer / Surefire rerun), tốn thời gian retry nhiều nhất trước */
+    @Builder.Default
+    private final List<RetriedTest> retriedTests = List.of();
+
+    /** Số test pass nhờ chạy lại — không phải pass "sạch" */
+    public int getFlakyPassed() {
+        return (int) retriedTests.stream().filter(RetriedTest::passed).count();
+    }
+
+    /** Tổng số lần chạy bị bỏ để chạy lại */
+    public int getRetries() {
+        return retriedTests.stream().mapToInt(RetriedTest::retries).sum();
+    }
+
+    /** Wall-clock tốn cho các lần chạy bị bỏ (cộng theo test, không tính song song) */
+    public Duration getRetryTime() {
+        return Duration.ofMillis(Math.round(retriedTests.stream().mapToDouble(RetriedTest::retrySeconds).sum() * 1000));
+    }
 }
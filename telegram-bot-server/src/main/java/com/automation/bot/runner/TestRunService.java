@@ -0,0 +1,332 @@
+package com.automation.bot.runner;
+
+import com.automation.bot.allure.AllureReportGenerator;
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.notification.TelegramNotifier;
+import com.automation.bot.notification.sink.NotificationFanout;
+import com.automation.bot.notification.sink.RunNotification;
+import com.automation.bot.parser.FailureClusterer;
+import com.automation.bot.parser.SurefireReportParser;
+import com.automation.bot.parser.model.TestSuite;
+import com.automation.bot.runner.cache.FrameworkRevision;
+import com.automation.bot.runner.cache.RunResultCache;
+import com.automation.bot.runner.history.TestHistoryStore;
+import com.automation.bot.runner.journal.RunJournal.ProcessRef;
+import com.automation.bot.runner.process.ProcessTree;
+import com.automation.bot.runner.report.LiveReportWatcher;
+import com.automation.bot.runner.report.RunReports;
+import com.automation.bot.runner.shard.TestDurationHistory;
+import com.automation.bot.runner.watchdog.RunPhase;
+import com.automation.bot.runner.watchdog.RunWatchdog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Flow của 1 test run: submit vào queue → chạy → generate Allure → parse Surefire → notify kết quả.
+ *
+ * Tại sao tách khỏi AbstractTestCommand?
+ * → Run không chỉ đến từ Telegram command: khi bot khởi động lại, {@code RunRecovery} đưa lại
+ *   các run trong journal vào queue — cần cùng flow chạy + notify mà không có command nào.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TestRunService {
+
+    private final TestRunnerProperties properties;
+    private final TestRunner testRunner;
+    private final TestRunQueue testRunQueue;
+    private final RunWorkspaceManager workspaceManager;
+    private final TelegramNotifier notifier;
+    private final NotificationFanout notificationFanout;
+    private final SurefireReportParser reportParser;
+    private final FailureClusterer failureClusterer;
+    private final AllureReportGenerator allureGenerator;
+    private final RunWatchdog watchdog;
+    private final RunResultCache resultCache;
+    private final LiveReportWatcher reportWatcher;
+    private final TestDurationHistory durationHistory;
+    private final TestHistoryStore testHistory;
+
+    /** Bước "chạy test" của flow — mvn/warm pool bình thường, hoặc chờ process cũ khi recovery */
+    @FunctionalInterface
+    private interface RunStep {
+        TestRunResult run(TestRunQueue.TestRunInfo info, RunWorkspace workspace) throws Exception;
+    }
+
+    /**
+     * Submit run mới từ command.
+     * @return run đã nhận (có thể là run có sẵn nếu request được gộp), null nếu queue từ chối
+     */
+    public TestRunQueue.TestRunInfo submit(TestRunRequest request) {
+        return testRunQueue.submit(request, info -> execute(info, true, this::runTests));
+    }
+
+    /**
+     * Kết quả pass còn hạn của request giống hệt trên đúng code hiện tại của framework.
+     * Gọi trước {@link #submit} trừ khi người dùng yêu cầu chạy lại ("--force").
+     */
+    public Optional<RunResultCache.CachedRun> findCached(TestRunRequest request) {
+        return resultCache.lookup(request);
+    }
+
+    /** Recovery: run chưa chạy (hoặc chạy dở mà process đã chết) → xếp hàng lại từ đầu */
+    public void resubmit(TestRunRequest request, List<TestRunRequest> subscribers) {
+        TestRunQueue.TestRunInfo info = testRunQueue.submit(request, run -> execute(run, true, this::runTests), false);
+        attachAll(info, request, subscribers);
+    }
+
+    /**
+     * Recovery: mvn process của run trước restart vẫn đang chạy → không chạy lại,
+     * chờ process kết thúc rồi đọc report trong workspace cũ và báo kết quả như bình thường.
+     */
+    public void adopt(TestRunRequest request, List<TestRunRequest> subscribers, List<ProcessRef> processes,
+                      List<ProcessHandle> handles) {
+        TestRunQueue.TestRunInfo info = testRunQueue.submit(request,
+                run -> execute(run, false, (adopted, workspace) -> awaitAdopted(adopted, processes, handles)), false);
+        attachAll(info, request, subscribers);
+    }
+
+    private void attachAll(TestRunQueue.TestRunInfo info, TestRunRequest request, List<TestRunRequest> subscribers) {
+        if (info == null) {
+            return;
+        }
+        for (TestRunRequest subscriber : subscribers) {
+            if (subscriber != request) {
+                testRunQueue.attach(info, subscriber);
+            }
+        }
+        // Người submit gốc đã /cancel trước restart, run vẫn chạy cho người khác
+        if (!subscribers.contains(request)) {
+            testRunQueue.cancel(info.getRequest().getRunId(), request.getUserId());
+        }
+    }
+
+    /**
+     * Thực thi test run — method này chạy trên worker thread của TestRunQueue.
+     * Flow: set RUNNING → chạy test (report ingest dần) → parse nốt Surefire XML → notify kết quả → cleanup
+     *
+     * @param freshWorkspace true → tạo workspace mới (xóa output cũ), false → dùng lại workspace có sẵn
+     */
+    private void execute(TestRunQueue.TestRunInfo info, boolean freshWorkspace, RunStep step) {
+        TestRunRequest request = info.getRequest();
+        String runId = request.getRunId();
+        String label = label(request);
+        Instant start = Instant.now();
+        RunReports reports = null;
+
+        try {
+            info.setStatus(RunStatus.RUNNING);
+            for (TestRunRequest subscriber : distinctChats(info.getSubscribers())) {
+                notifier.notifyRunning(subscriber.getChatId(), info, label, subscriber.getEnv());
+            }
+
+            // Workspace riêng cho run này → không đọc nhầm report của run song song
+            RunWorkspace workspace = freshWorkspace ? testRunner.createWorkspace(runId) : workspaceManager.get(runId);
+            // Report của từng class được ingest ngay khi Surefire ghi xong → cancel/timeout vẫn còn kết quả
+            reports = reportWatcher.watch(workspace);
+            info.setReports(reports);
+
+            // Revision lúc bắt đầu: code sửa giữa lúc mvn chạy không được gán kết quả này.
+            // Run ở agent dùng checkout của máy khác, run adopt sau restart không biết code lúc chạy → không cache
+            FrameworkRevision revision = freshWorkspace && info.getAgentId() == null
+                    ? resultCache.currentRevision()
+                    : null;
+
+            TestRunResult rawResult = step.run(info, workspace);
+            if (info.getStatus() == RunStatus.CANCELLED) {
+                completeCancelled(info, reports, rawResult.getDuration());
+                return;
+            }
+            info.setStatus(rawResult.getStatus());
+
+            // Generate Allure report — allure CLI treo cũng bị watchdog kill, không giữ slot của run
+            String allureUrl;
+            try (RunWatchdog.Watch watch = watchdog.watch(runId, RunPhase.REPORT)) {
+                allureUrl = allureGenerator.generateReport(workspace.allureResultsDir(), watch, watch::attach);
+            }
+
+            // Phần lớn report đã được ingest trong lúc chạy — chỉ parse nốt file chưa kịp đọc
+            List<TestSuite> suites = reports.finish();
+            recordDurations(runId, suites);
+            List<FailureClusterer.Cluster> failures = failureClusterer.cluster(reportParser.getFailedTests(suites));
+
+            TestRunResult enrichedResult = reportParser.buildResult(
+                    runId, suites, reports.retriedTests(suites), rawResult.getDuration(), allureUrl);
+            if (rawResult.isPartial()) {
+                // Timeout / watchdog kill / crash: số liệu của các class đã xong + lý do run dừng
+                enrichedResult = enrichedResult.toBuilder()
+                        .status(RunStatus.FAILED)
+                        .errorMessage(rawResult.getErrorMessage())
+                        .partial(true)
+                        .build();
+            }
+            // Stream HTTP nhận kết quả trước — không phải chờ gửi Telegram xong
+            info.complete(enrichedResult);
+            resultCache.put(request, revision, rawResult, enrichedResult);
+            recordHistory(request, enrichedResult, suites);
+
+            // Gửi kết quả đẹp về Telegram — cho mọi chat đã gộp vào run này
+            for (TestRunRequest subscriber : distinctChats(info.closeSubscriptions())) {
+                notifier.notifyResult(subscriber, enrichedResult, failures);
+            }
+            // Webhook / email / file: 1 lần cho cả run, gửi trên thread riêng của từng kênh
+            notificationFanout.publish(RunNotification.of(request, enrichedResult, failures));
+
+        } catch (Exception e) {
+            if (info.getStatus() == RunStatus.CANCELLED && reports != null) {
+                completeCancelled(info, reports, Duration.between(start, Instant.now()));
+                return;
+            }
+            log.error("[{}] Error executing test run: {}", runId, e.getMessage(), e);
+            info.setStatus(RunStatus.FAILED);
+            TestRunResult failedResult = TestRunResult.builder()
+                    .runId(runId)
+                    .status(RunStatus.FAILED)
+                    .errorMessage(e.getMessage())
+                    .build();
+            info.complete(failedResult);
+            for (TestRunRequest subscriber : distinctChats(info.closeSubscriptions())) {
+                notifier.notifyError(subscriber.getChatId(), runId, label, e.getMessage());
+            }
+            notificationFanout.publish(RunNotification.of(request, failedResult, List.of()));
+
+        } finally {
+            if (reports != null) {
+                reports.close();
+            }
+            testRunQueue.removeRun(runId);
+        }
+    }
+
+    /**
+     * /cancel giữa lúc chạy: process đã bị kill → không generate Allure, chỉ báo kết quả
+     * của các class đã có report (nếu có) cho người còn đăng ký.
+     */
+    private void completeCancelled(TestRunQueue.TestRunInfo info, RunReports reports, Duration duration) {
+        // Cờ interrupt từ /cancel (Future.cancel(true)) — xóa để còn đọc file, gửi Telegram được
+        Thread.interrupted();
+        String runId = info.getRequest().getRunId();
+        List<TestSuite> suites = reports.finish();
+        TestRunResult partial = reportParser.buildResult(runId, suites, reports.retriedTests(suites), duration, null)
+                .toBuilder()
+                .status(RunStatus.CANCELLED)
+                .errorMessage("Cancelled")
+                .partial(true)
+                .build();
+        info.complete(partial);
+        recordHistory(info.getRequest(), partial, suites);
+        log.info("[{}] Cancelled with {} test classes reported", runId, suites.size());
+
+        List<FailureClusterer.Cluster> failures = List.of();
+        if (!suites.isEmpty()) {
+            failures = failureClusterer.cluster(reportParser.getFailedTests(suites));
+            for (TestRunRequest subscriber : distinctChats(info.closeSubscriptions())) {
+                notifier.notifyResult(subscriber, partial, failures);
+            }
+        } else {
+            for (TestRunRequest subscriber : distinctChats(info.closeSubscriptions())) {
+                notifier.notifyCancelled(subscriber.getChatId(), runId, label(info.getRequest()));
+            }
+        }
+        notificationFanout.publish(RunNotification.of(info.getRequest(), partial, failures));
+    }
+
+    /** Cập nhật lịch sử thời gian chạy theo class — lỗi ở đây không được làm hỏng kết quả run */
+    private void recordDurations(String runId, List<TestSuite> suites) {
+        try {
+            durationHistory.record(suites);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to record test durations: {}", runId, e.getMessage());
+        }
+    }
+
+    /** Lưu kết quả từng testcase cho /history — lỗi ở đây không được làm hỏng kết quả run */
+    private void recordHistory(TestRunRequest request, TestRunResult result, List<TestSuite> suites) {
+        try {
+            testHistory.record(request, result, suites);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to record test history: {}", request.getRunId(), e.getMessage());
+        }
+    }
+
+    private TestRunResult runTests(TestRunQueue.TestRunInfo info, RunWorkspace workspace) {
+        if (info.getAgentId() != null) {
+            return testRunner.runOnAgent(info.getAgentId(), info.getRequest(), workspace, info.getProgress());
+        }
+        return testRunner.run(info.getRequest(), workspace, info.getProgress(), testRunQueue.processListener(info));
+    }
+
+    /**
+     * Không phải process con của JVM này → không đọc được output hay exit code.
+     * Kết quả pass/fail lấy từ surefire-reports sau khi process kết thúc.
+     */
+    private TestRunResult awaitAdopted(TestRunQueue.TestRunInfo info, List<ProcessRef> processes,
+                                       List<ProcessHandle> handles) throws Exception {
+        String runId = info.getRequest().getRunId();
+        for (ProcessRef process : processes) {
+            handles.stream()
+                    .filter(handle -> handle.pid() == process.pid())
+                    .findFirst()
+                    .ifPresent(handle -> testRunQueue.processAdopted(info, handle, process.startedAt()));
+        }
+        log.info("[{}] Re-attached to {} running process(es) after restart", runId, handles.size());
+
+        Instant start = handles.stream()
+                .map(handle -> handle.info().startInstant().orElse(Instant.now()))
+                .min(Instant::compareTo)
+                .orElse(Instant.now());
+        Instant deadline = start.plus(Duration.ofMinutes(properties.getTimeoutMinutes()));
+
+        for (ProcessHandle handle : handles) {
+            long remainingMs = Math.max(0, Duration.between(Instant.now(), deadline).toMillis());
+            try {
+                handle.onExit().get(remainingMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                handles.forEach(ProcessTree::destroy);
+                return TestRunResult.builder()
+                        .runId(runId)
+                        .status(RunStatus.FAILED)
+                        .duration(Duration.between(start, Instant.now()))
+                        .errorMessage("Timeout after " + properties.getTimeoutMinutes() + " minutes")
+                        .partial(true)
+                        .build();
+            }
+        }
+
+        return TestRunResult.builder()
+                .runId(runId)
+                .status(RunStatus.COMPLETED)
+                .duration(Duration.between(start, Instant.now()))
+                .build();
+    }
+
+    /**
+     * Nhiều người trong cùng group chat gộp vào 1 run → chat đó chỉ nhận 1 message.
+     * Request từ HTTP API không kèm chat (chatId = {@link TestRunRequest#NO_CHAT}) → không gửi Telegram.
+     */
+    public static List<TestRunRequest> distinctChats(List<TestRunRequest> subscribers) {
+        Map<Long, TestRunRequest> byChat = new LinkedHashMap<>();
+        for (TestRunRequest subscriber : subscribers) {
+            if (subscriber.getChatId() != TestRunRequest.NO_CHAT) {
+                byChat.putIfAbsent(subscriber.getChatId(), subscriber);
+            }
+        }
+        return new ArrayList<>(byChat.values());
+    }
+
+    private static String label(TestRunRequest request) {
+        return request.getProfile() != null ? request.getProfile() : request.getTestClass();
+    }
+}
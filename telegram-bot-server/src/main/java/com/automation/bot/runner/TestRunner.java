@@ -1,18 +1,39 @@
 package com.automation.bot.runner;
 
 import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.metrics.BotMetrics;
+import com.automation.bot.runner.log.RunLogWriter;
+import com.automation.bot.runner.pool.WarmWorkerPool;
+import com.automation.bot.runner.process.ProcessTree;
+import com.automation.bot.runner.progress.RunProgress;
+import com.automation.bot.runner.progress.TestOutputParser;
+import com.automation.bot.runner.remote.RemoteWorkerRegistry;
+import com.automation.bot.runner.shard.ShardPlanner;
+import com.automation.bot.runner.shard.ShardPlanner.Shard;
+import com.automation.bot.runner.watchdog.RunPhase;
+import com.automation.bot.runner.watchdog.RunWatchdog;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Chạy Maven test bằng ProcessBuilder.
@@ -26,6 +47,20 @@ import java.util.concurrent.TimeUnit;
  * Tại sao dùng mvn.cmd trên Windows?
  * → Windows không có mvn executable, chỉ có mvn.cmd (batch file).
  * → ProcessBuilder trên Windows không tự tìm .cmd, phải chỉ đường dẫn đầy đủ.
+ *
+ * Mỗi run ghi output vào {@link RunWorkspace} riêng (surefire-reports, allure-results, run.log)
+ * → nhiều run song song trong cùng framework-path không ghi đè kết quả của nhau.
+ *
+ * Khi bật warm-pool: ưu tiên chạy trên {@link WarmWorkerPool} (JVM đã load sẵn classpath),
+ * pool không phục vụ được (chưa sẵn sàng / hết worker rảnh) thì fallback về mvn test.
+ * Run trên warm worker chịu cùng {@link RunWatchdog} (inactivity, phase, tổng) như mvn test.
+ *
+ * Khi request có shards > 1: {@link ShardPlanner} chia suite thành N suite XML nhỏ,
+ * mỗi shard chạy như 1 run con song song (workspace riêng trong {runDir}/shards),
+ * xong thì gộp surefire-reports, allure-results, log về workspace của run cha.
+ *
+ * Run được admit vào worker agent → {@link #runOnAgent}: agent chạy mvn trên máy của nó,
+ * output stream về đi qua cùng đường ghi log / tiến độ như run local, report giải nén vào workspace.
  */
 @Slf4j
 @Component
@@ -33,17 +68,90 @@ import java.util.concurrent.TimeUnit;
 public class TestRunner {
 
     private final TestRunnerProperties properties;
+    private final RunWorkspaceManager workspaceManager;
+    private final WarmWorkerPool warmWorkerPool;
+    private final ShardPlanner shardPlanner;
+    private final RunWatchdog watchdog;
+    private final BotMetrics metrics;
+    private final RemoteWorkerRegistry remoteWorkers;
+
+    /** Tạo workspace (surefire-reports, allure-results, run.log) cho run mới */
+    public RunWorkspace createWorkspace(String runId) throws IOException {
+        return workspaceManager.create(runId);
+    }
+
+    public TestRunResult run(TestRunRequest request, RunWorkspace workspace) {
+        return run(request, workspace, new RunProgress(), process -> { });
+    }
 
     /**
      * Chạy Maven test command và trả về exit code.
      * Method này blocking — gọi từ TestRunQueue (thread pool) để không block main thread.
+     *
+     * @param progress        cập nhật live từ output (test started/passed/failed) trong lúc chạy
+     * @param processListener nhận mvn process / warm worker ngay khi start (mỗi shard 1 process) — để cancel / ghi journal
      */
-    public TestRunResult run(TestRunRequest request) {
+    public TestRunResult run(TestRunRequest request, RunWorkspace workspace, RunProgress progress,
+                             RunProcessListener processListener) {
+        if (request.getShards() > 1) {
+            try {
+                List<Shard> shards = shardPlanner.plan(request, workspace);
+                if (!shards.isEmpty()) {
+                    return runSharded(request, workspace, shards, progress, processListener);
+                }
+                log.info("[{}] Nothing to shard, running as a single fork", request.getRunId());
+            } catch (Exception e) {
+                log.warn("[{}] Shard planning failed, running as a single fork: {}", request.getRunId(), e.getMessage());
+            }
+        }
+
+        return runSingle(request, workspace, progress, processListener);
+    }
+
+    /** Chạy run trên worker agent đã được TestRunQueue reserve — blocking tới khi agent gửi kết quả */
+    public TestRunResult runOnAgent(String agentId, TestRunRequest request, RunWorkspace workspace, RunProgress progress) {
+        TestOutputParser outputParser = new TestOutputParser(progress);
+        try (RunLogWriter runLog = openRunLog(workspace.logFile(), false)) {
+            return remoteWorkers.execute(agentId, request, workspace, line -> {
+                runLog.accept(line);
+                outputParser.accept(line);
+                progress.getRecentLines().add(line);
+            });
+        } catch (IOException e) {
+            log.error("[{}] Failed to open run log: {}", request.getRunId(), e.getMessage(), e);
+            return TestRunResult.builder()
+                    .runId(request.getRunId())
+                    .status(RunStatus.FAILED)
+                    .duration(Duration.ZERO)
+                    .errorMessage(e.getMessage())
+                    .partial(true)
+                    .build();
+        }
+    }
+
+    private TestRunResult runSingle(TestRunRequest request, RunWorkspace workspace, RunProgress progress,
+                                    RunProcessListener processListener) {
         Instant start = Instant.now();
         String runId = request.getRunId();
+        TestOutputParser outputParser = new TestOutputParser(progress);
 
-        try {
-            List<String> command = buildCommand(request);
+        // Output không giữ trong memory: ghi vào run.log (xoay vòng + nén khi quá lớn),
+        // cập nhật tiến độ live và ring buffer vài dòng cuối cho /logs
+        try (RunLogWriter runLog = openRunLog(workspace.logFile(), false)) {
+            Consumer<String> output = line -> {
+                runLog.accept(line);
+                outputParser.accept(line);
+                progress.getRecentLines().add(line);
+            };
+
+            if (warmWorkerPool.isEnabled()) {
+                TestRunResult warmResult = runWarm(request, workspace, output, processListener);
+                if (warmResult != null) {
+                    return warmResult;
+                }
+            }
+
+            List<String> command = buildCommand(request, workspace);
             log.info("[{}] Executing: {}", runId, String.join(" ", command));
 
             ProcessBuilder processBuilder = new ProcessBuilder(command)
@@ -54,33 +162,39 @@ public class TestRunner {
             processBuilder.environment().put("MAVEN_HOME", properties.getMavenHome());
 
             Process process = processBuilder.start();
+            processListener.started(process);
 
-            // Đọc output để tránh buffer đầy → process bị block (deadlock)
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                    log.debug("[{}] {}", runId, line);
+            // Watchdog kill process khi im lặng / kẹt phase quá lâu / quá timeout-minutes
+            // → stdout EOF, vòng đọc bên dưới tự thoát
+            try (RunWatchdog.Watch watch = watchdog.watch(runId, RunPhase.RESOLVE)) {
+                watch.attach(process);
+
+                // Đọc output để tránh buffer đầy → process bị block (deadlock)
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        output.accept(line);
+                        watch.accept(line);
+                    }
                 }
-            }
 
-            boolean finished = process.waitFor(properties.getTimeoutMinutes(), TimeUnit.MINUTES);
-            Duration duration = Duration.between(start, Instant.now());
+                // stdout đóng nhưng process chưa thoát (hiếm) → không chờ quá 1 phút
+                boolean finished = process.waitFor(1, TimeUnit.MINUTES);
+                Duration duration = Duration.between(start, Instant.now());
 
-            if (!finished) {
-                process.destroyForcibly();
-                log.error("[{}] Test run timed out after {} minutes", runId, properties.getTimeoutMinutes());
-                return TestRunResult.builder()
-                        .runId(runId)
-                        .status(RunStatus.FAILED)
-                        .duration(duration)
-                        .errorMessage("Timeout after " + properties.getTimeoutMinutes() + " minutes")
-                        .build();
+                if (watch.isAborted() || !finished) {
+                    String reason = watch.isAborted() ? watch.getAbortReason() : "Process did not exit after closing output";
+                    if (!finished) {
+                        ProcessTree.destroy(process);
+                    }
+                    return aborted(runId, watch, reason, duration);
+                }
             }
 
+            Duration duration = Duration.between(start, Instant.now());
             int exitCode = process.exitValue();
             log.info("[{}] Process exited with code={}, duration={}", runId, exitCode, duration);
+            metrics.mavenExit(Integer.toString(exitCode));
 
             // exitCode 0 = success, khác 0 = có test fail hoặc build error
             return TestRunResult.builder()
@@ -97,45 +211,168 @@ public class TestRunner {
                     .status(RunStatus.FAILED)
                     .duration(Duration.between(start, Instant.now()))
                     .errorMessage(e.getMessage())
+                    .partial(true)
                     .build();
         }
     }
 
     /**
-     * Build Maven command: mvn.cmd test -Psmoke -Denv=dev -Dbrowser=chrome -Dheadless=true
+     * Chạy trên warm worker dưới cùng watchdog như mvn: worker JVM là process được theo dõi,
+     * test bắt đầu ngay nên phase khởi đầu là TEST. Watchdog kill worker → pool thay worker mới.
+     *
+     * @return null nếu pool không phục vụ được → caller chạy mvn test
      */
-    private List<String> buildCommand(TestRunRequest request) {
-        List<String> command = new ArrayList<>();
-
-        // mvn.cmd trên Windows
-        String mvnExecutable = properties.getMavenHome() + "/bin/mvn.cmd";
-        command.add(mvnExecutable);
-        command.add("test");
+    private TestRunResult runWarm(TestRunRequest request, RunWorkspace workspace, Consumer<String> output,
+                                  RunProcessListener processListener) throws InterruptedException {
+        String runId = request.getRunId();
+        Instant start = Instant.now();
+        try (RunWatchdog.Watch watch = watchdog.watch(runId, RunPhase.TEST)) {
+            TestRunResult result = warmWorkerPool.run(request, workspace, line -> {
+                output.accept(line);
+                watch.accept(line);
+            }, new RunProcessListener() {
+                @Override
+                public void started(Process process) {
+                    processListener.started(process);
+                    watch.attach(process);
+                }
 
-        // Maven profile (smoke, regression, api)
-        if (request.getProfile() != null && !request.getProfile().isEmpty()) {
-            command.add("-P" + request.getProfile());
+                @Override
+                public void released(Process process) {
+                    // Worker về pool phục vụ run khác → watchdog của run này không được kill nó nữa
+                    watch.close();
+                    processListener.released(process);
+                }
+            });
+            if (result != null && watch.isAborted()) {
+                return aborted(runId, watch, watch.getAbortReason(), Duration.between(start, Instant.now()));
+            }
+            return result;
         }
+    }
 
-        // Specific test class
-        if (request.getTestClass() != null && !request.getTestClass().isEmpty()) {
-            command.add("-Dtest=" + request.getTestClass());
-        }
+    private TestRunResult aborted(String runId, RunWatchdog.Watch watch, String reason, Duration duration) {
+        log.error("[{}] Test run aborted in {} phase: {}", runId, watch.getPhase().key(), reason);
+        metrics.mavenExit("aborted");
+        return TestRunResult.builder()
+                .runId(runId)
+                .status(RunStatus.FAILED)
+                .duration(duration)
+                .errorMessage(reason)
+                .partial(true)
+                .build();
+    }
 
-        // Environment, browser, headless
-        command.add("-Denv=" + request.getEnv());
-        command.add("-Dbrowser=" + request.getBrowser());
-        command.add("-Dheadless=" + request.isHeadless());
+    private RunLogWriter openRunLog(Path logFile, boolean append) throws IOException {
+        TestRunnerProperties.Logs logs = properties.getLogs();
+        return new RunLogWriter(logFile, logs.getMaxFileSizeMb() * 1024L * 1024L, logs.getMaxArchives(), append);
+    }
+
+    /**
+     * Chạy mỗi shard như 1 run con song song rồi gộp kết quả về workspace cha.
+     * Run cha COMPLETED chỉ khi mọi shard COMPLETED; duration là wall-clock của cả nhóm.
+     */
+    private TestRunResult runSharded(TestRunRequest request, RunWorkspace workspace, List<Shard> shards,
+                                     RunProgress progress, RunProcessListener processListener) {
+        Instant start = Instant.now();
+        String runId = request.getRunId();
+        log.info("[{}] Running {} shards in parallel", runId, shards.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(shards.size());
+        try {
+            List<RunWorkspace> childWorkspaces = new ArrayList<>();
+            List<Future<TestRunResult>> futures = new ArrayList<>();
+            for (Shard shard : shards) {
+                RunWorkspace child = workspace.shard(shard.index());
+                Files.createDirectories(child.surefireReportsDir());
+                Files.createDirectories(child.allureResultsDir());
+                childWorkspaces.add(child);
+
+                TestRunRequest childRequest = request.toBuilder()
+                        .runId(runId + "-s" + shard.index())
+                        .shards(1)
+                        .suiteXml(shard.suiteXml().toString())
+                        .build();
+                futures.add(executor.submit(() -> runSingle(childRequest, child, progress, processListener)));
+            }
 
-        // Không cần build lại, chỉ chạy test
-        command.add("-Dsurefire.useFile=false");
+            List<String> failedShards = new ArrayList<>();
+            boolean partial = false;
+            for (int i = 0; i < shards.size(); i++) {
+                TestRunResult shardResult = futures.get(i).get();
+                if (shardResult.getStatus() != RunStatus.COMPLETED) {
+                    failedShards.add("shard " + shards.get(i).index() + ": " + shardResult.getErrorMessage());
+                }
+                partial |= shardResult.isPartial();
+                mergeShard(shards.get(i).index(), childWorkspaces.get(i), workspace);
+            }
+
+            Duration duration = Duration.between(start, Instant.now());
+            log.info("[{}] {} shards finished, failed={}, duration={}", runId, shards.size(), failedShards.size(), duration);
+            return TestRunResult.builder()
+                    .runId(runId)
+                    .status(failedShards.isEmpty() ? RunStatus.COMPLETED : RunStatus.FAILED)
+                    .duration(duration)
+                    .errorMessage(failedShards.isEmpty() ? null : String.join("; ", failedShards))
+                    .partial(partial)
+                    .build();
+
+        } catch (Exception e) {
+            log.error("[{}] Sharded run failed: {}", runId, e.getMessage(), e);
+            return TestRunResult.builder()
+                    .runId(runId)
+                    .status(RunStatus.FAILED)
+                    .duration(Duration.between(start, Instant.now()))
+                    .errorMessage(e.getMessage())
+                    .partial(true)
+                    .build();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Gộp output của 1 shard vào workspace cha.
+     * TEST-*.xml đổi tên theo {@link RunWorkspace#shardReportName}. Giữ nguyên mtime → report watcher
+     * nhận ra đây là file đã ingest từ thư mục shard, không parse lại.
+     * Allure result file đã có UUID trong tên → copy thẳng.
+     */
+    private void mergeShard(int index, RunWorkspace shard, RunWorkspace parent) throws IOException {
+        try (DirectoryStream<Path> reports = Files.newDirectoryStream(shard.surefireReportsDir(), "TEST-*.xml")) {
+            for (Path report : reports) {
+                String name = RunWorkspace.shardReportName(index, report.getFileName().toString());
+                Files.copy(report, parent.surefireReportsDir().resolve(name),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+        try (DirectoryStream<Path> results = Files.newDirectoryStream(shard.allureResultsDir())) {
+            for (Path result : results) {
+                if (Files.isRegularFile(result)) {
+                    Files.copy(result, parent.allureResultsDir().resolve(result.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+        // Log shard: chép phần mới nhất (run.log) theo từng dòng qua RunLogWriter → vẫn bị giới hạn dung lượng.
+        // Các phần cũ đã nén (run.log.N.gz) nằm lại trong thư mục shard.
+        if (Files.exists(shard.logFile())) {
+            try (RunLogWriter parentLog = openRunLog(parent.logFile(), true);
+                 BufferedReader reader = Files.newBufferedReader(shard.logFile(), StandardCharsets.UTF_8)) {
+                parentLog.accept("===== shard " + index + " =====");
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    parentLog.accept(line);
+                }
+            }
+        }
+    }
 
-        return command;
+    private List<String> buildCommand(TestRunRequest request, RunWorkspace workspace) {
+        return MavenCommand.build(properties, request, workspace);
     }
 
     /** Cho phép cancel bằng Process.destroyForcibly() từ bên ngoài */
-    public Process startProcess(TestRunRequest request) throws Exception {
-        List<String> command = buildCommand(request);
+    public Process startProcess(TestRunRequest request, RunWorkspace workspace) throws Exception {
+        List<String> command = buildCommand(request, workspace);
         log.info("[{}] Starting process: {}", request.getRunId(), String.join(" ", command));
 
         ProcessBuilder processBuilder = new ProcessBuilder(command)
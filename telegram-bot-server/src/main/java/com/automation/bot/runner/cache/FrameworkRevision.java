@@ -0,0 +1,122 @@
+package com.automation.bot.runner.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phiên bản code của automation-framework tại 1 thời điểm: commit HEAD + hash của phần chưa commit.
+ *
+ * Tại sao cần dirty hash, không chỉ commit?
+ * → Dev hay sửa test trực tiếp trên máy bot rồi gõ /smoke để thử — HEAD không đổi nhưng code đã khác.
+ *   Hash gồm `git diff HEAD` (file tracked đã sửa) + nội dung file untracked (test mới chưa add).
+ *   Sửa thêm 1 dòng → hash khác → không dùng lại kết quả cũ.
+ * → Chỉ tính thay đổi bên trong frameworkPath ("-- ."): framework có thể là thư mục con của repo lớn hơn,
+ *   sửa file ở chỗ khác trong repo không làm mất cache.
+ *
+ * @param commit    SHA của HEAD
+ * @param dirtyHash SHA-256 của thay đổi chưa commit, {@link #CLEAN} nếu working tree sạch
+ */
+@Slf4j
+public record FrameworkRevision(String commit, String dirtyHash) {
+
+    public static final String CLEAN = "clean";
+
+    private static final long GIT_TIMEOUT_SECONDS = 10;
+
+    /** "a1b2c3d" hoặc "a1b2c3d+dirty" — dùng trong message Telegram */
+    public String shortLabel() {
+        String shortCommit = commit.length() > 7 ? commit.substring(0, 7) : commit;
+        return CLEAN.equals(dirtyHash) ? shortCommit : shortCommit + "+dirty";
+    }
+
+    /**
+     * Đọc revision của repo tại frameworkPath.
+     * @return null nếu không xác định được (không phải git repo, máy không có git, git treo) → không cache
+     */
+    public static FrameworkRevision of(Path frameworkPath) {
+        try {
+            String commit = new String(git(frameworkPath, "rev-parse", "HEAD"), StandardCharsets.UTF_8).trim();
+            if (commit.isEmpty()) {
+                return null;
+            }
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] diff = git(frameworkPath, "diff", "HEAD", "--binary", "--no-color", "--no-ext-diff", "--", ".");
+            digest.update(diff);
+            List<String> untracked = untracked(frameworkPath);
+            for (String file : untracked) {
+                digest.update(file.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                try (InputStream in = Files.newInputStream(frameworkPath.resolve(file))) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+
+            String dirtyHash = diff.length == 0 && untracked.isEmpty()
+                    ? CLEAN
+                    : HexFormat.of().formatHex(digest.digest());
+            return new FrameworkRevision(commit, dirtyHash);
+        } catch (IOException e) {
+            log.debug("Cannot read framework revision at {}: {}", frameworkPath, e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> untracked(Path repo) throws IOException, InterruptedException {
+        byte[] output = git(repo, "ls-files", "--others", "--exclude-standard", "-z", "--", ".");
+        List<String> files = new ArrayList<>();
+        for (String file : new String(output, StandardCharsets.UTF_8).split("\0")) {
+            if (!file.isEmpty()) {
+                files.add(file);
+            }
+        }
+        // git trả theo thứ tự ổn định, sort lại cho chắc chắn hash không phụ thuộc thứ tự
+        files.sort(null);
+        return files;
+    }
+
+    private static byte[] git(Path repo, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        // Output ra file tạm thay vì đọc pipe → waitFor có timeout thật, git treo (lock, NFS) không kẹt submit
+        Path output = Files.createTempFile("git-", ".out");
+        try {
+            Process process = new ProcessBuilder(command)
+                    .directory(repo.toFile())
+                    .redirectOutput(output.toFile())
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!process.waitFor(GIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("git " + args[0] + " timed out");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("git " + args[0] + " exited with " + process.exitValue());
+            }
+            return Files.readAllBytes(output);
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+}
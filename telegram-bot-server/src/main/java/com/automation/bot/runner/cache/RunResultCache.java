@@ -0,0 +1,175 @@
+package com.automation.bot.runner.cache;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.metrics.BotMetrics;
+import com.automation.bot.runner.RunStatus;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Kết quả của run đã pass, theo (commit + dirty hash của framework, suite, env, browser, headless).
+ *
+ * Tại sao cache?
+ * → "/smoke prod" hay bị gõ lại khi không có gì thay đổi: cùng code, cùng env, vừa pass vài phút trước.
+ *   Chạy lại chiếm browser + slot của queue ~5 phút chỉ để ra đúng kết quả cũ.
+ * → Hit → trả ngay kết quả của lần chạy trước. "--force" để chạy lại thật
+ *   (ví dụ nghi env vừa deploy bản mới — env thay đổi mà code framework không đổi).
+ *
+ * Tại sao không giữ link Allure?
+ * → Report được generate (--clean) vào cùng 1 thư mục output / gh-pages cho mọi run — link của run cũ
+ *   lúc cache hit đã trỏ tới report của run sau. Trả link đó là gán nhầm kết quả → bỏ link khi lưu.
+ *
+ * Tại sao chỉ cache run pass?
+ * → Run fail thường được chạy lại chính vì nghi flaky / env chập chờn — trả lại lỗi cũ là sai mục đích.
+ * → "Pass" phải đúng cả 2 phía: report không có failure VÀ mvn thoát 0. Kết quả gửi người dùng dựng lại từ
+ *   Surefire XML — forked JVM crash hay mvn fail sau khi các class pass đã ghi report vẫn ra failed == 0.
+ *
+ * Revision (3 process git) được đọc lại tối đa 1 lần mỗi revisionCacheSeconds, dùng chung cho lookup lúc submit
+ * (thread của Telegram / API handler) và lúc run bắt đầu. Đánh đổi: code sửa trong vài giây đó chưa được thấy
+ * — đủ ngắn so với thời gian sửa code rồi gõ lệnh, "--force" vẫn luôn chạy lại.
+ *
+ * Chỉ cache run chạy trên host: run ở remote agent dùng checkout của máy agent, có thể khác commit.
+ * Revision lấy lúc run bắt đầu (trước mvn), không phải lúc xong — code sửa giữa chừng không bị gán nhầm.
+ */
+@Slf4j
+@Component
+public class RunResultCache {
+
+    /** Kết quả dùng lại được, kèm thông tin để báo người dùng đây là kết quả cũ */
+    public record CachedRun(TestRunResult result, FrameworkRevision revision, Instant finishedAt) {}
+
+    private final TestRunnerProperties.Cache config;
+    private final Supplier<FrameworkRevision> revisions;
+    private final Clock clock;
+    private final BotMetrics metrics;
+    /** key → kết quả, LRU. Guarded by itself */
+    private final Map<String, CachedRun> entries;
+
+    /** Revision đọc gần nhất — guarded by revisionLock; giữ lock khi đọc → submit đồng thời chỉ chạy git 1 lần */
+    private final Object revisionLock = new Object();
+    private FrameworkRevision lastRevision;
+    private Instant lastRevisionAt;
+
+    @Autowired
+    public RunResultCache(TestRunnerProperties properties, BotMetrics metrics) {
+        this(properties, metrics, () -> properties.getFrameworkPath() != null
+                ? FrameworkRevision.of(Path.of(properties.getFrameworkPath()))
+                : null, Clock.systemUTC());
+    }
+
+    RunResultCache(TestRunnerProperties properties, BotMetrics metrics, Supplier<FrameworkRevision> revisions,
+                   Clock clock) {
+        this.config = properties.getCache();
+        this.metrics = metrics;
+        this.revisions = revisions;
+        this.clock = clock;
+        int maxEntries = Math.max(1, config.getMaxEntries());
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedRun> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Revision hiện tại của framework — gọi lúc run bắt đầu, truyền lại cho {@link #put}.
+     * @return null nếu cache tắt hoặc không đọc được git → run đó không được cache
+     */
+    public FrameworkRevision currentRevision() {
+        return config.isEnabled() ? revision() : null;
+    }
+
+    /** Kết quả còn hạn của request giống hệt trên đúng code hiện tại của framework */
+    public Optional<CachedRun> lookup(TestRunRequest request) {
+        if (!config.isEnabled()) {
+            return Optional.empty();
+        }
+        FrameworkRevision revision = revision();
+        if (revision == null) {
+            return Optional.empty();
+        }
+
+        String key = key(revision, request);
+        CachedRun cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+            if (cached != null && isExpired(cached)) {
+                entries.remove(key);
+                cached = null;
+            }
+        }
+        metrics.resultCache(cached != null);
+        if (cached != null) {
+            log.info("[{}] Result cache hit for {} ({}, {})", cached.result().getRunId(), label(request),
+                    request.getEnv(), revision.shortLabel());
+        }
+        return Optional.ofNullable(cached);
+    }
+
+    /**
+     * Lưu kết quả nếu run pass hết. revision = giá trị {@link #currentRevision()} lúc run bắt đầu.
+     * @param processResult kết quả của process (mvn exit code / warm worker / agent)
+     * @param result        kết quả đã dựng từ Surefire report — thứ được trả lại khi cache hit (bỏ link Allure)
+     */
+    public void put(TestRunRequest request, FrameworkRevision revision, TestRunResult processResult,
+                    TestRunResult result) {
+        if (!config.isEnabled() || revision == null || !isCacheable(processResult, result)) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key(revision, request), new CachedRun(
+                    result.toBuilder().allureReportUrl(null).build(), revision, clock.instant()));
+        }
+    }
+
+    /** Run pass: process thoát 0, có test chạy, không fail/error */
+    static boolean isCacheable(TestRunResult processResult, TestRunResult result) {
+        return processResult.getStatus() == RunStatus.COMPLETED
+                && !processResult.isPartial()
+                && result.getStatus() == RunStatus.COMPLETED
+                && result.getTotalTests() > 0
+                && result.getFailed() == 0
+                && result.getErrors() == 0;
+    }
+
+    private FrameworkRevision revision() {
+        synchronized (revisionLock) {
+            Instant now = clock.instant();
+            Duration maxAge = Duration.ofSeconds(config.getRevisionCacheSeconds());
+            if (lastRevisionAt == null || Duration.between(lastRevisionAt, now).compareTo(maxAge) >= 0) {
+                lastRevision = revisions.get();
+                lastRevisionAt = now;
+            }
+            return lastRevision;
+        }
+    }
+
+    private boolean isExpired(CachedRun cached) {
+        Duration age = Duration.between(cached.finishedAt(), clock.instant());
+        return age.compareTo(Duration.ofMinutes(config.getTtlMinutes())) >= 0;
+    }
+
+    /** Cùng các field với {@link TestRunRequest#isEquivalentTo} + revision của framework */
+    private static String key(FrameworkRevision revision, TestRunRequest request) {
+        return String.join("|", revision.commit(), revision.dirtyHash(),
+                request.getProfile() != null ? "profile:" + request.getProfile() : "class:" + request.getTestClass(),
+                request.getEnv(), request.getBrowser(), String.valueOf(request.isHeadless()));
+    }
+
+    private static String label(TestRunRequest request) {
+        return request.getProfile() != null ? request.getProfile() : request.getTestClass();
+    }
+}
@@ -0,0 +1,510 @@
+package com.automation.bot.runner.history;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.parser.SurefireReportParser;
+import com.automation.bot.parser.model.TestCase;
+import com.automation.bot.parser.model.TestSuite;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunResult;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Lịch sử kết quả từng testcase qua các run — backing store cho /history, pass rate và xu hướng thời gian chạy.
+ *
+ * Lưu trên đĩa: {workspaceDir}/test-history/history-YYYY-MM.jsonl, mỗi run 1 dòng JSON
+ * (runId, env, thời điểm xong, danh sách testcase: classname, name, time, outcome, failure type/message).
+ * Khi khởi động đọc lại toàn bộ segment còn trong retention vào memory.
+ *
+ * Tại sao không dùng DB nhúng?
+ * → Bot chỉ có 1 process ghi, dữ liệu chỉ append, query chỉ theo tên test + khoảng thời gian.
+ *   JSONL theo tháng + index trong memory đủ cho việc đó mà không thêm dependency / schema migration.
+ * → Retention = xóa nguyên file của tháng cũ, không cần vacuum.
+ *
+ * Index:
+ * - Theo tên: "com.x.LoginTest.testValid", "LoginTest.testValid", "testValid", "LoginTest" (lowercase) → series.
+ * - Theo thời gian: mỗi series là mảng tăng dần theo finishedAt ({@link TestSeries}) → binary search.
+ * → Query pass rate / trend của 1 test trên vài tháng chỉ duyệt vài nghìn phần tử primitive — dưới 1ms.
+ */
+@Slf4j
+@Component
+public class TestHistoryStore {
+
+    public enum Outcome { PASSED, FAILED, ERROR, SKIPPED }
+
+    public record TestKey(String className, String name) {
+        /** "LoginTest.testValid" — tên ngắn để hiển thị */
+        public String label() {
+            return simpleName(className) + "." + name;
+        }
+    }
+
+    public record Entry(Instant finishedAt, String runId, String env, Outcome outcome, double seconds, String failure) {}
+
+    /** Thống kê trong 1 khoảng thời gian — skipped không tính vào pass rate và thời gian trung bình */
+    public record Stats(int runs, int passed, int failed, int skipped, double avgSeconds) {
+        public double passRate() {
+            int executed = runs - skipped;
+            return executed == 0 ? 0 : (double) passed / executed;
+        }
+    }
+
+    /** 1 điểm của trend theo ngày (UTC) */
+    public record TrendPoint(LocalDate day, int runs, int passed, double avgSeconds) {}
+
+    /** Dòng JSON trên đĩa — tên field ngắn vì mỗi run có hàng trăm testcase */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record RunLine(String runId, String label, String env, String status, Instant finishedAt, List<CaseLine> cases) {}
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record CaseLine(@JsonProperty("c") String classname, @JsonProperty("n") String name,
+                    @JsonProperty("t") double time, @JsonProperty("o") String outcome,
+                    @JsonProperty("f") String failure) {}
+
+    private record RunRef(String runId, String env) {}
+
+    /** Thư mục con của workspace-dir — {@link com.automation.bot.runner.RunWorkspaceManager} không prune */
+    public static final String DIR_NAME = "test-history";
+    private static final String SEGMENT_PREFIX = "history-";
+    private static final String SEGMENT_SUFFIX = ".jsonl";
+
+    private final Path dir;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int maxFailureChars;
+    private final Clock clock;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<RunRef> runs = new ArrayList<>();
+    private final Map<String, TestSeries> byId = new HashMap<>();
+    private final Map<String, List<TestSeries>> byName = new HashMap<>();
+    private final Map<String, Integer> failureIds = new HashMap<>();
+    private final List<String> failures = new ArrayList<>();
+    private long lastFinishedAt;
+    private LocalDate lastPruned;
+
+    @Autowired
+    public TestHistoryStore(TestRunnerProperties properties) {
+        this(Paths.get(properties.getWorkspaceDir()).toAbsolutePath().resolve(DIR_NAME),
+                properties.getHistory().isEnabled(), properties.getHistory().getRetentionDays(),
+                properties.getHistory().getMaxFailureChars(), Clock.systemUTC());
+    }
+
+    TestHistoryStore(Path dir, boolean enabled, int retentionDays, int maxFailureChars, Clock clock) {
+        this.dir = dir;
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.maxFailureChars = maxFailureChars;
+        this.clock = clock;
+        if (enabled) {
+            load();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ghi kết quả từng testcase của 1 run (kể cả run partial — chỉ gồm các class đã có report).
+     * Gọi từ worker thread của run sau khi đã có kết quả cuối.
+     */
+    public void record(TestRunRequest request, TestRunResult result, List<TestSuite> suites) {
+        if (!enabled) {
+            return;
+        }
+        // Lần chạy bị TestNG retry là testcase skipped riêng — không phải 1 run bị skip của test đó
+        Set<TestCase> retrySkips = SurefireReportParser.retrySkips(suites, result.getRetriedTests());
+        List<CaseLine> cases = new ArrayList<>();
+        for (TestSuite suite : suites) {
+            if (suite.getTestCases() == null) continue;
+            for (TestCase tc : suite.getTestCases()) {
+                if (tc.getName() == null || retrySkips.contains(tc)) continue;
+                String classname = tc.getClassname() != null ? tc.getClassname() : suite.getName();
+                cases.add(new CaseLine(classname, tc.getName(), tc.getTime(), outcome(tc).name().substring(0, 1),
+                        failureText(tc)));
+            }
+        }
+        if (cases.isEmpty()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Giữ finishedAt tăng dần trong mọi series (đồng hồ lùi / 2 run xong cùng lúc)
+            Instant finishedAt = Instant.ofEpochMilli(Math.max(clock.millis(), lastFinishedAt));
+            RunLine line = new RunLine(request.getRunId(),
+                    request.getProfile() != null ? request.getProfile() : request.getTestClass(),
+                    request.getEnv(), result.getStatus() != null ? result.getStatus().name() : null,
+                    finishedAt, cases);
+            append(line);
+            index(line);
+            pruneIfDue();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tìm test theo tên đầy đủ, "Class.method", tên method hoặc tên class (không phân biệt hoa thường).
+     * Không khớp chính xác → tìm theo chuỗi con. Kết quả sắp theo tên.
+     */
+    public List<TestKey> find(String query) {
+        String normalized = query.trim().replace('#', '.').toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Set<TestKey> keys = new LinkedHashSet<>();
+            List<TestSeries> exact = byName.get(normalized);
+            if (exact != null) {
+                exact.forEach(series -> keys.add(series.key));
+            } else {
+                byId.forEach((id, series) -> {
+                    if (id.contains(normalized)) {
+                        keys.add(series.key);
+                    }
+                });
+            }
+            return keys.stream()
+                    .sorted(Comparator.comparing(TestKey::className).thenComparing(TestKey::name))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** N lần chạy gần nhất của test, mới nhất trước */
+    public List<Entry> recent(TestKey key, int limit) {
+        lock.readLock().lock();
+        try {
+            TestSeries series = byId.get(id(key));
+            if (series == null) {
+                return List.of();
+            }
+            List<Entry> entries = new ArrayList<>(Math.min(limit, series.size));
+            for (int i = series.size - 1; i >= 0 && entries.size() < limit; i--) {
+                RunRef run = runs.get(series.run[i]);
+                entries.add(new Entry(Instant.ofEpochMilli(series.finishedAt[i]), run.runId(), run.env(),
+                        Outcome.values()[series.outcome[i]], series.millis[i] / 1000.0,
+                        series.failure[i] >= 0 ? failures.get(series.failure[i]) : null));
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Pass rate + thời gian trung bình từ {@code since} tới nay */
+    public Stats stats(TestKey key, Instant since) {
+        lock.readLock().lock();
+        try {
+            TestSeries series = byId.get(id(key));
+            if (series == null) {
+                return new Stats(0, 0, 0, 0, 0);
+            }
+            int passed = 0, failed = 0, skipped = 0;
+            long totalMillis = 0;
+            int from = series.lowerBound(since.toEpochMilli());
+            for (int i = from; i < series.size; i++) {
+                Outcome outcome = Outcome.values()[series.outcome[i]];
+                switch (outcome) {
+                    case PASSED -> passed++;
+                    case SKIPPED -> skipped++;
+                    default -> failed++;
+                }
+                if (outcome != Outcome.SKIPPED) {
+                    totalMillis += series.millis[i];
+                }
+            }
+            int runs = series.size - from;
+            int executed = runs - skipped;
+            return new Stats(runs, passed, failed, skipped, executed == 0 ? 0 : totalMillis / 1000.0 / executed);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Thời gian chạy trung bình + số lần pass theo từng ngày (UTC) từ {@code since}, ngày không chạy bị bỏ qua */
+    public List<TrendPoint> dailyTrend(TestKey key, Instant since) {
+        lock.readLock().lock();
+        try {
+            TestSeries series = byId.get(id(key));
+            if (series == null) {
+                return List.of();
+            }
+            List<TrendPoint> points = new ArrayList<>();
+            LocalDate day = null;
+            int runs = 0, passed = 0, executed = 0;
+            long totalMillis = 0;
+            for (int i = series.lowerBound(since.toEpochMilli()); i < series.size; i++) {
+                LocalDate current = LocalDate.ofEpochDay(Math.floorDiv(series.finishedAt[i], 86_400_000L));
+                if (!current.equals(day)) {
+                    if (day != null) {
+                        points.add(new TrendPoint(day, runs, passed, executed == 0 ? 0 : totalMillis / 1000.0 / executed));
+                    }
+                    day = current;
+                    runs = passed = executed = 0;
+                    totalMillis = 0;
+                }
+                runs++;
+                Outcome outcome = Outcome.values()[series.outcome[i]];
+                if (outcome == Outcome.PASSED) passed++;
+                if (outcome != Outcome.SKIPPED) {
+                    executed++;
+                    totalMillis += series.millis[i];
+                }
+            }
+            if (day != null) {
+                points.add(new TrendPoint(day, runs, passed, executed == 0 ? 0 : totalMillis / 1000.0 / executed));
+            }
+            return points;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Số testcase khác nhau đang có lịch sử */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------- index ----------
+
+    private void index(RunLine line) {
+        long at = line.finishedAt().toEpochMilli();
+        lastFinishedAt = Math.max(lastFinishedAt, at);
+        int runIndex = runs.size();
+        runs.add(new RunRef(line.runId(), line.env()));
+        for (CaseLine c : line.cases()) {
+            if (c.classname() == null || c.name() == null) continue;
+            TestKey key = new TestKey(c.classname(), c.name());
+            TestSeries series = byId.computeIfAbsent(id(key), id -> {
+                TestSeries created = new TestSeries(key);
+                for (String name : lookupNames(key)) {
+                    byName.computeIfAbsent(name, n -> new ArrayList<>()).add(created);
+                }
+                return created;
+            });
+            series.add(at, (int) Math.min(Integer.MAX_VALUE, Math.round(c.time() * 1000)),
+                    (byte) parseOutcome(c.outcome()).ordinal(), runIndex, intern(c.failure()));
+        }
+    }
+
+    private int intern(String failure) {
+        if (failure == null) {
+            return -1;
+        }
+        return failureIds.computeIfAbsent(failure, f -> {
+            failures.add(f);
+            return failures.size() - 1;
+        });
+    }
+
+    private static String id(TestKey key) {
+        return (key.className() + "." + key.name()).toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> lookupNames(TestKey key) {
+        String simple = simpleName(key.className()).toLowerCase(Locale.ROOT);
+        String method = key.name().toLowerCase(Locale.ROOT);
+        return List.of(id(key), simple + "." + method, method, simple).stream().distinct().toList();
+    }
+
+    private static String simpleName(String className) {
+        int dot = className.lastIndexOf('.');
+        return dot >= 0 ? className.substring(dot + 1) : className;
+    }
+
+    private static Outcome outcome(TestCase tc) {
+        if (tc.isError()) return Outcome.ERROR;
+        if (tc.isFailed()) return Outcome.FAILED;
+        if (tc.isSkipped()) return Outcome.SKIPPED;
+        return Outcome.PASSED;
+    }
+
+    private static Outcome parseOutcome(String code) {
+        if (code != null) {
+            for (Outcome outcome : Outcome.values()) {
+                if (outcome.name().startsWith(code)) {
+                    return outcome;
+                }
+            }
+        }
+        return Outcome.PASSED;
+    }
+
+    /** "AssertionError: Expected 200 but got 401" — dòng đầu, cắt ngắn (stacktrace không lưu) */
+    private String failureText(TestCase tc) {
+        TestCase.Failure failure = tc.getError() != null ? tc.getError() : tc.getFailure();
+        if (failure == null) {
+            return null;
+        }
+        String type = failure.getType() != null ? simpleName(failure.getType()) : null;
+        String message = failure.getMessage() != null ? failure.getMessage().strip().lines().findFirst().orElse("") : "";
+        String text = type == null ? message : message.isEmpty() ? type : type + ": " + message;
+        return text.length() > maxFailureChars ? text.substring(0, maxFailureChars) + "..." : text;
+    }
+
+    // ---------- đĩa ----------
+
+    private void append(RunLine line) {
+        Path segment = dir.resolve(segmentName(YearMonth.from(line.finishedAt().atOffset(ZoneOffset.UTC))));
+        try {
+            Files.createDirectories(dir);
+            byte[] bytes = (objectMapper.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8);
+            Files.write(segment, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // Mất lịch sử của 1 run không được làm hỏng việc báo kết quả — vẫn giữ trong memory
+            log.warn("Failed to append test history {}: {}", segment, e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        Instant cutoff = cutoff();
+        deleteExpiredSegments(cutoff);
+
+        // Segment theo tháng, tên sắp theo thời gian → đọc lần lượt là đúng thứ tự finishedAt
+        Map<YearMonth, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                YearMonth month = segmentMonth(file);
+                if (month != null) {
+                    segments.put(month, file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to list test history {}: {}", dir, e.getMessage());
+            return;
+        }
+
+        long started = System.nanoTime();
+        int loaded = 0;
+        for (Path file : segments.values()) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String text;
+                while ((text = reader.readLine()) != null) {
+                    if (text.isBlank()) continue;
+                    try {
+                        RunLine line = objectMapper.readValue(text, RunLine.class);
+                        if (line.finishedAt() == null || line.cases() == null || line.finishedAt().isBefore(cutoff)) {
+                            continue;
+                        }
+                        // Dòng lệch thứ tự (sửa tay, đồng hồ lùi trước khi ghi) → kéo lên để series vẫn tăng dần
+                        if (line.finishedAt().toEpochMilli() < lastFinishedAt) {
+                            line = new RunLine(line.runId(), line.label(), line.env(), line.status(),
+                                    Instant.ofEpochMilli(lastFinishedAt), line.cases());
+                        }
+                        index(line);
+                        loaded++;
+                    } catch (IOException e) {
+                        // Dòng cuối ghi dở khi crash
+                        log.warn("Skipping corrupt test history line in {}: {}", file.getFileName(), e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Failed to read test history {}: {}", file, e.getMessage());
+            }
+        }
+        lastPruned = LocalDate.now(clock);
+        log.info("Loaded test history: {} runs, {} tests in {}ms", loaded, byId.size(),
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    /** Mỗi ngày 1 lần: bỏ entry quá retention khỏi memory + xóa segment của tháng đã hết hạn */
+    private void pruneIfDue() {
+        LocalDate today = LocalDate.now(clock);
+        if (today.equals(lastPruned)) {
+            return;
+        }
+        lastPruned = today;
+        Instant cutoff = cutoff();
+        long cutoffMillis = cutoff.toEpochMilli();
+        byId.values().removeIf(series -> {
+            series.dropBefore(cutoffMillis);
+            return series.size == 0;
+        });
+        byName.values().forEach(list -> list.removeIf(series -> series.size == 0));
+        byName.values().removeIf(List::isEmpty);
+        deleteExpiredSegments(cutoff);
+    }
+
+    private void deleteExpiredSegments(Instant cutoff) {
+        YearMonth oldestKept = YearMonth.from(cutoff.atOffset(ZoneOffset.UTC));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                YearMonth month = segmentMonth(file);
+                if (month != null && month.isBefore(oldestKept)) {
+                    Files.deleteIfExists(file);
+                    log.info("Deleted expired test history segment {}", file.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean test history {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private Instant cutoff() {
+        return clock.instant().minus(Duration.ofDays(retentionDays));
+    }
+
+    private static String segmentName(YearMonth month) {
+        return SEGMENT_PREFIX + month + SEGMENT_SUFFIX;
+    }
+
+    private static YearMonth segmentMonth(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return YearMonth.parse(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.automation.bot.runner.history;
+
+import java.util.Arrays;
+
+/**
+ * Lịch sử của 1 testcase dạng cột: thời điểm, thời gian chạy, outcome, run, failure — mỗi thứ 1 mảng primitive.
+ *
+ * Tại sao mảng song song thay vì List&lt;Entry&gt;?
+ * → Vài trăm nghìn lần chạy của cả suite: mảng primitive nhỏ hơn nhiều lần so với object/entry,
+ *   và query pass rate / duration chỉ là vòng lặp trên long[]/int[] liên tiếp.
+ * → Entry luôn thêm theo thời gian tăng dần → {@link #lowerBound} là binary search, không cần index riêng theo time.
+ *
+ * Không thread-safe — {@link TestHistoryStore} bảo vệ bằng read/write lock.
+ */
+final class TestSeries {
+
+    final TestHistoryStore.TestKey key;
+
+    long[] finishedAt = new long[8];   // epoch millis, tăng dần
+    int[] millis = new int[8];
+    byte[] outcome = new byte[8];      // TestHistoryStore.Outcome.ordinal()
+    int[] run = new int[8];            // index vào danh sách run của store
+    int[] failure = new int[8];        // index chuỗi failure đã intern, -1 = không có
+    int size;
+
+    TestSeries(TestHistoryStore.TestKey key) {
+        this.key = key;
+    }
+
+    void add(long at, int durationMillis, byte result, int runIndex, int failureIndex) {
+        if (size == finishedAt.length) {
+            int capacity = size * 2;
+            finishedAt = Arrays.copyOf(finishedAt, capacity);
+            millis = Arrays.copyOf(millis, capacity);
+            outcome = Arrays.copyOf(outcome, capacity);
+            run = Arrays.copyOf(run, capacity);
+            failure = Arrays.copyOf(failure, capacity);
+        }
+        finishedAt[size] = at;
+        millis[size] = durationMillis;
+        outcome[size] = result;
+        run[size] = runIndex;
+        failure[size] = failureIndex;
+        size++;
+    }
+
+    /** Vị trí entry đầu tiên có finishedAt >= epochMillis (size nếu không có) */
+    int lowerBound(long epochMillis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (finishedAt[mid] < epochMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Bỏ các entry cũ hơn epochMillis (retention) */
+    void dropBefore(long epochMillis) {
+        int from = lowerBound(epochMillis);
+        if (from == 0) {
+            return;
+        }
+        int remaining = size - from;
+        System.arraycopy(finishedAt, from, finishedAt, 0, remaining);
+        System.arraycopy(millis, from, millis, 0, remaining);
+        System.arraycopy(outcome, from, outcome, 0, remaining);
+        System.arraycopy(run, from, run, 0, remaining);
+        System.arraycopy(failure, from, failure, 0, remaining);
+        size = remaining;
+    }
+}
@@ -0,0 +1,313 @@
+package com.automation.bot.runner.journal;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.TestRunRequest;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journal append-only (JSON lines) ghi lại vòng đời của từng run trong hàng chờ:
+ * SUBMITTED → (ATTACHED/DETACHED) → STARTED → PROCESS → FINISHED | CANCELLED.
+ *
+ * Tại sao cần?
+ * → Hàng chờ chỉ nằm trong memory: bot restart/crash → mọi run đang chờ biến mất không báo ai,
+ *   mvn process đang chạy thành mồ côi.
+ * → Khi khởi động, {@link RunRecovery} đọc lại journal để dựng lại hàng chờ theo đúng thứ tự.
+ *
+ * Tại sao append-only + compact thay vì ghi đè 1 file state?
+ * → Mỗi event chỉ là 1 dòng append + fsync — rẻ, và crash giữa chừng chỉ mất tối đa dòng cuối.
+ * → Sau compact-every event: ghi lại file chỉ gồm run chưa xong (tmp + atomic move)
+ *   → file không phình theo lịch sử, recovery luôn chỉ đọc vài trăm dòng.
+ *
+ * Tại sao ghi trên 1 thread riêng ("queue-journal") thay vì ngay trong hàm gọi?
+ * → TestRunQueue ghi event trong lock của hàng chờ (để thứ tự event đúng thứ tự đổi trạng thái).
+ *   fsync / compact chậm khi đĩa chậm → /status, submit, dispatch của mọi user phải chờ theo.
+ * → Hàm gọi chỉ đưa event vào hàng của thread ghi (theo đúng thứ tự gọi) rồi return.
+ *   pendingRuns()/compact() cũng chạy trên thread đó → luôn thấy mọi event đã gửi trước.
+ * → Đổi lại: crash ngay sau submit có thể mất vài event chưa kịp ghi (cửa sổ vài ms).
+ */
+@Slf4j
+@Component
+public class RunJournal {
+
+    public enum EventType { SUBMITTED, ATTACHED, DETACHED, STARTED, PROCESS, FINISHED, CANCELLED }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Event(EventType type, String runId, Instant at, TestRunRequest request,
+                        Long userId, Long pid, Instant processStart) {}
+
+    /** Process con của run (pid + thời điểm start để không nhầm với process khác dùng lại pid) */
+    public record ProcessRef(long pid, Instant startedAt) {}
+
+    /** Run chưa xong đọc lại từ journal, theo thứ tự submit */
+    public record PendingRun(TestRunRequest request, List<TestRunRequest> subscribers,
+                             boolean started, List<ProcessRef> processes) {}
+
+    private final boolean enabled;
+    private final int compactEvery;
+    private final Path file;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    /** Mọi thao tác với file chạy trên thread này — channel/eventsSinceCompaction chỉ thread này đụng tới */
+    private final ExecutorService writer;
+    private FileChannel channel;
+    private int eventsSinceCompaction;
+
+    @Autowired
+    public RunJournal(TestRunnerProperties properties) {
+        this(Paths.get(properties.getWorkspaceDir()).toAbsolutePath().resolve("queue-journal.jsonl"),
+                properties.getJournal().isEnabled(), properties.getJournal().getCompactEvery());
+    }
+
+    RunJournal(Path file, boolean enabled, int compactEvery) {
+        this.file = file;
+        this.enabled = enabled;
+        this.compactEvery = compactEvery;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "queue-journal");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void submitted(TestRunRequest request) {
+        append(new Event(EventType.SUBMITTED, request.getRunId(), Instant.now(), request, null, null, null));
+    }
+
+    public void attached(String runId, TestRunRequest subscriber) {
+        append(new Event(EventType.ATTACHED, runId, Instant.now(), subscriber, null, null, null));
+    }
+
+    public void detached(String runId, long userId) {
+        append(new Event(EventType.DETACHED, runId, Instant.now(), null, userId, null, null));
+    }
+
+    public void started(String runId) {
+        append(new Event(EventType.STARTED, runId, Instant.now(), null, null, null, null));
+    }
+
+    public void process(String runId, long pid, Instant processStart) {
+        append(new Event(EventType.PROCESS, runId, Instant.now(), null, null, pid, processStart));
+    }
+
+    public void finished(String runId) {
+        append(new Event(EventType.FINISHED, runId, Instant.now(), null, null, null, null));
+    }
+
+    public void cancelled(String runId) {
+        append(new Event(EventType.CANCELLED, runId, Instant.now(), null, null, null, null));
+    }
+
+    /** Đọc journal → các run chưa FINISHED/CANCELLED, theo thứ tự submit (sau mọi event đã gửi trước đó) */
+    public List<PendingRun> pendingRuns() {
+        if (!enabled) {
+            return List.of();
+        }
+        return onWriter(() -> List.copyOf(replay().values()));
+    }
+
+    /** Ghi lại journal chỉ gồm run chưa xong — chờ tới khi ghi xong */
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        onWriter(() -> {
+            compactNow();
+            return null;
+        });
+    }
+
+    private void compactNow() {
+        try {
+            Map<String, PendingRun> live = replay();
+            closeChannel();
+
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            List<String> lines = new ArrayList<>();
+            for (PendingRun run : live.values()) {
+                String runId = run.request().getRunId();
+                lines.add(toJson(new Event(EventType.SUBMITTED, runId, Instant.now(), run.request(), null, null, null)));
+                // Người submit gốc đã /cancel nhưng run còn người khác chờ
+                if (!run.subscribers().contains(run.request())) {
+                    lines.add(toJson(new Event(EventType.DETACHED, runId, Instant.now(), null,
+                            run.request().getUserId(), null, null)));
+                }
+                for (TestRunRequest subscriber : run.subscribers()) {
+                    if (subscriber != run.request()) {
+                        lines.add(toJson(new Event(EventType.ATTACHED, runId, Instant.now(), subscriber, null, null, null)));
+                    }
+                }
+                if (run.started()) {
+                    lines.add(toJson(new Event(EventType.STARTED, runId, Instant.now(), null, null, null, null)));
+                }
+                for (ProcessRef process : run.processes()) {
+                    lines.add(toJson(new Event(EventType.PROCESS, runId, Instant.now(), null, null,
+                            process.pid(), process.startedAt())));
+                }
+            }
+            Files.write(tmp, lines, StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            eventsSinceCompaction = 0;
+            log.info("Queue journal compacted: {} unfinished runs", live.size());
+        } catch (IOException e) {
+            log.warn("Failed to compact queue journal {}: {}", file, e.getMessage());
+        }
+    }
+
+    /** Ghi nốt event còn trong hàng rồi đóng file */
+    @PreDestroy
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Queue journal writer did not finish within 5s, remaining events are lost");
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeChannel();
+    }
+
+    /** Không block: chỉ xếp event vào hàng của thread ghi */
+    private void append(Event event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            writer.execute(() -> write(event));
+        } catch (RejectedExecutionException e) {
+            log.warn("[{}] Queue journal is closed, dropping {} event", event.runId(), event.type());
+        }
+    }
+
+    private void write(Event event) {
+        try {
+            if (channel == null) {
+                Files.createDirectories(file.getParent());
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            channel.write(ByteBuffer.wrap((toJson(event) + "\n").getBytes(StandardCharsets.UTF_8)));
+            // fsync từng event: vài event mỗi run → chi phí không đáng kể, đổi lại không mất run khi mất điện
+            channel.force(false);
+        } catch (IOException e) {
+            // Journal hỏng không được làm hỏng run — chỉ mất khả năng recovery
+            log.warn("[{}] Failed to write queue journal: {}", event.runId(), e.getMessage());
+            return;
+        }
+
+        if (++eventsSinceCompaction >= compactEvery) {
+            compactNow();
+        }
+    }
+
+    /** Chạy task trên thread ghi, sau mọi event đã xếp hàng trước đó, và chờ kết quả */
+    private <T> T onWriter(Callable<T> task) {
+        try {
+            return writer.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for queue journal", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Queue journal task failed", e.getCause());
+        }
+    }
+
+    private Map<String, PendingRun> replay() {
+        Map<String, PendingRun> runs = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return runs;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                Event event;
+                try {
+                    event = objectMapper.readValue(line, Event.class);
+                } catch (IOException e) {
+                    // Dòng ghi dở lúc crash — bỏ qua
+                    log.warn("Skipping corrupt queue journal line: {}", e.getMessage());
+                    continue;
+                }
+                apply(runs, event);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read queue journal {}: {}", file, e.getMessage());
+        }
+        return runs;
+    }
+
+    private static void apply(Map<String, PendingRun> runs, Event event) {
+        String runId = event.runId();
+        PendingRun run = runs.get(runId);
+
+        switch (event.type()) {
+            // Submit lại cùng runId (recovery) → bắt đầu lại trạng thái, giữ vị trí cũ trong thứ tự
+            case SUBMITTED -> runs.put(runId, new PendingRun(event.request(),
+                    new ArrayList<>(List.of(event.request())), false, new ArrayList<>()));
+            case ATTACHED -> {
+                if (run != null) run.subscribers().add(event.request());
+            }
+            case DETACHED -> {
+                if (run != null) run.subscribers().removeIf(s -> s.getUserId() == event.userId());
+            }
+            case STARTED -> {
+                if (run != null) runs.put(runId, new PendingRun(run.request(), run.subscribers(), true, run.processes()));
+            }
+            case PROCESS -> {
+                if (run != null) run.processes().add(new ProcessRef(event.pid(), event.processStart()));
+            }
+            case FINISHED, CANCELLED -> runs.remove(runId);
+        }
+    }
+
+    private String toJson(Event event) throws IOException {
+        return objectMapper.writeValueAsString(event);
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Failed to close queue journal: {}", e.getMessage());
+            }
+            channel = null;
+        }
+    }
+}
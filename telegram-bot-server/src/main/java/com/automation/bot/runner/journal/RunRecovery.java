@@ -0,0 +1,113 @@
+package com.automation.bot.runner.journal;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.notification.TelegramNotifier;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunService;
+import com.automation.bot.runner.journal.RunJournal.PendingRun;
+import com.automation.bot.runner.journal.RunJournal.ProcessRef;
+import com.automation.bot.runner.process.ProcessTree;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Khởi động lại hàng chờ từ {@link RunJournal} khi bot start.
+ *
+ * Với mỗi run chưa xong trong journal:
+ * - Chưa chạy → xếp hàng lại, giữ thứ tự submit.
+ * - Đang chạy, mvn process vẫn sống → re-attach: chờ process xong rồi báo kết quả từ workspace cũ.
+ *   (Run shard không re-attach được vì bước gộp kết quả shard nằm trong JVM cũ → kill và chạy lại.)
+ * - Đang chạy, process đã chết → chạy lại từ đầu.
+ *
+ * Tại sao kiểm tra cả thời điểm start của process, không chỉ pid?
+ * → OS dùng lại pid. Chỉ so pid có thể kill nhầm process khác của máy chạy bot.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RunRecovery {
+
+    /** startInstant của OS có thể bị làm tròn — lệch trong khoảng này vẫn coi là cùng process */
+    private static final Duration START_TOLERANCE = Duration.ofSeconds(2);
+
+    private final TestRunnerProperties properties;
+    private final RunJournal journal;
+    private final TestRunService testRunService;
+    private final TelegramNotifier notifier;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        List<PendingRun> runs = journal.pendingRuns();
+        if (runs.isEmpty()) {
+            journal.compact();
+            return;
+        }
+        log.info("Recovering {} unfinished run(s) from queue journal", runs.size());
+
+        // Re-attach trước: process đang chạy sẵn → được admit trước các run còn phải chờ
+        List<PendingRun> requeue = new ArrayList<>();
+        for (PendingRun run : runs) {
+            if (run.subscribers().isEmpty()) {
+                continue;
+            }
+            List<ProcessHandle> live = liveProcesses(run.processes());
+            boolean canReattach = properties.getJournal().isReattach() && run.request().getShards() <= 1;
+
+            if (run.started() && !live.isEmpty() && canReattach) {
+                List<ProcessRef> liveRefs = run.processes().stream()
+                        .filter(ref -> live.stream().anyMatch(handle -> handle.pid() == ref.pid()))
+                        .toList();
+                testRunService.adopt(run.request(), run.subscribers(), liveRefs, live);
+                notifyRecovered(run, true);
+            } else {
+                if (!live.isEmpty()) {
+                    log.info("[{}] Killing {} orphaned process(es) from before restart",
+                            run.request().getRunId(), live.size());
+                    live.forEach(ProcessTree::destroy);
+                }
+                requeue.add(run);
+            }
+        }
+
+        for (PendingRun run : requeue) {
+            testRunService.resubmit(run.request(), run.subscribers());
+            notifyRecovered(run, false);
+        }
+
+        journal.compact();
+    }
+
+    /** Chỉ nhận process còn sống và có thời điểm start khớp với lúc ghi journal */
+    private List<ProcessHandle> liveProcesses(List<ProcessRef> processes) {
+        List<ProcessHandle> live = new ArrayList<>();
+        for (ProcessRef ref : processes) {
+            Optional<ProcessHandle> handle = ProcessHandle.of(ref.pid()).filter(ProcessHandle::isAlive);
+            if (handle.isEmpty() || ref.startedAt() == null) {
+                continue;
+            }
+            Optional<Instant> started = handle.get().info().startInstant();
+            if (started.isPresent()
+                    && Duration.between(started.get(), ref.startedAt()).abs().compareTo(START_TOLERANCE) <= 0) {
+                live.add(handle.get());
+            }
+        }
+        return live;
+    }
+
+    private void notifyRecovered(PendingRun run, boolean reattached) {
+        TestRunRequest request = run.request();
+        String label = request.getProfile() != null ? request.getProfile() : request.getTestClass();
+        for (TestRunRequest subscriber : TestRunService.distinctChats(run.subscribers())) {
+            notifier.notifyRecovered(subscriber.getChatId(), request.getRunId(), label, request.getEnv(), reattached);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.automation.bot.runner.log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Đọc n dòng cuối của file log bằng cách seek từ cuối file ngược lên theo từng block.
+ *
+ * Tại sao không Files.readAllLines rồi lấy n dòng cuối?
+ * → run.log có thể vài chục MB — đọc cả file chỉ để lấy 20 dòng là phí I/O + memory.
+ *   Seek ngược chỉ đọc vài KB cuối, chi phí không phụ thuộc kích thước file.
+ */
+public final class LogTail {
+
+    private static final int BLOCK_SIZE = 8192;
+    /** Chặn trên số byte đọc — log có dòng siêu dài không kéo cả file vào memory */
+    private static final int MAX_BYTES = 256 * 1024;
+
+    private LogTail() {
+    }
+
+    public static List<String> tail(Path file, int n) throws IOException {
+        if (n <= 0 || !Files.exists(file)) {
+            return List.of();
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            long end = raf.length();
+            long position = end;
+            int newlines = 0;
+            byte[] block = new byte[BLOCK_SIZE];
+
+            // Lùi từng block đến khi thấy đủ n+1 dấu xuống dòng (hoặc hết file / chạm MAX_BYTES)
+            while (position > 0 && newlines <= n && end - position < MAX_BYTES) {
+                int size = (int) Math.min(BLOCK_SIZE, position);
+                position -= size;
+                raf.seek(position);
+                raf.readFully(block, 0, size);
+                for (int i = 0; i < size; i++) {
+                    if (block[i] == '\n') newlines++;
+                }
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) (end - position));
+            raf.seek(position);
+            int read;
+            while ((read = raf.read(block)) > 0) {
+                bytes.write(block, 0, read);
+            }
+
+            List<String> lines = new ArrayList<>(Arrays.asList(bytes.toString(StandardCharsets.UTF_8).split("\r?\n")));
+            // Dòng đầu có thể bị cắt giữa chừng khi chưa đọc tới đầu file
+            if (position > 0 && !lines.isEmpty()) {
+                lines.remove(0);
+            }
+            return lines.subList(Math.max(0, lines.size() - n), lines.size());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.automation.bot.runner.log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Ring buffer giữ N dòng output cuối của run đang chạy — /logs đọc từ đây, không cần đụng file.
+ * Dòng quá dài (stack trace 1 dòng, HTML dump) bị cắt để buffer luôn nhỏ.
+ */
+public class RecentLines {
+
+    private static final int MAX_LINE_LENGTH = 500;
+
+    private final int capacity;
+    private final Deque<String> lines;
+
+    public RecentLines(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.lines = new ArrayDeque<>(this.capacity);
+    }
+
+    public synchronized void add(String line) {
+        if (lines.size() == capacity) {
+            lines.removeFirst();
+        }
+        lines.addLast(line.length() > MAX_LINE_LENGTH ? line.substring(0, MAX_LINE_LENGTH) + "..." : line);
+    }
+
+    /** Tối đa n dòng cuối, cũ → mới */
+    public synchronized List<String> last(int n) {
+        List<String> all = new ArrayList<>(lines);
+        return all.subList(Math.max(0, all.size() - n), all.size());
+    }
+
+    public synchronized boolean isEmpty() {
+        return lines.isEmpty();
+    }
+}
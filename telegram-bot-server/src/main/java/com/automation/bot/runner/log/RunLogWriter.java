@@ -0,0 +1,94 @@
+package com.automation.bot.runner.log;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Ghi output của run vào run.log, giới hạn dung lượng bằng cách xoay vòng + nén.
+ *
+ * Khi run.log vượt max-file-size: nén thành run.log.1.gz (file cũ dịch lên .2.gz, .3.gz...),
+ * giữ tối đa max-archives file nén, file cũ hơn bị xóa.
+ * → Regression 30 phút với Selenium log verbose không làm đầy ổ đĩa,
+ *   run.log luôn là phần output mới nhất (đúng phần /logs cần đọc).
+ *
+ * Không thread-safe — mỗi output stream dùng 1 writer riêng.
+ */
+public class RunLogWriter implements Consumer<String>, Closeable {
+
+    private final Path logFile;
+    private final long maxFileBytes;
+    private final int maxArchives;
+
+    private BufferedWriter writer;
+    private long writtenBytes;
+
+    /**
+     * @param append true → ghi tiếp vào run.log có sẵn (gộp log shard), false → ghi đè
+     */
+    public RunLogWriter(Path logFile, long maxFileBytes, int maxArchives, boolean append) throws IOException {
+        this.logFile = logFile;
+        this.maxFileBytes = maxFileBytes;
+        this.maxArchives = maxArchives;
+        this.writtenBytes = append && Files.exists(logFile) ? Files.size(logFile) : 0;
+        this.writer = open(append);
+    }
+
+    @Override
+    public void accept(String line) {
+        try {
+            writer.write(line);
+            writer.newLine();
+            // Đếm xấp xỉ theo số char — đủ chính xác để chặn dung lượng, không cần encode lại
+            writtenBytes += line.length() + 1;
+            if (maxFileBytes > 0 && writtenBytes >= maxFileBytes) {
+                rotate();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void rotate() throws IOException {
+        writer.close();
+
+        if (maxArchives > 0) {
+            Files.deleteIfExists(archive(maxArchives));
+            for (int i = maxArchives - 1; i >= 1; i--) {
+                if (Files.exists(archive(i))) {
+                    Files.move(archive(i), archive(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive(1)))) {
+                Files.copy(logFile, out);
+            }
+        }
+
+        writer = open(false);
+        writtenBytes = 0;
+    }
+
+    private Path archive(int index) {
+        return logFile.resolveSibling(logFile.getFileName() + "." + index + ".gz");
+    }
+
+    private BufferedWriter open(boolean append) throws IOException {
+        return append
+                ? Files.newBufferedWriter(logFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                : Files.newBufferedWriter(logFile, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+package com.automation.bot.runner.pool;
+
+import com.automation.bot.runner.process.ProcessTree;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Một JVM worker đã load sẵn classpath test của automation-framework (WarmTestWorker).
+ *
+ * Giao tiếp qua stdin/stdout theo từng dòng:
+ * → Bot gửi: RUN|runId|suiteXml|testClass|reportsDir|allureDir|env|browser|headless
+ * → Worker trả: output của test (ghi vào run log) và dòng "@@WORKER DONE runId status" khi xong.
+ *
+ * Không thread-safe: mỗi lúc chỉ 1 run dùng worker (pool đảm bảo qua idle queue).
+ */
+@Slf4j
+class WarmWorker {
+
+    static final String CONTROL_PREFIX = "@@WORKER ";
+    private static final String NONE = "-";
+
+    @Getter
+    private final int id;
+    @Getter
+    private final Process process;
+    private final BufferedReader stdout;
+    private final BufferedWriter stdin;
+
+    @Getter
+    private int completedRuns;
+
+    WarmWorker(int id, Process process) {
+        this.id = id;
+        this.process = process;
+        this.stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /** Đọc output cho tới khi worker báo READY. false nếu JVM chết trước đó. */
+    boolean awaitReady() throws IOException {
+        String line;
+        while ((line = stdout.readLine()) != null) {
+            if (line.equals(CONTROL_PREFIX + "READY")) {
+                return true;
+            }
+            log.debug("[worker-{}] {}", id, line);
+        }
+        return false;
+    }
+
+    /**
+     * Gửi lệnh RUN và stream output cho tới dòng DONE.
+     *
+     * @param outputSink nhận từng dòng output của test
+     * @return TestNG exit status (0 = pass), hoặc null nếu worker chết giữa chừng (crash/timeout kill)
+     */
+    Integer execute(String runId, String suiteXml, String testClass, String reportsDir, String allureDir,
+                    String env, String browser, boolean headless,
+                    Consumer<String> outputSink) throws IOException {
+        String command = String.join("|", "RUN", runId,
+                orNone(suiteXml), orNone(testClass), reportsDir, allureDir, env, browser, String.valueOf(headless));
+        stdin.write(command);
+        stdin.newLine();
+        stdin.flush();
+
+        String donePrefix = CONTROL_PREFIX + "DONE " + runId + " ";
+        String line;
+        while ((line = stdout.readLine()) != null) {
+            if (line.startsWith(donePrefix)) {
+                completedRuns++;
+                return Integer.parseInt(line.substring(donePrefix.length()).trim());
+            }
+            outputSink.accept(line);
+        }
+        return null;
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /** Kill worker JVM cùng chromedriver/browser nó mở (test đang dở khi timeout/recycle) */
+    ProcessTree.Reclaimed destroy() {
+        try {
+            stdin.write("EXIT");
+            stdin.newLine();
+            stdin.flush();
+        } catch (IOException ignored) {
+            // Process đã chết hoặc pipe đóng — kill bên dưới
+        }
+        return ProcessTree.destroy(process);
+    }
+
+    private static String orNone(String value) {
+        return value == null || value.isEmpty() ? NONE : value;
+    }
+}
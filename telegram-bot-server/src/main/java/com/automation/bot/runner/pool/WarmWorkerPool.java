@@ -0,0 +1,311 @@
+package com.automation.bot.runner.pool;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.RunProcessListener;
+import com.automation.bot.runner.RunStatus;
+import com.automation.bot.runner.RunWorkspace;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunResult;
+import com.automation.bot.runner.process.ProcessTree;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Pool các JVM worker "nóng" chạy TestNG suite trực tiếp, thay cho mvn test mỗi lần.
+ *
+ * Tại sao cần?
+ * → mvn test mỗi run tốn Maven bootstrap + resolve plugin + check compile + fork Surefire
+ *   (20-40s) trước khi test đầu tiên chạy — smoke run chỉ mất 5s test thật.
+ * → Worker giữ sẵn classpath đã load, nhận lệnh RUN qua stdin → test bắt đầu gần như ngay.
+ *
+ * Tại sao vẫn dùng process riêng (không chạy TestNG trong bot JVM)?
+ * → Giữ isolation như ProcessBuilder: test crash/OOM chỉ chết worker, bot sống.
+ * → Worker bị recycle sau {@code max-runs-per-worker} runs hoặc khi crash → static state
+ *   (driver, config cache) không tích tụ mãi.
+ *
+ * Classpath resolve 1 lần khi khởi động (mvn test-compile dependency:build-classpath).
+ * Code framework thay đổi sau đó chỉ có hiệu lực khi worker được recycle.
+ */
+@Slf4j
+@Component
+public class WarmWorkerPool {
+
+    private static final String WORKER_MAIN = "com.automation.worker.WarmTestWorker";
+
+    private final TestRunnerProperties properties;
+    private final TestRunnerProperties.WarmPool config;
+
+    private final BlockingQueue<WarmWorker> idleWorkers = new LinkedBlockingQueue<>();
+    private final Set<WarmWorker> allWorkers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger workerIds = new AtomicInteger();
+    private final AtomicBoolean shuttingDown = new AtomicBoolean();
+
+    /** Spawn worker trên thread riêng — không block test run đang chờ */
+    private final ExecutorService spawner = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "warm-pool-spawner");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "warm-pool-timeout");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Command khởi động worker, null khi chưa resolve xong classpath */
+    private volatile List<String> launchCommand;
+
+    public WarmWorkerPool(TestRunnerProperties properties) {
+        this.properties = properties;
+        this.config = properties.getWarmPool();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        spawner.submit(() -> {
+            try {
+                spawnAll(buildLaunchCommand(resolveClasspath()));
+            } catch (Exception e) {
+                log.error("Warm pool bootstrap failed, falling back to mvn test: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /** Khởi động đủ size worker bằng command đã resolve — blocking tới khi các worker READY */
+    void spawnAll(List<String> command) {
+        launchCommand = command;
+        for (int i = 0; i < config.getSize(); i++) {
+            spawnWorker();
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /** Đã resolve classpath và có ít nhất 1 worker rảnh */
+    public boolean isReady() {
+        return launchCommand != null && !idleWorkers.isEmpty();
+    }
+
+    /**
+     * Chạy request trên worker rảnh.
+     *
+     * @param outputListener  nhận từng dòng output của worker (ghi run.log, cập nhật tiến độ)
+     * @param processListener nhận JVM của worker trong lúc chạy run — /cancel kill nó (readLine không interrupt được),
+     *                        worker chết được thay mới như khi crash
+     * @return kết quả run, hoặc null nếu pool không phục vụ được (chưa sẵn sàng, không có worker rảnh,
+     *         profile không có suite XML) → caller fallback sang mvn test.
+     */
+    public TestRunResult run(TestRunRequest request, RunWorkspace workspace, Consumer<String> outputListener,
+                             RunProcessListener processListener) throws InterruptedException {
+        String suiteXml = resolveSuite(request);
+        if (suiteXml == null && isBlank(request.getTestClass())) {
+            return null;
+        }
+        if (launchCommand == null) {
+            return null;
+        }
+
+        WarmWorker worker = idleWorkers.poll(config.getAcquireTimeoutSeconds(), TimeUnit.SECONDS);
+        if (worker == null) {
+            log.info("[{}] No idle warm worker, falling back to mvn test", request.getRunId());
+            return null;
+        }
+
+        String runId = request.getRunId();
+        Instant start = Instant.now();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> timeoutKill = timeouts.schedule(() -> {
+            timedOut.set(true);
+            ProcessTree.Reclaimed reclaimed = worker.destroy();
+            log.warn("[{}] Warm worker-{} timed out — killed {} processes, ~{} MB reclaimed",
+                    runId, worker.getId(), reclaimed.processes(), reclaimed.rssMb());
+        }, properties.getTimeoutMinutes(), TimeUnit.MINUTES);
+
+        log.info("[{}] Executing on warm worker-{} (suite={}, testClass={})",
+                runId, worker.getId(), suiteXml, request.getTestClass());
+
+        Integer status;
+        processListener.started(worker.getProcess());
+        try {
+            status = worker.execute(runId, suiteXml, request.getTestClass(),
+                    workspace.surefireReportsDir().toString(), workspace.allureResultsDir().toString(),
+                    request.getEnv(), request.getBrowser(), request.isHeadless(),
+                    outputListener);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("[{}] Warm worker-{} I/O error: {}", runId, worker.getId(), e.getMessage());
+            status = null;
+        } finally {
+            timeoutKill.cancel(false);
+            processListener.released(worker.getProcess());
+            release(worker);
+        }
+
+        Duration duration = Duration.between(start, Instant.now());
+        if (status == null) {
+            String error = timedOut.get()
+                    ? "Timeout after " + properties.getTimeoutMinutes() + " minutes"
+                    : "Warm worker crashed";
+            log.error("[{}] {}", runId, error);
+            return TestRunResult.builder()
+                    .runId(runId)
+                    .status(RunStatus.FAILED)
+                    .duration(duration)
+                    .errorMessage(error)
+                    .partial(true)
+                    .build();
+        }
+
+        log.info("[{}] Warm worker-{} finished with status={}, duration={}", runId, worker.getId(), status, duration);
+        return TestRunResult.builder()
+                .runId(runId)
+                .status(status == 0 ? RunStatus.COMPLETED : RunStatus.FAILED)
+                .duration(duration)
+                .errorMessage(status != 0 ? "TestNG status: " + status : null)
+                .build();
+    }
+
+    /** Trả worker về pool, hoặc thay worker mới nếu đã chết / đủ số lần chạy */
+    private void release(WarmWorker worker) {
+        if (!shuttingDown.get() && worker.isAlive() && worker.getCompletedRuns() < config.getMaxRunsPerWorker()) {
+            idleWorkers.offer(worker);
+            return;
+        }
+        log.info("Recycling warm worker-{} (alive={}, runs={})", worker.getId(), worker.isAlive(), worker.getCompletedRuns());
+        worker.destroy();
+        allWorkers.remove(worker);
+        if (!shuttingDown.get()) {
+            spawner.submit(this::spawnWorker);
+        }
+    }
+
+    private void spawnWorker() {
+        int id = workerIds.incrementAndGet();
+        try {
+            Process process = new ProcessBuilder(launchCommand)
+                    .directory(new File(properties.getFrameworkPath()))
+                    .redirectErrorStream(true)
+                    .start();
+            WarmWorker worker = new WarmWorker(id, process);
+            allWorkers.add(worker);
+
+            if (!worker.awaitReady()) {
+                log.error("Warm worker-{} exited before READY (exit={})", id, process.waitFor());
+                allWorkers.remove(worker);
+                return;
+            }
+            idleWorkers.offer(worker);
+            log.info("Warm worker-{} ready (pid={})", id, process.pid());
+
+        } catch (Exception e) {
+            log.error("Failed to spawn warm worker-{}: {}", id, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compile test classes và lấy dependency classpath của framework (1 lần khi khởi động).
+     */
+    private String resolveClasspath() throws Exception {
+        Path frameworkPath = Paths.get(properties.getFrameworkPath());
+        Path classpathFile = Files.createTempFile("warm-pool-classpath", ".txt");
+
+        List<String> command = List.of(
+                properties.getMavenHome() + "/bin/mvn.cmd",
+                "-q", "test-compile", "dependency:build-classpath",
+                "-Dmdep.includeScope=test",
+                "-Dmdep.outputFile=" + classpathFile);
+        log.info("Resolving warm pool classpath: {}", String.join(" ", command));
+
+        ProcessBuilder pb = new ProcessBuilder(command)
+                .directory(frameworkPath.toFile())
+                .redirectErrorStream(true);
+        pb.environment().put("MAVEN_HOME", properties.getMavenHome());
+        Process process = pb.start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                log.debug("[warm-pool] {}", line);
+            }
+        }
+        if (!process.waitFor(10, TimeUnit.MINUTES) || process.exitValue() != 0) {
+            process.destroyForcibly();
+            throw new IllegalStateException("mvn dependency:build-classpath failed");
+        }
+
+        String dependencies = Files.readString(classpathFile).trim();
+        Files.deleteIfExists(classpathFile);
+
+        return String.join(File.pathSeparator,
+                frameworkPath.resolve("target/test-classes").toString(),
+                frameworkPath.resolve("target/classes").toString(),
+                dependencies);
+    }
+
+    private List<String> buildLaunchCommand(String classpath) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(config.getJavaHome(), "bin", "java").toString());
+        if (!isBlank(config.getJvmArgs())) {
+            command.addAll(Arrays.asList(config.getJvmArgs().trim().split("\\s+")));
+        }
+
+        // Allure @Step cần aspectj agent — giống argLine của surefire trong framework pom
+        Arrays.stream(classpath.split(File.pathSeparator))
+                .filter(entry -> entry.contains("aspectjweaver"))
+                .findFirst()
+                .ifPresent(agent -> command.add("-javaagent:" + agent));
+
+        command.add("-Dworker.testClassesDir="
+                + Paths.get(properties.getFrameworkPath(), "target", "test-classes"));
+        command.add("-cp");
+        command.add(classpath);
+        command.add(WORKER_MAIN);
+        return command;
+    }
+
+    /** Suite XML (absolute path): suite riêng của shard, hoặc theo profile. Null nếu chạy theo testClass */
+    private String resolveSuite(TestRunRequest request) {
+        if (!isBlank(request.getSuiteXml())) {
+            return request.getSuiteXml();
+        }
+        if (isBlank(request.getProfile())) {
+            return null;
+        }
+        String suite = properties.getSuites().get(request.getProfile());
+        if (suite == null) {
+            return null;
+        }
+        return Paths.get(properties.getFrameworkPath()).resolve(suite).toString();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown.set(true);
+        spawner.shutdownNow();
+        timeouts.shutdownNow();
+        allWorkers.forEach(WarmWorker::destroy);
+        allWorkers.clear();
+        idleWorkers.clear();
+    }
+}
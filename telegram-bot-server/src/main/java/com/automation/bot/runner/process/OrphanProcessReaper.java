@@ -0,0 +1,161 @@
+package com.automation.bot.runner.process;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.TestRunQueue;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Định kỳ dọn chromedriver/browser mồ côi — không thuộc run nào đang chạy.
+ *
+ * Tại sao vẫn cần khi cancel/timeout đã kill cả cây process?
+ * → Bot crash / bị kill -9, test tự crash giữa chừng, driver.quit() không được gọi...
+ *   → Chrome vẫn sống mà không còn ai quản lý, mỗi cái giữ vài trăm MB.
+ *
+ * Thế nào là "có chủ"?
+ * → Là con cháu của JVM bot (mvn run, warm worker) hoặc của process được nhận lại sau restart.
+ *
+ * Tránh kill nhầm browser của người dùng trên cùng máy:
+ * - Browser chỉ bị kill khi command line có cờ automation (--enable-automation, -marionette, ...).
+ *   OS không cho đọc arguments (một số bản Windows) → bỏ qua browser, chỉ dọn driver.
+ * - Chỉ process cùng OS user với bot, và đã sống quá min-age-seconds.
+ */
+@Slf4j
+@Component
+public class OrphanProcessReaper {
+
+    /** Cờ Selenium/WebDriver thêm vào command line của browser nó mở */
+    private static final List<String> AUTOMATION_MARKERS =
+            List.of("--enable-automation", "-marionette", "--remote-debugging-port");
+
+    private final TestRunnerProperties.Reaper config;
+    private final Supplier<List<ProcessHandle>> ownedRoots;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public OrphanProcessReaper(TestRunnerProperties properties, TestRunQueue testRunQueue) {
+        this(properties.getReaper(), testRunQueue::getProcessRoots);
+    }
+
+    OrphanProcessReaper(TestRunnerProperties.Reaper config, Supplier<List<ProcessHandle>> ownedRoots) {
+        this.config = config;
+        this.ownedRoots = ownedRoots;
+        if (!config.isEnabled()) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "orphan-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::reapSafely,
+                config.getIntervalSeconds(), config.getIntervalSeconds(), TimeUnit.SECONDS);
+        log.info("Orphan process reaper started: interval={}s, drivers={}, browsers={}",
+                config.getIntervalSeconds(), config.getDriverNames(), config.getBrowserNames());
+    }
+
+    /** 1 lượt dọn. @return số process đã kill và RAM thu hồi được */
+    public ProcessTree.Reclaimed reap() {
+        Set<Long> roots = new HashSet<>();
+        roots.add(ProcessHandle.current().pid());
+        ownedRoots.get().forEach(root -> roots.add(root.pid()));
+
+        Instant bornBefore = Instant.now().minus(Duration.ofSeconds(config.getMinAgeSeconds()));
+        Optional<String> botUser = ProcessHandle.current().info().user();
+
+        ProcessTree.Reclaimed total = ProcessTree.Reclaimed.NONE;
+        for (ProcessHandle handle : ProcessHandle.allProcesses().toList()) {
+            // Có thể đã chết theo cây của orphan kill ở vòng trước
+            if (!handle.isAlive() || !isReapable(handle.info(), bornBefore, botUser) || isOwned(handle, roots)) {
+                continue;
+            }
+            ProcessTree.Reclaimed reclaimed = ProcessTree.destroy(handle);
+            log.info("Reaped orphaned {} (pid {}): {} processes, ~{} MB",
+                    handle.info().command().orElse("?"), handle.pid(), reclaimed.processes(), reclaimed.rssMb());
+            total = total.plus(reclaimed);
+        }
+
+        if (total.processes() > 0) {
+            log.info("Orphan reaper reclaimed ~{} MB from {} processes", total.rssMb(), total.processes());
+        }
+        return total;
+    }
+
+    private void reapSafely() {
+        try {
+            reap();
+        } catch (Exception e) {
+            // Exception trong scheduleWithFixedDelay sẽ hủy lịch chạy → luôn bắt lại
+            log.warn("Orphan reaper failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean isReapable(ProcessHandle.Info info, Instant bornBefore, Optional<String> botUser) {
+        Optional<String> command = info.command();
+        if (command.isEmpty()) {
+            return false;
+        }
+        if (botUser.isPresent() && !botUser.equals(info.user())) {
+            return false;
+        }
+        Optional<Instant> started = info.startInstant();
+        if (started.isEmpty() || started.get().isAfter(bornBefore)) {
+            return false;
+        }
+
+        String name = executableName(command.get());
+        if (config.getDriverNames().contains(name)) {
+            return true;
+        }
+        if (config.getBrowserNames().contains(name)) {
+            String[] arguments = info.arguments().orElse(new String[0]);
+            for (String argument : arguments) {
+                if (AUTOMATION_MARKERS.stream().anyMatch(argument::startsWith)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Đi ngược lên cây cha — gặp JVM bot hoặc root process của run đang chạy → có chủ */
+    private static boolean isOwned(ProcessHandle handle, Set<Long> roots) {
+        Optional<ProcessHandle> current = Optional.of(handle);
+        while (current.isPresent()) {
+            if (roots.contains(current.get().pid())) {
+                return true;
+            }
+            current = current.get().parent();
+        }
+        return false;
+    }
+
+    /** "/opt/google/chrome/chrome" → "chrome", "C:\...\chromedriver.exe" → "chromedriver" */
+    static String executableName(String command) {
+        String name = command.substring(Math.max(command.lastIndexOf('/'), command.lastIndexOf('\\')) + 1)
+                .toLowerCase(Locale.ROOT);
+        return name.endsWith(".exe") ? name.substring(0, name.length() - ".exe".length()) : name;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
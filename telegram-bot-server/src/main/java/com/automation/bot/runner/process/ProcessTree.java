@@ -0,0 +1,102 @@
+package com.automation.bot.runner.process;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kill cả cây process: mvn → Surefire fork → chromedriver → Chrome (+ renderer).
+ *
+ * Tại sao không chỉ destroyForcibly() process mvn?
+ * → Java chỉ kill đúng process đó. Process con không chết theo mà bị chuyển sang init,
+ *   Chrome headless mỗi cái vài trăm MB RAM → sau 1 ngày cancel/timeout host bắt đầu swap.
+ *
+ * Tại sao snapshot descendants trước khi kill?
+ * → Cha chết trước thì con bị re-parent sang init, descendants() của cha không còn thấy chúng nữa.
+ */
+@Slf4j
+public final class ProcessTree {
+
+    /** Số process đã kill và tổng RSS của chúng đo ngay trước khi kill (0 nếu OS không cho đọc) */
+    public record Reclaimed(int processes, long rssBytes) {
+
+        public static final Reclaimed NONE = new Reclaimed(0, 0);
+
+        public Reclaimed plus(Reclaimed other) {
+            return new Reclaimed(processes + other.processes, rssBytes + other.rssBytes);
+        }
+
+        public long rssMb() {
+            return rssBytes / (1024 * 1024);
+        }
+    }
+
+    private static final Path PROC = Path.of("/proc");
+
+    private ProcessTree() {
+    }
+
+    public static Reclaimed destroy(Process process) {
+        return destroy(process.toHandle());
+    }
+
+    /** Kill process và mọi process con cháu, con trước cha (không cho cha kịp spawn lại con) */
+    public static Reclaimed destroy(ProcessHandle root) {
+        List<ProcessHandle> tree = new ArrayList<>(root.descendants().toList());
+        Collections.reverse(tree);
+        tree.add(root);
+
+        int killed = 0;
+        long rss = 0;
+        for (ProcessHandle handle : tree) {
+            if (!handle.isAlive()) {
+                continue;
+            }
+            long processRss = rssBytes(handle.pid());
+            if (handle.destroyForcibly()) {
+                killed++;
+                rss += processRss;
+            }
+        }
+
+        // Chờ ngắn để RAM thực sự được trả trước khi caller đo/báo cáo
+        for (ProcessHandle handle : tree) {
+            try {
+                handle.onExit().get(2, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.debug("Process {} did not exit in time: {}", handle.pid(), e.getMessage());
+                break;
+            }
+        }
+        return new Reclaimed(killed, rss);
+    }
+
+    /**
+     * Resident memory của process (bytes) — đọc VmRSS trong /proc/{pid}/status.
+     * Không phải Linux hoặc không đọc được → 0 (chỉ mất số liệu báo cáo, không ảnh hưởng việc kill).
+     */
+    public static long rssBytes(long pid) {
+        Path status = PROC.resolve(Long.toString(pid)).resolve("status");
+        if (!Files.isReadable(status)) {
+            return 0;
+        }
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    // "VmRSS:	  123456 kB"
+                    String kb = line.substring("VmRSS:".length()).replace("kB", "").trim();
+                    return Long.parseLong(kb) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.debug("Failed to read RSS of process {}: {}", pid, e.getMessage());
+        }
+        return 0;
+    }
+}
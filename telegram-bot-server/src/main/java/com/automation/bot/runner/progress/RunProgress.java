@@ -0,0 +1,143 @@
+package com.automation.bot.runner.progress;
+
+import com.automation.bot.runner.log.RecentLines;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bộ đếm tiến độ của 1 run đang chạy — cập nhật bởi {@link TestOutputParser}, đọc bởi /status.
+ *
+ * Tại sao chỉ giữ counter thay vì danh sách test?
+ * → Run regression vài trăm test, log hàng chục MB → memory phải cố định, không phụ thuộc độ dài output.
+ *   Chi tiết từng test vẫn lấy từ surefire-reports khi run xong.
+ *
+ * Thread-safe: run shard ghi song song từ nhiều fork vào cùng 1 RunProgress.
+ * Kèm ring buffer vài trăm dòng output cuối cho /logs của run đang chạy.
+ * Event từng test được đẩy cho {@link TestEventListener} (SSE stream của HTTP API) — không lưu lại.
+ */
+public class RunProgress {
+
+    /** Kết quả từng test lúc nó xảy ra. Gọi trên thread đọc output của run → không được block */
+    @FunctionalInterface
+    public interface TestEventListener {
+        /**
+         * @param outcome  started / passed / failed / skipped, hoặc "class" khi chỉ có summary của Surefire
+         * @param testName tên test method (tên class với "class")
+         */
+        void onTestEvent(String outcome, String testName, RunProgress progress);
+    }
+
+    private static final int DEFAULT_RECENT_LINES = 200;
+
+    private final AtomicInteger planned = new AtomicInteger();
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger passed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private volatile String currentTest;
+    private final RecentLines recentLines;
+    private final List<TestEventListener> listeners = new CopyOnWriteArrayList<>();
+
+    public RunProgress() {
+        this(DEFAULT_RECENT_LINES);
+    }
+
+    public RunProgress(int recentLineCapacity) {
+        this.recentLines = new RecentLines(recentLineCapacity);
+    }
+
+    void addPlanned(int count) {
+        planned.addAndGet(count);
+    }
+
+    void testStarted(String name) {
+        started.incrementAndGet();
+        currentTest = name;
+        fire("started", name);
+    }
+
+    /** Kết quả của 1 test method cụ thể (event của TestListener) */
+    void testFinished(String outcome, String name) {
+        switch (outcome) {
+            case "passed" -> passed.incrementAndGet();
+            case "failed" -> failed.incrementAndGet();
+            case "skipped" -> skipped.incrementAndGet();
+            default -> throw new IllegalArgumentException("Unknown outcome: " + outcome);
+        }
+        fire(outcome, name);
+    }
+
+    /** Summary của cả 1 test class (Surefire, không có event từng method) */
+    void classFinished(String className, int passedCount, int failedCount, int skippedCount) {
+        passed.addAndGet(passedCount);
+        failed.addAndGet(failedCount);
+        skipped.addAndGet(skippedCount);
+        fire("class", className);
+    }
+
+    public void addListener(TestEventListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(TestEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fire(String outcome, String name) {
+        for (TestEventListener listener : listeners) {
+            listener.onTestEvent(outcome, name, this);
+        }
+    }
+
+    public int getPlanned() {
+        return planned.get();
+    }
+
+    public int getStarted() {
+        return started.get();
+    }
+
+    public int getPassed() {
+        return passed.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    public int getDone() {
+        return passed.get() + failed.get() + skipped.get();
+    }
+
+    public String getCurrentTest() {
+        return currentTest;
+    }
+
+    public RecentLines getRecentLines() {
+        return recentLines;
+    }
+
+    /** Chưa nhận được event nào (đang compile / khởi động browser) */
+    public boolean isEmpty() {
+        return planned.get() == 0 && started.get() == 0 && getDone() == 0;
+    }
+
+    /** "37/120 done, 2 failed" — không biết tổng thì "37 done, 2 failed" */
+    public String summary() {
+        int done = getDone();
+        int total = planned.get();
+        StringBuilder sb = new StringBuilder();
+        sb.append(done);
+        if (total >= done && total > 0) {
+            sb.append("/").append(total);
+        }
+        sb.append(" done, ").append(failed.get()).append(" failed");
+        return sb.toString();
+    }
+}
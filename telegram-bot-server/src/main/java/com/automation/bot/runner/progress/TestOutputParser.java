@@ -0,0 +1,68 @@
+package com.automation.bot.runner.progress;
+
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Đọc output của mvn test / warm worker từng dòng và cập nhật {@link RunProgress}.
+ *
+ * Nguồn event (ưu tiên theo thứ tự):
+ * 1. TestListener của framework: "Suite started: X (N tests)", "--- Test started/PASSED/FAILED/SKIPPED: m ---"
+ *    → tiến độ theo từng test method, ngay khi test xong.
+ * 2. Surefire: "Tests run: 5, Failures: 1, Errors: 0, Skipped: 0, ... in com.x.LoginTest"
+ *    → chỉ dùng khi không thấy event của listener (test class không gắn TestListener),
+ *      nếu không sẽ đếm trùng.
+ *
+ * Không giữ lại dòng nào — mỗi dòng chỉ được match rồi bỏ, memory cố định.
+ * 1 parser cho 1 output stream (không thread-safe), nhiều parser có thể dùng chung 1 RunProgress.
+ */
+public class TestOutputParser implements Consumer<String> {
+
+    private static final Pattern SUITE_STARTED = Pattern.compile("Suite started: .* \\((\\d+) tests\\)");
+    private static final Pattern TEST_EVENT = Pattern.compile("--- Test (started|PASSED|FAILED|SKIPPED): (.+?) ---");
+    private static final Pattern SUREFIRE_CLASS = Pattern.compile(
+            "Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+), Skipped: (\\d+).*\\bin (\\S+)");
+
+    private final RunProgress progress;
+    private boolean listenerEventsSeen;
+
+    public TestOutputParser(RunProgress progress) {
+        this.progress = progress;
+    }
+
+    @Override
+    public void accept(String line) {
+        // Lọc nhanh — phần lớn output là log của WebDriver/HTTP, không cần chạy regex
+        if (line.indexOf("---") < 0 && line.indexOf("Tests run:") < 0 && line.indexOf("Suite started") < 0) {
+            return;
+        }
+
+        Matcher event = TEST_EVENT.matcher(line);
+        if (event.find()) {
+            listenerEventsSeen = true;
+            switch (event.group(1)) {
+                case "started" -> progress.testStarted(event.group(2));
+                default -> progress.testFinished(event.group(1).toLowerCase(Locale.ROOT), event.group(2));
+            }
+            return;
+        }
+
+        Matcher suite = SUITE_STARTED.matcher(line);
+        if (suite.find()) {
+            progress.addPlanned(Integer.parseInt(suite.group(1)));
+            return;
+        }
+
+        if (!listenerEventsSeen) {
+            Matcher surefire = SUREFIRE_CLASS.matcher(line);
+            if (surefire.find()) {
+                int run = Integer.parseInt(surefire.group(1));
+                int failures = Integer.parseInt(surefire.group(2)) + Integer.parseInt(surefire.group(3));
+                int skipped = Integer.parseInt(surefire.group(4));
+                progress.classFinished(surefire.group(5), Math.max(0, run - failures - skipped), failures, skipped);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.automation.bot.runner.queue;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.TestRunQueue.TestRunInfo;
+import com.automation.bot.runner.TestRunRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Hàng chờ fair-share: priority class + weighted fair queuing giữa các user + giới hạn mỗi user.
+ *
+ * Tại sao không FIFO?
+ * → 1 user gửi 5 lệnh /regression liên tiếp → FIFO bắt mọi người khác chờ cả 5 run.
+ * → Smoke check cần feedback nhanh, không nên xếp sau regression 30 phút.
+ *
+ * Cách sắp xếp:
+ * 1. Priority class theo label (smoke=0 < api=1 < regression=2) — class nhỏ luôn xét trước.
+ * 2. Trong cùng class: mỗi run nhận virtual finish tag = max(virtualTime, tag cuối của user) + 1/weight.
+ *    User gửi nhiều run → tag tăng dần → run của user khác (tag nhỏ hơn) được xen vào giữa.
+ *    weight lớn hơn → tag tăng chậm hơn → được chia nhiều lượt hơn.
+ * 3. Cùng tag → ai gửi trước chạy trước.
+ *
+ * Giới hạn: max-in-flight-per-user (run đang chạy) và max-queued-per-user (run đang chờ).
+ */
+@Component
+@ConditionalOnProperty(prefix = "bot.runner.queue", name = "discipline", havingValue = "fair-share")
+public class FairShareQueueDiscipline implements QueueDiscipline {
+
+    private final TestRunnerProperties.Queue config;
+
+    private record Tag(double start, double finish) {}
+
+    private final Map<String, Tag> tags = new HashMap<>();
+    private final Map<Long, Double> lastFinishTag = new HashMap<>();
+    private double virtualTime;
+
+    public FairShareQueueDiscipline(TestRunnerProperties properties) {
+        this.config = properties.getQueue();
+    }
+
+    @Override
+    public boolean accepts(TestRunInfo candidate, List<TestRunInfo> pending) {
+        if (config.getMaxQueuedPerUser() <= 0) {
+            return true;
+        }
+        long userId = candidate.getRequest().getUserId();
+        long queued = pending.stream().filter(info -> info.getRequest().getUserId() == userId).count();
+        return queued < config.getMaxQueuedPerUser();
+    }
+
+    @Override
+    public void onEnqueued(TestRunInfo info) {
+        long userId = info.getRequest().getUserId();
+        double start = Math.max(virtualTime, lastFinishTag.getOrDefault(userId, 0.0));
+        double finish = start + 1.0 / weight(userId);
+        lastFinishTag.put(userId, finish);
+        tags.put(runId(info), new Tag(start, finish));
+    }
+
+    @Override
+    public List<TestRunInfo> order(List<TestRunInfo> pending) {
+        List<TestRunInfo> ordered = new ArrayList<>(pending);
+        // List.sort stable → cùng priority + tag thì giữ thứ tự submit
+        ordered.sort(Comparator
+                .comparingInt((TestRunInfo info) -> priority(info.getRequest()))
+                .thenComparingDouble(info -> finishTag(info)));
+        return ordered;
+    }
+
+    @Override
+    public boolean canStart(TestRunInfo info, Map<Long, Integer> runningPerUser) {
+        if (config.getMaxInFlightPerUser() <= 0) {
+            return true;
+        }
+        return runningPerUser.getOrDefault(info.getRequest().getUserId(), 0) < config.getMaxInFlightPerUser();
+    }
+
+    @Override
+    public void onStarted(TestRunInfo info) {
+        Tag tag = tags.get(runId(info));
+        if (tag != null) {
+            virtualTime = Math.max(virtualTime, tag.start());
+        }
+    }
+
+    @Override
+    public void onFinished(TestRunInfo info) {
+        tags.remove(runId(info));
+    }
+
+    private int priority(TestRunRequest request) {
+        String label = request.getProfile() != null ? request.getProfile() : request.getTestClass();
+        return config.getPriorities().getOrDefault(label, config.getDefaultPriority());
+    }
+
+    private double weight(long userId) {
+        double weight = config.getUserWeights().getOrDefault(userId, 1.0);
+        return weight > 0 ? weight : 1.0;
+    }
+
+    private double finishTag(TestRunInfo info) {
+        Tag tag = tags.get(runId(info));
+        return tag != null ? tag.finish() : Double.MAX_VALUE;
+    }
+
+    private static String runId(TestRunInfo info) {
+        return info.getRequest().getRunId();
+    }
+}
@@ -0,0 +1,20 @@
+package com.automation.bot.runner.queue;
+
+import com.automation.bot.runner.TestRunQueue.TestRunInfo;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hàng chờ FIFO — ai gửi trước chạy trước (hành vi mặc định).
+ */
+@Component
+@ConditionalOnProperty(prefix = "bot.runner.queue", name = "discipline", havingValue = "fifo", matchIfMissing = true)
+public class FifoQueueDiscipline implements QueueDiscipline {
+
+    @Override
+    public List<TestRunInfo> order(List<TestRunInfo> pending) {
+        return pending;
+    }
+}
@@ -0,0 +1,46 @@
+package com.automation.bot.runner.queue;
+
+import com.automation.bot.runner.TestRunQueue.TestRunInfo;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chiến lược sắp xếp hàng chờ của TestRunQueue.
+ *
+ * Tại sao tách thành interface?
+ * → TestRunQueue lo cơ chế (budget, thread, cancel), discipline lo chính sách (ai chạy trước).
+ * → Đổi chính sách (fifo ↔ fair-share) bằng config, không sửa dispatcher.
+ *
+ * Mọi method được gọi trong lock của TestRunQueue → implementation không cần tự synchronize.
+ */
+public interface QueueDiscipline {
+
+    /** Có nhận thêm run này vào hàng chờ không (ngoài giới hạn max-queue-size chung) */
+    default boolean accepts(TestRunInfo candidate, List<TestRunInfo> pending) {
+        return true;
+    }
+
+    /** Run vừa vào hàng chờ */
+    default void onEnqueued(TestRunInfo info) {
+    }
+
+    /** Thứ tự xét admit — phần tử đầu là run được ưu tiên nhất */
+    List<TestRunInfo> order(List<TestRunInfo> pending);
+
+    /**
+     * Run có được start ngay không, không tính budget (ví dụ: per-user in-flight cap).
+     * @param runningPerUser số run đang chạy của mỗi userId
+     */
+    default boolean canStart(TestRunInfo info, Map<Long, Integer> runningPerUser) {
+        return true;
+    }
+
+    /** Run vừa được admit */
+    default void onStarted(TestRunInfo info) {
+    }
+
+    /** Run rời khỏi hàng chờ/kết thúc (hoàn tất hoặc bị cancel) */
+    default void onFinished(TestRunInfo info) {
+    }
+}
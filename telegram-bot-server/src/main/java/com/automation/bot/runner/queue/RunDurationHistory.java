@@ -0,0 +1,136 @@
+package com.automation.bot.runner.queue;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.TestRunRequest;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thời gian chạy thực tế của các run đã xong, theo label (profile/testClass) + env — dùng ước lượng ETA
+ * và sắp xếp hàng chờ theo shortest-expected-job.
+ *
+ * Tại sao percentile (p50/p90) thay vì trung bình?
+ * → Thời gian run lệch phải: đa số /regression mất 20 phút, thỉnh thoảng 45 phút vì env chậm.
+ *   Trung bình bị vài run chậm kéo lên, p50 cho con số "thường gặp", p90 cho con số "gần như chắc chắn".
+ *
+ * Giữ N mẫu gần nhất mỗi key (cửa sổ trượt) → env đổi tốc độ sau deploy thì ước lượng bắt kịp sau vài run.
+ * Key chưa có mẫu → dùng mẫu của cùng label ở env khác → cuối cùng mới dùng giá trị mặc định.
+ */
+@Slf4j
+@Component
+public class RunDurationHistory {
+
+    /** Run chưa từng chạy lần nào */
+    static final Duration DEFAULT_DURATION = Duration.ofMinutes(5);
+
+    /** Ước lượng thời gian chạy. samples = 0 → chưa có lịch sử, đang dùng giá trị mặc định */
+    public record Estimate(Duration p50, Duration p90, int samples) {}
+
+    private final Path file;
+    private final int window;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    /** key → thời gian chạy (giây) của N run gần nhất, cũ nhất ở đầu. Guarded by this */
+    private final Map<String, Deque<Long>> samples = new HashMap<>();
+
+    @Autowired
+    public RunDurationHistory(TestRunnerProperties properties) {
+        this(Paths.get(properties.getWorkspaceDir()).toAbsolutePath().resolve("run-durations.json"),
+                properties.getQueue().getDurationSamples());
+    }
+
+    RunDurationHistory(Path file, int window) {
+        this.file = file;
+        this.window = Math.max(1, window);
+        load();
+    }
+
+    /** Ghi nhận thời gian chạy của run vừa xong (vào cả key label+env và key chỉ có label) */
+    public void record(TestRunRequest request, Duration duration) {
+        long seconds = Math.max(1, duration.toSeconds());
+        synchronized (this) {
+            add(key(request), seconds);
+            add(label(request), seconds);
+        }
+        save();
+    }
+
+    public synchronized Estimate estimate(TestRunRequest request) {
+        Deque<Long> window = samples.get(key(request));
+        if (window == null || window.isEmpty()) {
+            window = samples.get(label(request));
+        }
+        if (window == null || window.isEmpty()) {
+            return new Estimate(DEFAULT_DURATION, DEFAULT_DURATION, 0);
+        }
+
+        long[] sorted = window.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new Estimate(Duration.ofSeconds(percentile(sorted, 0.5)),
+                Duration.ofSeconds(percentile(sorted, 0.9)), sorted.length);
+    }
+
+    /** Nearest-rank percentile trên mảng đã sort */
+    static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private void add(String key, long seconds) {
+        Deque<Long> window = samples.computeIfAbsent(key, k -> new ArrayDeque<>());
+        window.addLast(seconds);
+        while (window.size() > this.window) {
+            window.removeFirst();
+        }
+    }
+
+    private static String key(TestRunRequest request) {
+        return label(request) + "@" + request.getEnv();
+    }
+
+    private static String label(TestRunRequest request) {
+        return request.getProfile() != null ? request.getProfile() : request.getTestClass();
+    }
+
+    private synchronized void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            Map<String, List<Long>> stored = objectMapper.readValue(file.toFile(), new TypeReference<>() {});
+            stored.forEach((key, values) -> values.forEach(seconds -> add(key, seconds)));
+            log.info("Loaded run duration history for {} keys", samples.size());
+        } catch (IOException e) {
+            log.warn("Failed to load run duration history {}: {}", file, e.getMessage());
+        }
+    }
+
+    /** Ghi file tạm rồi move → không bao giờ để lại file JSON ghi dở */
+    private synchronized void save() {
+        try {
+            Map<String, List<Long>> snapshot = new HashMap<>();
+            samples.forEach((key, window) -> snapshot.put(key, new ArrayList<>(window)));
+
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), snapshot);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to save run duration history {}: {}", file, e.getMessage());
+        }
+    }
+}
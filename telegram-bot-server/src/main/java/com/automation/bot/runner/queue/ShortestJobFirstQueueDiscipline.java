@@ -0,0 +1,56 @@
+package com.automation.bot.runner.queue;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.TestRunQueue.TestRunInfo;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Hàng chờ shortest-expected-job-first: run có p50 lịch sử ngắn nhất chạy trước.
+ *
+ * Tại sao?
+ * → /login mất 1 phút xếp sau /regression 30 phút → chờ 30 phút cho 1 phút chạy.
+ *   Đưa job ngắn lên trước: job dài chỉ chờ thêm 1 phút, job ngắn bớt chờ 30 phút
+ *   → thời gian chờ trung bình giảm mạnh.
+ *
+ * Chống starvation: run đã chờ quá sjf-max-wait-minutes được đưa lên đầu (theo thứ tự submit),
+ * nếu không /regression có thể bị job ngắn vượt mãi khi hàng chờ luôn đông.
+ */
+@Component
+@ConditionalOnProperty(prefix = "bot.runner.queue", name = "discipline", havingValue = "sjf")
+public class ShortestJobFirstQueueDiscipline implements QueueDiscipline {
+
+    private final RunDurationHistory durationHistory;
+    private final Duration maxWait;
+    private final Clock clock;
+
+    public ShortestJobFirstQueueDiscipline(TestRunnerProperties properties, RunDurationHistory durationHistory) {
+        this(properties, durationHistory, Clock.systemUTC());
+    }
+
+    ShortestJobFirstQueueDiscipline(TestRunnerProperties properties, RunDurationHistory durationHistory, Clock clock) {
+        this.durationHistory = durationHistory;
+        this.maxWait = Duration.ofMinutes(properties.getQueue().getSjfMaxWaitMinutes());
+        this.clock = clock;
+    }
+
+    @Override
+    public List<TestRunInfo> order(List<TestRunInfo> pending) {
+        Instant starvedBefore = clock.instant().minus(maxWait);
+        List<TestRunInfo> ordered = new ArrayList<>(pending);
+        // List.sort stable → cùng nhóm + cùng p50 thì giữ thứ tự submit
+        ordered.sort(Comparator
+                .comparing((TestRunInfo info) -> !info.getSubmittedAt().isBefore(starvedBefore))
+                .thenComparing(info -> info.getSubmittedAt().isBefore(starvedBefore)
+                        ? Duration.ZERO
+                        : durationHistory.estimate(info.getRequest()).p50()));
+        return ordered;
+    }
+}
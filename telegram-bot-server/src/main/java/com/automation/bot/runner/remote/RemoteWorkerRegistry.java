@@ -0,0 +1,386 @@
+package com.automation.bot.runner.remote;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.ResourceBudget;
+import com.automation.bot.runner.ResourceCost;
+import com.automation.bot.runner.RunStatus;
+import com.automation.bot.runner.RunWorkspace;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunResult;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Phía bot (coordinator) của worker agent: agent đăng ký kèm capacity, lấy run từ queue, trả kết quả.
+ *
+ * Tại sao agent kéo run (long-poll) thay vì bot đẩy run tới agent?
+ * → Agent chỉ cần gọi ra được tới bot (sau NAT / firewall vẫn chạy), bot không cần biết địa chỉ agent.
+ * → Agent chết giữa chừng: chỉ là hết heartbeat, không có kết nối nào của bot bị treo.
+ *
+ * Mỗi agent có {@link ResourceBudget} riêng theo capacity nó khai báo → TestRunQueue admit run vào agent
+ * theo đúng cách admit vào host của bot (browsers / memory / cpus), hàng chờ và discipline giữ nguyên.
+ *
+ * Vòng đời 1 run trên agent:
+ * 1. TestRunQueue reserve budget của agent ({@link #tryReserve}), TestRunService chạy run như bình thường.
+ * 2. {@link #execute} bỏ run vào hộp thư của agent rồi chờ; agent nhận qua {@link #lease}.
+ * 3. Agent stream output về ({@link #output}) → run.log, tiến độ, /logs như run local.
+ * 4. Agent gửi exit code + zip report ({@link #complete}) → giải nén vào workspace, Allure + parse chạy trên bot.
+ *
+ * Bot không còn chờ kết quả (cancel, timeout) → heartbeat kế tiếp của agent nhận runId cần kill.
+ */
+@Slf4j
+@Component
+public class RemoteWorkerRegistry {
+
+    /** Thời gian thêm cho agent upload report sau timeout-minutes (watchdog của agent đã kill process) */
+    private static final int RESULT_GRACE_MINUTES = 5;
+
+    private final TestRunnerProperties properties;
+    private final TestRunnerProperties.Remote config;
+    private final Clock clock;
+    private final Map<String, Agent> agents = new ConcurrentHashMap<>();
+    /** Run đã giao (hoặc đang chờ agent lấy), theo runId */
+    private final Map<String, RemoteRun> runs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService monitor;
+
+    public record Capacity(int browsers, int memoryMb, double cpus) {}
+
+    public record Assignment(String runId, TestRunRequest request) {}
+
+    /** Kết quả agent báo về. error != null khi run bị kill trên agent (watchdog, timeout) */
+    public record AgentResult(int exitCode, long durationMs, String error) {}
+
+    /** Snapshot cho /status và GET /api/agents */
+    public record AgentStatus(String agentId, String name, Capacity capacity, ResourceBudget.Usage usage,
+                              List<String> runs) {}
+
+    @Autowired
+    public RemoteWorkerRegistry(TestRunnerProperties properties) {
+        this(properties, Clock.systemUTC(), true);
+    }
+
+    RemoteWorkerRegistry(TestRunnerProperties properties, Clock clock, boolean startMonitor) {
+        this.properties = properties;
+        this.config = properties.getRemote();
+        this.clock = clock;
+        if (!startMonitor || !config.isEnabled()) {
+            this.monitor = null;
+            return;
+        }
+        this.monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "remote-agent-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1, config.getAgentTimeoutSeconds() / 3);
+        this.monitor.scheduleWithFixedDelay(this::checkAgentsSafely, interval, interval, TimeUnit.SECONDS);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /** false → host của bot chỉ điều phối, run chỉ chạy trên agent */
+    public boolean isLocalRunsEnabled() {
+        return !config.isEnabled() || config.isLocalRuns();
+    }
+
+    /** @return agentId dùng cho mọi request sau của agent */
+    public String register(String name, Capacity capacity) {
+        if (!config.isEnabled()) {
+            throw new IllegalStateException("Remote workers are disabled (bot.runner.remote.enabled=false)");
+        }
+        if (capacity == null || capacity.browsers() < 0 || capacity.memoryMb() <= 0 || capacity.cpus() <= 0) {
+            throw new IllegalArgumentException("Capacity needs browsers >= 0, memoryMb > 0 and cpus > 0");
+        }
+        // agentId nằm trong URL của agent → chỉ giữ ký tự an toàn
+        String prefix = name == null || name.isBlank() ? "agent" : name.replaceAll("[^A-Za-z0-9_.-]", "-");
+        String agentId = prefix + "-" + UUID.randomUUID().toString().substring(0, 6);
+        agents.put(agentId, new Agent(agentId, name, capacity, budgetFor(capacity)));
+        log.info("Agent {} registered: {} browsers, {} MB, {} cpus", agentId,
+                capacity.browsers(), capacity.memoryMb(), capacity.cpus());
+        return agentId;
+    }
+
+    /**
+     * @param running runId agent đang chạy
+     * @return các run trong số đó bot không còn chờ kết quả (agent phải kill), null nếu agent chưa đăng ký
+     *         (bot vừa restart / agent bị coi là mất) → agent đăng ký lại
+     */
+    public List<String> heartbeat(String agentId, Collection<String> running) {
+        Agent agent = agents.get(agentId);
+        if (agent == null) {
+            return null;
+        }
+        agent.touch();
+        return running.stream().filter(runId -> expected(agentId, runId) == null).toList();
+    }
+
+    /**
+     * Chọn agent còn đủ budget cho run (agent còn nhiều browser rảnh nhất trước) và giữ tài nguyên.
+     * @return agentId, null nếu không agent nào nhận được
+     */
+    public String tryReserve(ResourceCost cost) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        List<Agent> candidates = agents.values().stream()
+                .sorted(Comparator.comparingInt(Agent::freeBrowsers).reversed())
+                .toList();
+        for (Agent agent : candidates) {
+            if (agent.budget.tryAcquire(cost)) {
+                return agent.id;
+            }
+        }
+        return null;
+    }
+
+    public void release(String agentId, ResourceCost cost) {
+        Agent agent = agents.get(agentId);
+        if (agent != null) {
+            agent.budget.release(cost);
+        }
+    }
+
+    /**
+     * Long-poll của agent: chờ tối đa {@code wait} cho run mới.
+     * @return null nếu hết thời gian chờ mà không có run
+     * @throws NoSuchElementException agent chưa đăng ký
+     */
+    public Assignment lease(String agentId, Duration wait) throws InterruptedException {
+        Agent agent = agents.get(agentId);
+        if (agent == null) {
+            throw new NoSuchElementException("Unknown agent " + agentId);
+        }
+        agent.touch();
+        RemoteRun run = agent.mailbox.poll(wait.toMillis(), TimeUnit.MILLISECONDS);
+        agent.touch();
+        if (run == null || run.result.isDone()) {
+            return null;
+        }
+        log.info("[{}] Leased by agent {}", run.request.getRunId(), agentId);
+        return new Assignment(run.request.getRunId(), run.request);
+    }
+
+    /** @return false nếu bot không còn chờ run này → agent phải kill process */
+    public boolean output(String agentId, String runId, List<String> lines) {
+        RemoteRun run = expected(agentId, runId);
+        if (run == null) {
+            return false;
+        }
+        touch(agentId);
+        // Ghi run.log / parser không thread-safe — 2 request output của cùng run không được chạy xen nhau
+        synchronized (run) {
+            lines.forEach(run.output);
+        }
+        return true;
+    }
+
+    /**
+     * Agent báo run xong, kèm zip surefire-reports + allure-results.
+     * @return false nếu bot không còn chờ run này
+     */
+    public boolean complete(String agentId, String runId, AgentResult result, InputStream artifacts) throws IOException {
+        RemoteRun run = expected(agentId, runId);
+        if (run == null) {
+            return false;
+        }
+        touch(agentId);
+        try {
+            int files = RunArtifacts.unzip(artifacts, run.workspace, config.getMaxArtifactMb() * 1024L * 1024L);
+            log.info("[{}] Agent {} finished with exit code {}, {} report files received", runId, agentId,
+                    result.exitCode(), files);
+        } catch (IOException e) {
+            run.result.completeExceptionally(new IOException("Failed to receive reports from agent: " + e.getMessage(), e));
+            throw e;
+        }
+
+        String error = result.error() != null ? result.error()
+                : result.exitCode() != 0 ? "Exit code: " + result.exitCode() : null;
+        run.result.complete(TestRunResult.builder()
+                .runId(runId)
+                .status(error == null ? RunStatus.COMPLETED : RunStatus.FAILED)
+                .duration(Duration.ofMillis(result.durationMs()))
+                .errorMessage(error)
+                // Agent báo lỗi (watchdog kill, timeout, không start được mvn) → run không chạy hết
+                .partial(result.error() != null)
+                .build());
+        return true;
+    }
+
+    /**
+     * Giao run cho agent đã reserve ở {@link #tryReserve} và chờ kết quả.
+     * Blocking — gọi từ worker thread của TestRunQueue, giống TestRunner chờ mvn process.
+     *
+     * @param output nhận từng dòng output agent gửi về
+     */
+    public TestRunResult execute(String agentId, TestRunRequest request, RunWorkspace workspace,
+                                 Consumer<String> output) {
+        String runId = request.getRunId();
+        Instant start = clock.instant();
+        Agent agent = agents.get(agentId);
+        if (agent == null) {
+            return failed(runId, start, "Agent " + agentId + " disconnected before the run started");
+        }
+
+        RemoteRun run = new RemoteRun(agentId, request, workspace, output);
+        runs.put(runId, run);
+        agent.mailbox.add(run);
+        log.info("[{}] Assigned to agent {}", runId, agentId);
+        try {
+            // Agent tự áp watchdog + timeout-minutes — phía bot chỉ là lưới an toàn
+            return run.result.get(properties.getTimeoutMinutes() + RESULT_GRACE_MINUTES, TimeUnit.MINUTES);
+        } catch (TimeoutException e) {
+            return failed(runId, start, "No result from agent " + agentId + " within "
+                    + (properties.getTimeoutMinutes() + RESULT_GRACE_MINUTES) + " minutes");
+        } catch (ExecutionException e) {
+            return failed(runId, start, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            // /cancel interrupt worker thread
+            Thread.currentThread().interrupt();
+            return failed(runId, start, "Cancelled");
+        } finally {
+            // Không còn chờ → output/heartbeat tiếp theo của agent nhận lệnh dừng run
+            runs.remove(runId, run);
+            agent.mailbox.remove(run);
+        }
+    }
+
+    public List<AgentStatus> getAgents() {
+        return agents.values().stream()
+                .map(agent -> new AgentStatus(agent.id, agent.name, agent.capacity, agent.budget.usage(),
+                        runs.values().stream().filter(run -> run.agentId.equals(agent.id))
+                                .map(run -> run.request.getRunId()).toList()))
+                .toList();
+    }
+
+    /** Agent quá agent-timeout-seconds không liên lạc → bỏ đăng ký, run đang chạy trên nó FAILED */
+    void checkAgents() {
+        Instant cutoff = clock.instant().minusSeconds(config.getAgentTimeoutSeconds());
+        for (Agent agent : agents.values()) {
+            if (agent.lastSeen.isAfter(cutoff)) {
+                continue;
+            }
+            agents.remove(agent.id);
+            log.warn("Agent {} lost: no heartbeat for {}s", agent.id, config.getAgentTimeoutSeconds());
+            for (RemoteRun run : runs.values()) {
+                if (run.agentId.equals(agent.id)) {
+                    run.result.completeExceptionally(new IOException("Agent " + agent.id + " lost (no heartbeat for "
+                            + config.getAgentTimeoutSeconds() + "s)"));
+                }
+            }
+        }
+    }
+
+    private void checkAgentsSafely() {
+        try {
+            checkAgents();
+        } catch (Exception e) {
+            log.warn("Agent check failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (monitor != null) {
+            monitor.shutdownNow();
+        }
+    }
+
+    private void touch(String agentId) {
+        Agent agent = agents.get(agentId);
+        if (agent != null) {
+            agent.touch();
+        }
+    }
+
+    private RemoteRun expected(String agentId, String runId) {
+        RemoteRun run = runs.get(runId);
+        return run != null && run.agentId.equals(agentId) && agents.containsKey(agentId) ? run : null;
+    }
+
+    /** Budget cố định theo capacity agent khai báo (không đọc free memory — đó là RAM của máy bot) */
+    private static ResourceBudget budgetFor(Capacity capacity) {
+        TestRunnerProperties agentProperties = new TestRunnerProperties();
+        agentProperties.getResources().setMaxBrowsers(capacity.browsers());
+        agentProperties.getResources().setMaxMemoryMb(capacity.memoryMb());
+        agentProperties.getResources().setMaxCpus(capacity.cpus());
+        return new ResourceBudget(agentProperties);
+    }
+
+    private TestRunResult failed(String runId, Instant start, String message) {
+        log.warn("[{}] Remote run failed: {}", runId, message);
+        return TestRunResult.builder()
+                .runId(runId)
+                .status(RunStatus.FAILED)
+                .duration(Duration.between(start, clock.instant()))
+                .errorMessage(message)
+                .partial(true)
+                .build();
+    }
+
+    private final class Agent {
+        final String id;
+        final String name;
+        final Capacity capacity;
+        final ResourceBudget budget;
+        final BlockingQueue<RemoteRun> mailbox = new LinkedBlockingQueue<>();
+        volatile Instant lastSeen;
+
+        Agent(String id, String name, Capacity capacity, ResourceBudget budget) {
+            this.id = id;
+            this.name = name;
+            this.capacity = capacity;
+            this.budget = budget;
+            this.lastSeen = clock.instant();
+        }
+
+        void touch() {
+            lastSeen = clock.instant();
+        }
+
+        int freeBrowsers() {
+            ResourceBudget.Usage usage = budget.usage();
+            return usage.maxBrowsers() - usage.usedBrowsers();
+        }
+    }
+
+    private static final class RemoteRun {
+        final String agentId;
+        final TestRunRequest request;
+        final RunWorkspace workspace;
+        final Consumer<String> output;
+        final CompletableFuture<TestRunResult> result = new CompletableFuture<>();
+
+        RemoteRun(String agentId, TestRunRequest request, RunWorkspace workspace, Consumer<String> output) {
+            this.agentId = agentId;
+            this.request = request;
+            this.workspace = workspace;
+            this.output = output;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.automation.bot.runner.remote;
+
+import com.automation.bot.runner.RunWorkspace;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Đóng gói surefire-reports + allure-results của run trên agent thành 1 file zip gửi về bot.
+ *
+ * Entry name giữ đường dẫn tương đối với runDir ("surefire-reports/TEST-x.xml", "allure-results/...")
+ * → bot giải nén thẳng vào workspace của run, Allure + SurefireReportParser chạy như run local.
+ * run.log không nằm trong zip: output đã được stream về từng dòng trong lúc chạy.
+ */
+@Slf4j
+public final class RunArtifacts {
+
+    private RunArtifacts() {
+    }
+
+    public static void zip(RunWorkspace workspace, OutputStream target) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(target)) {
+            for (Path dir : List.of(workspace.surefireReportsDir(), workspace.allureResultsDir())) {
+                if (!Files.isDirectory(dir)) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.walk(dir)) {
+                    for (Path file : files.filter(Files::isRegularFile).toList()) {
+                        String name = workspace.runDir().relativize(file).toString().replace('\\', '/');
+                        zip.putNextEntry(new ZipEntry(name));
+                        Files.copy(file, zip);
+                        zip.closeEntry();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Giải nén vào workspace. Chỉ nhận file nằm trong surefire-reports / allure-results
+     * → entry kiểu "../../application.yml" (zip slip) bị bỏ qua.
+     *
+     * @param maxBytes tổng dung lượng sau giải nén tối đa — vượt thì dừng với IOException
+     * @return số file đã giải nén
+     */
+    public static int unzip(InputStream source, RunWorkspace workspace, long maxBytes) throws IOException {
+        int files = 0;
+        long total = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (ZipInputStream zip = new ZipInputStream(source)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                Path target = workspace.runDir().resolve(entry.getName()).normalize();
+                if (!target.startsWith(workspace.surefireReportsDir()) && !target.startsWith(workspace.allureResultsDir())) {
+                    log.warn("[{}] Ignoring artifact outside report directories: {}", workspace.runId(), entry.getName());
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                try (OutputStream out = Files.newOutputStream(target)) {
+                    int read;
+                    while ((read = zip.read(buffer)) > 0) {
+                        total += read;
+                        if (total > maxBytes) {
+                            throw new IOException("Artifacts exceed " + maxBytes / (1024 * 1024) + " MB");
+                        }
+                        out.write(buffer, 0, read);
+                    }
+                }
+                files++;
+            }
+        }
+        return files;
+    }
+}
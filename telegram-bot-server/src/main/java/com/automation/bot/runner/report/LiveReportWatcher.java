@@ -0,0 +1,228 @@
+package com.automation.bot.runner.report;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.parser.SurefireReportParser;
+import com.automation.bot.runner.RunWorkspace;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/**
+ * Theo dõi thư mục report của các run đang chạy, ingest TEST-*.xml vào {@link RunReports} ngay khi Surefire ghi xong.
+ *
+ * Tại sao 1 WatchService + 1 thread cho mọi run, không phải 1 thread / run?
+ * → Vài run song song, mỗi run vài chục file report trong cả tiếng chạy — event rất thưa.
+ *   1 thread chờ event chung, 1 thread parse là đủ; không tốn thêm thread khi tăng max-concurrent-runs.
+ *
+ * Tại sao chờ settle-millis sau event cuối mới parse?
+ * → Surefire tạo file rồi ghi nội dung → nhận CREATE + vài MODIFY cho 1 file. Parse ngay lúc CREATE
+ *   chỉ thấy file rỗng/dở. File vẫn dở sau khi chờ (parse lỗi) → event MODIFY tiếp theo hoặc bước parse cuối sẽ đọc lại.
+ *
+ * Theo dõi: {runDir}/surefire-reports và {runDir}/shards/shard-N/surefire-reports (tạo ra trong lúc chạy).
+ * Không theo dõi allure-results — hàng nghìn file, không cần cho kết quả.
+ */
+@Slf4j
+@Component
+public class LiveReportWatcher {
+
+    /** Thư mục đang watch → run sở hữu */
+    private record Registration(RunReports reports, Path dir) {}
+
+    private final TestRunnerProperties.Reports config;
+    private final SurefireReportParser parser;
+    private final Map<WatchKey, Registration> registrations = new ConcurrentHashMap<>();
+    /** File chờ parse (debounce theo file) */
+    private final Map<Path, ScheduledFuture<?>> pendingFiles = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ingestExecutor;
+    private final WatchService watchService;
+
+    public LiveReportWatcher(TestRunnerProperties properties, SurefireReportParser parser) {
+        this.config = properties.getReports();
+        this.parser = parser;
+        this.watchService = config.isLive() ? newWatchService() : null;
+        if (watchService == null) {
+            this.ingestExecutor = null;
+            return;
+        }
+        this.ingestExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "report-ingest");
+            t.setDaemon(true);
+            return t;
+        });
+        Thread watcher = new Thread(this::watchLoop, "report-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Bắt đầu theo dõi report của run. Luôn trả về RunReports — live tắt / không watch được
+     * thì chỉ còn bước quét cuối trong {@link RunReports#finish}.
+     */
+    public RunReports watch(RunWorkspace workspace) {
+        RunReports reports = new RunReports(workspace, parser);
+        if (watchService == null) {
+            return reports;
+        }
+        reports.onClose(() -> unwatch(reports));
+        register(reports, workspace.runDir());
+        return reports;
+    }
+
+    /** Hủy cả lần parse đang chờ settle — run đã xong, finish() đã/sẽ quét lại, workspace có thể bị xóa ngay sau đó */
+    private void unwatch(RunReports reports) {
+        registrations.entrySet().removeIf(entry -> {
+            if (entry.getValue().reports() == reports) {
+                entry.getKey().cancel();
+                return true;
+            }
+            return false;
+        });
+        Path runDir = reports.getWorkspace().runDir();
+        pendingFiles.entrySet().removeIf(entry -> {
+            if (entry.getKey().startsWith(runDir)) {
+                entry.getValue().cancel(false);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Đăng ký thư mục liên quan dưới dir (và chính nó), rồi ingest file đã có sẵn —
+     * file tạo ra trước khi kịp register không sinh event.
+     */
+    private void register(RunReports reports, Path dir) {
+        if (reports.isClosed() || !isWatched(reports.getWorkspace(), dir) || !Files.isDirectory(dir)) {
+            return;
+        }
+        try {
+            WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            registrations.put(key, new Registration(reports, dir));
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+                for (Path child : children) {
+                    if (Files.isDirectory(child)) {
+                        register(reports, child);
+                    } else {
+                        schedule(reports, child);
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Đang shutdown
+        } catch (IOException e) {
+            log.warn("[{}] Cannot watch {}: {}", reports.getWorkspace().runId(), dir, e.getMessage());
+        }
+    }
+
+    /** runDir, runDir/surefire-reports, runDir/shards, runDir/shards/shard-N, .../shard-N/surefire-reports */
+    static boolean isWatched(RunWorkspace workspace, Path dir) {
+        Path relative = workspace.runDir().relativize(dir.toAbsolutePath().normalize());
+        List<String> parts = relative.toString().isEmpty()
+                ? List.of()
+                : StreamSupport.stream(relative.spliterator(), false).map(Path::toString).toList();
+        return switch (parts.size()) {
+            case 0 -> true;
+            case 1 -> parts.get(0).equals(RunWorkspace.REPORTS_DIR) || parts.get(0).equals(RunWorkspace.SHARDS_DIR);
+            case 2 -> parts.get(0).equals(RunWorkspace.SHARDS_DIR) && RunWorkspace.shardIndex(parts.get(1)) >= 0;
+            case 3 -> parts.get(0).equals(RunWorkspace.SHARDS_DIR) && RunWorkspace.shardIndex(parts.get(1)) >= 0
+                    && parts.get(2).equals(RunWorkspace.REPORTS_DIR);
+            default -> false;
+        };
+    }
+
+    private void schedule(RunReports reports, Path file) {
+        if (reports.isClosed() || !SurefireReportParser.isReportFile(file.getFileName().toString())) {
+            return;
+        }
+        pendingFiles.compute(file, (path, previous) -> {
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            return ingestExecutor.schedule(() -> {
+                pendingFiles.remove(path);
+                reports.ingest(path);
+            }, config.getSettleMillis(), TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private void watchLoop() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Registration registration = registrations.get(key);
+            if (registration == null) {
+                key.pollEvents();
+                key.reset();
+                continue;
+            }
+            try {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Mất event → quét lại cả thư mục
+                        register(registration.reports(), registration.dir());
+                        continue;
+                    }
+                    Path child = registration.dir().resolve((Path) event.context());
+                    if (Files.isDirectory(child)) {
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                            register(registration.reports(), child);
+                        }
+                    } else {
+                        schedule(registration.reports(), child);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Report watcher failed to handle events for {}: {}", registration.dir(), e.getMessage());
+            }
+            if (!key.reset()) {
+                registrations.remove(key);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.debug("Failed to close report watch service: {}", e.getMessage());
+        }
+        ingestExecutor.shutdownNow();
+    }
+
+    private static WatchService newWatchService() {
+        try {
+            return FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("Live report ingestion disabled, cannot create watch service: {}", e.getMessage());
+            return null;
+        }
+    }
+}
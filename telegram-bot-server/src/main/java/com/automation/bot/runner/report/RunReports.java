@@ -0,0 +1,210 @@
+package com.automation.bot.runner.report;
+
+import com.automation.bot.parser.SurefireReportParser;
+import com.automation.bot.parser.model.RetriedTest;
+import com.automation.bot.parser.model.TestSuite;
+import com.automation.bot.runner.RunWorkspace;
+import com.automation.bot.runner.TestRunResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Report Surefire của 1 run, ingest dần từng TEST-*.xml ngay khi Surefire ghi xong (1 file = 1 test class).
+ *
+ * Tại sao không parse 1 lần sau khi mvn thoát như trước?
+ * → Run bị cancel / timeout / watchdog kill không còn bước parse → mất hết kết quả của các class đã chạy xong.
+ *   Có sẵn report của từng class → vẫn báo được "12/40 class xong: 110 passed, 3 failed" thay vì chỉ "FAILED".
+ * → Bước parse cuối chỉ đọc những file watcher chưa kịp ingest → gần như không tốn thêm gì.
+ *
+ * Key của file = tên report trong thư mục của run sau khi gộp shard ({@link RunWorkspace#shardReportName}):
+ * report đọc từ thư mục shard lúc đang chạy và bản copy của nó sau khi gộp là cùng 1 entry, không đếm 2 lần.
+ * File đổi (size hoặc mtime) sau lần ingest trước → parse lại (Surefire ghi lại report khi rerun).
+ */
+@Slf4j
+public class RunReports implements AutoCloseable {
+
+    private record Ingested(long size, long modifiedMillis, TestSuite suite) {}
+
+    private final RunWorkspace workspace;
+    private final SurefireReportParser parser;
+    /** key (tên report sau khi gộp) → suite, sắp theo tên giống thứ tự parseReports */
+    private final Map<String, Ingested> ingested = new ConcurrentSkipListMap<>();
+    private volatile Runnable onClose = () -> { };
+    private volatile boolean closed;
+
+    public RunReports(RunWorkspace workspace, SurefireReportParser parser) {
+        this.workspace = workspace;
+        this.parser = parser;
+    }
+
+    public RunWorkspace getWorkspace() {
+        return workspace;
+    }
+
+    /**
+     * Parse file nếu là report của run này và chưa ingest (hoặc đã đổi).
+     * File đang ghi dở → parse lỗi → bỏ qua, lần sửa tiếp theo (hoặc {@link #finish}) sẽ thử lại.
+     * @return true nếu có thêm / cập nhật suite
+     */
+    public synchronized boolean ingest(Path file) {
+        String key = key(file);
+        if (key == null) {
+            return false;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            long modified = attributes.lastModifiedTime().toMillis();
+            Ingested previous = ingested.get(key);
+            if (previous != null && previous.size() == attributes.size() && previous.modifiedMillis() >= modified) {
+                return false;
+            }
+            TestSuite suite = parser.parseFile(file);
+            ingested.put(key, new Ingested(attributes.size(), modified, suite));
+            log.debug("[{}] Ingested {}: tests={}, failures={}", workspace.runId(), key, suite.getTests(), suite.getFailures());
+            return true;
+        } catch (Exception e) {
+            log.debug("[{}] {} not ready yet: {}", workspace.runId(), file.getFileName(), e.getMessage());
+            return false;
+        }
+    }
+
+    /** Các suite đã ingest tới lúc này */
+    public List<TestSuite> snapshot() {
+        return ingested.values().stream().map(Ingested::suite).toList();
+    }
+
+    public boolean isEmpty() {
+        return ingested.isEmpty();
+    }
+
+    /** "12 classes reported, 3 failed" — cho /status */
+    public String summary() {
+        TestRunResult current = currentResult(null);
+        int failed = current.getFailed() + current.getErrors();
+        return ingested.size() + (ingested.size() == 1 ? " class" : " classes") + " reported"
+                + (failed > 0 ? ", " + failed + " failed" : "");
+    }
+
+    /** Kết quả tạm tính từ các class đã xong — dùng khi run dừng giữa chừng, hoặc xem tiến độ */
+    public TestRunResult currentResult(Duration duration) {
+        return parser.buildResult(workspace.runId(), snapshot(), duration, null);
+    }
+
+    /**
+     * Ngừng theo dõi, quét lần cuối (file watcher chưa kịp ingest, run không bật watch, report agent gửi về)
+     * rồi trả toàn bộ suite — thay cho {@code SurefireReportParser.parseReports}.
+     */
+    public List<TestSuite> finish() {
+        close();
+        sweep(workspace.surefireReportsDir());
+        // Run chia shard bị dừng trước khi kịp gộp → report chỉ có trong thư mục shard
+        Path shardsDir = workspace.runDir().resolve(RunWorkspace.SHARDS_DIR);
+        if (Files.isDirectory(shardsDir)) {
+            try (DirectoryStream<Path> shards = Files.newDirectoryStream(shardsDir)) {
+                for (Path shard : shards) {
+                    sweep(shard.resolve(RunWorkspace.REPORTS_DIR));
+                }
+            } catch (IOException e) {
+                log.warn("[{}] Failed to list shard reports: {}", workspace.runId(), e.getMessage());
+            }
+        }
+        if (ingested.isEmpty()) {
+            log.warn("[{}] No Surefire XML reports found in: {}", workspace.runId(), workspace.surefireReportsDir());
+        }
+        return snapshot();
+    }
+
+    /**
+     * Test có chạy lại: testng-results.xml của run (và của từng shard — bản gộp chỉ có TEST-*.xml)
+     * + rerun element trong các suite. Gọi sau {@link #finish}, khi TestNG đã ghi xong file.
+     */
+    public List<RetriedTest> retriedTests(List<TestSuite> suites) {
+        List<RetriedTest> testNg = new ArrayList<>();
+        List<Path> files = new ArrayList<>();
+        files.add(workspace.surefireReportsDir().resolve(SurefireReportParser.TESTNG_RESULTS));
+        Path shardsDir = workspace.runDir().resolve(RunWorkspace.SHARDS_DIR);
+        if (Files.isDirectory(shardsDir)) {
+            try (DirectoryStream<Path> shards = Files.newDirectoryStream(shardsDir)) {
+                for (Path shard : shards) {
+                    files.add(shard.resolve(RunWorkspace.REPORTS_DIR).resolve(SurefireReportParser.TESTNG_RESULTS));
+                }
+            } catch (IOException e) {
+                log.warn("[{}] Failed to list shard reports: {}", workspace.runId(), e.getMessage());
+            }
+        }
+        for (Path file : files) {
+            if (!Files.isRegularFile(file)) continue;
+            try {
+                testNg.addAll(parser.parseTestNgRetries(file));
+            } catch (Exception e) {
+                // Run bị kill giữa lúc TestNG ghi file → thiếu số retry, không làm hỏng kết quả
+                log.warn("[{}] Failed to parse {}: {}", workspace.runId(), file, e.getMessage());
+            }
+        }
+        return parser.getRetriedTests(suites, testNg);
+    }
+
+    void sweep(Path reportsDir) {
+        if (!Files.isDirectory(reportsDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(reportsDir, "TEST-*.xml")) {
+            for (Path file : files) {
+                if (!ingest(file) && key(file) != null && !ingested.containsKey(key(file))) {
+                    log.error("[{}] Failed to parse {}", workspace.runId(), file.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("[{}] Failed to list {}: {}", workspace.runId(), reportsDir, e.getMessage());
+        }
+    }
+
+    void onClose(Runnable onClose) {
+        this.onClose = onClose;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /** Ngừng nhận event từ watcher (idempotent) */
+    @Override
+    public void close() {
+        closed = true;
+        onClose.run();
+        onClose = () -> { };
+    }
+
+    /**
+     * {runDir}/surefire-reports/TEST-x.xml                  → TEST-x.xml
+     * {runDir}/shards/shard-N/surefire-reports/TEST-x.xml   → TEST-sN-x.xml
+     * @return null nếu không phải report của run này
+     */
+    String key(Path file) {
+        String name = file.getFileName().toString();
+        if (!SurefireReportParser.isReportFile(name)) {
+            return null;
+        }
+        Path dir = file.toAbsolutePath().normalize().getParent();
+        if (dir.equals(workspace.surefireReportsDir())) {
+            return name;
+        }
+        Path shardDir = dir.getParent();
+        if (dir.getFileName().toString().equals(RunWorkspace.REPORTS_DIR) && shardDir != null
+                && workspace.runDir().resolve(RunWorkspace.SHARDS_DIR).equals(shardDir.getParent())) {
+            int index = RunWorkspace.shardIndex(shardDir.getFileName().toString());
+            return index >= 0 ? RunWorkspace.shardReportName(index, name) : null;
+        }
+        return null;
+    }
+}
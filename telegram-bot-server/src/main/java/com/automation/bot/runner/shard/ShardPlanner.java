@@ -0,0 +1,160 @@
+package com.automation.bot.runner.shard;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.RunWorkspace;
+import com.automation.bot.runner.TestRunRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Chia suite XML của một profile thành N shard cân bằng theo thời gian chạy lịch sử.
+ *
+ * Cách chia: LPT (Longest Processing Time first) — sort class theo thời gian giảm dần,
+ * lần lượt bỏ vào shard đang nhẹ nhất. Đơn giản, kết quả ≤ 4/3 tối ưu, đủ tốt cho vài chục class.
+ *
+ * Mỗi shard là bản sao suite gốc (giữ nguyên listeners, parameters) chỉ chứa các class của shard,
+ * ghi vào {runDir}/shards/shard-N.xml và truyền cho mvn qua -Dsuite.xml.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShardPlanner {
+
+    private static final String TESTNG_DTD = "https://testng.org/testng-1.0.dtd";
+
+    private final TestRunnerProperties properties;
+    private final TestDurationHistory durationHistory;
+
+    public record Shard(int index, List<String> classes, double estimatedSeconds, Path suiteXml) {}
+
+    /**
+     * @return danh sách shard; rỗng nếu không shard được (không có suite XML, ít hơn 2 class...)
+     */
+    public List<Shard> plan(TestRunRequest request, RunWorkspace workspace) throws Exception {
+        String suitePath = request.getProfile() != null ? properties.getSuites().get(request.getProfile()) : null;
+        if (suitePath == null) {
+            return List.of();
+        }
+        Path suiteFile = Paths.get(properties.getFrameworkPath()).resolve(suitePath);
+        Document suite = parse(suiteFile);
+
+        List<String> classes = classNames(suite);
+        int shardCount = Math.min(Math.min(request.getShards(), properties.getSharding().getMaxShards()), classes.size());
+        if (shardCount <= 1) {
+            return List.of();
+        }
+
+        Map<String, Double> estimates = new LinkedHashMap<>();
+        for (String className : classes) {
+            estimates.put(className, durationHistory.getClassSeconds(className)
+                    .orElse(properties.getSharding().getDefaultClassSeconds()));
+        }
+
+        List<List<String>> bins = balance(estimates, shardCount);
+        Path shardDir = Files.createDirectories(workspace.runDir().resolve(RunWorkspace.SHARDS_DIR));
+
+        List<Shard> shards = new ArrayList<>();
+        for (int i = 0; i < bins.size(); i++) {
+            List<String> shardClasses = bins.get(i);
+            Path shardFile = shardDir.resolve("shard-" + (i + 1) + ".xml");
+            writeShardSuite(parse(suiteFile), new HashSet<>(shardClasses), i + 1, bins.size(), shardFile);
+
+            double seconds = shardClasses.stream().mapToDouble(estimates::get).sum();
+            shards.add(new Shard(i + 1, shardClasses, seconds, shardFile));
+            log.info("[{}] Shard {}/{}: ~{}s, classes={}", request.getRunId(), i + 1, bins.size(),
+                    Math.round(seconds), shardClasses);
+        }
+        return shards;
+    }
+
+    /**
+     * LPT: class chậm nhất trước, mỗi class vào shard đang có tổng thời gian nhỏ nhất.
+     * Shard rỗng bị bỏ. Thứ tự class trong mỗi shard giữ theo thứ tự trong suite gốc.
+     */
+    static List<List<String>> balance(Map<String, Double> estimates, int shardCount) {
+        List<String> bySlowest = new ArrayList<>(estimates.keySet());
+        bySlowest.sort(Comparator.comparingDouble((String c) -> estimates.get(c)).reversed());
+
+        double[] loads = new double[shardCount];
+        List<Set<String>> bins = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            bins.add(new HashSet<>());
+        }
+
+        for (String className : bySlowest) {
+            int lightest = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (loads[i] < loads[lightest]) lightest = i;
+            }
+            bins.get(lightest).add(className);
+            loads[lightest] += estimates.get(className);
+        }
+
+        List<List<String>> result = new ArrayList<>();
+        for (Set<String> bin : bins) {
+            if (bin.isEmpty()) continue;
+            result.add(estimates.keySet().stream().filter(bin::contains).toList());
+        }
+        return result;
+    }
+
+    private List<String> classNames(Document suite) {
+        Set<String> names = new LinkedHashSet<>();
+        NodeList classNodes = suite.getElementsByTagName("class");
+        for (int i = 0; i < classNodes.getLength(); i++) {
+            names.add(((Element) classNodes.item(i)).getAttribute("name"));
+        }
+        return new ArrayList<>(names);
+    }
+
+    /** Bỏ các class không thuộc shard, bỏ luôn <test> rỗng, đổi tên suite để phân biệt trong report */
+    private void writeShardSuite(Document suite, Set<String> keep, int index, int total, Path target) throws Exception {
+        Element root = suite.getDocumentElement();
+        root.setAttribute("name", root.getAttribute("name") + " (shard " + index + "/" + total + ")");
+
+        NodeList classNodes = root.getElementsByTagName("class");
+        for (int i = classNodes.getLength() - 1; i >= 0; i--) {
+            Element classNode = (Element) classNodes.item(i);
+            if (!keep.contains(classNode.getAttribute("name"))) {
+                classNode.getParentNode().removeChild(classNode);
+            }
+        }
+
+        NodeList tests = root.getElementsByTagName("test");
+        for (int i = tests.getLength() - 1; i >= 0; i--) {
+            Element test = (Element) tests.item(i);
+            if (test.getElementsByTagName("class").getLength() == 0) {
+                test.getParentNode().removeChild(test);
+            }
+        }
+
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, TESTNG_DTD);
+        transformer.transform(new DOMSource(suite), new StreamResult(target.toFile()));
+    }
+
+    private Document parse(Path suiteFile) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        // Không tải DTD từ testng.org (offline, chậm) — chỉ cần cấu trúc element
+        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        return builder.parse(suiteFile.toFile());
+    }
+}
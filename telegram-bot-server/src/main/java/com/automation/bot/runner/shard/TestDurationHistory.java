@@ -0,0 +1,94 @@
+package com.automation.bot.runner.shard;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.parser.model.TestCase;
+import com.automation.bot.parser.model.TestSuite;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lưu thời gian chạy của từng test class (giây) từ các run trước — dùng để chia shard cân bằng.
+ *
+ * Tại sao cân bằng theo thời gian thay vì số class?
+ * → CheckoutTest có thể chạy 3 phút, AuthApiTest 5 giây. Chia đều số class → 1 shard gánh
+ *   hết test chậm, wall-clock = shard chậm nhất.
+ *
+ * Lưu dạng JSON nhỏ trong workspace-dir (vài chục class), EMA để không bị 1 run bất thường kéo lệch.
+ */
+@Slf4j
+@Component
+public class TestDurationHistory {
+
+    private static final double ALPHA = 0.5;
+
+    private final Path file;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Double> classSeconds = new ConcurrentHashMap<>();
+
+    public TestDurationHistory(TestRunnerProperties properties) {
+        this.file = Paths.get(properties.getWorkspaceDir()).toAbsolutePath().resolve("test-durations.json");
+        load();
+    }
+
+    public OptionalDouble getClassSeconds(String className) {
+        Double seconds = classSeconds.get(className);
+        return seconds != null ? OptionalDouble.of(seconds) : OptionalDouble.empty();
+    }
+
+    /** Cộng dồn thời gian testcase theo classname rồi merge vào lịch sử */
+    public void record(List<TestSuite> suites) {
+        Map<String, Double> totals = new HashMap<>();
+        for (TestSuite suite : suites) {
+            if (suite.getTestCases() == null) continue;
+            for (TestCase tc : suite.getTestCases()) {
+                if (tc.getClassname() != null && !tc.isSkipped()) {
+                    totals.merge(tc.getClassname(), tc.getTime(), Double::sum);
+                }
+            }
+        }
+        if (totals.isEmpty()) {
+            return;
+        }
+
+        totals.forEach((className, seconds) ->
+                classSeconds.merge(className, seconds, (old, latest) -> old * (1 - ALPHA) + latest * ALPHA));
+        save();
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            classSeconds.putAll(objectMapper.readValue(file.toFile(), new TypeReference<Map<String, Double>>() {}));
+            log.info("Loaded duration history for {} test classes", classSeconds.size());
+        } catch (IOException e) {
+            log.warn("Failed to load duration history {}: {}", file, e.getMessage());
+        }
+    }
+
+    /** Ghi file tạm rồi move → không bao giờ để lại file JSON ghi dở */
+    private synchronized void save() {
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), new HashMap<>(classSeconds));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to save duration history {}: {}", file, e.getMessage());
+        }
+    }
+}
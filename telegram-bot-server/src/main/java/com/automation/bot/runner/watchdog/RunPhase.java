@@ -0,0 +1,45 @@
+package com.automation.bot.runner.watchdog;
+
+import java.util.Locale;
+
+/**
+ * Các giai đoạn của 1 test run, theo thứ tự. Mỗi phase có budget thời gian + budget "im lặng" riêng.
+ *
+ * Tại sao chia phase?
+ * → Resolve dependency lần đầu có thể mất vài phút, compile chỉ vài chục giây, chạy test thì hàng chục phút.
+ *   1 timeout chung 30 phút → compile treo cũng phải chờ đủ 30 phút mới bị kill.
+ */
+public enum RunPhase {
+    /** mvn khởi động, resolve/download dependency, copy resources */
+    RESOLVE,
+    /** compile + testCompile */
+    COMPILE,
+    /** Surefire chạy TestNG */
+    TEST,
+    /** allure generate */
+    REPORT;
+
+    /** Key trong config (bot.runner.watchdog.phase-minutes.test, ...) */
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Phase mà dòng output mvn đánh dấu bắt đầu, null nếu dòng không đổi phase.
+     * Maven in "--- compiler:3.11.0:compile ..." (3.9+) hoặc "--- maven-compiler-plugin:..." (bản cũ).
+     */
+    static RunPhase fromMavenLine(String line) {
+        if (line.contains("--- ")) {
+            if (line.contains("compiler")) {
+                return COMPILE;
+            }
+            if (line.contains("surefire")) {
+                return TEST;
+            }
+        }
+        if (line.contains("T E S T S")) {
+            return TEST;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,190 @@
+package com.automation.bot.runner.watchdog;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.process.ProcessTree;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watchdog cho process của test run: theo dõi phase hiện tại và thời điểm có output gần nhất,
+ * kill cả cây process khi vượt budget → slot được trả cho hàng chờ sau vài phút thay vì 30 phút.
+ *
+ * 3 loại budget:
+ * - inactivity: không có dòng output nào trong N phút (browser treo, test chờ element mãi).
+ * - phase: 1 phase chạy quá N phút (compile treo, resolve dependency kẹt mạng).
+ * - tổng: timeout-minutes cho cả process (giữ nguyên ý nghĩa config cũ).
+ *
+ * Tại sao không tự kiểm tra trong vòng đọc stdout?
+ * → readLine() block khi process im lặng — đúng lúc cần kiểm tra nhất thì thread đọc lại không chạy.
+ *   Ticker riêng kiểm tra mọi run đang theo dõi, kill xong thì stdout EOF và thread đọc tự thoát.
+ */
+@Slf4j
+@Component
+public class RunWatchdog {
+
+    private final TestRunnerProperties properties;
+    private final TestRunnerProperties.Watchdog config;
+    private final Clock clock;
+    private final Set<Watch> watches = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService ticker;
+
+    @Autowired
+    public RunWatchdog(TestRunnerProperties properties) {
+        this(properties, Clock.systemUTC(), true);
+    }
+
+    RunWatchdog(TestRunnerProperties properties, Clock clock, boolean startTicker) {
+        this.properties = properties;
+        this.config = properties.getWatchdog();
+        this.clock = clock;
+        if (!startTicker || !config.isEnabled()) {
+            this.ticker = null;
+            return;
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "run-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        this.ticker.scheduleWithFixedDelay(this::checkSafely,
+                config.getCheckIntervalSeconds(), config.getCheckIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Bắt đầu theo dõi 1 process (gắn qua {@link Watch#attach}). Dùng try-with-resources để luôn bỏ theo dõi.
+     * Watchdog tắt → Watch vẫn dùng được nhưng không bao giờ abort.
+     */
+    public Watch watch(String runId, RunPhase phase) {
+        Watch watch = new Watch(runId, phase);
+        if (config.isEnabled()) {
+            watches.add(watch);
+        }
+        return watch;
+    }
+
+    /** 1 lượt kiểm tra mọi run đang theo dõi */
+    void check() {
+        Instant now = clock.instant();
+        for (Watch watch : watches) {
+            String reason = violation(watch, now);
+            if (reason != null) {
+                watch.abort(reason);
+            }
+        }
+    }
+
+    private void checkSafely() {
+        try {
+            check();
+        } catch (Exception e) {
+            // Exception trong scheduleWithFixedDelay sẽ hủy lịch chạy → luôn bắt lại
+            log.warn("Run watchdog check failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /** @return lý do abort, null nếu run còn trong budget */
+    private String violation(Watch watch, Instant now) {
+        ProcessHandle target = watch.target;
+        if (target == null || !target.isAlive() || watch.abortReason != null) {
+            return null;
+        }
+        RunPhase phase = watch.phase;
+
+        int inactivity = config.getInactivityMinutes().getOrDefault(phase.key(), 0);
+        if (inactivity > 0 && Duration.between(watch.lastOutputAt, now).toMinutes() >= inactivity) {
+            return "No output for " + inactivity + " minutes during " + phase.key() + " phase";
+        }
+        int phaseBudget = config.getPhaseMinutes().getOrDefault(phase.key(), 0);
+        if (phaseBudget > 0 && Duration.between(watch.phaseStartedAt, now).toMinutes() >= phaseBudget) {
+            return "The " + phase.key() + " phase exceeded " + phaseBudget + " minutes";
+        }
+        if (Duration.between(watch.attachedAt, now).toMinutes() >= properties.getTimeoutMinutes()) {
+            return "Timeout after " + properties.getTimeoutMinutes() + " minutes";
+        }
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    /**
+     * Theo dõi 1 process: nhận từng dòng output (accept) để cập nhật thời điểm output + phase.
+     */
+    public final class Watch implements Consumer<String>, AutoCloseable {
+
+        private final String runId;
+        private volatile RunPhase phase;
+        private volatile ProcessHandle target;
+        private volatile Instant attachedAt;
+        private volatile Instant phaseStartedAt;
+        private volatile Instant lastOutputAt;
+        private volatile String abortReason;
+
+        private Watch(String runId, RunPhase phase) {
+            this.runId = runId;
+            this.phase = phase;
+        }
+
+        /** Gắn process cần theo dõi — budget bắt đầu tính từ đây (không tính thời gian chờ trước khi start) */
+        public void attach(Process process) {
+            Instant now = clock.instant();
+            attachedAt = now;
+            phaseStartedAt = now;
+            lastOutputAt = now;
+            target = process.toHandle();
+        }
+
+        @Override
+        public void accept(String line) {
+            lastOutputAt = clock.instant();
+            RunPhase next = RunPhase.fromMavenLine(line);
+            // Phase chỉ đi tới: compiler chạy 2 lần (compile, testCompile) không được reset thời gian phase
+            if (next != null && next.ordinal() > phase.ordinal()) {
+                log.debug("[{}] Phase {} → {}", runId, phase.key(), next.key());
+                phase = next;
+                phaseStartedAt = lastOutputAt;
+            }
+        }
+
+        public RunPhase getPhase() {
+            return phase;
+        }
+
+        public boolean isAborted() {
+            return abortReason != null;
+        }
+
+        /** Lý do watchdog kill process, null nếu không bị kill */
+        public String getAbortReason() {
+            return abortReason;
+        }
+
+        private void abort(String reason) {
+            abortReason = reason;
+            ProcessTree.Reclaimed reclaimed = ProcessTree.destroy(target);
+            log.warn("[{}] Watchdog aborted run: {} — killed {} processes, ~{} MB reclaimed",
+                    runId, reason, reclaimed.processes(), reclaimed.rssMb());
+        }
+
+        @Override
+        public void close() {
+            watches.remove(this);
+        }
+    }
+}
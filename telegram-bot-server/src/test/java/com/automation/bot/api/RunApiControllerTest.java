@@ -0,0 +1,54 @@
+package com.automation.bot.api;
+
+import com.automation.bot.config.ApiProperties;
+import com.automation.bot.config.BotProperties;
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.TestRunRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunApiControllerTest {
+
+    private final TestRunnerProperties runnerProperties = new TestRunnerProperties();
+    private final BotProperties botProperties = new BotProperties();
+    private final ApiProperties apiProperties = new ApiProperties();
+    private final RunApiController controller = new RunApiController(null, null, null,
+            runnerProperties, botProperties, apiProperties);
+
+    @Test
+    void submissionFallsBackToRunnerDefaults() {
+        runnerProperties.getSharding().setDefaultShards(Map.of("regression", 3));
+        runnerProperties.getSharding().setMaxShards(4);
+        apiProperties.setUserId(42);
+
+        TestRunRequest request = controller.toRequest(
+                new RunSubmission("regression", null, "Staging", null, null, null, null, null));
+
+        assertEquals("staging", request.getEnv());
+        assertEquals(runnerProperties.getDefaultBrowser(), request.getBrowser());
+        assertEquals(3, request.getShards());
+        assertEquals(42, request.getUserId());
+        assertEquals(TestRunRequest.NO_CHAT, request.getChatId(), "API run without chat is not sent to Telegram");
+        assertEquals(8, request.getRunId().length());
+    }
+
+    @Test
+    void invalidSubmissionsAreRejected() {
+        botProperties.setAllowedChatIds(List.of(100L));
+
+        assertThrows(IllegalArgumentException.class, () -> controller.toRequest(
+                new RunSubmission(null, null, null, null, null, null, null, null)));
+        assertThrows(IllegalArgumentException.class, () -> controller.toRequest(
+                new RunSubmission("smoke", "LoginTest", null, null, null, null, null, null)));
+        assertThrows(IllegalArgumentException.class, () -> controller.toRequest(
+                new RunSubmission("smoke", null, "dev -Dmaven.repo.local=/tmp", null, null, null, null, null)));
+        assertThrows(IllegalArgumentException.class, () -> controller.toRequest(
+                new RunSubmission("smoke", null, null, null, null, null, 999L, null)));
+        assertEquals(100L, controller.toRequest(
+                new RunSubmission("smoke", null, null, null, null, 9, 100L, null)).getChatId());
+    }
+}
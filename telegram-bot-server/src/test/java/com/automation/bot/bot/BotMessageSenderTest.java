@@ -0,0 +1,338 @@
+package com.automation.bot.bot;
+
+import com.automation.bot.config.BotProperties;
+import com.automation.bot.metrics.BotMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BotMessageSenderTest {
+
+    private final BotMetrics metrics = new BotMetrics();
+    private final BotProperties.Outbound config = new BotProperties.Outbound();
+    private final BlockingQueue<Sent> sent = new LinkedBlockingQueue<>();
+    private BotMessageSender sender;
+
+    @TempDir
+    Path dir;
+
+    /**
+     * 1 lần gọi execute — thời điểm gọi để kiểm tra khoảng cách giữa các lần gửi.
+     * @param editOf messageId được sửa, null = sendMessage (message mới có id = số thứ tự lần gọi)
+     * @param document tên file của sendDocument (text = caption), null = message
+     */
+    private record Sent(long chatId, String text, String parseMode, long at, Integer editOf, String document) {
+    }
+
+    /** Phản hồi giả của Telegram cho lần gọi thứ n (null = thành công) */
+    private interface Responder {
+        Exception respond(int call) throws InterruptedException;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (sender != null) {
+            sender.shutdown();
+        }
+    }
+
+    @Test
+    void coalescesQueuedMessagesAndSpacesSendsPerChat() throws Exception {
+        config.setChatPerSecond(2);
+        config.setChatBurst(1);
+        CountDownLatch release = new CountDownLatch(1);
+        sender = sender(call -> {
+            if (call == 1) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return null;
+        });
+
+        sender.send(42, "a");
+        Sent first = poll();
+        // "a" đang gửi → b, c, d dồn lại trong hàng của chat
+        sender.send(42, "b");
+        sender.send(42, "c");
+        sender.sendHtml(42, "<b>d</b>");
+        release.countDown();
+
+        Sent second = poll();
+        Sent third = poll();
+        assertEquals("a", first.text());
+        assertEquals("b\n\nc", second.text(), "same parse mode merged");
+        assertEquals("Markdown", second.parseMode());
+        assertEquals("<b>d</b>", third.text(), "different parse mode sent separately");
+        assertEquals("HTML", third.parseMode());
+        assertTrue(second.at() - first.at() >= TimeUnit.MILLISECONDS.toNanos(450), "2 msg/s per chat");
+        assertTrue(third.at() - second.at() >= TimeUnit.MILLISECONDS.toNanos(450), "2 msg/s per chat");
+        assertTrue(metrics.scrape().contains("bot_telegram_coalesced_total 1"), metrics.scrape());
+    }
+
+    @Test
+    void retriesRateLimitedSendAfterRetryAfter() throws Exception {
+        sender = sender(call -> call == 1 ? error(429, 1) : null);
+
+        sender.send(42, "result");
+        Sent first = poll();
+        Sent retry = poll();
+
+        assertEquals("result", retry.text());
+        assertTrue(retry.at() - first.at() >= TimeUnit.MILLISECONDS.toNanos(950), "retry_after honoured");
+        assertTrue(metrics.scrape().contains("bot_telegram_retries_total{reason=\"rate_limited\"} 1"), metrics.scrape());
+    }
+
+    @Test
+    void dropsMessagesTelegramRejects() throws Exception {
+        sender = sender(call -> call == 1 ? error(400, null) : null);
+
+        sender.send(42, "bad *markdown");
+        poll();
+        sender.send(42, "next");
+
+        assertEquals("next", poll().text(), "rejected message not retried");
+        assertTrue(metrics.scrape().contains("bot_telegram_dropped_total{reason=\"rejected\"} 1"), metrics.scrape());
+    }
+
+    @Test
+    void rejectedCoalescedMessageIsResentPartByPart() throws Exception {
+        config.setChatPerSecond(20);
+        config.setChatBurst(10);
+        CountDownLatch release = new CountDownLatch(1);
+        // Lần 2 = bản gộp, lần 4 = message sai khi gửi riêng
+        sender = sender(call -> {
+            if (call == 1) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return call == 2 || call == 4 ? error(400, null) : null;
+        });
+
+        sender.send(42, "a");
+        poll();
+        sender.send(42, "b");
+        sender.send(42, "c *bad");
+        sender.send(42, "d");
+        release.countDown();
+
+        assertEquals("b\n\nc *bad\n\nd", poll().text());
+        assertEquals("b", poll().text(), "parts resent one by one");
+        assertEquals("c *bad", poll().text());
+        assertEquals("d", poll().text(), "only the bad part is dropped");
+        String scrape = metrics.scrape();
+        assertTrue(scrape.contains("bot_telegram_retries_total{reason=\"split\"} 1"), scrape);
+        assertTrue(scrape.contains("bot_telegram_dropped_total{reason=\"rejected\"} 1"), scrape);
+    }
+
+    @Test
+    void unparsableMarkdownIsResentAsPlainText() throws Exception {
+        sender = sender(call -> call == 1
+                ? new TelegramApiRequestException("Error sending message", new ApiResponse<>(false, 400,
+                        "Bad Request: can't parse entities: can't find end of the entity", null, null))
+                : null);
+
+        sender.send(42, "LoginTest.test_valid_login *failed");
+
+        assertEquals("Markdown", poll().parseMode());
+        Sent plain = poll();
+        assertNull(plain.parseMode());
+        assertEquals("LoginTest.test_valid_login *failed", plain.text());
+    }
+
+    @Test
+    void sendNeverBlocksOnSlowTelegram() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        sender = sender(call -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            sender.send(i, "run finished");
+        }
+        long elapsed = System.nanoTime() - start;
+        release.countDown();
+
+        assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(500), "enqueue took " + elapsed + "ns");
+        assertNotNull(poll());
+    }
+
+    @Test
+    void liveMessageIsEditedInPlaceWithOnlyTheLatestContent() throws Exception {
+        config.setEditIntervalMillis(300);
+        sender = sender(call -> null);
+        BotMessageSender.LiveMessage live = sender.live(42);
+
+        live.update("Queued");
+        Sent queued = poll();
+        assertNull(queued.editOf(), "first update sends a new message");
+
+        for (int done = 1; done <= 20; done++) {
+            live.update("Running " + done + "/20");
+        }
+        Sent progress = poll();
+        assertEquals(1, progress.editOf(), "edits the message sent first");
+        assertEquals("Running 20/20", progress.text(), "intermediate updates skipped");
+        assertTrue(progress.at() - queued.at() >= TimeUnit.MILLISECONDS.toNanos(250), "edits throttled");
+
+        live.update("Running 20/20");
+        live.update("Result");
+        assertEquals("Result", poll().text());
+        live.update("Result");
+        assertNull(sent.poll(600, TimeUnit.MILLISECONDS), "unchanged content not sent again");
+    }
+
+    @Test
+    void liveMessageFallsBackToNewMessageWhenEditIsRejected() throws Exception {
+        config.setEditIntervalMillis(0);
+        sender = sender(call -> call == 2 ? error(400, null) : null);
+        BotMessageSender.LiveMessage live = sender.live(42);
+
+        live.update("Queued");
+        poll();
+        live.update("Result");
+        Sent edit = poll();
+        Sent resent = poll();
+
+        assertEquals(1, edit.editOf());
+        assertNull(resent.editOf(), "message deleted by user → sent again");
+        assertEquals("Result", resent.text());
+    }
+
+    @Test
+    void documentIsSentInOrderWithMessagesAndDeletedAfterwards() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        sender = sender(call -> {
+            if (call == 1) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return null;
+        });
+        Path report = report();
+
+        sender.send(42, "a");
+        poll();
+        sender.send(42, "b");
+        sender.sendDocument(42, report, "failures.html", "48 failures");
+        sender.send(42, "c");
+        release.countDown();
+
+        assertEquals("b", poll().text(), "message queued before the document is not merged past it");
+        Sent document = poll();
+        assertEquals("failures.html", document.document());
+        assertEquals("48 failures", document.text());
+        assertEquals("c", poll().text());
+        awaitDeleted(report);
+    }
+
+    @Test
+    void documentDroppedOnFullQueueIsDeleted() throws Exception {
+        config.setMaxQueued(1);
+        CountDownLatch release = new CountDownLatch(1);
+        sender = sender(call -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        Path report = report();
+
+        sender.send(42, "a");
+        poll();
+        sender.send(42, "b");
+        sender.sendDocument(42, report, "failures.html", "48 failures");
+        release.countDown();
+
+        assertFalse(Files.exists(report));
+        assertTrue(metrics.scrape().contains("bot_telegram_dropped_total{reason=\"queue_full\"} 1"), metrics.scrape());
+    }
+
+    @Test
+    void documentStillQueuedAtShutdownIsDeleted() throws Exception {
+        config.setDrainSeconds(1);
+        CountDownLatch never = new CountDownLatch(1);
+        sender = sender(call -> {
+            never.await(10, TimeUnit.SECONDS);
+            return null;
+        });
+        Path report = report();
+
+        sender.send(42, "a");
+        poll();
+        sender.sendDocument(42, report, "failures.html", "48 failures");
+        sender.shutdown();
+        sender = null;
+
+        assertFalse(Files.exists(report), "temp file not left behind");
+    }
+
+    private BotMessageSender sender(Responder responder) {
+        AtomicInteger calls = new AtomicInteger();
+        TelegramClient client = (TelegramClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{TelegramClient.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("execute")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    int call = calls.incrementAndGet();
+                    if (args[0] instanceof EditMessageText edit) {
+                        sent.add(new Sent(Long.parseLong(edit.getChatId()), edit.getText(),
+                                edit.getParseMode(), System.nanoTime(), edit.getMessageId(), null));
+                    } else if (args[0] instanceof SendMessage message) {
+                        sent.add(new Sent(Long.parseLong(message.getChatId()), message.getText(),
+                                message.getParseMode(), System.nanoTime(), null, null));
+                    } else if (args[0] instanceof SendDocument document) {
+                        sent.add(new Sent(Long.parseLong(document.getChatId()), document.getCaption(),
+                                null, System.nanoTime(), null, document.getDocument().getMediaName()));
+                    } else {
+                        throw new UnsupportedOperationException(args[0].getClass().getSimpleName());
+                    }
+                    Exception e = responder.respond(call);
+                    if (e != null) {
+                        throw e;
+                    }
+                    Message result = new Message();
+                    result.setMessageId(call);
+                    return result;
+                });
+        return new BotMessageSender(client, config, metrics);
+    }
+
+    private Sent poll() throws InterruptedException {
+        Sent next = sent.poll(5, TimeUnit.SECONDS);
+        assertNotNull(next, "message not sent within 5s");
+        return next;
+    }
+
+    private Path report() throws Exception {
+        return Files.writeString(Files.createTempFile(dir, "failures-", ".html"), "<html></html>");
+    }
+
+    /** File tạm được xóa trên thread gửi, ngay sau khi Telegram trả về */
+    private static void awaitDeleted(Path file) throws InterruptedException {
+        for (int i = 0; i < 50 && Files.exists(file); i++) {
+            Thread.sleep(100);
+        }
+        assertFalse(Files.exists(file), "temp file deleted after sending");
+    }
+
+    private static TelegramApiRequestException error(int code, Integer retryAfter) {
+        return new TelegramApiRequestException("Error sending message",
+                new ApiResponse<>(false, code, "error " + code, new ResponseParameters(null, retryAfter), null));
+    }
+}
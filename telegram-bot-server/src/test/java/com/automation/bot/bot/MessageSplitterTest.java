@@ -0,0 +1,72 @@
+package com.automation.bot.bot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageSplitterTest {
+
+    @Test
+    void shortMessageIsLeftAlone() {
+        assertEquals(List.of("*ok*"), MessageSplitter.split("*ok*", "Markdown", 4096));
+    }
+
+    @Test
+    void splitsAtLineBreaksAndReopensMarkdownEntities() {
+        StringBuilder text = new StringBuilder("*Failures:*\n```\n");
+        for (int i = 0; i < 400; i++) {
+            text.append("LoginTest.test").append(i).append(" TimeoutException\n");
+        }
+        text.append("```\ndone");
+
+        List<String> chunks = MessageSplitter.split(text.toString(), "Markdown", 4096);
+
+        assertTrue(chunks.size() > 1);
+        for (String chunk : chunks) {
+            assertTrue(chunk.length() <= 4096, "chunk length " + chunk.length());
+            assertEquals(0, count(chunk, "```") % 2, "pre block closed in every chunk");
+        }
+        assertTrue(chunks.get(1).startsWith("```"), "pre reopened");
+        assertTrue(chunks.get(chunks.size() - 1).endsWith("```\ndone"));
+        assertEquals(text.toString().replace("\n", "").replace("```", ""),
+                String.join("", chunks).replace("\n", "").replace("```", ""), "no content lost");
+    }
+
+    @Test
+    void neverCutsInsideMarkdownLinkOrEscape() {
+        String link = "[View Allure Report](https://example.github.io/reports/run-1234/index.html)";
+        // Khoảng trắng gần giới hạn nhất nằm giữa "View Allure Report"
+        String text = "x".repeat(3960) + " " + link + " " + "y".repeat(100);
+
+        List<String> chunks = MessageSplitter.split(text, "Markdown", 4096);
+
+        assertEquals(2, chunks.size());
+        assertEquals("x".repeat(3960) + " ", chunks.get(0));
+        assertTrue(chunks.get(1).startsWith(link), "link moved whole to the next chunk");
+    }
+
+    @Test
+    void closesAndReopensHtmlTags() {
+        String text = "<b>History</b>\n<pre>" + "12-01  3.2s  1/1 passed\n".repeat(300) + "</pre>\n<i>end &amp; more</i>";
+
+        List<String> chunks = MessageSplitter.split(text, "HTML", 4096);
+
+        assertTrue(chunks.size() > 1);
+        for (String chunk : chunks) {
+            assertTrue(chunk.length() <= 4096);
+            assertEquals(count(chunk, "<pre>"), count(chunk, "</pre>"), "tags balanced in every chunk");
+        }
+        assertTrue(chunks.get(0).endsWith("</pre>"));
+        assertTrue(chunks.get(1).startsWith("<pre>"));
+    }
+
+    private static int count(String text, String token) {
+        int count = 0;
+        for (int i = text.indexOf(token); i >= 0; i = text.indexOf(token, i + token.length())) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,51 @@
+package com.automation.bot.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    void histogramBucketsAreCumulative() {
+        MetricsRegistry.Histogram histogram = registry.histogram("wait_seconds", "Wait", new double[]{1, 5}, "profile");
+        histogram.observe(0.5, "smoke");
+        histogram.observe(3, "smoke");
+        histogram.observe(60, "smoke");
+
+        String text = registry.scrape();
+        assertTrue(text.contains("# TYPE wait_seconds histogram\n"));
+        assertTrue(text.contains("wait_seconds_bucket{profile=\"smoke\",le=\"1\"} 1\n"));
+        assertTrue(text.contains("wait_seconds_bucket{profile=\"smoke\",le=\"5\"} 2\n"));
+        assertTrue(text.contains("wait_seconds_bucket{profile=\"smoke\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("wait_seconds_sum{profile=\"smoke\"} 63.5\n"));
+        assertTrue(text.contains("wait_seconds_count{profile=\"smoke\"} 3\n"));
+    }
+
+    @Test
+    void countersAndGaugesWithEscapedLabels() {
+        MetricsRegistry.Counter counter = registry.counter("exits_total", "Exits", "code");
+        counter.inc("1");
+        counter.inc("1");
+        counter.inc("0");
+        registry.gauge("depth", "Depth", () -> Map.of(List.of(), 4.0));
+        registry.counter("odd_total", "Odd", "name").inc("a\"b");
+
+        String text = registry.scrape();
+        // Sorted theo label → output ổn định
+        assertTrue(text.contains("exits_total{code=\"0\"} 1\nexits_total{code=\"1\"} 2\n"));
+        assertTrue(text.contains("depth 4\n"));
+        assertTrue(text.contains("odd_total{name=\"a\\\"b\"} 1\n"));
+    }
+
+    @Test
+    void wrongLabelCountIsRejected() {
+        MetricsRegistry.Counter counter = registry.counter("exits_total", "Exits", "code");
+        assertThrows(IllegalArgumentException.class, () -> counter.inc("1", "extra"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.automation.bot.notification;
+
+import com.automation.bot.parser.FailureClusterer;
+import com.automation.bot.parser.model.TestCase;
+import com.automation.bot.runner.RunStatus;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailureReportWriterTest {
+
+    private final FailureReportWriter writer = new FailureReportWriter();
+    private final FailureClusterer clusterer = new FailureClusterer();
+
+    private final TestRunRequest request = TestRunRequest.builder().runId("r1").env("staging").profile("regression").build();
+    private final TestRunResult result = TestRunResult.builder()
+            .runId("r1")
+            .status(RunStatus.COMPLETED)
+            .totalTests(40)
+            .passed(37)
+            .failed(3)
+            .duration(Duration.ofSeconds(95))
+            .build();
+
+    @Test
+    void writesClustersLargestFirstWithEscapedMessages() throws Exception {
+        List<FailureClusterer.Cluster> clusters = clusterer.cluster(List.of(
+                failure("testCheckout", "java.lang.AssertionError", "expected <200> but was <500> & \"retry\"",
+                        "org.testng.Assert.fail(Assert.java:110)"),
+                failure("testLogin", "org.openqa.selenium.TimeoutException", "waiting for .p-progress-spinner",
+                        "org.openqa.selenium.support.ui.WebDriverWait.until(WebDriverWait.java:80)"),
+                failure("testLogout", "org.openqa.selenium.TimeoutException", "waiting for .p-progress-spinner",
+                        "org.openqa.selenium.support.ui.WebDriverWait.until(WebDriverWait.java:80)")));
+
+        StringWriter out = new StringWriter();
+        writer.write(out, request, result, clusters);
+        String html = out.toString();
+
+        assertTrue(html.contains("<h1>regression — 3 failed</h1>"), html);
+        assertTrue(html.contains("40 tests, 37 passed, 3 failed, 0 errors, 0 skipped · 95s"), html);
+        assertTrue(html.indexOf("2\u00d7 TimeoutException") < html.indexOf("1\u00d7 AssertionError"), "largest cluster first");
+        assertTrue(html.contains("expected &lt;200&gt; but was &lt;500&gt; &amp; &quot;retry&quot;"), "message escaped");
+        assertFalse(html.contains("<200>"));
+        assertTrue(html.contains("com.automation.CheckoutTest.<b>testCheckout</b>"));
+        assertTrue(html.contains("at org.testng.Assert.fail(Assert.java:110)"));
+        assertTrue(html.endsWith("</body></html>\n"));
+    }
+
+    @Test
+    void truncatesLongMessages() throws Exception {
+        StringWriter out = new StringWriter();
+        writer.write(out, request, result, clusterer.cluster(List.of(
+                failure("testSearch", "java.lang.AssertionError", "x".repeat(5000), "org.testng.Assert.fail(Assert.java:110)"))));
+
+        assertTrue(out.toString().contains("x".repeat(1000) + "...</pre>"));
+        assertFalse(out.toString().contains("x".repeat(1001)));
+    }
+
+    @Test
+    void writeTempProducesUtf8FileTheCallerDeletes() throws Exception {
+        Path file = writer.writeTemp(request, result, clusterer.cluster(List.of(
+                failure("testTìmKiếm", "java.lang.AssertionError", "không tìm thấy", "org.testng.Assert.fail(Assert.java:110)"))));
+        try {
+            assertTrue(file.getFileName().toString().startsWith("failures-r1-"));
+            assertTrue(Files.readString(file, StandardCharsets.UTF_8).contains("không tìm thấy"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static TestCase failure(String name, String type, String message, String frame) {
+        TestCase tc = new TestCase();
+        tc.setName(name);
+        tc.setClassname("com.automation.CheckoutTest");
+        tc.setTime(1.5);
+        TestCase.Failure failure = new TestCase.Failure();
+        failure.setType(type);
+        failure.setMessage(message);
+        failure.setStackFrames(List.of(frame));
+        tc.setFailure(failure);
+        return tc;
+    }
+}
@@ -0,0 +1,148 @@
+package com.automation.bot.notification.sink;
+
+import com.automation.bot.config.NotificationProperties;
+import com.automation.bot.metrics.BotMetrics;
+import com.automation.bot.runner.RunStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationFanoutTest {
+
+    private final BotMetrics metrics = new BotMetrics();
+    private final NotificationProperties properties = new NotificationProperties();
+    private NotificationFanout fanout;
+
+    /** Sink giả: ghi lại runId đã nhận, hành vi của lần gửi do test quyết định */
+    private record StubSink(String name, BlockingQueue<String> received, Behavior behavior) implements NotificationSink {
+        @Override
+        public void send(RunNotification notification) throws Exception {
+            behavior.before(notification);
+            received.add(notification.runId());
+        }
+    }
+
+    private interface Behavior {
+        void before(RunNotification notification) throws Exception;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (fanout != null) {
+            fanout.shutdown();
+        }
+    }
+
+    @Test
+    void slowChannelDoesNotDelayOtherChannels() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<String> slow = new LinkedBlockingQueue<>();
+        BlockingQueue<String> fast = new LinkedBlockingQueue<>();
+        fanout = fanout(List.of(
+                new StubSink("email", slow, n -> release.await(5, TimeUnit.SECONDS)),
+                new StubSink("webhook", fast, n -> { })));
+
+        fanout.publish(notification("run-1"));
+        fanout.publish(notification("run-2"));
+
+        // Kênh email treo ở run-1 → webhook vẫn nhận cả 2, publish không bị block
+        assertEquals("run-1", fast.poll(2, TimeUnit.SECONDS));
+        assertEquals("run-2", fast.poll(2, TimeUnit.SECONDS));
+        assertTrue(slow.isEmpty());
+        awaitScrape("bot_notification_queue_depth{sink=\"email\"} 1\n");
+
+        release.countDown();
+        assertEquals("run-1", slow.poll(2, TimeUnit.SECONDS));
+        assertEquals("run-2", slow.poll(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void retriesFailedSendAndIsolatesBrokenChannel() throws Exception {
+        properties.setMaxAttempts(3);
+        AtomicInteger flakyCalls = new AtomicInteger();
+        BlockingQueue<String> flaky = new LinkedBlockingQueue<>();
+        BlockingQueue<String> broken = new LinkedBlockingQueue<>();
+        BlockingQueue<String> healthy = new LinkedBlockingQueue<>();
+        fanout = fanout(List.of(
+                new StubSink("webhook", flaky, n -> {
+                    if (flakyCalls.incrementAndGet() < 3) {
+                        throw new IOException("HTTP 503");
+                    }
+                }),
+                new StubSink("email", broken, n -> {
+                    throw new IOException("connection refused");
+                }),
+                new StubSink("file", healthy, n -> { })));
+
+        fanout.publish(notification("run-1"));
+
+        assertEquals("run-1", healthy.poll(2, TimeUnit.SECONDS));
+        assertEquals("run-1", flaky.poll(2, TimeUnit.SECONDS));
+        assertEquals(3, flakyCalls.get());
+
+        awaitScrape("bot_notifications_total{sink=\"email\",result=\"failure\"} 1\n");
+        awaitScrape("bot_notifications_total{sink=\"webhook\",result=\"success\"} 1\n");
+        awaitScrape("bot_notifications_total{sink=\"file\",result=\"success\"} 1\n");
+        assertTrue(broken.isEmpty());
+    }
+
+    @Test
+    void dropsNotificationsForFullChannelOnly() throws Exception {
+        properties.setQueueCapacity(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        BlockingQueue<String> stuck = new LinkedBlockingQueue<>();
+        BlockingQueue<String> fast = new LinkedBlockingQueue<>();
+        fanout = fanout(List.of(
+                new StubSink("webhook", stuck, n -> {
+                    started.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                }),
+                new StubSink("file", fast, n -> { })));
+
+        fanout.publish(notification("run-1"));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        assertEquals("run-1", fast.poll(2, TimeUnit.SECONDS));
+        fanout.publish(notification("run-2"));     // nằm trong hàng webhook (capacity 1)
+        assertEquals("run-2", fast.poll(2, TimeUnit.SECONDS));
+        fanout.publish(notification("run-3"));     // hàng webhook đầy → bỏ, kênh file vẫn nhận
+        assertEquals("run-3", fast.poll(2, TimeUnit.SECONDS));
+        assertTrue(metrics.scrape().contains("bot_notifications_total{sink=\"webhook\",result=\"dropped\"} 1\n"));
+
+        release.countDown();
+        assertEquals("run-1", stuck.poll(2, TimeUnit.SECONDS));
+        assertEquals("run-2", stuck.poll(2, TimeUnit.SECONDS));
+        assertNull(stuck.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    private NotificationFanout fanout(List<NotificationSink> sinks) {
+        return new NotificationFanout(sinks, properties, metrics, 10);
+    }
+
+    private void awaitScrape(String expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        String scrape = metrics.scrape();
+        while (!scrape.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            scrape = metrics.scrape();
+        }
+        assertTrue(scrape.contains(expected), scrape);
+    }
+
+    static RunNotification notification(String runId) {
+        return new RunNotification(runId, "smoke", "dev", RunStatus.FAILED, false, 42, 40, 2, 0, 0, 0, 182,
+                null, "http://allure/" + runId, Instant.now(),
+                List.of(new RunNotification.FailureGroup(2, "TimeoutException: login button",
+                        List.of("LoginTest.testValidLogin", "LoginTest.testRememberMe"))));
+    }
+}
@@ -0,0 +1,134 @@
+package com.automation.bot.notification.sink;
+
+import com.automation.bot.config.NotificationProperties;
+import com.automation.bot.runner.RunStatus;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Từng sink gửi tới server giả chạy local: HTTP (webhook), SMTP (email), file thật (@TempDir) */
+class NotificationSinksTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NotificationProperties properties = new NotificationProperties();
+
+    @Test
+    void webhookPostsSlackCompatibleJsonAndFailsOnNon2xx() throws Exception {
+        BlockingQueue<String> bodies = new LinkedBlockingQueue<>();
+        AtomicInteger status = new AtomicInteger(200);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/hook", exchange -> {
+            bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(status.get(), -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            properties.getWebhook().setUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/hook");
+            WebhookNotificationSink sink = new WebhookNotificationSink(properties);
+
+            sink.send(NotificationFanoutTest.notification("run-1"));
+            JsonNode json = objectMapper.readTree(bodies.poll(2, TimeUnit.SECONDS));
+            String text = json.get("text").asText();
+            assertTrue(text.startsWith("\u274c *SMOKE FAILED"), text);
+            assertTrue(text.contains("TimeoutException: login button (`LoginTest.testValidLogin` +1)"), text);
+            assertTrue(text.contains("<http://allure/run-1|Allure report>"), text);
+            assertEquals("run-1", json.get("run").get("runId").asText());
+            assertEquals(2, json.get("run").get("failures").get(0).get("count").asInt());
+
+            status.set(500);
+            assertThrows(IOException.class, () -> sink.send(NotificationFanoutTest.notification("run-2")));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void emailSendsUtf8MessageThroughSmtp() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            CompletableFuture<List<String>> session = CompletableFuture.supplyAsync(() -> SmtpStub.plain().session(server));
+
+            NotificationProperties.Email email = properties.getEmail();
+            email.setHost("127.0.0.1");
+            email.setPort(server.getLocalPort());
+            email.setUsername("bot");
+            email.setPassword("secret");
+            email.setFrom("bot@example.com");
+            email.setTo(List.of("qa@example.com", "dev@example.com"));
+            email.setTimeoutSeconds(5);
+            new EmailNotificationSink(properties).send(NotificationFanoutTest.notification("run-1"));
+
+            List<String> lines = session.get(5, TimeUnit.SECONDS);
+            assertTrue(lines.contains("AUTH PLAIN " + base64("\0bot\0secret")), lines.toString());
+            assertTrue(lines.contains("MAIL FROM:<bot@example.com>"));
+            assertTrue(lines.contains("RCPT TO:<qa@example.com>"));
+            assertTrue(lines.contains("RCPT TO:<dev@example.com>"));
+            assertTrue(lines.contains("QUIT"));
+
+            int blank = lines.indexOf("");
+            String subject = lines.stream().filter(l -> l.startsWith("Subject: ")).findFirst().orElseThrow();
+            String decodedSubject = new String(Base64.getDecoder().decode(
+                    subject.substring("Subject: =?UTF-8?B?".length(), subject.length() - 2)), StandardCharsets.UTF_8);
+            assertEquals("[Test bot] SMOKE FAILED — 40/42 passed, 2 failed (env=dev, 3m 2s)", decodedSubject);
+            String body = new String(Base64.getMimeDecoder().decode(
+                    String.join("", lines.subList(blank + 1, lines.indexOf(".")))), StandardCharsets.UTF_8);
+            assertTrue(body.contains("2 x TimeoutException: login button\n  - LoginTest.testValidLogin\n"), body);
+            assertTrue(body.contains("Allure report: http://allure/run-1"), body);
+        }
+    }
+
+    @Test
+    void emailSkipsCleanRunsWhenFailuresOnly() throws Exception {
+        properties.getEmail().setHost("127.0.0.1");
+        properties.getEmail().setPort(1);           // không có server — gửi thật thì lỗi
+        properties.getEmail().setFrom("bot@example.com");
+        properties.getEmail().setTo(List.of("qa@example.com"));
+        RunNotification failed = NotificationFanoutTest.notification("run-1");
+        RunNotification clean = new RunNotification("run-2", "smoke", "dev", RunStatus.COMPLETED, false,
+                42, 42, 0, 0, 0, 0, 60,
+                null, null, failed.finishedAt(), List.of());
+
+        EmailNotificationSink sink = new EmailNotificationSink(properties);
+        assertDoesNotThrow(() -> sink.send(clean));
+        assertThrows(IOException.class, () -> sink.send(failed));
+    }
+
+    @Test
+    void fileAppendsOneJsonLinePerRun(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("sub").resolve("notifications.jsonl");
+        properties.getFile().setPath(file.toString());
+        FileNotificationSink sink = new FileNotificationSink(properties);
+
+        sink.send(NotificationFanoutTest.notification("run-1"));
+        sink.send(NotificationFanoutTest.notification("run-2"));
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertEquals("run-1", objectMapper.readTree(lines.get(0)).get("runId").asText());
+        assertEquals("FAILED", objectMapper.readTree(lines.get(1)).get("status").asText());
+        assertTrue(objectMapper.readTree(lines.get(1)).get("finishedAt").isTextual());
+    }
+
+    private static String base64(String text) {
+        return Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,127 @@
+package com.automation.bot.notification.sink;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmtpClientTest {
+
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void implicitTlsRejectsCertificateForAnotherHost() throws Exception {
+        Tls tls = tls("other.example");
+        try (ServerSocket server = tls.server.getServerSocketFactory().createServerSocket(0, 1, localhost())) {
+            CompletableFuture.supplyAsync(() -> SmtpStub.plain().session(server));
+
+            SmtpClient client = client(server, true, false, tls.clientFactory);
+            assertThrows(SSLHandshakeException.class, () -> client.send("bot@example.com", List.of("qa@example.com"),
+                    "subject", "body"));
+        }
+    }
+
+    @Test
+    void starttlsRejectsCertificateForAnotherHostBeforeAuth() throws Exception {
+        Tls tls = tls("other.example");
+        try (ServerSocket server = new ServerSocket(0, 1, localhost())) {
+            CompletableFuture<List<String>> session = CompletableFuture.supplyAsync(
+                    () -> new SmtpStub(tls.server, true).session(server));
+
+            SmtpClient client = client(server, false, true, tls.clientFactory);
+            assertThrows(SSLHandshakeException.class, () -> client.send("bot@example.com", List.of("qa@example.com"),
+                    "subject", "body"));
+            assertTrue(session.get(5, TimeUnit.SECONDS).stream().noneMatch(line -> line.startsWith("AUTH")));
+        }
+    }
+
+    @Test
+    void starttlsSendsThroughCertificateMatchingHost() throws Exception {
+        Tls tls = tls("localhost");
+        try (ServerSocket server = new ServerSocket(0, 1, localhost())) {
+            CompletableFuture<List<String>> session = CompletableFuture.supplyAsync(
+                    () -> new SmtpStub(tls.server, true).session(server));
+
+            client(server, false, true, tls.clientFactory)
+                    .send("bot@example.com", List.of("qa@example.com"), "subject", "body");
+
+            List<String> lines = session.get(5, TimeUnit.SECONDS);
+            assertTrue(lines.indexOf("STARTTLS") < lines.indexOf("AUTH PLAIN AGJvdABzZWNyZXQ="), lines.toString());
+            assertTrue(lines.contains("QUIT"));
+        }
+    }
+
+    @Test
+    void acceptedMessageIsNotRetriedWhenQuitFails() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, localhost())) {
+            CompletableFuture<List<String>> session = CompletableFuture.supplyAsync(
+                    () -> new SmtpStub(null, false).session(server));
+
+            // Server nhận mail (250) rồi đóng kết nối không trả 221 → vẫn là gửi thành công
+            assertDoesNotThrow(() -> client(server, false, false, null)
+                    .send("bot@example.com", List.of("qa@example.com"), "subject", "body"));
+            assertTrue(session.get(5, TimeUnit.SECONDS).contains("."));
+        }
+    }
+
+    private SmtpClient client(ServerSocket server, boolean ssl, boolean starttls, SSLSocketFactory tlsFactory) {
+        return new SmtpClient("localhost", server.getLocalPort(), ssl, starttls, "bot", "secret", 5000, tlsFactory);
+    }
+
+    private static InetAddress localhost() throws Exception {
+        return InetAddress.getByName("localhost");
+    }
+
+    private record Tls(SSLContext server, SSLSocketFactory clientFactory) {
+    }
+
+    /** Certificate tự ký cho hostname (keytool của JDK đang chạy test), client chỉ tin đúng certificate đó */
+    private Tls tls(String hostname) throws Exception {
+        Path keystore = dir.resolve(hostname + ".p12");
+        Process keytool = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "smtp", "-keyalg", "RSA", "-keysize", "2048", "-validity", "2",
+                "-dname", "CN=" + hostname, "-ext", "SAN=dns:" + hostname, "-storetype", "PKCS12",
+                "-keystore", keystore.toString(), "-storepass", "changeit", "-keypass", "changeit")
+                .redirectErrorStream(true)
+                .start();
+        keytool.getInputStream().transferTo(OutputStream.nullOutputStream());
+        assertEquals(0, keytool.waitFor());
+
+        KeyStore keys = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keystore)) {
+            keys.load(in, PASSWORD);
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keys, PASSWORD);
+        SSLContext server = SSLContext.getInstance("TLS");
+        server.init(keyManagers.getKeyManagers(), null, null);
+
+        KeyStore trusted = KeyStore.getInstance("PKCS12");
+        trusted.load(null, null);
+        trusted.setCertificateEntry("smtp", keys.getCertificate("smtp"));
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(trusted);
+        SSLContext client = SSLContext.getInstance("TLS");
+        client.init(null, trustManagers.getTrustManagers(), null);
+        return new Tls(server, client.getSocketFactory());
+    }
+}
@@ -0,0 +1,84 @@
+package com.automation.bot.notification.sink;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Server SMTP giả cho test: trả lời OK mọi lệnh, trả về các dòng client gửi.
+ *
+ * @param starttls context TLS để nhận STARTTLS, null = không hỗ trợ
+ * @param answerQuit false = đóng kết nối khi nhận QUIT thay vì trả 221
+ */
+record SmtpStub(SSLContext starttls, boolean answerQuit) {
+
+    static SmtpStub plain() {
+        return new SmtpStub(null, true);
+    }
+
+    /** Nhận 1 kết nối và chạy hết phiên — server là SSLServerSocket thì TLS ngay từ đầu */
+    List<String> session(ServerSocket server) {
+        List<String> lines = new ArrayList<>();
+        try (Socket accepted = server.accept()) {
+            Socket socket = accepted;
+            socket.setSoTimeout(5000);
+            BufferedReader in = reader(socket);
+            OutputStream out = socket.getOutputStream();
+            reply(out, "220 stub ESMTP");
+            boolean data = false;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lines.add(line);
+                if (data) {
+                    if (line.equals(".")) {
+                        data = false;
+                        reply(out, "250 queued");
+                    }
+                } else if (line.startsWith("EHLO")) {
+                    boolean offerTls = starttls != null && !(socket instanceof SSLSocket);
+                    reply(out, "250-stub\r\n" + (offerTls ? "250-STARTTLS\r\n" : "") + "250-AUTH PLAIN\r\n250 8BITMIME");
+                } else if (line.equals("STARTTLS")) {
+                    reply(out, "220 ready");
+                    SSLSocket tls = (SSLSocket) starttls.getSocketFactory()
+                            .createSocket(socket, null, socket.getPort(), false);
+                    tls.setUseClientMode(false);
+                    socket = tls;
+                    in = reader(socket);
+                    out = socket.getOutputStream();
+                } else if (line.startsWith("AUTH")) {
+                    reply(out, "235 ok");
+                } else if (line.equals("DATA")) {
+                    data = true;
+                    reply(out, "354 go ahead");
+                } else if (line.equals("QUIT")) {
+                    if (answerQuit) {
+                        reply(out, "221 bye");
+                    }
+                    break;
+                } else {
+                    reply(out, "250 ok");
+                }
+            }
+        } catch (IOException e) {
+            lines.add("! " + e.getMessage());
+        }
+        return lines;
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private static void reply(OutputStream out, String text) throws IOException {
+        out.write((text + "\r\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
@@ -0,0 +1,60 @@
+package com.automation.bot.parser;
+
+import com.automation.bot.parser.model.TestCase;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailureClustererTest {
+
+    private final FailureClusterer clusterer = new FailureClusterer();
+
+    @Test
+    void groupsNearIdenticalFailuresByRootCause() {
+        List<TestCase> failed = new ArrayList<>();
+        for (int i = 0; i < 48; i++) {
+            failed.add(failure("Test" + i, "org.openqa.selenium.TimeoutException",
+                    "Expected condition failed: waiting for visibility of element located by By.cssSelector: "
+                            + ".p-progress-spinner (tried for " + (10 + i % 3) + " second(s) with 500 milliseconds interval)\n"
+                            + "Session ID: 3f2a9c" + i + "e8b7d6c5a4",
+                    "org.openqa.selenium.support.ui.WebDriverWait.until(WebDriverWait.java:" + (80 + i % 2) + ")"));
+        }
+        failed.add(failure("Checkout", "java.lang.AssertionError", "expected [200] but found [500]", "org.testng.Assert.fail(Assert.java:110)"));
+        failed.add(failure("Refund", "java.lang.AssertionError", "expected [200] but found [502]", "org.testng.Assert.fail(Assert.java:110)"));
+        failed.add(failure("Login", "java.lang.NullPointerException", null, "com.automation.pages.LoginPage.open(LoginPage.java:42)"));
+        failed.add(failure("Cart", "java.lang.NullPointerException", null, "com.automation.pages.CartPage.add(CartPage.java:17)"));
+
+        List<FailureClusterer.Cluster> clusters = clusterer.cluster(failed);
+
+        assertEquals(4, clusters.size());
+        assertEquals(48, clusters.get(0).count());
+        assertTrue(clusters.get(0).summary().startsWith("TimeoutException: Expected condition failed"), clusters.get(0).summary());
+        assertFalse(clusters.get(0).summary().contains("Session ID"), "only the first line is kept");
+        assertEquals(2, clusters.get(1).count(), "status codes differ only in digits");
+        assertEquals("NullPointerException", clusters.get(2).summary());
+        assertEquals("com.automation.pages.LoginPage.open", clusters.get(2).frame(), "different call sites stay apart");
+    }
+
+    @Test
+    void normalizesIdsTimestampsAndNumbers() {
+        assertEquals("Order <id> created at <ts> not found after # ms",
+                FailureClusterer.normalize("Order 0b9e1c7a-3f5d-4c2b-9a8e-1d2c3b4a5f6e created at 2026-10-17T07:36:39.847Z not found after 1,500 ms"));
+        assertEquals("Element RemoteWebElement@<id> is stale in session <id>",
+                FailureClusterer.normalize("Element RemoteWebElement@1a2b3c4d is stale in session  9f8e7d6c5b4a3f2e"));
+    }
+
+    private static TestCase failure(String name, String type, String message, String frame) {
+        TestCase tc = new TestCase();
+        tc.setName(name);
+        tc.setClassname("com.automation.RegressionTest");
+        TestCase.Failure failure = new TestCase.Failure();
+        failure.setType(type);
+        failure.setMessage(message);
+        failure.setStackFrames(List.of(frame));
+        tc.setFailure(failure);
+        return tc;
+    }
+}
@@ -0,0 +1,115 @@
+package com.automation.bot.parser;
+
+import com.automation.bot.parser.model.TestSuite;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * So sánh StAX parser với cách bind cũ (XmlMapper → TestSuite, tuần tự từng file)
+ * trên bộ report giả lập: 100 file × 50 testcase, mỗi test có system-out ~8KB, 10% fail kèm stacktrace.
+ *
+ * Chỉ chạy khi bật:
+ *   mvn test -Dtest=SurefireReportParserBenchmarkTest -Dbench.parser=true [-Dbench.iterations=5]
+ */
+@EnabledIfSystemProperty(named = "bench.parser", matches = "true")
+class SurefireReportParserBenchmarkTest {
+
+    private static final int FILES = 100;
+    private static final int CASES_PER_FILE = 50;
+
+    @Test
+    void compareXmlMapperAndStax(@TempDir Path reportsDir) throws Exception {
+        int iterations = Integer.getInteger("bench.iterations", 5);
+        generateReports(reportsDir);
+
+        XmlMapper xmlMapper = new XmlMapper();
+        SurefireReportParser parser = new SurefireReportParser();
+
+        // Warm-up JIT cho cả 2 đường
+        int expected = countCases(bindAll(xmlMapper, reportsDir));
+        assertEquals(FILES * CASES_PER_FILE, expected);
+        assertEquals(expected, countCases(parser.parseReports(reportsDir)));
+
+        long bindNanos = 0;
+        long sequentialNanos = 0;
+        long staxNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            bindAll(xmlMapper, reportsDir);
+            bindNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (File file : reportFiles(reportsDir)) {
+                parser.parseFile(file.toPath());
+            }
+            sequentialNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            parser.parseReports(reportsDir);
+            staxNanos += System.nanoTime() - start;
+        }
+
+        long size = 0;
+        for (File file : reportsDir.toFile().listFiles()) {
+            size += file.length();
+        }
+        System.out.printf("[bench] %d files, %d testcases, %d MB, iterations=%d%n",
+                FILES, expected, size / (1024 * 1024), iterations);
+        System.out.printf("[bench] XmlMapper (sequential): mean=%dms%n", bindNanos / iterations / 1_000_000);
+        System.out.printf("[bench] StAX (sequential):      mean=%dms%n", sequentialNanos / iterations / 1_000_000);
+        System.out.printf("[bench] StAX (parallel):        mean=%dms%n", staxNanos / iterations / 1_000_000);
+    }
+
+    /** Cách parse trước đây: bind toàn bộ file, tuần tự */
+    private static List<TestSuite> bindAll(XmlMapper xmlMapper, Path reportsDir) throws IOException {
+        List<TestSuite> suites = new ArrayList<>();
+        for (File file : reportFiles(reportsDir)) {
+            suites.add(xmlMapper.readValue(file, TestSuite.class));
+        }
+        return suites;
+    }
+
+    private static File[] reportFiles(Path reportsDir) {
+        return reportsDir.toFile().listFiles((dir, name) -> SurefireReportParser.isReportFile(name));
+    }
+
+    private static int countCases(List<TestSuite> suites) {
+        return suites.stream().mapToInt(suite -> suite.getTestCases().size()).sum();
+    }
+
+    private static void generateReports(Path dir) throws IOException {
+        String output = "INFO [main] Navigating to https://shop.example.com/checkout?step=2\n".repeat(120);
+        String stackTrace = "\tat com.automation.pages.CheckoutPage.submit(CheckoutPage.java:42)\n".repeat(60);
+        for (int f = 0; f < FILES; f++) {
+            String className = "com.automation.generated.Generated" + f + "Test";
+            int failures = CASES_PER_FILE / 10;
+            try (Writer out = Files.newBufferedWriter(dir.resolve("TEST-" + className + ".xml"))) {
+                out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+                out.write("<testsuite name=\"" + className + "\" tests=\"" + CASES_PER_FILE + "\" failures=\""
+                        + failures + "\" errors=\"0\" skipped=\"0\" time=\"120.5\">\n");
+                for (int c = 0; c < CASES_PER_FILE; c++) {
+                    out.write("  <testcase name=\"test" + c + "\" classname=\"" + className + "\" time=\"2.41\">\n");
+                    if (c % 10 == 0) {
+                        out.write("    <failure message=\"expected [true] but found [false]\" type=\"java.lang.AssertionError\">"
+                                + "java.lang.AssertionError\n" + stackTrace + "</failure>\n");
+                    }
+                    out.write("    <system-out><![CDATA[" + output + "]]></system-out>\n");
+                    out.write("  </testcase>\n");
+                }
+                out.write("</testsuite>\n");
+            }
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.automation.bot.parser;
 
+import com.automation.bot.parser.model.RetriedTest;
+import com.automation.bot.parser.model.TestCase;
 import com.automation.bot.parser.model.TestSuite;
+import com.automation.bot.runner.TestRunResult;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -8,6 +11,7 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -85,4 +89,122 @@ class SurefireReportParserTest {
         assertEquals(1, failedTests.size());
         assertEquals("testFail", failedTests.get(0).getName());
     }
+
+    @Test
+    void parseRunWorkspaceReportsDir(@TempDir Path tempDir) throws Exception {
+        // Workspace của run: {runDir}/surefire-reports (không phải target/surefire-reports)
+        Path reportsDir = tempDir.resolve("abc12345/surefire-reports");
+        Files.createDirectories(reportsDir);
+
+        String xml = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <testsuite name="com.automation.api.AuthApiTest" tests="1" failures="0" errors="0" skipped="0" time="1.0">
+                    <testcase name="testToken" classname="com.automation.api.AuthApiTest" time="1.0"/>
+                </testsuite>
+                """;
+        Files.writeString(reportsDir.resolve("TEST-com.automation.api.AuthApiTest.xml"), xml);
+
+        List<TestSuite> suites = parser.parseReports(reportsDir);
+        assertEquals(1, suites.size());
+        assertEquals("com.automation.api.AuthApiTest", suites.get(0).getName());
+    }
+
+    @Test
+    void readsAttributesAndSkipsOutputBlocks(@TempDir Path tempDir) throws Exception {
+        String xml = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <testsuite name="com.automation.CheckoutTest" tests="4" failures="0" errors="1" skipped="1" time="1,234.5">
+                    <properties><property name="env" value="dev"/></properties>
+                    <testcase name="pay" classname="com.automation.CheckoutTest" time="2.5">
+                        <system-out><![CDATA[%s]]></system-out>
+                    </testcase>
+                    <testcase name="refund" classname="com.automation.CheckoutTest" time="1.0">
+                        <error message="NoSuchElement: #refund" type="org.openqa.selenium.NoSuchElementException">NoSuchElement: #refund
+                            at x.y(Z.java:1)
+                            at x.Page.refund(Page.java:7)</error>
+                        <system-err>driver log</system-err>
+                    </testcase>
+                    <testcase name="coupon" classname="com.automation.CheckoutTest" time="0">
+                        <skipped message="disabled on dev"/>
+                    </testcase>
+                    <testcase name="flaky" classname="com.automation.CheckoutTest" time="3.0">
+                        <flakyFailure message="timeout" type="TimeoutException"/>
+                    </testcase>
+                </testsuite>
+                """.formatted("x".repeat(100_000));
+        Files.writeString(tempDir.resolve("TEST-com.automation.CheckoutTest.xml"), xml);
+        Files.writeString(tempDir.resolve("TEST-com.automation.Broken.xml"), "<testsuite name=\"x\"");
+
+        List<TestSuite> suites = parser.parseReports(tempDir);
+
+        assertEquals(1, suites.size(), "broken file is skipped");
+        TestSuite suite = suites.get(0);
+        assertEquals(1234.5, suite.getTime());
+        assertEquals(1, suite.getErrors());
+        assertEquals(1, suite.getSkipped());
+        assertEquals(4, suite.getTestCases().size());
+        assertTrue(suite.getTestCases().get(0).isPassed());
+        assertEquals("NoSuchElement: #refund", suite.getTestCases().get(1).getError().getMessage());
+        assertEquals(List.of("x.y(Z.java:1)", "x.Page.refund(Page.java:7)"),
+                suite.getTestCases().get(1).getError().getStackFrames());
+        assertEquals("disabled on dev", suite.getTestCases().get(2).getSkipped());
+        assertTrue(suite.getTestCases().get(3).isPassed(), "passed on rerun");
+        assertEquals(List.of("refund"), parser.getFailedTests(suites).stream().map(TestCase::getName).toList());
+    }
+
+    @Test
+    void retriedAttemptsAreReportedSeparatelyFromCleanPasses(@TempDir Path tempDir) throws Exception {
+        // TestNG retry: Surefire ghi mỗi lần chạy bị retry thành 1 testcase skipped
+        Files.writeString(tempDir.resolve("TEST-com.automation.LoginTest.xml"), """
+                <testsuite name="com.automation.LoginTest" tests="5" failures="0" errors="0" skipped="3" time="40">
+                    <testcase name="testLogin" classname="com.automation.LoginTest" time="12"><skipped/></testcase>
+                    <testcase name="testLogin" classname="com.automation.LoginTest" time="11.5"><skipped/></testcase>
+                    <testcase name="testLogin" classname="com.automation.LoginTest" time="4"/>
+                    <testcase name="testLogout" classname="com.automation.LoginTest" time="2"/>
+                    <testcase name="testSso" classname="com.automation.LoginTest" time="0"><skipped message="sso disabled"/></testcase>
+                </testsuite>
+                """);
+        Files.writeString(tempDir.resolve("TEST-com.automation.CartTest.xml"), """
+                <testsuite name="com.automation.CartTest" tests="1" failures="0" errors="0" skipped="0" time="3">
+                    <testcase name="testAdd" classname="com.automation.CartTest" time="3">
+                        <flakyFailure message="stale element" type="StaleElementReferenceException" time="1.5"/>
+                    </testcase>
+                </testsuite>
+                """);
+        Path testngResults = tempDir.resolve(SurefireReportParser.TESTNG_RESULTS);
+        Files.writeString(testngResults, """
+                <testng-results skipped="3" failed="0" total="5" passed="2">
+                  <suite name="Smoke">
+                    <test name="Login">
+                      <class name="com.automation.LoginTest">
+                        <test-method is-config="true" name="setUp" status="PASS" duration-ms="900"/>
+                        <test-method name="testLogin" status="SKIP" retried="true" duration-ms="12000">
+                          <exception class="org.openqa.selenium.TimeoutException"><message>spinner</message></exception>
+                        </test-method>
+                        <test-method name="testLogin" status="SKIP" retried="true" duration-ms="11500"/>
+                        <test-method name="testLogin" status="PASS" duration-ms="4000"/>
+                        <test-method name="testLogout" status="PASS" duration-ms="2000"/>
+                        <test-method name="testSso" status="SKIP" duration-ms="0"/>
+                      </class>
+                    </test>
+                  </suite>
+                </testng-results>
+                """);
+
+        List<TestSuite> suites = parser.parseReports(tempDir);
+        List<RetriedTest> retried = parser.getRetriedTests(suites, parser.parseTestNgRetries(testngResults));
+
+        assertEquals(List.of("LoginTest.testLogin", "CartTest.testAdd"), retried.stream().map(RetriedTest::label).toList());
+        assertEquals(2, retried.get(0).retries());
+        assertEquals(23.5, retried.get(0).retrySeconds(), 1e-9);
+        assertTrue(retried.get(1).passed());
+
+        TestRunResult result = parser.buildResult("r1", suites, retried, Duration.ofMinutes(1), null);
+        assertEquals(4, result.getTotalTests(), "retried attempts are not separate tests");
+        assertEquals(1, result.getSkipped(), "only the really skipped test");
+        assertEquals(3, result.getPassed());
+        assertEquals(2, result.getFlakyPassed());
+        assertEquals(3, result.getRetries());
+        assertEquals(Duration.ofMillis(25_000), result.getRetryTime());
+    }
 }
@@ -0,0 +1,97 @@
+package com.automation.bot.runner;
+
+import com.automation.bot.config.TestRunnerProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceBudgetTest {
+
+    private static final ResourceCost UI = new ResourceCost(1, 1024, 1);
+    private static final ResourceCost API = new ResourceCost(0, 512, 0.5);
+
+    private TestRunnerProperties properties(int maxMemoryMb) {
+        TestRunnerProperties props = new TestRunnerProperties();
+        props.getResources().setMaxBrowsers(2);
+        props.getResources().setMaxCpus(4);
+        props.getResources().setMaxMemoryMb(maxMemoryMb);
+        props.getResources().setMemoryHeadroomMb(1024);
+        props.getResources().setStartupGraceSeconds(60);
+        props.getResources().getCosts().put("api", new TestRunnerProperties.Cost(0, 512, 0.5));
+        return props;
+    }
+
+    @Test
+    void apiRunsFlowWhenBrowsersAreExhausted() {
+        ResourceBudget budget = new ResourceBudget(properties(8192), () -> 0, Clock.systemUTC());
+
+        assertTrue(budget.tryAcquire(UI));
+        assertTrue(budget.tryAcquire(UI));
+        assertFalse(budget.tryAcquire(UI), "third browser exceeds max-browsers");
+        assertTrue(budget.tryAcquire(API), "API run needs no browser");
+
+        budget.release(UI);
+        assertTrue(budget.tryAcquire(UI));
+    }
+
+    @Test
+    void fixedMemoryBudgetIsEnforced() {
+        ResourceBudget budget = new ResourceBudget(properties(1500), () -> 0, Clock.systemUTC());
+
+        assertTrue(budget.tryAcquire(UI));
+        assertFalse(budget.tryAcquire(API), "1024 + 512 > 1500");
+    }
+
+    @Test
+    void oversizedRunIsAdmittedOnIdleHost() {
+        ResourceBudget budget = new ResourceBudget(properties(512), () -> 0, Clock.systemUTC());
+
+        assertTrue(budget.tryAcquire(UI), "an idle host must not block a run forever");
+        assertFalse(budget.tryAcquire(API));
+    }
+
+    @Test
+    void autoMemoryCountsRunsStillWarmingUp() {
+        AtomicLong freeMb = new AtomicLong(3000);
+        MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+        ResourceBudget budget = new ResourceBudget(properties(0), freeMb::get, clock);
+
+        // 3000 free - 1024 headroom = 1976 available
+        assertTrue(budget.tryAcquire(UI));
+        // Chrome has not allocated yet (free still 3000) but the reservation still counts
+        assertFalse(budget.tryAcquire(UI));
+
+        clock.advance(Duration.ofSeconds(61));
+        assertTrue(budget.tryAcquire(UI), "after the grace period only real free memory counts");
+    }
+
+    @Test
+    void autoMemoryReadsMemAvailableNotMemFree() {
+        List<String> meminfo = List.of(
+                "MemTotal:       16318480 kB",
+                "MemFree:          412044 kB",
+                "MemAvailable:    9630212 kB",
+                "Buffers:          310244 kB",
+                "Cached:          8826316 kB");
+
+        assertEquals(9404, ResourceBudget.memAvailableMb(meminfo), "page cache counts as usable memory");
+        assertEquals(-1, ResourceBudget.memAvailableMb(List.of("MemTotal:       16318480 kB", "MemFree:  412044 kB")));
+    }
+
+    @Test
+    void costIsResolvedByLabel() {
+        ResourceBudget budget = new ResourceBudget(properties(8192), () -> 0, Clock.systemUTC());
+
+        TestRunRequest api = TestRunRequest.builder().runId("a").profile("api").build();
+        TestRunRequest login = TestRunRequest.builder().runId("b").testClass("LoginTest").build();
+
+        assertEquals(0, budget.costOf(api).browsers());
+        assertEquals(1, budget.costOf(login).browsers(), "unknown label falls back to default-cost");
+    }
+}
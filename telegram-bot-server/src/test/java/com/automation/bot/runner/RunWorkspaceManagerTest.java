@@ -0,0 +1,42 @@
+package com.automation.bot.runner;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.history.TestHistoryStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunWorkspaceManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void createPrunesExpiredRunsButKeepsTestHistory() throws Exception {
+        TestRunnerProperties properties = new TestRunnerProperties();
+        properties.setWorkspaceDir(tempDir.toString());
+        properties.setWorkspaceRetentionHours(48);
+        RunWorkspaceManager manager = new RunWorkspaceManager(properties);
+        FileTime expired = FileTime.from(Instant.now().minus(Duration.ofHours(72)));
+
+        Path oldRun = Files.createDirectories(tempDir.resolve("a1b2c3d4"));
+        Files.setLastModifiedTime(oldRun, expired);
+        // Append vào segment không đổi mtime của thư mục → thư mục history trông như workspace quá hạn
+        Path history = Files.createDirectories(tempDir.resolve(TestHistoryStore.DIR_NAME));
+        Path segment = Files.writeString(history.resolve("history-2026-10.jsonl"), "{\"runId\":\"a1b2c3d4\"}\n");
+        Files.setLastModifiedTime(history, expired);
+
+        RunWorkspace workspace = manager.create("e5f6a7b8");
+
+        assertTrue(Files.isDirectory(workspace.surefireReportsDir()));
+        assertFalse(Files.exists(oldRun), "expired run workspace is pruned");
+        assertTrue(Files.exists(segment), "test history outlives the workspace retention");
+    }
+}
@@ -0,0 +1,181 @@
+package com.automation.bot.runner;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.metrics.BotMetrics;
+import com.automation.bot.runner.journal.RunJournal;
+import com.automation.bot.runner.queue.FifoQueueDiscipline;
+import com.automation.bot.runner.queue.RunDurationHistory;
+import com.automation.bot.runner.remote.RemoteWorkerRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestRunQueueTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final BotMetrics metrics = new BotMetrics();
+    private TestRunnerProperties properties;
+    private TestRunQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TestRunnerProperties();
+        // Không admit run nào → mọi request nằm trong pending
+        properties.setMaxConcurrentRuns(0);
+        properties.setWorkspaceDir(tempDir.toString());
+        queue = new TestRunQueue(properties,
+                new ResourceBudget(properties, () -> 8192, Clock.systemUTC()), new FifoQueueDiscipline(),
+                new RunJournal(properties), new RunDurationHistory(properties), metrics, new RemoteWorkerRegistry(properties));
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.shutdown();
+    }
+
+    @Test
+    void identicalRequestsShareOneRun() {
+        TestRunQueue.TestRunInfo first = queue.submit(request("r1", 1L, 100L, "dev"), info -> { });
+        TestRunQueue.TestRunInfo second = queue.submit(request("r2", 2L, 100L, "dev"), info -> { });
+        TestRunQueue.TestRunInfo otherEnv = queue.submit(request("r3", 3L, 300L, "staging"), info -> { });
+
+        assertSame(first, second);
+        assertEquals(2, first.getSubscribers().size());
+        assertNotSame(first, otherEnv);
+        assertEquals(2, queue.getActiveRuns().size());
+        assertEquals(1, queue.getRunsByUser(2L).size(), "attached user sees the shared run");
+    }
+
+    @Test
+    void cancelDetachesUntilLastSubscriber() {
+        TestRunQueue.TestRunInfo run = queue.submit(request("r1", 1L, 100L, "dev"), info -> { });
+        queue.submit(request("r2", 2L, 200L, "dev"), info -> { });
+
+        assertTrue(queue.cancel("r1", 1L));
+        assertEquals(RunStatus.QUEUED, run.getStatus(), "user 2 still waits for the result");
+        assertEquals(200L, run.getSubscribers().get(0).getChatId());
+
+        assertFalse(queue.cancel("r1", 1L), "user 1 is no longer subscribed");
+        assertTrue(queue.cancel("r1", 2L));
+        assertEquals(RunStatus.CANCELLED, run.getStatus());
+    }
+
+    @Test
+    void listenersSeeStatusChangesAndResult() {
+        TestRunQueue.TestRunInfo run = queue.submit(request("r1", 1L, 100L, "dev"), info -> { });
+        List<String> events = new ArrayList<>();
+        run.addListener(new TestRunQueue.RunListener() {
+            @Override
+            public void onStatus(TestRunQueue.TestRunInfo info, RunStatus status) {
+                events.add(status.name());
+            }
+
+            @Override
+            public void onResult(TestRunQueue.TestRunInfo info, TestRunResult result) {
+                events.add("result");
+            }
+        });
+
+        run.setStatus(RunStatus.QUEUED);
+        queue.cancel("r1");
+        run.complete(TestRunResult.builder().runId("r1").status(RunStatus.CANCELLED).build());
+
+        assertEquals(List.of("CANCELLED", "result"), events, "unchanged status is not reported");
+        assertNotNull(run.getResult());
+    }
+
+    @Test
+    void closedRunDoesNotAcceptNewSubscribers() {
+        TestRunQueue.TestRunInfo first = queue.submit(request("r1", 1L, 100L, "dev"), info -> { });
+        first.closeSubscriptions();
+
+        TestRunQueue.TestRunInfo second = queue.submit(request("r2", 2L, 200L, "dev"), info -> { });
+        assertNotSame(first, second);
+    }
+
+    @Test
+    void coalescingCanBeDisabled() {
+        properties.getQueue().setCoalesce(false);
+        TestRunQueue plain = new TestRunQueue(properties,
+                new ResourceBudget(properties, () -> 8192, Clock.systemUTC()), new FifoQueueDiscipline(),
+                new RunJournal(properties), new RunDurationHistory(properties), metrics, new RemoteWorkerRegistry(properties));
+        try {
+            TestRunQueue.TestRunInfo first = plain.submit(request("r1", 1L, 100L, "dev"), info -> { });
+            TestRunQueue.TestRunInfo second = plain.submit(request("r2", 2L, 200L, "dev"), info -> { });
+            assertNotSame(first, second);
+        } finally {
+            plain.shutdown();
+        }
+    }
+
+    @Test
+    void runsOverflowToRemoteAgentWhenHostIsFull() throws Exception {
+        // Host không nhận run nào (max-concurrent-runs = 0) → chỉ agent chạy được
+        properties.getRemote().setEnabled(true);
+        RemoteWorkerRegistry agents = new RemoteWorkerRegistry(properties);
+        String agentId = agents.register("a1", new RemoteWorkerRegistry.Capacity(1, 4096, 2));
+        TestRunQueue distributed = new TestRunQueue(properties,
+                new ResourceBudget(properties, () -> 8192, Clock.systemUTC()), new FifoQueueDiscipline(),
+                new RunJournal(properties), new RunDurationHistory(properties), metrics, agents);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            TestRunQueue.TestRunInfo first = distributed.submit(request("r1", 1L, 100L, "dev"),
+                    info -> awaitQuietly(release));
+            TestRunQueue.TestRunInfo second = distributed.submit(request("r2", 2L, 200L, "staging"),
+                    info -> awaitQuietly(release));
+
+            assertEquals(agentId, first.getAgentId());
+            assertNull(second.getAgentId(), "agent has a single browser");
+            assertEquals(1, distributed.getQueuePosition("r2").position());
+        } finally {
+            release.countDown();
+            distributed.shutdown();
+            agents.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void metricsExposeQueueDepthAndCoalescing() {
+        queue.submit(request("r1", 1L, 100L, "dev"), info -> { });
+        queue.submit(request("r2", 2L, 200L, "dev"), info -> { });
+        queue.submit(request("r3", 3L, 300L, "staging"), info -> { });
+
+        String scrape = metrics.scrape();
+        assertTrue(scrape.contains("bot_queue_depth 2\n"), scrape);
+        assertTrue(scrape.contains("bot_runs_active{status=\"QUEUED\"} 2\n"));
+        assertTrue(scrape.contains("bot_runs_submitted_total{profile=\"smoke\"} 2\n"));
+        assertTrue(scrape.contains("bot_runs_coalesced_total{profile=\"smoke\"} 1\n"));
+    }
+
+    private TestRunRequest request(String runId, long userId, long chatId, String env) {
+        return TestRunRequest.builder()
+                .runId(runId)
+                .userId(userId)
+                .chatId(chatId)
+                .env(env)
+                .profile("smoke")
+                .browser("chrome")
+                .headless(true)
+                .build();
+    }
+}
@@ -0,0 +1,199 @@
+package com.automation.bot.runner.cache;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.metrics.BotMetrics;
+import com.automation.bot.runner.MutableClock;
+import com.automation.bot.runner.RunStatus;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class RunResultCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final TestRunnerProperties properties = new TestRunnerProperties();
+    private final BotMetrics metrics = new BotMetrics();
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-10T10:00:00Z"));
+    private FrameworkRevision revision = new FrameworkRevision("a1b2c3d4e5", FrameworkRevision.CLEAN);
+    private final AtomicInteger revisionReads = new AtomicInteger();
+    private final RunResultCache cache = new RunResultCache(properties, metrics, () -> {
+        revisionReads.incrementAndGet();
+        return revision;
+    }, clock);
+
+    @Test
+    void passingRunIsReusedUntilCodeOrTtlChanges() {
+        properties.getCache().setTtlMinutes(30);
+        cache.put(request("dev"), cache.currentRevision(), process(RunStatus.COMPLETED), result(RunStatus.COMPLETED, 0));
+
+        TestRunResult hit = cache.lookup(request("dev")).orElseThrow().result();
+        assertEquals("r1", hit.getRunId());
+        assertNull(hit.getAllureReportUrl(), "shared Allure output was regenerated by later runs");
+        assertTrue(cache.lookup(request("staging")).isEmpty(), "other env is a different run");
+
+        revision = new FrameworkRevision("a1b2c3d4e5", "f00d");
+        clock.advance(Duration.ofSeconds(properties.getCache().getRevisionCacheSeconds()));
+        assertTrue(cache.lookup(request("dev")).isEmpty(), "uncommitted change");
+
+        revision = new FrameworkRevision("a1b2c3d4e5", FrameworkRevision.CLEAN);
+        clock.advance(Duration.ofMinutes(30));
+        assertTrue(cache.lookup(request("dev")).isEmpty(), "expired");
+
+        String scrape = metrics.scrape();
+        assertTrue(scrape.contains("bot_result_cache_total{outcome=\"hit\"} 1\n"), scrape);
+        assertTrue(scrape.contains("bot_result_cache_total{outcome=\"miss\"} 3\n"), scrape);
+    }
+
+    @Test
+    void failedOrUnknownRunsAreNotCached() {
+        cache.put(request("dev"), revision, process(RunStatus.FAILED), result(RunStatus.COMPLETED, 1));
+        cache.put(request("dev"), revision, process(RunStatus.FAILED), result(RunStatus.FAILED, 0));
+        cache.put(request("dev"), null, process(RunStatus.COMPLETED), result(RunStatus.COMPLETED, 0));
+        assertTrue(cache.lookup(request("dev")).isEmpty());
+
+        properties.getCache().setEnabled(false);
+        cache.put(request("dev"), revision, process(RunStatus.COMPLETED), result(RunStatus.COMPLETED, 0));
+        assertTrue(cache.lookup(request("dev")).isEmpty());
+        assertNull(cache.currentRevision());
+    }
+
+    @Test
+    void reportsWithoutFailuresAreNotCachedWhenMavenFailed() {
+        // Forked JVM crash / mvn fail sau khi các class pass đã ghi report: XML sạch nhưng exit code != 0
+        cache.put(request("dev"), revision, process(RunStatus.FAILED), result(RunStatus.COMPLETED, 0));
+        assertTrue(cache.lookup(request("dev")).isEmpty());
+
+        TestRunResult timedOut = process(RunStatus.COMPLETED).toBuilder().partial(true).build();
+        cache.put(request("dev"), revision, timedOut, result(RunStatus.COMPLETED, 0));
+        assertTrue(cache.lookup(request("dev")).isEmpty());
+    }
+
+    @Test
+    void revisionIsReadOncePerInterval() {
+        properties.getCache().setRevisionCacheSeconds(5);
+        cache.currentRevision();
+        cache.lookup(request("dev"));
+        cache.lookup(request("staging"));
+        assertEquals(1, revisionReads.get(), "submits within the interval share one git read");
+
+        revision = new FrameworkRevision("b2c3d4e5f6", FrameworkRevision.CLEAN);
+        clock.advance(Duration.ofSeconds(5));
+        assertEquals(revision, cache.currentRevision());
+        assertEquals(2, revisionReads.get());
+
+        properties.getCache().setRevisionCacheSeconds(0);
+        cache.currentRevision();
+        assertEquals(3, revisionReads.get());
+    }
+
+    @Test
+    void revisionTracksHeadAndUncommittedChanges() throws Exception {
+        assumeTrue(gitAvailable(), "git is not on PATH");
+        Path repo = Files.createDirectory(tempDir.resolve("framework"));
+        git(repo, "init", "-q");
+        Files.writeString(repo.resolve("LoginTest.java"), "class LoginTest {}");
+        git(repo, "add", "LoginTest.java");
+        git(repo, "-c", "user.name=t", "-c", "user.email=t@t", "commit", "-q", "-m", "init");
+
+        FrameworkRevision clean = FrameworkRevision.of(repo);
+        assertNotNull(clean);
+        assertEquals(FrameworkRevision.CLEAN, clean.dirtyHash());
+        assertEquals(40, clean.commit().length());
+
+        Files.writeString(repo.resolve("LoginTest.java"), "class LoginTest { void a() {} }");
+        FrameworkRevision edited = FrameworkRevision.of(repo);
+        assertEquals(clean.commit(), edited.commit());
+        assertNotEquals(FrameworkRevision.CLEAN, edited.dirtyHash());
+
+        Files.writeString(repo.resolve("NewTest.java"), "class NewTest {}");
+        FrameworkRevision untracked = FrameworkRevision.of(repo);
+        assertNotEquals(edited.dirtyHash(), untracked.dirtyHash(), "new test file counts as a change");
+        assertEquals(untracked, FrameworkRevision.of(repo));
+
+        assertNull(FrameworkRevision.of(Files.createDirectory(tempDir.resolve("not-a-repo"))));
+    }
+
+    @Test
+    void revisionOnlyCountsChangesInsideTheFrameworkDirectory() throws Exception {
+        assumeTrue(gitAvailable(), "git is not on PATH");
+        Path repo = Files.createDirectory(tempDir.resolve("monorepo"));
+        Path framework = Files.createDirectory(repo.resolve("automation-framework"));
+        git(repo, "init", "-q");
+        Files.writeString(repo.resolve("README.md"), "docs");
+        Files.writeString(framework.resolve("LoginTest.java"), "class LoginTest {}");
+        git(repo, "add", ".");
+        git(repo, "-c", "user.name=t", "-c", "user.email=t@t", "commit", "-q", "-m", "init");
+
+        Files.writeString(repo.resolve("README.md"), "docs, edited");
+        Files.writeString(repo.resolve("notes.txt"), "scratch");
+        assertEquals(FrameworkRevision.CLEAN, FrameworkRevision.of(framework).dirtyHash(), "changes outside the framework");
+
+        Files.writeString(framework.resolve("NewTest.java"), "class NewTest {}");
+        assertNotEquals(FrameworkRevision.CLEAN, FrameworkRevision.of(framework).dirtyHash());
+    }
+
+    private static boolean gitAvailable() {
+        try {
+            Process process = new ProcessBuilder("git", "--version").redirectErrorStream(true).start();
+            process.getInputStream().transferTo(OutputStream.nullOutputStream());
+            return process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static void git(Path repo, String... args) throws Exception {
+        List<String> command = new ArrayList<>(List.of("git"));
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).directory(repo.toFile()).inheritIO().start();
+        assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+        assertEquals(0, process.exitValue(), String.join(" ", command));
+    }
+
+    private static TestRunRequest request(String env) {
+        return TestRunRequest.builder()
+                .runId("new")
+                .env(env)
+                .profile("smoke")
+                .browser("chrome")
+                .headless(true)
+                .build();
+    }
+
+    /** Kết quả của process — chỉ có exit status, chưa có số liệu từ report */
+    private static TestRunResult process(RunStatus status) {
+        return TestRunResult.builder()
+                .runId("r1")
+                .status(status)
+                .duration(Duration.ofMinutes(4))
+                .build();
+    }
+
+    private static TestRunResult result(RunStatus status, int failed) {
+        return TestRunResult.builder()
+                .runId("r1")
+                .status(status)
+                .totalTests(5)
+                .passed(5 - failed)
+                .failed(failed)
+                .duration(Duration.ofMinutes(4))
+                .allureReportUrl("http://reports/r1")
+                .build();
+    }
+}
@@ -0,0 +1,169 @@
+package com.automation.bot.runner.history;
+
+import com.automation.bot.parser.model.RetriedTest;
+import com.automation.bot.parser.model.TestCase;
+import com.automation.bot.parser.model.TestSuite;
+import com.automation.bot.runner.MutableClock;
+import com.automation.bot.runner.RunStatus;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunResult;
+import com.automation.bot.runner.history.TestHistoryStore.Outcome;
+import com.automation.bot.runner.history.TestHistoryStore.TestKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestHistoryStoreTest {
+
+    private static final TestKey LOGIN = new TestKey("com.automation.LoginTest", "testValidLogin");
+
+    @TempDir
+    Path tempDir;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-10-01T08:00:00Z"));
+
+    @Test
+    void recordsOutcomesAndAnswersRangeQueries() {
+        TestHistoryStore store = store(180);
+        store.record(request("r1", "dev"), result(), List.of(suite(passed(2.0), failed(4.0, "Expected 200 but got 401"))));
+        clock.advance(Duration.ofDays(1));
+        store.record(request("r2", "staging"), result(), List.of(suite(passed(3.0), passed(1.0))));
+        clock.advance(Duration.ofHours(1));
+        store.record(request("r3", "dev"), result(), List.of(suite(skipped(), passed(1.0))));
+
+        List<TestHistoryStore.Entry> recent = store.recent(LOGIN, 10);
+        assertEquals(List.of("r3", "r2", "r1"), recent.stream().map(TestHistoryStore.Entry::runId).toList());
+        assertEquals(Outcome.SKIPPED, recent.get(0).outcome());
+        assertEquals("staging", recent.get(1).env());
+        assertEquals(3.0, recent.get(1).seconds());
+
+        TestHistoryStore.Stats all = store.stats(LOGIN, Instant.EPOCH);
+        assertEquals(3, all.runs());
+        assertEquals(1, all.skipped());
+        assertEquals(1.0, all.passRate(), "skipped is not counted");
+        assertEquals(2.5, all.avgSeconds());
+
+        TestKey logout = new TestKey("com.automation.LoginTest", "testLogout");
+        assertEquals(2.0 / 3, store.stats(logout, Instant.EPOCH).passRate(), 1e-9);
+        assertEquals(1, store.stats(logout, clock.instant().minus(Duration.ofMinutes(30))).runs(), "only r3 in range");
+        assertEquals("AssertionError: Expected 200 but got 401", store.recent(logout, 10).get(2).failure());
+
+        List<TestHistoryStore.TrendPoint> trend = store.dailyTrend(logout, Instant.EPOCH);
+        assertEquals(List.of(LocalDate.parse("2026-10-01"), LocalDate.parse("2026-10-02")),
+                trend.stream().map(TestHistoryStore.TrendPoint::day).toList());
+        assertEquals(2, trend.get(1).runs());
+        assertEquals(1.0, trend.get(1).avgSeconds());
+    }
+
+    @Test
+    void retriedAttemptsAreNotRecordedAsSkippedRuns() {
+        TestHistoryStore store = store(180);
+        // TestNG retry: lần chạy đầu của testValidLogin là testcase skipped riêng, lần 2 pass
+        TestSuite suite = suite(skipped(), passed(1.0));
+        TestCase retried = passed(2.0);
+        retried.setName("testValidLogin");
+        retried.setClassname("com.automation.LoginTest");
+        suite.setTestCases(List.of(suite.getTestCases().get(0), suite.getTestCases().get(1), retried));
+        TestRunResult result = TestRunResult.builder()
+                .status(RunStatus.COMPLETED)
+                .retriedTests(List.of(new RetriedTest("com.automation.LoginTest", "testValidLogin", 1, 2.0, true)))
+                .build();
+
+        store.record(request("r1", "dev"), result, List.of(suite));
+
+        TestHistoryStore.Stats stats = store.stats(LOGIN, Instant.EPOCH);
+        assertEquals(1, stats.runs());
+        assertEquals(0, stats.skipped());
+        assertEquals(Outcome.PASSED, store.recent(LOGIN, 10).get(0).outcome());
+    }
+
+    @Test
+    void findsTestsByFullNameMethodClassOrSubstring() {
+        TestHistoryStore store = store(180);
+        store.record(request("r1", "dev"), result(), List.of(suite(passed(1.0), passed(1.0))));
+
+        assertEquals(List.of(LOGIN), store.find("com.automation.LoginTest.testValidLogin"));
+        assertEquals(List.of(LOGIN), store.find("logintest#testvalidlogin"));
+        assertEquals(List.of(LOGIN), store.find("testValidLogin"));
+        assertEquals(2, store.find("LoginTest").size(), "class name lists its tests");
+        assertEquals(List.of(LOGIN), store.find("validlog"), "substring fallback");
+        assertTrue(store.find("CheckoutTest").isEmpty());
+    }
+
+    @Test
+    void reloadsFromDiskAndDropsRunsPastRetention() throws Exception {
+        TestHistoryStore store = store(30);
+        store.record(request("old", "dev"), result(), List.of(suite(failed(1.0, "boom"), passed(1.0))));
+        clock.advance(Duration.ofDays(70));
+        store.record(request("new", "dev"), result(), List.of(suite(passed(2.0), passed(1.0))));
+
+        assertEquals(List.of("new"), store.recent(LOGIN, 10).stream().map(TestHistoryStore.Entry::runId).toList(),
+                "pruned in memory on the next day's write");
+        assertFalse(Files.exists(tempDir.resolve("history-2026-10.jsonl")), "expired month segment deleted");
+        assertTrue(Files.exists(tempDir.resolve("history-2026-12.jsonl")));
+
+        // Dòng ghi dở khi crash không làm hỏng phần còn lại
+        Files.writeString(tempDir.resolve("history-2026-12.jsonl"), "{\"runId\":\"trunc", StandardOpenOption.APPEND);
+
+        TestHistoryStore reloaded = store(30);
+        assertEquals(2, reloaded.size());
+        List<TestHistoryStore.Entry> recent = reloaded.recent(LOGIN, 10);
+        assertEquals(1, recent.size());
+        assertEquals("new", recent.get(0).runId());
+        assertEquals(Outcome.PASSED, recent.get(0).outcome());
+        assertEquals(2.0, recent.get(0).seconds());
+    }
+
+    private TestHistoryStore store(int retentionDays) {
+        return new TestHistoryStore(tempDir, true, retentionDays, 300, clock);
+    }
+
+    private static TestRunRequest request(String runId, String env) {
+        return TestRunRequest.builder().runId(runId).env(env).profile("smoke").build();
+    }
+
+    private static TestRunResult result() {
+        return TestRunResult.builder().status(RunStatus.COMPLETED).build();
+    }
+
+    /** LoginTest với 2 testcase: testValidLogin, testLogout */
+    private static TestSuite suite(TestCase validLogin, TestCase logout) {
+        validLogin.setName("testValidLogin");
+        logout.setName("testLogout");
+        TestSuite suite = new TestSuite();
+        suite.setName("com.automation.LoginTest");
+        suite.setTestCases(List.of(validLogin, logout));
+        suite.getTestCases().forEach(tc -> tc.setClassname("com.automation.LoginTest"));
+        return suite;
+    }
+
+    private static TestCase passed(double seconds) {
+        TestCase tc = new TestCase();
+        tc.setTime(seconds);
+        return tc;
+    }
+
+    private static TestCase failed(double seconds, String message) {
+        TestCase tc = passed(seconds);
+        TestCase.Failure failure = new TestCase.Failure();
+        failure.setType("java.lang.AssertionError");
+        failure.setMessage(message + "\n\tat com.automation.LoginTest");
+        tc.setFailure(failure);
+        return tc;
+    }
+
+    private static TestCase skipped() {
+        TestCase tc = passed(0);
+        tc.setSkipped("");
+        return tc;
+    }
+}
@@ -0,0 +1,109 @@
+package com.automation.bot.runner.journal;
+
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.journal.RunJournal.PendingRun;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replaysUnfinishedRunsInSubmitOrder() {
+        RunJournal journal = new RunJournal(tempDir.resolve("journal.jsonl"), true, 500);
+        journal.submitted(request("r1", 1L));
+        journal.submitted(request("r2", 2L));
+        journal.submitted(request("r3", 3L));
+        journal.started("r1");
+        journal.process("r1", 4242L, Instant.parse("2026-01-01T10:00:00Z"));
+        journal.finished("r2");
+        journal.close();
+
+        List<PendingRun> pending = new RunJournal(tempDir.resolve("journal.jsonl"), true, 500).pendingRuns();
+
+        assertEquals(List.of("r1", "r3"), pending.stream().map(run -> run.request().getRunId()).toList());
+        assertTrue(pending.get(0).started());
+        assertEquals(4242L, pending.get(0).processes().get(0).pid());
+        assertFalse(pending.get(1).started());
+        assertEquals("smoke", pending.get(1).request().getProfile());
+    }
+
+    @Test
+    void compactionKeepsDetachedPrimaryAndAttachedSubscribers() {
+        Path file = tempDir.resolve("journal.jsonl");
+        RunJournal journal = new RunJournal(file, true, 500);
+        journal.submitted(request("r1", 1L));
+        journal.attached("r1", request("r1-b", 2L));
+        journal.detached("r1", 1L);
+        journal.submitted(request("r2", 3L));
+        journal.cancelled("r2");
+        journal.compact();
+
+        PendingRun run = journal.pendingRuns().get(0);
+        assertEquals(1, journal.pendingRuns().size());
+        assertEquals("r1", run.request().getRunId());
+        assertEquals(List.of(2L), run.subscribers().stream().map(TestRunRequest::getUserId).toList());
+        journal.close();
+    }
+
+    @Test
+    void compactsAutomaticallyAndSkipsTornLines() throws IOException {
+        Path file = tempDir.resolve("journal.jsonl");
+        RunJournal journal = new RunJournal(file, true, 4);
+        journal.submitted(request("r1", 1L));
+        journal.finished("r1");
+        journal.submitted(request("r2", 2L));
+        journal.started("r2"); // event thứ 4 → compact, r1 biến mất khỏi file
+        journal.close();
+
+        assertEquals(2, Files.readAllLines(file).size());
+
+        // Crash lúc đang ghi → dòng cuối dở dang
+        Files.writeString(file, "{\"type\":\"SUBMITTED\",\"runId\":\"r3\",\"req", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        List<PendingRun> pending = new RunJournal(file, true, 500).pendingRuns();
+        assertEquals(List.of("r2"), pending.stream().map(run -> run.request().getRunId()).toList());
+    }
+
+    @Test
+    void pendingRunsSeesEveryEventAppendedBeforeIt() {
+        RunJournal journal = new RunJournal(tempDir.resolve("journal.jsonl"), true, 7);
+        for (int i = 0; i < 50; i++) {
+            journal.submitted(request("r" + i, i));
+            if (i % 2 == 0) {
+                journal.finished("r" + i);
+            }
+        }
+
+        // Ghi chạy trên thread riêng, xen cả compact — đọc vẫn thấy đúng thứ tự đã gửi
+        List<PendingRun> pending = journal.pendingRuns();
+        assertEquals(25, pending.size());
+        assertEquals("r1", pending.get(0).request().getRunId());
+        assertEquals("r49", pending.get(24).request().getRunId());
+        journal.close();
+    }
+
+    private TestRunRequest request(String runId, long userId) {
+        return TestRunRequest.builder()
+                .runId(runId)
+                .userId(userId)
+                .chatId(userId * 100)
+                .env("dev")
+                .profile("smoke")
+                .browser("chrome")
+                .headless(true)
+                .build();
+    }
+}
@@ -0,0 +1,70 @@
+package com.automation.bot.runner.log;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunLogWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void rotatesIntoCappedGzipArchives() throws IOException {
+        Path log = tempDir.resolve("run.log");
+        String line = "x".repeat(99); // 100 bytes kèm newline
+
+        try (RunLogWriter writer = new RunLogWriter(log, 1000, 2, false)) {
+            for (int i = 0; i < 35; i++) {
+                writer.accept(line);
+            }
+        }
+
+        // 35 dòng, 10 dòng/file → 3 lần xoay, chỉ giữ 2 file nén mới nhất
+        assertTrue(Files.exists(tempDir.resolve("run.log.1.gz")));
+        assertTrue(Files.exists(tempDir.resolve("run.log.2.gz")));
+        assertFalse(Files.exists(tempDir.resolve("run.log.3.gz")));
+        assertEquals(5, Files.readAllLines(log).size());
+        assertEquals(10, gunzipLines(tempDir.resolve("run.log.1.gz")).size());
+    }
+
+    @Test
+    void tailSeeksFromTheEnd() throws IOException {
+        Path log = tempDir.resolve("run.log");
+        try (RunLogWriter writer = new RunLogWriter(log, 0, 0, false)) {
+            for (int i = 1; i <= 5000; i++) {
+                writer.accept("line " + i);
+            }
+        }
+
+        assertEquals(List.of("line 4998", "line 4999", "line 5000"), LogTail.tail(log, 3));
+        assertEquals(5000, LogTail.tail(log, 10_000).size());
+        assertEquals(List.of(), LogTail.tail(tempDir.resolve("missing.log"), 3));
+    }
+
+    @Test
+    void recentLinesKeepsOnlyTheLastLines() {
+        RecentLines recent = new RecentLines(3);
+        for (int i = 1; i <= 5; i++) {
+            recent.add("line " + i);
+        }
+
+        assertEquals(List.of("line 3", "line 4", "line 5"), recent.last(10));
+        assertEquals(List.of("line 5"), recent.last(1));
+    }
+
+    private static List<String> gunzipLines(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+}
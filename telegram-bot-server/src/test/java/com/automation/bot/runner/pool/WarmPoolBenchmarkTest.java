@@ -0,0 +1,104 @@
+package com.automation.bot.runner.pool;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.metrics.BotMetrics;
+import com.automation.bot.runner.*;
+import com.automation.bot.runner.remote.RemoteWorkerRegistry;
+import com.automation.bot.runner.shard.ShardPlanner;
+import com.automation.bot.runner.shard.TestDurationHistory;
+import com.automation.bot.runner.watchdog.RunWatchdog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * So sánh cold path (mvn test mỗi run) với warm pool trên framework thật.
+ *
+ * Chỉ chạy khi chỉ định framework, ví dụ:
+ *   mvn test -Dtest=WarmPoolBenchmarkTest -Dbench.frameworkPath=D:/JavaProjects/automation-framework
+ *            -Dbench.mavenHome=D:/Tools/apache-maven-3.9.8 [-Dbench.profile=api] [-Dbench.iterations=3]
+ */
+@EnabledIfSystemProperty(named = "bench.frameworkPath", matches = ".+")
+class WarmPoolBenchmarkTest {
+
+    @Test
+    void compareColdAndWarmRuns(@TempDir Path tempDir) throws Exception {
+        String profile = System.getProperty("bench.profile", "api");
+        int iterations = Integer.getInteger("bench.iterations", 3);
+
+        TestRunnerProperties coldProps = properties(tempDir.resolve("cold"), false);
+        TestRunnerProperties warmProps = properties(tempDir.resolve("warm"), true);
+
+        WarmWorkerPool disabledPool = new WarmWorkerPool(coldProps);
+        WarmWorkerPool warmPool = new WarmWorkerPool(warmProps);
+        warmPool.start();
+        try {
+            long deadline = System.currentTimeMillis() + Duration.ofMinutes(10).toMillis();
+            while (!warmPool.isReady() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(500);
+            }
+            assertTrue(warmPool.isReady(), "Warm pool did not become ready");
+
+            List<Duration> cold = runTimes(runner(coldProps, disabledPool),
+                    profile, iterations, "cold");
+            List<Duration> warm = runTimes(runner(warmProps, warmPool),
+                    profile, iterations, "warm");
+
+            System.out.printf("[bench] profile=%s iterations=%d%n", profile, iterations);
+            System.out.printf("[bench] cold: mean=%dms min=%dms%n", mean(cold), min(cold));
+            System.out.printf("[bench] warm: mean=%dms min=%dms%n", mean(warm), min(warm));
+        } finally {
+            warmPool.shutdown();
+        }
+    }
+
+    private List<Duration> runTimes(TestRunner runner, String profile, int iterations, String prefix) throws Exception {
+        List<Duration> durations = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            String runId = prefix + "-" + i;
+            TestRunRequest request = TestRunRequest.builder()
+                    .runId(runId)
+                    .env(System.getProperty("bench.env", "dev"))
+                    .profile(profile)
+                    .browser("chrome")
+                    .headless(true)
+                    .build();
+            TestRunResult result = runner.run(request, runner.createWorkspace(runId));
+            durations.add(result.getDuration());
+        }
+        return durations;
+    }
+
+    private TestRunner runner(TestRunnerProperties props, WarmWorkerPool pool) {
+        TestDurationHistory history = new TestDurationHistory(props);
+        return new TestRunner(props, new RunWorkspaceManager(props), pool,
+                new ShardPlanner(props, history), new RunWatchdog(props),
+                new BotMetrics(), new RemoteWorkerRegistry(props));
+    }
+
+    private TestRunnerProperties properties(Path workspaceDir, boolean warm) {
+        TestRunnerProperties props = new TestRunnerProperties();
+        props.setFrameworkPath(System.getProperty("bench.frameworkPath"));
+        props.setMavenHome(System.getProperty("bench.mavenHome"));
+        props.setWorkspaceDir(workspaceDir.toString());
+        props.getWarmPool().setEnabled(warm);
+        props.getWarmPool().setSize(1);
+        props.getWarmPool().setAcquireTimeoutSeconds(300);
+        return props;
+    }
+
+    private long mean(List<Duration> durations) {
+        return (long) durations.stream().mapToLong(Duration::toMillis).average().orElse(0);
+    }
+
+    private long min(List<Duration> durations) {
+        return durations.stream().mapToLong(Duration::toMillis).min().orElse(0);
+    }
+}
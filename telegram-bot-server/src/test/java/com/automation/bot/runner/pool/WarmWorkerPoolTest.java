@@ -0,0 +1,137 @@
+package com.automation.bot.runner.pool;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.metrics.BotMetrics;
+import com.automation.bot.runner.ResourceBudget;
+import com.automation.bot.runner.RunStatus;
+import com.automation.bot.runner.RunWorkspaceManager;
+import com.automation.bot.runner.TestRunQueue;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunResult;
+import com.automation.bot.runner.TestRunner;
+import com.automation.bot.runner.journal.RunJournal;
+import com.automation.bot.runner.queue.FifoQueueDiscipline;
+import com.automation.bot.runner.queue.RunDurationHistory;
+import com.automation.bot.runner.remote.RemoteWorkerRegistry;
+import com.automation.bot.runner.shard.ShardPlanner;
+import com.automation.bot.runner.shard.TestDurationHistory;
+import com.automation.bot.runner.watchdog.RunWatchdog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmWorkerPoolTest {
+
+    /** Worker giả: báo READY, nhận RUN rồi treo như test chờ browser mãi */
+    private static final String FAKE_WORKER = """
+            import java.io.*;
+
+            public class FakeWorker {
+                public static void main(String[] args) throws Exception {
+                    BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+                    System.out.println("@@WORKER READY");
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        if (line.startsWith("RUN|")) {
+                            System.out.println("Running " + line.split("\\\\|")[1]);
+                            Thread.sleep(600_000);
+                        } else if (line.equals("EXIT")) {
+                            return;
+                        }
+                    }
+                }
+            }
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private TestRunnerProperties properties;
+    private WarmWorkerPool pool;
+    private RunWatchdog watchdog;
+    private TestRunQueue queue;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new TestRunnerProperties();
+        properties.setWorkspaceDir(tempDir.resolve("workspaces").toString());
+        properties.setFrameworkPath(tempDir.toString());
+        properties.setMaxConcurrentRuns(1);
+        properties.getResources().setMaxMemoryMb(8192);
+        properties.getWarmPool().setEnabled(true);
+        properties.getWarmPool().setSize(1);
+        properties.getWarmPool().setAcquireTimeoutSeconds(5);
+
+        Path source = Files.writeString(tempDir.resolve("FakeWorker.java"), FAKE_WORKER);
+        pool = new WarmWorkerPool(properties);
+        pool.spawnAll(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(), source.toString()));
+        assertTrue(pool.isReady(), "fake worker did not report READY");
+
+        watchdog = new RunWatchdog(properties);
+        queue = new TestRunQueue(properties,
+                new ResourceBudget(properties), new FifoQueueDiscipline(),
+                new RunJournal(properties), new RunDurationHistory(properties), new BotMetrics(),
+                new RemoteWorkerRegistry(properties));
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.shutdown();
+        watchdog.shutdown();
+        pool.shutdown();
+    }
+
+    @Test
+    void cancelKillsWarmWorkerAndPoolReplacesIt() throws Exception {
+        TestRunner runner = new TestRunner(properties, new RunWorkspaceManager(properties), pool,
+                new ShardPlanner(properties, new TestDurationHistory(properties)), watchdog,
+                new BotMetrics(), new RemoteWorkerRegistry(properties));
+        CompletableFuture<TestRunResult> result = new CompletableFuture<>();
+        TestRunRequest request = TestRunRequest.builder()
+                .runId("r1").userId(1L).chatId(100L).env("dev").testClass("LoginTest").browser("chrome").headless(true)
+                .build();
+
+        TestRunQueue.TestRunInfo run = queue.submit(request, info -> {
+            try {
+                result.complete(runner.run(info.getRequest(), runner.createWorkspace("r1"), info.getProgress(),
+                        queue.processListener(info)));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        ProcessHandle worker = awaitProcess(run);
+        assertFalse(pool.isReady(), "the only worker is busy with r1");
+
+        assertTrue(queue.cancel("r1"));
+
+        // readLine của worker không interrupt được — run chỉ kết thúc vì worker bị kill
+        TestRunResult cancelled = result.get(10, TimeUnit.SECONDS);
+        assertEquals(RunStatus.FAILED, cancelled.getStatus());
+        assertFalse(worker.isAlive());
+        assertTrue(run.getProcesses().isEmpty(), "worker handed back before the run finished");
+
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!pool.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertTrue(pool.isReady(), "killed worker is replaced");
+    }
+
+    private static ProcessHandle awaitProcess(TestRunQueue.TestRunInfo run) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (run.getProcesses().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, run.getProcesses().size(), "warm worker registered on the run");
+        return run.getProcesses().get(0);
+    }
+}
@@ -0,0 +1,100 @@
+package com.automation.bot.runner.process;
+
+import com.automation.bot.config.TestRunnerProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledOnOs(OS.LINUX)
+class ProcessTreeTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void destroyKillsWholeTree() throws Exception {
+        Process shell = new ProcessBuilder("sh", "-c", "sleep 60 & sleep 60 & wait").start();
+        List<ProcessHandle> children = awaitChildren(shell.toHandle(), 2);
+
+        ProcessTree.Reclaimed reclaimed = ProcessTree.destroy(shell);
+
+        // sh có thể tự thoát ngay khi 2 sleep chết (wait trả về) trước khi kịp bị kill → 2 hoặc 3
+        assertTrue(reclaimed.processes() >= 2);
+        assertTrue(reclaimed.rssBytes() > 0, "RSS is read from /proc");
+        assertTrue(shell.waitFor(5, TimeUnit.SECONDS));
+        for (ProcessHandle child : children) {
+            child.onExit().get(5, TimeUnit.SECONDS);
+            assertFalse(child.isAlive());
+        }
+    }
+
+    @Test
+    void reaperKillsOnlyOrphanedDrivers() throws Exception {
+        // Bản sao của sleep mang tên driver → không đụng tới process thật nào trên máy
+        Path driver = tempDir.resolve("fake-chromedriver");
+        Files.copy(Path.of("/bin/sleep"), driver);
+        driver.toFile().setExecutable(true);
+
+        Process owned = new ProcessBuilder(driver.toString(), "60").start();
+        // sh thoát ngay → driver chạy nền bị chuyển sang init, không còn chủ
+        new ProcessBuilder("sh", "-c", driver + " 61 >/dev/null 2>&1 &").start().waitFor();
+        ProcessHandle orphan = awaitProcess(driver, "61");
+
+        TestRunnerProperties.Reaper config = new TestRunnerProperties.Reaper();
+        config.setEnabled(false);
+        config.setMinAgeSeconds(0);
+        config.setDriverNames(List.of("fake-chromedriver"));
+        try {
+            ProcessTree.Reclaimed reclaimed = new OrphanProcessReaper(config, List::of).reap();
+
+            assertEquals(1, reclaimed.processes());
+            orphan.onExit().get(5, TimeUnit.SECONDS);
+            assertTrue(owned.isAlive(), "child of the bot JVM is owned");
+        } finally {
+            owned.destroyForcibly();
+            orphan.destroyForcibly();
+        }
+    }
+
+    @Test
+    void executableNameIgnoresPathAndExtension() {
+        assertEquals("chrome", OrphanProcessReaper.executableName("/opt/google/chrome/chrome"));
+        assertEquals("chromedriver", OrphanProcessReaper.executableName("C:\\drivers\\ChromeDriver.exe"));
+    }
+
+    private static List<ProcessHandle> awaitChildren(ProcessHandle parent, int count) throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            List<ProcessHandle> children = parent.children().toList();
+            if (children.size() >= count) {
+                return children;
+            }
+            Thread.sleep(100);
+        }
+        fail("children did not start");
+        return List.of();
+    }
+
+    private static ProcessHandle awaitProcess(Path command, String argument) throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            Optional<ProcessHandle> match = ProcessHandle.allProcesses()
+                    .filter(handle -> handle.info().command().map(command.toString()::equals).orElse(false))
+                    .filter(handle -> List.of(handle.info().arguments().orElse(new String[0])).contains(argument))
+                    .findFirst();
+            if (match.isPresent()) {
+                return match.get();
+            }
+            Thread.sleep(100);
+        }
+        fail("orphan did not start");
+        return null;
+    }
+}
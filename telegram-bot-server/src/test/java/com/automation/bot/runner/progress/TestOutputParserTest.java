@@ -0,0 +1,113 @@
+package com.automation.bot.runner.progress;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestOutputParserTest {
+
+    private static final String PREFIX = "2026-01-10 10:15:30.123 [main] INFO  c.a.listeners.TestListener - ";
+
+    @Test
+    void countsListenerEventsAsTheyHappen() {
+        RunProgress progress = new RunProgress();
+        TestOutputParser parser = new TestOutputParser(progress);
+
+        feed(parser,
+                PREFIX + "========== Suite started: Smoke (3 tests) ==========",
+                PREFIX + "--- Test started: loginWithValidUser ---",
+                PREFIX + "--- Test PASSED: loginWithValidUser ---",
+                PREFIX + "--- Test started: loginWithInvalidPassword ---",
+                "2026-01-10 10:15:31.000 [main] ERROR c.a.listeners.TestListener - --- Test FAILED: loginWithInvalidPassword ---");
+
+        assertEquals(3, progress.getPlanned());
+        assertEquals(2, progress.getStarted());
+        assertEquals("loginWithInvalidPassword", progress.getCurrentTest());
+        assertEquals("2/3 done, 1 failed", progress.summary());
+    }
+
+    @Test
+    void parsesEventsUnderTurkishDefaultLocale() {
+        // "FAILED".toLowerCase() theo locale tr → "faıled" (i không chấm)
+        Locale original = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            RunProgress progress = new RunProgress();
+            feed(new TestOutputParser(progress),
+                    PREFIX + "--- Test started: loginWithInvalidPassword ---",
+                    PREFIX + "--- Test FAILED: loginWithInvalidPassword ---");
+
+            assertEquals(1, progress.getFailed());
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+
+    @Test
+    void fallsBackToSurefireClassSummaries() {
+        RunProgress progress = new RunProgress();
+        TestOutputParser parser = new TestOutputParser(progress);
+
+        feed(parser,
+                "[INFO] Running com.automation.tests.api.AuthApiTest",
+                "[INFO] Tests run: 4, Failures: 1, Errors: 0, Skipped: 1, Time elapsed: 2.1 s -- in com.automation.tests.api.AuthApiTest",
+                "[INFO] Tests run: 4, Failures: 1, Errors: 0, Skipped: 1");
+
+        assertEquals(2, progress.getPassed());
+        assertEquals(1, progress.getFailed());
+        assertEquals(1, progress.getSkipped());
+        assertEquals("4 done, 1 failed", progress.summary());
+    }
+
+    @Test
+    void surefireSummaryIsIgnoredOnceListenerEventsAreSeen() {
+        RunProgress progress = new RunProgress();
+        TestOutputParser parser = new TestOutputParser(progress);
+
+        feed(parser,
+                PREFIX + "--- Test started: a ---",
+                PREFIX + "--- Test PASSED: a ---",
+                "[INFO] Tests run: 1, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.5 s -- in com.x.ATest");
+
+        assertEquals(1, progress.getDone());
+    }
+
+    @Test
+    void shardsShareOneProgress() {
+        RunProgress progress = new RunProgress();
+        TestOutputParser shard1 = new TestOutputParser(progress);
+        TestOutputParser shard2 = new TestOutputParser(progress);
+
+        shard1.accept(PREFIX + "========== Suite started: Regression (shard 1/2) (5 tests) ==========");
+        shard2.accept(PREFIX + "========== Suite started: Regression (shard 2/2) (4 tests) ==========");
+        shard2.accept(PREFIX + "--- Test SKIPPED: b ---");
+
+        assertEquals("1/9 done, 0 failed", progress.summary());
+    }
+
+    @Test
+    void listenersReceiveEachTestEvent() {
+        RunProgress progress = new RunProgress();
+        List<String> events = new ArrayList<>();
+        progress.addListener((outcome, test, p) -> events.add(outcome + ":" + test + "@" + p.getDone()));
+        TestOutputParser parser = new TestOutputParser(progress);
+
+        feed(parser,
+                PREFIX + "--- Test started: a ---",
+                PREFIX + "--- Test FAILED: a ---",
+                "[INFO] Tests run: 2, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.5 s -- in com.x.BTest");
+        TestOutputParser surefireOnly = new TestOutputParser(progress);
+        surefireOnly.accept("[INFO] Tests run: 2, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.5 s -- in com.x.CTest");
+
+        assertEquals(List.of("started:a@0", "failed:a@1", "class:com.x.CTest@3"), events);
+    }
+
+    private static void feed(TestOutputParser parser, String... lines) {
+        Stream.of(lines).forEach(parser);
+    }
+}
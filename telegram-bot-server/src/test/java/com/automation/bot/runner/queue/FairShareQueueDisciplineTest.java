@@ -0,0 +1,91 @@
+package com.automation.bot.runner.queue;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.ResourceCost;
+import com.automation.bot.runner.TestRunQueue.TestRunInfo;
+import com.automation.bot.runner.TestRunRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FairShareQueueDisciplineTest {
+
+    private TestRunnerProperties properties;
+    private FairShareQueueDiscipline discipline;
+    private final List<TestRunInfo> pending = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties = new TestRunnerProperties();
+        discipline = new FairShareQueueDiscipline(properties);
+    }
+
+    @Test
+    void smokeRunsAheadOfRegression() {
+        enqueue("r1", 1L, "regression");
+        enqueue("s1", 2L, "smoke");
+
+        assertEquals(List.of("s1", "r1"), order());
+    }
+
+    @Test
+    void usersAreInterleavedWithinPriorityClass() {
+        enqueue("a1", 1L, "regression");
+        enqueue("a2", 1L, "regression");
+        enqueue("a3", 1L, "regression");
+        enqueue("b1", 2L, "regression");
+
+        // User 2's first run goes right after user 1's first, not behind all of them
+        assertEquals(List.of("a1", "b1", "a2", "a3"), order());
+    }
+
+    @Test
+    void heavierWeightGetsMoreTurns() {
+        properties.getQueue().getUserWeights().put(2L, 2.0);
+        enqueue("a1", 1L, "api");
+        enqueue("a2", 1L, "api");
+        enqueue("b1", 2L, "api");
+        enqueue("b2", 2L, "api");
+        enqueue("b3", 2L, "api");
+
+        assertEquals(List.of("b1", "a1", "b2", "b3", "a2"), order());
+    }
+
+    @Test
+    void perUserLimits() {
+        properties.getQueue().setMaxQueuedPerUser(2);
+        properties.getQueue().setMaxInFlightPerUser(1);
+        enqueue("a1", 1L, "smoke");
+        enqueue("a2", 1L, "smoke");
+
+        assertFalse(discipline.accepts(info("a3", 1L, "smoke"), pending));
+        assertTrue(discipline.accepts(info("b1", 2L, "smoke"), pending));
+
+        assertTrue(discipline.canStart(pending.get(0), Map.of()));
+        assertFalse(discipline.canStart(pending.get(1), Map.of(1L, 1)));
+    }
+
+    private void enqueue(String runId, long userId, String profile) {
+        TestRunInfo info = info(runId, userId, profile);
+        pending.add(info);
+        discipline.onEnqueued(info);
+    }
+
+    private TestRunInfo info(String runId, long userId, String profile) {
+        TestRunRequest request = TestRunRequest.builder()
+                .runId(runId)
+                .userId(userId)
+                .profile(profile)
+                .build();
+        return new TestRunInfo(request, new ResourceCost(1, 1024, 1), i -> { });
+    }
+
+    private List<String> order() {
+        return discipline.order(pending).stream().map(i -> i.getRequest().getRunId()).toList();
+    }
+}
@@ -0,0 +1,93 @@
+package com.automation.bot.runner.queue;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.ResourceCost;
+import com.automation.bot.runner.TestRunQueue.TestRunInfo;
+import com.automation.bot.runner.TestRunRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunDurationHistoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void percentilesOverSlidingWindow() {
+        RunDurationHistory history = new RunDurationHistory(tempDir.resolve("durations.json"), 10);
+        // 12 mẫu, cửa sổ 10 → 2 mẫu đầu (1000s) bị đẩy ra
+        history.record(request("smoke", "dev"), Duration.ofSeconds(1000));
+        history.record(request("smoke", "dev"), Duration.ofSeconds(1000));
+        for (int i = 1; i <= 10; i++) {
+            history.record(request("smoke", "dev"), Duration.ofSeconds(i * 10));
+        }
+
+        RunDurationHistory.Estimate estimate = history.estimate(request("smoke", "dev"));
+        assertEquals(10, estimate.samples());
+        assertEquals(Duration.ofSeconds(50), estimate.p50());
+        assertEquals(Duration.ofSeconds(90), estimate.p90());
+    }
+
+    @Test
+    void fallsBackToOtherEnvThenDefault() {
+        RunDurationHistory history = new RunDurationHistory(tempDir.resolve("durations.json"), 10);
+        history.record(request("regression", "staging"), Duration.ofMinutes(20));
+
+        assertEquals(Duration.ofMinutes(20), history.estimate(request("regression", "dev")).p50());
+        RunDurationHistory.Estimate unknown = history.estimate(request("smoke", "dev"));
+        assertEquals(0, unknown.samples());
+        assertEquals(RunDurationHistory.DEFAULT_DURATION, unknown.p50());
+    }
+
+    @Test
+    void survivesRestart() {
+        Path file = tempDir.resolve("durations.json");
+        new RunDurationHistory(file, 10).record(request("api", "dev"), Duration.ofSeconds(42));
+
+        assertEquals(Duration.ofSeconds(42), new RunDurationHistory(file, 10).estimate(request("api", "dev")).p50());
+    }
+
+    @Test
+    void shortestJobFirstWithStarvationGuard() {
+        RunDurationHistory history = new RunDurationHistory(tempDir.resolve("durations.json"), 10);
+        history.record(request("regression", "dev"), Duration.ofMinutes(30));
+        history.record(request("login", "dev"), Duration.ofMinutes(1));
+
+        Instant now = Instant.now();
+        ShortestJobFirstQueueDiscipline discipline = new ShortestJobFirstQueueDiscipline(
+                new TestRunnerProperties(), history, Clock.fixed(now, ZoneOffset.UTC));
+
+        TestRunInfo regression = info("r1", "regression");
+        TestRunInfo login = info("l1", "login");
+        assertEquals(List.of(login, regression), discipline.order(List.of(regression, login)));
+
+        // Cả 2 đã chờ quá sjf-max-wait-minutes (30) → về lại thứ tự submit, regression không bị vượt mãi
+        ShortestJobFirstQueueDiscipline later = new ShortestJobFirstQueueDiscipline(
+                new TestRunnerProperties(), history, Clock.fixed(now.plus(Duration.ofMinutes(31)), ZoneOffset.UTC));
+        assertEquals(List.of(regression, login), later.order(List.of(regression, login)));
+    }
+
+    private TestRunInfo info(String runId, String profile) {
+        TestRunRequest request = request(profile, "dev").toBuilder().runId(runId).build();
+        return new TestRunInfo(request, new ResourceCost(0, 0, 0), i -> { });
+    }
+
+    private TestRunRequest request(String profile, String env) {
+        return TestRunRequest.builder()
+                .runId("run")
+                .userId(1L)
+                .chatId(100L)
+                .env(env)
+                .profile(profile)
+                .build();
+    }
+}
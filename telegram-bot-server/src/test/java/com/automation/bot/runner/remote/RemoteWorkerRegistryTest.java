@@ -0,0 +1,145 @@
+package com.automation.bot.runner.remote;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.MutableClock;
+import com.automation.bot.runner.ResourceCost;
+import com.automation.bot.runner.RunStatus;
+import com.automation.bot.runner.RunWorkspace;
+import com.automation.bot.runner.RunWorkspaceManager;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.TestRunResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemoteWorkerRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TestRunnerProperties properties;
+    private RunWorkspaceManager workspaces;
+    private MutableClock clock;
+    private RemoteWorkerRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TestRunnerProperties();
+        properties.setWorkspaceDir(tempDir.resolve("runs").toString());
+        properties.getRemote().setEnabled(true);
+        workspaces = new RunWorkspaceManager(properties);
+        clock = new MutableClock(Instant.parse("2026-01-10T10:00:00Z"));
+        registry = new RemoteWorkerRegistry(properties, clock, false);
+    }
+
+    @Test
+    void agentLeasesRunStreamsOutputAndReturnsReports() throws Exception {
+        String agentId = registry.register("a1", new RemoteWorkerRegistry.Capacity(2, 4096, 2));
+        assertEquals(agentId, registry.tryReserve(new ResourceCost(1, 1024, 1)));
+
+        RunWorkspace workspace = workspaces.create("r1");
+        List<String> lines = new CopyOnWriteArrayList<>();
+        CompletableFuture<TestRunResult> result = CompletableFuture.supplyAsync(
+                () -> registry.execute(agentId, request("r1"), workspace, lines::add));
+
+        RemoteWorkerRegistry.Assignment assignment = registry.lease(agentId, Duration.ofSeconds(5));
+        assertEquals("r1", assignment.runId());
+        assertEquals("smoke", assignment.request().getProfile());
+        assertTrue(registry.output(agentId, "r1", List.of("[INFO] Building", "--- Test started: a ---")));
+
+        // Agent chạy trên máy khác: report nằm trong workspace riêng của agent, gửi về dạng zip
+        RunWorkspace agentWorkspace = new RunWorkspaceManager(agentProperties()).create("r1");
+        Files.writeString(agentWorkspace.surefireReportsDir().resolve("TEST-com.x.LoginTest.xml"), "<testsuite/>");
+        Files.writeString(agentWorkspace.allureResultsDir().resolve("abc-result.json"), "{}");
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        RunArtifacts.zip(agentWorkspace, zip);
+        assertTrue(registry.complete(agentId, "r1", new RemoteWorkerRegistry.AgentResult(1, 42_000, null),
+                new ByteArrayInputStream(zip.toByteArray())));
+
+        TestRunResult finished = result.get(5, TimeUnit.SECONDS);
+        assertEquals(RunStatus.FAILED, finished.getStatus());
+        assertEquals("Exit code: 1", finished.getErrorMessage());
+        assertEquals(List.of("[INFO] Building", "--- Test started: a ---"), lines);
+        assertTrue(Files.exists(workspace.surefireReportsDir().resolve("TEST-com.x.LoginTest.xml")));
+        assertTrue(Files.exists(workspace.allureResultsDir().resolve("abc-result.json")));
+        assertFalse(registry.output(agentId, "r1", List.of("late")), "run is no longer expected");
+    }
+
+    @Test
+    void lostAgentFailsItsRunsAndMustReRegister() throws Exception {
+        properties.getRemote().setAgentTimeoutSeconds(30);
+        String agentId = registry.register("a1", new RemoteWorkerRegistry.Capacity(1, 4096, 2));
+        RunWorkspace workspace = workspaces.create("r1");
+        CompletableFuture<TestRunResult> result = CompletableFuture.supplyAsync(
+                () -> registry.execute(agentId, request("r1"), workspace, line -> { }));
+        assertNotNull(registry.lease(agentId, Duration.ofSeconds(5)));
+
+        clock.advance(Duration.ofSeconds(31));
+        registry.checkAgents();
+
+        TestRunResult failed = result.get(5, TimeUnit.SECONDS);
+        assertEquals(RunStatus.FAILED, failed.getStatus());
+        assertTrue(failed.getErrorMessage().contains("lost"), failed.getErrorMessage());
+        assertNull(registry.heartbeat(agentId, List.of("r1")), "unknown agent registers again");
+        assertNull(registry.tryReserve(new ResourceCost(0, 512, 0.5)));
+    }
+
+    @Test
+    void heartbeatReportsRunsNobodyWaitsFor() {
+        String agentId = registry.register("a1", new RemoteWorkerRegistry.Capacity(1, 4096, 2));
+        assertEquals(List.of("stale"), registry.heartbeat(agentId, List.of("stale")));
+    }
+
+    @Test
+    void unzipIgnoresEntriesOutsideReportDirectories() throws Exception {
+        RunWorkspace workspace = workspaces.create("r1");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("../../escape.txt"));
+            zip.write("x".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("allure-results/ok.json"));
+            zip.write("{}".getBytes(StandardCharsets.UTF_8));
+        }
+
+        int files = RunArtifacts.unzip(new ByteArrayInputStream(bytes.toByteArray()), workspace, 1024);
+
+        assertEquals(1, files);
+        assertFalse(Files.exists(tempDir.resolve("escape.txt")));
+        assertTrue(Files.exists(workspace.allureResultsDir().resolve("ok.json")));
+    }
+
+    private TestRunnerProperties agentProperties() {
+        TestRunnerProperties agent = new TestRunnerProperties();
+        agent.setWorkspaceDir(tempDir.resolve("agent-runs").toString());
+        return agent;
+    }
+
+    private static TestRunRequest request(String runId) {
+        return TestRunRequest.builder()
+                .runId(runId)
+                .userId(1L)
+                .chatId(100L)
+                .env("dev")
+                .profile("smoke")
+                .browser("chrome")
+                .headless(true)
+                .shards(1)
+                .build();
+    }
+}
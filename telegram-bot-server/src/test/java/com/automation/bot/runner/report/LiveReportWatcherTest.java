@@ -0,0 +1,128 @@
+package com.automation.bot.runner.report;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.parser.SurefireReportParser;
+import com.automation.bot.parser.model.TestSuite;
+import com.automation.bot.runner.RunWorkspace;
+import com.automation.bot.runner.RunWorkspaceManager;
+import com.automation.bot.runner.TestRunResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveReportWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TestRunnerProperties properties;
+    private LiveReportWatcher watcher;
+    private RunWorkspace workspace;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new TestRunnerProperties();
+        properties.setWorkspaceDir(tempDir.toString());
+        properties.getReports().setSettleMillis(50);
+        watcher = new LiveReportWatcher(properties, new SurefireReportParser());
+        workspace = new RunWorkspaceManager(properties).create("r1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.shutdown();
+    }
+
+    @Test
+    void reportsAreIngestedAsSoonAsTheyAreComplete() throws Exception {
+        try (RunReports reports = watcher.watch(workspace)) {
+            Path login = workspace.surefireReportsDir().resolve("TEST-com.x.LoginTest.xml");
+            // Surefire đang ghi dở → chưa parse được
+            Files.writeString(login, "<testsuite name=\"com.x.LoginTest\" tests=\"2\"");
+            Thread.sleep(300);
+            assertTrue(reports.isEmpty());
+
+            Files.writeString(login, suite("com.x.LoginTest", 2, 1));
+            awaitClasses(reports, 1);
+
+            TestRunResult partial = reports.currentResult(Duration.ofSeconds(30));
+            assertEquals(2, partial.getTotalTests());
+            assertEquals(1, partial.getFailed());
+            assertEquals("1 class reported, 1 failed", reports.summary());
+        }
+    }
+
+    @Test
+    void shardReportsAreCountedOnceAfterMerge() throws Exception {
+        try (RunReports reports = watcher.watch(workspace)) {
+            RunWorkspace shard = workspace.shard(2);
+            Files.createDirectories(shard.surefireReportsDir());
+            Path report = shard.surefireReportsDir().resolve("TEST-com.x.CartTest.xml");
+            Files.writeString(report, suite("com.x.CartTest", 3, 0));
+            awaitClasses(reports, 1);
+
+            // Gộp shard như TestRunner.mergeShard: đổi tên, giữ mtime
+            Files.copy(report, workspace.surefireReportsDir().resolve(RunWorkspace.shardReportName(2, "TEST-com.x.CartTest.xml")),
+                    StandardCopyOption.COPY_ATTRIBUTES);
+            Files.writeString(workspace.surefireReportsDir().resolve("TEST-com.x.LoginTest.xml"), suite("com.x.LoginTest", 1, 0));
+
+            List<TestSuite> suites = reports.finish();
+            assertEquals(List.of("com.x.LoginTest", "com.x.CartTest"), suites.stream().map(TestSuite::getName).toList());
+            assertEquals(4, reports.currentResult(null).getTotalTests());
+        }
+    }
+
+    @Test
+    void closingReportsCancelsPendingIngest() throws Exception {
+        properties.getReports().setSettleMillis(500);
+        Files.writeString(workspace.surefireReportsDir().resolve("TEST-com.x.LoginTest.xml"), suite("com.x.LoginTest", 2, 0));
+
+        // File có sẵn → watch() xếp lịch parse ngay, close() trước khi hết settle
+        RunReports reports = watcher.watch(workspace);
+        reports.close();
+        Thread.sleep(800);
+
+        assertTrue(reports.isEmpty(), "scheduled ingest cancelled on close");
+    }
+
+    @Test
+    void finishParsesReportsWhenLiveIngestionIsOff() throws Exception {
+        properties.getReports().setLive(false);
+        LiveReportWatcher offline = new LiveReportWatcher(properties, new SurefireReportParser());
+        RunReports reports = offline.watch(workspace);
+        Files.writeString(workspace.surefireReportsDir().resolve("TEST-com.x.LoginTest.xml"), suite("com.x.LoginTest", 2, 0));
+
+        assertEquals(1, reports.finish().size());
+        offline.shutdown();
+    }
+
+    private static void awaitClasses(RunReports reports, int classes) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reports.snapshot().size() < classes && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(classes, reports.snapshot().size());
+    }
+
+    private static String suite(String name, int tests, int failures) {
+        StringBuilder xml = new StringBuilder("<testsuite name=\"" + name + "\" tests=\"" + tests + "\" failures=\""
+                + failures + "\" errors=\"0\" skipped=\"0\" time=\"1.0\">\n");
+        for (int i = 0; i < tests; i++) {
+            xml.append("  <testcase name=\"t").append(i).append("\" classname=\"").append(name).append("\" time=\"0.5\">");
+            if (i < failures) {
+                xml.append("<failure message=\"boom\" type=\"AssertionError\"/>");
+            }
+            xml.append("</testcase>\n");
+        }
+        return xml.append("</testsuite>\n").toString();
+    }
+}
@@ -0,0 +1,112 @@
+package com.automation.bot.runner.shard;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.RunWorkspace;
+import com.automation.bot.runner.TestRunRequest;
+import com.automation.bot.runner.shard.ShardPlanner.Shard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardPlannerTest {
+
+    private static final String SUITE = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <!DOCTYPE suite SYSTEM "https://testng.org/testng-1.0.dtd">
+            <suite name="Regression">
+                <listeners>
+                    <listener class-name="com.automation.listeners.TestListener"/>
+                </listeners>
+                <test name="UI">
+                    <parameter name="browser" value="chrome"/>
+                    <classes>
+                        <class name="com.automation.tests.LoginTest"/>
+                        <class name="com.automation.tests.CheckoutTest"/>
+                    </classes>
+                </test>
+                <test name="API">
+                    <classes>
+                        <class name="com.automation.tests.AuthApiTest"/>
+                    </classes>
+                </test>
+            </suite>
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private TestRunnerProperties properties;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new TestRunnerProperties();
+        properties.setFrameworkPath(tempDir.resolve("framework").toString());
+        properties.setWorkspaceDir(tempDir.resolve("runs").toString());
+
+        Path suite = tempDir.resolve("framework/src/test/resources/suites/regression.xml");
+        Files.createDirectories(suite.getParent());
+        Files.writeString(suite, SUITE);
+    }
+
+    @Test
+    void balanceUsesLongestProcessingTimeFirst() {
+        Map<String, Double> estimates = new LinkedHashMap<>();
+        estimates.put("A", 10.0);
+        estimates.put("B", 60.0);
+        estimates.put("C", 30.0);
+        estimates.put("D", 25.0);
+
+        List<List<String>> shards = ShardPlanner.balance(estimates, 2);
+
+        // B (60) một mình, A + C + D (65) ở shard còn lại — giữ thứ tự trong suite
+        assertEquals(List.of(List.of("B"), List.of("A", "C", "D")), shards);
+    }
+
+    @Test
+    void balanceDropsEmptyShards() {
+        Map<String, Double> estimates = Map.of("A", 5.0);
+
+        assertEquals(List.of(List.of("A")), ShardPlanner.balance(estimates, 3));
+    }
+
+    @Test
+    void planWritesOneSuitePerShard() throws Exception {
+        ShardPlanner planner = new ShardPlanner(properties, new TestDurationHistory(properties));
+        RunWorkspace workspace = new RunWorkspace("run1", tempDir.resolve("runs/run1"), null, null, null);
+
+        List<Shard> shards = planner.plan(request(3), workspace);
+
+        assertEquals(3, shards.size());
+        String login = Files.readString(shards.get(0).suiteXml());
+        assertTrue(login.contains("Regression (shard 1/3)"));
+        assertTrue(login.contains("com.automation.tests.LoginTest"));
+        assertTrue(login.contains("TestListener"), "listeners must be kept");
+        assertTrue(login.contains("name=\"browser\""), "parameters must be kept");
+        assertFalse(login.contains("CheckoutTest"));
+        assertFalse(login.contains("name=\"API\""), "empty <test> must be removed");
+    }
+
+    @Test
+    void singleShardMeansNoPlan() throws Exception {
+        ShardPlanner planner = new ShardPlanner(properties, new TestDurationHistory(properties));
+        RunWorkspace workspace = new RunWorkspace("run1", tempDir.resolve("runs/run1"), null, null, null);
+
+        assertTrue(planner.plan(request(1), workspace).isEmpty());
+    }
+
+    private TestRunRequest request(int shards) {
+        return TestRunRequest.builder()
+                .runId("run1")
+                .profile("regression")
+                .shards(shards)
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+package com.automation.bot.runner.watchdog;
+
+import com.automation.bot.config.TestRunnerProperties;
+import com.automation.bot.runner.MutableClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+class RunWatchdogTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T10:00:00Z"));
+    private TestRunnerProperties properties;
+    private RunWatchdog watchdog;
+    private Process process;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new TestRunnerProperties();
+        watchdog = new RunWatchdog(properties, clock, false);
+        process = new ProcessBuilder("sleep", "60").start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        process.destroyForcibly();
+    }
+
+    @Test
+    void silentRunIsAbortedAfterInactivityBudget() throws Exception {
+        try (RunWatchdog.Watch watch = watchdog.watch("r1", RunPhase.RESOLVE)) {
+            watch.attach(process);
+            watch.accept("[INFO] --- surefire:3.2.5:test (default-test) @ automation-framework ---");
+            assertEquals(RunPhase.TEST, watch.getPhase());
+
+            clock.advance(Duration.ofMinutes(9));
+            watchdog.check();
+            assertFalse(watch.isAborted(), "test phase allows 10 silent minutes");
+
+            clock.advance(Duration.ofMinutes(1));
+            watchdog.check();
+            assertTrue(watch.isAborted());
+            assertTrue(watch.getAbortReason().contains("No output"));
+            assertTrue(process.waitFor(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void phaseBudgetAppliesEvenWhenOutputKeepsComing() {
+        try (RunWatchdog.Watch watch = watchdog.watch("r1", RunPhase.RESOLVE)) {
+            watch.attach(process);
+            watch.accept("[INFO] --- compiler:3.11.0:compile (default-compile) @ automation-framework ---");
+            for (int i = 0; i < 5; i++) {
+                clock.advance(Duration.ofMinutes(1));
+                watch.accept("[INFO] Compiling...");
+                watchdog.check();
+            }
+            assertTrue(watch.isAborted());
+            assertEquals("The compile phase exceeded 5 minutes", watch.getAbortReason());
+        }
+    }
+
+    @Test
+    void closedWatchIsNoLongerChecked() {
+        RunWatchdog.Watch watch = watchdog.watch("r1", RunPhase.RESOLVE);
+        watch.attach(process);
+        watch.close();
+
+        clock.advance(Duration.ofHours(1));
+        watchdog.check();
+        assertFalse(watch.isAborted());
+        assertTrue(process.isAlive());
+    }
+}